@@ -94,6 +94,18 @@ asyncio.run(basic_usage())
 # .. note:: To achieve the best results, the ``"agent_control"`` mode may require
 #  additional instructions in the system prompt.
 #
+# If ``long_term_memory_mode`` is set to ``static_control`` or ``both``, the
+# agent retrieves from the long-term memory at the beginning of each reply,
+# concurrently with formatting the current messages, and records the reply
+# at the end by a ``WriteBehindRecorder`` in background, so that the reply is
+# returned without waiting for the recording. The records queued over
+# consecutive replies are coalesced into one ``record`` call, and a new reply
+# waits only if too many records are queued. The sessions wait for the
+# pending records before saving the states, and so does the end of
+# ``asyncio.run``. You can also wait for them explicitly by
+# ``await agent.wait_pending_writes()``. Note the records being written in
+# background are not retrievable yet.
+#
 
 # Create ReAct agent with long-term memory
 agent = ReActAgent(
@@ -165,6 +177,9 @@ asyncio.run(retrieve_preferences())
 #     * - ``Mem0LongTermMemory``
 #       - \-
 #       - Long-term memory implementation based on the mem0 library, supporting vector storage and retrieval.
+#     * - ``VectorLongTermMemory``
+#       - \-
+#       - Local long-term memory that embeds the records and retrieves them by vector similarity with metadata filters, stored in a memory-mapped numpy matrix on disk, without the LLM extraction and the external vector database.
 #
 #
 #
@@ -8,6 +8,16 @@ Memory
 In AgentScope, the memory is used to store the context of the agent, and retrieve it when needed.
 Specifically, AgentScope provides a memory base class ``MemoryBase`` and an in-memory implementation ``InMemoryMemory`` under ``agentscope.memory`` that can be used directly.
 
+For long conversations, ``IndexedMemory`` works the same as ``InMemoryMemory`` and shares its state format, while indexing the messages by id, role and name.
+It detects duplicate messages in constant time, deletes messages in batch (``delete`` and ``delete_by_id``), and retrieves messages by ranges of index, id and timestamp, e.g. ``await memory.retrieve(start=-10, role="assistant")``.
+
+For agents that run for a long time, ``WindowedMemory`` keeps only the latest ``max_messages`` messages, and ``TokenBudgetMemory`` keeps the latest messages within ``max_tokens``, counting each message once by the given token counter and formatter.
+The older messages are evicted (or moved into the ``archive`` memory if given) as new messages arrive, while the tool calls are always evicted together with their tool results.
+
+Instead of dropping the older messages, ``CompactingMemory`` summarizes them by LLM once the messages exceed ``max_tokens``.
+The token counting and the summarization run in background tasks, so adding messages never waits for them and the agent keeps replying with the uncompacted messages meanwhile, and the summarized messages are replaced by a single summary message once it's ready.
+The running compaction can be awaited by ``wait_compaction`` or canceled by ``cancel_compaction``, and the model usages are recorded in the ``usages`` attribute.
+
 Customize Memory
 ~~~~~~~~~~~~~~~~~~~~~~~~
 
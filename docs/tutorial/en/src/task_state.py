@@ -148,6 +148,9 @@ print(json.dumps(agent.state_dict(), indent=4))
 #
 # In AgentScope, we provide a JSON based session class ``JSONSession`` that
 # stores/loads the session state in/from a JSON file named with the session ID.
+# After the first save, only the changes (e.g. the new messages in memory) are
+# appended to a log file next to it, which is merged into the JSON file in
+# background once it grows large, or by calling ``compact`` explicitly.
 #
 # Here we show how to use the JSON based session management in AgentScope.
 #
@@ -86,6 +86,12 @@ asyncio.run(basic_usage())
 #
 # .. note:: 为了达到最好的效果，``"agent_control"`` 模式可能还需要在系统提示（system prompt）中添加相应的说明。
 #
+# 当 ``long_term_memory_mode`` 设置为 ``"static_control"`` 或 ``both`` 时，智能体在每次回复开始时检索长期记忆，
+# 并与格式化当前消息同时进行；回复结束时的记录则由 ``WriteBehindRecorder`` 在后台完成，不会延迟回复的返回。
+# 连续多轮排队的记录会合并为一次 ``record`` 调用，积压过多时新的回复会等待后台记录完成。
+# 会话（session）在保存状态前、以及 ``asyncio.run`` 结束时都会等待后台记录完成，也可以通过
+# ``await agent.wait_pending_writes()`` 显式等待。注意正在后台记录的内容尚不能被检索到。
+#
 
 # 创建带有长期记忆的 ReAct 智能体
 agent = ReActAgent(
@@ -152,6 +158,9 @@ asyncio.run(retrieve_preferences())
 #     * - ``Mem0LongTermMemory``
 #       - \-
 #       - 基于 mem0 库的长期记忆实现，支持向量存储和检索。
+#     * - ``VectorLongTermMemory``
+#       - \-
+#       - 本地长期记忆实现，对记录进行向量化并按向量相似度检索，支持元数据过滤，向量存储在磁盘上内存映射的 numpy 矩阵中，无需 LLM 抽取和外部向量数据库。
 #
 #
 # 进一步阅读
@@ -8,6 +8,16 @@
 在 AgentScope 中，记忆（memory）用于存储智能体的上下文，并在需要时检索它。
 具体而言，AgentScope 在 ``agentscope.memory`` 模块下提供了记忆基类 ``MemoryBase`` 和一个可直接使用的基于内存实现 ``InMemoryMemory``。
 
+对于较长的对话，``IndexedMemory`` 的用法与 ``InMemoryMemory`` 相同且状态格式兼容，同时按消息的 id、角色和名字建立索引。
+它能够以常数时间检测重复消息，批量删除消息（``delete`` 和 ``delete_by_id``），并按索引、id 和时间戳范围检索消息，例如 ``await memory.retrieve(start=-10, role="assistant")``。
+
+对于长时间运行的智能体，``WindowedMemory`` 只保留最近的 ``max_messages`` 条消息，``TokenBudgetMemory`` 则在 ``max_tokens`` 的预算内保留最近的消息，每条消息只通过给定的 token 计数器和格式化器计数一次。
+新消息到达时，较早的消息会被淘汰（若提供了 ``archive`` 记忆则移入其中），且工具调用总是与其工具结果一起被淘汰。
+
+``CompactingMemory`` 则不会丢弃较早的消息，而是在消息超过 ``max_tokens`` 时通过 LLM 将其总结。
+token 计数和总结都在后台任务中进行，添加消息时不会等待它们，期间智能体继续基于未压缩的消息进行回复，总结完成后被总结的消息会被替换为一条总结消息。
+可以通过 ``wait_compaction`` 等待或通过 ``cancel_compaction`` 取消正在进行的压缩，模型的用量记录在 ``usages`` 属性中。
+
 自定义记忆
 ~~~~~~~~~~~~~~~~~~~~~~~~
 
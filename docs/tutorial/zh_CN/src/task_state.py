@@ -147,6 +147,8 @@ print(json.dumps(agent.state_dict(), indent=4, ensure_ascii=False))
 #
 # 在 AgentScope 中，我们提供了基于 JSON 和文件系统的的会话类 ``JSONSession``，
 # 它会将状态保存到会化 ID 命名的 JSON 文件中，也可以从中加载状态。
+# 首次保存之后，只有变化的部分（例如记忆中新增的消息）会被追加到同目录下的日志文件中，
+# 日志增长到一定大小后会在后台合并到 JSON 文件，也可以调用 ``compact`` 主动合并。
 #
 # 保存会话状态
 # -----------------------------------------
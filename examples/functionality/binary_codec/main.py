@@ -0,0 +1,100 @@
+# -*- coding: utf-8 -*-
+"""Compare the size and the encoding/decoding time of the JSON and the
+binary codecs."""
+import base64
+import os
+import time
+
+from agentscope.codec import BinaryCodec, CodecBase, JSONCodec
+from agentscope.message import Msg, TextBlock, ToolResultBlock, ToolUseBlock
+
+
+def build_text_state(n_turns: int) -> dict:
+    """Build a memory state with tool calls and text results."""
+    content = []
+    for i in range(n_turns):
+        content.append(
+            Msg(
+                "Friday",
+                [
+                    TextBlock(type="text", text="Let me search it. " * 20),
+                    ToolUseBlock(
+                        type="tool_use",
+                        id=f"call_{i}",
+                        name="search",
+                        input={"query": "agentscope", "top_k": 5},
+                    ),
+                ],
+                "assistant",
+            ).to_dict(),
+        )
+        content.append(
+            Msg(
+                "system",
+                [
+                    ToolResultBlock(
+                        type="tool_result",
+                        id=f"call_{i}",
+                        name="search",
+                        output=[
+                            TextBlock(type="text", text="Result. " * 40),
+                        ],
+                    ),
+                ],
+                "system",
+            ).to_dict(),
+        )
+    return {"agent": {"memory": {"content": content}}}
+
+
+def build_media_state(n_images: int, image_size: int) -> dict:
+    """Build a memory state with base64 images, each sent twice."""
+    content = []
+    for _ in range(n_images):
+        source = {
+            "type": "base64",
+            "media_type": "image/png",
+            "data": base64.b64encode(os.urandom(image_size)).decode(),
+        }
+        for _ in range(2):
+            content.append(
+                Msg(
+                    "user",
+                    [{"type": "image", "source": source}],
+                    "user",
+                ).to_dict(),
+            )
+    return {"agent": {"memory": {"content": content}}}
+
+
+def benchmark(codec: CodecBase, state: dict, repeat: int = 10) -> None:
+    """Print the encoded size and the average encoding/decoding time."""
+    start = time.perf_counter()
+    for _ in range(repeat):
+        data = codec.encode(state)
+    encode_time = (time.perf_counter() - start) / repeat
+
+    start = time.perf_counter()
+    for _ in range(repeat):
+        decoded = codec.decode(data)
+    decode_time = (time.perf_counter() - start) / repeat
+    assert decoded == state
+
+    print(
+        f"  {codec.__class__.__name__:<12} {len(data):>10} bytes  "
+        f"encode {encode_time * 1000:8.2f} ms  "
+        f"decode {decode_time * 1000:8.2f} ms",
+    )
+
+
+if __name__ == "__main__":
+    for name, test_state in [
+        ("Text and tool calls (2000 messages)", build_text_state(1000)),
+        (
+            "Images (20 x 200KB, each sent twice)",
+            build_media_state(20, 200000),
+        ),
+    ]:
+        print(name)
+        for test_codec in [JSONCodec(), BinaryCodec()]:
+            benchmark(test_codec, test_state)
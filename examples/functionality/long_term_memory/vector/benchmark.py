@@ -0,0 +1,115 @@
+# -*- coding: utf-8 -*-
+"""Benchmark the insertion, the search latency and the recall of the
+vector long-term memory with the flat and the IVF indexes."""
+import asyncio
+import os
+import sys
+import tempfile
+import time
+from typing import Any
+
+import numpy as np
+
+from agentscope.embedding import EmbeddingModelBase, EmbeddingResponse
+from agentscope.memory import VectorLongTermMemory
+
+DIMENSIONS = 256
+N_TOPICS = 1000
+N_QUERIES = 100
+TOP_K = 10
+
+
+class SyntheticEmbedding(EmbeddingModelBase):
+    """Embed the texts "<topic> <index>" as the topic centers with noise, so
+    that the vectors are clustered as the real embeddings."""
+
+    def __init__(self) -> None:
+        super().__init__("synthetic")
+        rng = np.random.default_rng(0)
+        self.centers = rng.standard_normal((N_TOPICS, DIMENSIONS))
+
+    async def __call__(self, text: list[str], **kwargs: Any) -> Any:
+        topics = np.asarray([int(_.split()[0]) for _ in text])
+        seeds = np.asarray([int(_.split()[1]) for _ in text])
+        noise = np.random.default_rng(int(seeds[0])).standard_normal(
+            (len(text), DIMENSIONS),
+        )
+        return EmbeddingResponse(
+            embeddings=self.centers[topics] + 0.5 * noise,
+        )
+
+
+async def run(n_records: int) -> None:
+    """Run the benchmark with the given number of records."""
+    rng = np.random.default_rng(1)
+    topics = rng.integers(0, N_TOPICS, n_records)
+    contents = [f"{topic} {i}" for i, topic in enumerate(topics)]
+    queries = [
+        f"{topic} {n_records + i}"
+        for i, topic in enumerate(rng.integers(0, N_TOPICS, N_QUERIES))
+    ]
+
+    with tempfile.TemporaryDirectory() as save_dir:
+        memory = VectorLongTermMemory(
+            SyntheticEmbedding(),
+            save_dir=save_dir,
+            embedding_batch_size=10_000,
+            ivf_threshold=None,
+        )
+        start = time.perf_counter()
+        for i in range(0, n_records, 100_000):
+            await memory.add(contents[i : i + 100_000])
+        insert_time = time.perf_counter() - start
+
+        start = time.perf_counter()
+        flat_results = [await memory.search([_], TOP_K) for _ in queries]
+        flat_time = (time.perf_counter() - start) / N_QUERIES
+
+        # Reload the memory-mapped store with the IVF index
+        start = time.perf_counter()
+        memory = VectorLongTermMemory(
+            SyntheticEmbedding(),
+            save_dir=save_dir,
+            ivf_threshold=1,
+        )
+        load_time = time.perf_counter() - start
+
+        start = time.perf_counter()
+        ivf_results = [await memory.search([_], TOP_K) for _ in queries]
+        ivf_time = (time.perf_counter() - start) / N_QUERIES
+
+    recall = np.mean(
+        [
+            len(
+                {_["id"] for _ in flat[0]} & {_["id"] for _ in ivf[0]},
+            )
+            / TOP_K
+            for flat, ivf in zip(flat_results, ivf_results)
+        ],
+    )
+    print(
+        f"| {n_records:,} "
+        f"| {n_records / insert_time:,.0f} "
+        f"| {load_time:.2f} "
+        f"| {flat_time * 1000:.2f} "
+        f"| {ivf_time * 1000:.2f} "
+        f"| {recall:.3f} |",
+    )
+
+
+async def main() -> None:
+    """Run the benchmark with 10k, 100k and 1M records by default."""
+    sizes = [int(_) for _ in sys.argv[1:]] or [10_000, 100_000, 1_000_000]
+    # The results are printed as a Markdown table to be pasted into README
+    print(f"numpy {np.__version__}, {os.cpu_count()} CPUs\n")
+    print(
+        "| Records | Insert (records/s) | Load + train (s) | Flat search "
+        f"(ms) | IVF search (ms) | IVF recall@{TOP_K} |",
+    )
+    print("|---:|---:|---:|---:|---:|---:|")
+    for n_records in sizes:
+        await run(n_records)
+
+
+if __name__ == "__main__":
+    asyncio.run(main())
@@ -6,7 +6,9 @@ import requests
 
 from . import exception
 from . import module
+from . import codec
 from . import message
+from . import blob
 from . import model
 from . import tool
 from . import formatter
@@ -35,6 +37,9 @@ def init(
     logging_level: str = "INFO",
     studio_url: str | None = None,
     tracing_url: str | None = None,
+    validate_state: bool = True,
+    max_tool_output_bytes: int = 32768,
+    tool_output_budget: int | None = 10485760,
 ) -> None:
     """Initialize the agentscope library.
 
@@ -55,6 +60,19 @@ def init(
             OpenTelemetry tracing platforms like Arize-Phoenix and Langfuse.
             If not provided and `studio_url` is provided, it will send traces
             to the AgentScope Studio's tracing endpoint.
+        validate_state (`bool`, defaults to `True`):
+            Whether to check that the registered state attributes are JSON
+            serializable when registering them. It can be disabled in
+            production to avoid serializing the attributes.
+        max_tool_output_bytes (`int`, defaults to `32768`):
+            The maximum number of bytes kept of the standard output and
+            error respectively by the `execute_shell_command` and
+            `execute_python_code` tools, including the head and the tail
+            halves.
+        tool_output_budget (`int | None`, defaults to `10485760`):
+            The maximum number of bytes the command or code executed by the
+            above tools can output, beyond which the execution is stopped.
+            Unlimited if `None`.
     """
 
     from . import _config
@@ -65,6 +83,10 @@ def init(
     if name:
         _config.name = name
 
+    _config.validate_state = validate_state
+    _config.max_tool_output_bytes = max_tool_output_bytes
+    _config.tool_output_budget = tool_output_budget
+
     setup_logger(logging_level, logging_path)
 
     if studio_url:
@@ -110,7 +132,9 @@ __all__ = [
     # modules
     "exception",
     "module",
+    "codec",
     "message",
+    "blob",
     "model",
     "tool",
     "formatter",
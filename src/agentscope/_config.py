@@ -7,6 +7,7 @@
  the imported module.
 """
 from datetime import datetime
+from typing import Any
 
 import shortuuid
 
@@ -21,3 +22,7 @@ name = datetime.now().strftime("%H%M%S_") + _generate_random_suffix(4)
 run_id: str = shortuuid.uuid()
 created_at: str = datetime.now().strftime("%Y-%m-%d %H:%M:%S.%f")[:-3]
 trace_enabled: bool = False
+validate_state: bool = True
+blob_store: Any = None
+max_tool_output_bytes: int = 32768
+tool_output_budget: int | None = 10485760
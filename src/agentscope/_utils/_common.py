@@ -3,6 +3,7 @@
 import asyncio
 import base64
 import functools
+import hashlib
 import inspect
 import json
 import os
@@ -50,6 +51,41 @@ def _is_accessible_local_file(url: str) -> bool:
     return os.path.isfile(url)
 
 
+def _get_content_hash(obj: Any) -> str:
+    """Get the hash of a JSON-like object, which is used as the cache key of
+    the messages and their derived results."""
+    serialized = json.dumps(
+        obj,
+        ensure_ascii=False,
+        sort_keys=True,
+        default=str,
+    )
+    return hashlib.sha256(serialized.encode("utf-8")).hexdigest()
+
+
+def _get_content_fingerprint(obj: Any) -> Any:
+    """Get a hashable fingerprint of a JSON-like object, which is used as
+    the cache key of the frequently checked objects, e.g. the messages to be
+    formatted. Different from `_get_content_hash`, nothing is serialized,
+    and the strings are referred to rather than copied, so that their cached
+    hashes are reused."""
+    if isinstance(obj, str):
+        return obj
+    if isinstance(obj, dict):
+        return dict, tuple(
+            (key, _get_content_fingerprint(value))
+            for key, value in obj.items()
+        )
+    if isinstance(obj, (list, tuple)):
+        return list, tuple(_get_content_fingerprint(_) for _ in obj)
+    try:
+        hash(obj)
+    except TypeError:
+        return type(obj), str(obj)
+    # The type is kept to distinguish e.g. `True` from `1`
+    return type(obj), obj
+
+
 def _get_timestamp(add_random_suffix: bool = False) -> str:
     """Get the current timestamp in the format YYYY-MM-DD HH:MM:SS.sss."""
     timestamp = datetime.now().strftime("%Y-%m-%d %H:%M:%S.%f")[:-3]
@@ -0,0 +1,394 @@
+# -*- coding: utf-8 -*-
+"""The incremental JSON parser used to parse the streaming tool call
+arguments and structured outputs of chat models."""
+import json
+from typing import Any
+
+from ._common import _json_loads_with_repair
+
+_WHITESPACE = " \t\n\r"
+_NUMBER_CHARS = "+-0123456789.eE"
+_LITERALS = {"true": True, "false": False, "null": None}
+
+
+class _Frame:
+    """An open JSON container (object or array) in the parsing stack."""
+
+    __slots__ = ("container", "key", "expect")
+
+    def __init__(self, container: dict | list) -> None:
+        self.container = container
+        # The pending key in a JSON object, whose value is being parsed
+        self.key: str | None = None
+        # What token is expected next in this container: "key", "colon",
+        # "value" or "comma"
+        self.expect = "key" if isinstance(container, dict) else "value"
+
+
+class _IncrementalJSONParser:
+    """A stateful JSON parser that consumes the streaming deltas of a JSON
+    string, e.g. the tool call arguments or structured output text from the
+    chat model API.
+
+    Different from calling `_json_loads_with_repair` over the accumulated
+    string on each delta, each character is scanned only once, and the
+    completed values are kept between deltas. A new partial object is only
+    built when the parsed structure actually changes, and only the containers
+    along the open path are copied, so the consumers can hold the emitted
+    objects safely.
+
+    When `incremental` is `False`, the deltas are only buffered and the
+    whole string is parsed once in `finish`.
+
+    If the input turns out not to be valid JSON, the parser falls back to
+    `_json_loads_with_repair` over the accumulated string.
+    """
+
+    def __init__(self, incremental: bool = True) -> None:
+        """Initialize the incremental JSON parser.
+
+        Args:
+            incremental (`bool`, defaults to `True`):
+                Whether to parse the deltas incrementally. If `False`, the
+                partial value is always `None` until `finish` is called.
+        """
+        self.incremental = incremental
+
+        self._chunks: list[str] = []
+        self._stack: list[_Frame] = []
+        self._root: Any = None
+        self._root_done = False
+        self._failed = False
+        self._finished = False
+
+        # The scalar token being parsed, e.g. "string", "key", "number" or
+        # "literal", together with its raw characters
+        self._token: str | None = None
+        self._raw: list[str] = []
+        # If the last character in a string is a backslash
+        self._escaping = False
+        # The decoded prefix of the open string, while `_raw` only keeps the
+        # raw characters after it
+        self._decoded = ""
+
+        self._value: Any = None
+        self._dirty = False
+
+    @property
+    def text(self) -> str:
+        """The accumulated raw text."""
+        if len(self._chunks) > 1:
+            self._chunks = ["".join(self._chunks)]
+        return self._chunks[0] if self._chunks else ""
+
+    @property
+    def value(self) -> Any:
+        """The current (partial) value parsed from the received deltas."""
+        if self._dirty:
+            self._value = self._snapshot()
+            self._dirty = False
+        return self._value
+
+    def feed(self, delta: str | None) -> bool:
+        """Feed a new delta into the parser.
+
+        Args:
+            delta (`str | None`):
+                The new piece of the JSON string.
+
+        Returns:
+            `bool`:
+                If the parsed value is changed by this delta.
+        """
+        if not delta or self._finished:
+            return False
+
+        self._chunks.append(delta)
+
+        if not self.incremental:
+            return False
+
+        if self._failed:
+            self._dirty = True
+            return True
+
+        try:
+            changed = self._consume(delta)
+        except ValueError:
+            # Not a valid JSON string, fall back to repairing the whole
+            # accumulated string
+            self._failed = True
+            changed = True
+
+        self._dirty = self._dirty or changed
+        return changed
+
+    def finish(self) -> Any:
+        """Finish the parsing and return the final value, which is loaded
+        from the complete string once."""
+        if not self._finished:
+            self._finished = True
+            text = self.text
+            try:
+                self._value = json.loads(text) if text else None
+            except json.JSONDecodeError:
+                self._value = _json_loads_with_repair(text or "{}")
+            self._dirty = False
+        return self._value
+
+    def _snapshot(self) -> Any:
+        """Build the current partial value. The completed values are shared
+        with the previous snapshots, while the open containers are shallowly
+        copied."""
+        if self._failed:
+            return _json_loads_with_repair(self.text or "{}")
+
+        partial = self._partial_scalar()
+
+        if not self._stack:
+            if self._root_done:
+                return self._root
+            return None if partial is _MISSING else partial
+
+        child = partial
+        for frame in reversed(self._stack):
+            if isinstance(frame.container, dict):
+                current: Any = dict(frame.container)
+                if child is not _MISSING and frame.key is not None:
+                    current[frame.key] = child
+            else:
+                current = list(frame.container)
+                if child is not _MISSING:
+                    current.append(child)
+            child = current
+        return child
+
+    def _partial_scalar(self) -> Any:
+        """The value of the incomplete scalar token, or `_MISSING` if it
+        cannot be represented yet."""
+        if self._token == "string":
+            # Only decode the new characters up to the last complete escape
+            # sequence, so that a long string isn't decoded again and again
+            raw = "".join(self._raw)
+            end = _decodable_end(raw)
+            try:
+                self._decoded += json.loads(f'"{raw[:end]}"', strict=False)
+            except json.JSONDecodeError:
+                self._raw = [raw]
+                return _MISSING
+            self._raw = [raw[end:]] if end < len(raw) else []
+            return self._decoded
+
+        if self._token == "number":
+            try:
+                return json.loads("".join(self._raw))
+            except json.JSONDecodeError:
+                return _MISSING
+
+        return _MISSING
+
+    # pylint: disable=too-many-branches, too-many-statements
+    def _consume(self, delta: str) -> bool:
+        """Scan the delta and update the parsing state.
+
+        Returns:
+            `bool`:
+                If the parsed value is changed.
+        """
+        changed = False
+        i, n = 0, len(delta)
+        while i < n:
+            # Fast path for the string content
+            if self._token in ("string", "key"):
+                i, closed = self._consume_string(delta, i)
+                if self._token == "string":
+                    changed = True
+                if closed:
+                    raw = "".join(self._raw)
+                    token = self._token
+                    decoded = self._decoded + json.loads(
+                        f'"{raw}"',
+                        strict=False,
+                    )
+                    self._token, self._raw, self._decoded = None, [], ""
+                    if token == "key":
+                        self._stack[-1].key = decoded
+                        self._stack[-1].expect = "colon"
+                    else:
+                        self._complete_value(decoded)
+                continue
+
+            char = delta[i]
+
+            if self._token in ("number", "literal"):
+                if char in _NUMBER_CHARS or char.isalpha():
+                    self._raw.append(char)
+                    changed = changed or self._token == "number"
+                    i += 1
+                    continue
+                self._complete_scalar()
+                changed = True
+                # Re-process the delimiter character
+                continue
+
+            i += 1
+
+            if char in _WHITESPACE:
+                continue
+
+            if self._root_done:
+                raise ValueError("Extra data after the JSON value")
+
+            frame = self._stack[-1] if self._stack else None
+            expect = frame.expect if frame else "value"
+
+            if expect == "key":
+                if char == '"':
+                    self._token = "key"
+                elif char == "}" and not frame.container:
+                    self._close_container()
+                    changed = True
+                else:
+                    raise ValueError(f"Unexpected character {char!r}")
+
+            elif expect == "colon":
+                if char != ":":
+                    raise ValueError(f"Unexpected character {char!r}")
+                frame.expect = "value"
+
+            elif expect == "comma":
+                if char == ",":
+                    frame.expect = (
+                        "key" if isinstance(frame.container, dict) else "value"
+                    )
+                elif char in "}]":
+                    self._close_container()
+                    changed = True
+                else:
+                    raise ValueError(f"Unexpected character {char!r}")
+
+            else:
+                if char == "{":
+                    self._stack.append(_Frame({}))
+                elif char == "[":
+                    self._stack.append(_Frame([]))
+                elif (
+                    char == "]"
+                    and frame
+                    and isinstance(frame.container, list)
+                    and not frame.container
+                ):
+                    self._close_container()
+                elif char == '"':
+                    self._token = "string"
+                elif char in "-0123456789":
+                    self._token, self._raw = "number", [char]
+                elif char.isalpha():
+                    self._token, self._raw = "literal", [char]
+                else:
+                    raise ValueError(f"Unexpected character {char!r}")
+                changed = True
+
+        return changed
+
+    def _consume_string(self, delta: str, start: int) -> tuple[int, bool]:
+        """Consume the string content from `start` until the closing quote
+        or the end of the delta.
+
+        Returns:
+            `tuple[int, bool]`:
+                The next index to scan, and if the string is closed.
+        """
+        i, n = start, len(delta)
+        while i < n:
+            if self._escaping:
+                self._escaping = False
+                i += 1
+                continue
+
+            # Jump to the next special character
+            quote = delta.find('"', i)
+            backslash = delta.find("\\", i)
+            stops = [_ for _ in (quote, backslash) if _ != -1]
+            if not stops:
+                self._raw.append(delta[start:])
+                return n, False
+
+            stop = min(stops)
+            if stop == quote:
+                self._raw.append(delta[start:stop])
+                return stop + 1, True
+
+            self._escaping = True
+            i = stop + 1
+
+        self._raw.append(delta[start:])
+        return n, False
+
+    def _complete_scalar(self) -> None:
+        """Complete the number or literal token."""
+        raw = "".join(self._raw)
+        token = self._token
+        self._token, self._raw = None, []
+        if token == "literal":
+            if raw not in _LITERALS:
+                raise ValueError(f"Invalid literal {raw!r}")
+            self._complete_value(_LITERALS[raw])
+        else:
+            try:
+                self._complete_value(json.loads(raw))
+            except json.JSONDecodeError as e:
+                raise ValueError(f"Invalid number {raw!r}") from e
+
+    def _complete_value(self, value: Any) -> None:
+        """Put a completed value into its parent container."""
+        if not self._stack:
+            self._root = value
+            self._root_done = True
+            return
+
+        frame = self._stack[-1]
+        if isinstance(frame.container, dict):
+            frame.container[frame.key] = value
+            frame.key = None
+        else:
+            frame.container.append(value)
+        frame.expect = "comma"
+
+    def _close_container(self) -> None:
+        """Close the innermost container."""
+        frame = self._stack.pop()
+        self._complete_value(frame.container)
+
+
+def _decodable_end(raw: str) -> int:
+    """The end of the longest prefix of the raw string content that can be
+    decoded, i.e. not ending within an escape sequence or a surrogate pair
+    of unicode escapes."""
+    i, n = 0, len(raw)
+    while True:
+        i = raw.find("\\", i)
+        if i == -1:
+            return n
+
+        if i + 1 == n or (raw[i + 1] == "u" and i + 6 > n):
+            return i
+
+        if raw[i + 1] != "u":
+            i += 2
+        elif raw[i + 2 : i + 4].lower() in ("d8", "d9", "da", "db"):
+            # A high surrogate, which is combined with the following low
+            # surrogate
+            rest = raw[i + 6 : i + 8]
+            if rest in ("", "\\") or (rest == "\\u" and i + 12 > n):
+                return i
+            i += 12 if rest == "\\u" else 6
+        else:
+            i += 6
+
+
+class _Missing:
+    """The sentinel type for a partial scalar that cannot be represented."""
+
+
+_MISSING = _Missing()
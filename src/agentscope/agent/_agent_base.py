@@ -145,8 +145,10 @@ class AgentBase(StateModule, metaclass=_AgentMeta):
         self._instance_pre_observe_hooks = OrderedDict()
         self._instance_post_observe_hooks = OrderedDict()
 
-        # The prefix used in streaming printing
-        self._stream_prefix = {}
+        # The printed lengths of the text and thinking blocks, and if the
+        # printed content ends with a newline in streaming printing
+        self._stream_prefix: dict[str, list[int]] = {}
+        self._stream_ended_with_newline: dict[str, bool] = {}
 
         # The subscribers that will receive the reply message by their
         # `observe` method. The key is the MsgHub id, and the value is the
@@ -190,39 +192,62 @@ class AgentBase(StateModule, metaclass=_AgentMeta):
         if self._disable_console_output:
             return
 
-        thinking_and_text_to_print = []
+        # The printed lengths of the text and thinking blocks, so that only
+        # the new suffix of each block is printed in streaming mode
+        printed = self._stream_prefix.get(msg.id)
+        n_text_block = 0
         for block in msg.get_content_blocks():
-            prefix = self._stream_prefix.get(msg.id, "")
             if block["type"] in ["text", "thinking"]:
                 block_type = block["type"]
-                format_prefix = "" if block_type == "text" else "(thinking)"
+                content = block.get(block_type) or ""
 
-                thinking_and_text_to_print.append(
-                    f"{msg.name}{format_prefix}: {block[block_type]}",
+                if printed is None:
+                    printed = self._stream_prefix[msg.id] = []
+
+                if n_text_block == len(printed):
+                    # A new block, which is separated by a newline
+                    format_prefix = (
+                        "" if block_type == "text" else "(thinking)"
+                    )
+                    separator = "\n" if printed else ""
+                    print(
+                        f"{separator}{msg.name}{format_prefix}: {content}",
+                        end="",
+                    )
+                    printed.append(len(content))
+
+                elif len(content) > printed[n_text_block]:
+                    print(content[printed[n_text_block] :], end="")
+                    printed[n_text_block] = len(content)
+
+                else:
+                    n_text_block += 1
+                    continue
+
+                self._stream_ended_with_newline[msg.id] = content.endswith(
+                    "\n",
                 )
 
-                to_print = "\n".join(thinking_and_text_to_print)
-                if len(to_print) > len(prefix):
-                    print(to_print[len(prefix) :], end="")
-                    self._stream_prefix[msg.id] = to_print
+                n_text_block += 1
 
             elif last:
-                if prefix:
-                    if not prefix.endswith("\n"):
+                if printed:
+                    if not self._stream_ended_with_newline.get(msg.id):
                         print(
                             "\n"
                             + json.dumps(block, indent=4, ensure_ascii=False),
                         )
                     else:
                         print(json.dumps(block, indent=4, ensure_ascii=False))
+                    self._stream_ended_with_newline[msg.id] = True
                 else:
                     print(
                         f"{msg.name}: "
                         f"{json.dumps(block, indent=4, ensure_ascii=False)}",
                     )
         if last and msg.id in self._stream_prefix:
-            last_prefix = self._stream_prefix.pop(msg.id)
-            if not last_prefix.endswith("\n"):
+            self._stream_prefix.pop(msg.id)
+            if not self._stream_ended_with_newline.pop(msg.id, False):
                 print()
 
     async def __call__(self, *args: Any, **kwargs: Any) -> Msg:
@@ -1,7 +1,6 @@
 # -*- coding: utf-8 -*-
 """The metaclass for agents in agentscope."""
 import inspect
-from copy import deepcopy
 from functools import wraps
 from typing import (
     Any,
@@ -10,6 +9,7 @@ from typing import (
     Callable,
 )
 
+from ._hook_args import _copy_on_access, _is_read_only_hook
 from .._utils._common import _execute_async_or_sync_func
 
 if TYPE_CHECKING:
@@ -57,6 +57,11 @@ def _wrap_with_hooks(
 ) -> Callable:
     """A decorator to wrap the original async function with pre- and post-hooks
 
+    The hooks receive the copies of the arguments and the output, so that
+    their modifications take effect only when returned. The copies are made
+    lazily along the paths accessed by the hooks, and skipped for the hooks
+    declared by `read_only_hook`.
+
     Args:
         original_func (`Callable`):
             The original async function to be wrapped with hooks.
@@ -98,7 +103,9 @@ def _wrap_with_hooks(
             modified_keywords = await _execute_async_or_sync_func(
                 pre_hook,
                 self,
-                deepcopy(current_normalized_kwargs),
+                dict(current_normalized_kwargs)
+                if _is_read_only_hook(pre_hook)
+                else _copy_on_access(current_normalized_kwargs),
             )
             if modified_keywords is not None:
                 assert isinstance(modified_keywords, dict), (
@@ -131,11 +138,17 @@ def _wrap_with_hooks(
             getattr(self, f"_class_post_{func_name}_hooks").values(),
         )
         for post_hook in post_hooks:
+            if _is_read_only_hook(post_hook):
+                hook_args = (dict(current_normalized_kwargs), current_output)
+            else:
+                hook_args = (
+                    _copy_on_access(current_normalized_kwargs),
+                    _copy_on_access(current_output),
+                )
             modified_output = await _execute_async_or_sync_func(
                 post_hook,
                 self,
-                deepcopy(current_normalized_kwargs),
-                deepcopy(current_output),
+                *hook_args,
             )
             if modified_output is not None:
                 current_output = modified_output
@@ -0,0 +1,203 @@
+# -*- coding: utf-8 -*-
+"""The copies of the hook arguments, which are made lazily along the paths
+accessed by the hooks rather than deep-copying all the arguments."""
+import copy
+from typing import Any, Callable, Iterator, SupportsIndex
+
+from ..message import Msg
+
+_READ_ONLY_ATTR = "_as_read_only_hook"
+
+_IMMUTABLE_TYPES = (str, int, float, bool, bytes, type(None), type)
+
+
+def read_only_hook(hook: Callable) -> Callable:
+    """Declare the hook function as read-only, i.e. it never modifies the
+    given arguments and output, so that they're passed to the hook without
+    copying.
+
+    Example:
+        .. code-block:: python
+
+            @read_only_hook
+            def log_pre_print_hook(self, kwargs):
+                print(kwargs["msg"].to_dict())
+
+            agent.register_instance_hook(
+                "pre_print", "log", log_pre_print_hook
+            )
+
+    Args:
+        hook (`Callable`):
+            The hook function, which can also be a `functools.partial`
+            object.
+
+    Returns:
+        `Callable`:
+            The given hook function.
+    """
+    setattr(hook, _READ_ONLY_ATTR, True)
+    return hook
+
+
+def _is_read_only_hook(hook: Callable) -> bool:
+    """If the hook is declared as read-only."""
+    return getattr(hook, _READ_ONLY_ATTR, False)
+
+
+def _copy_on_access(obj: Any) -> Any:
+    """Return a copy of the object for the hooks, where the dictionaries and
+    the lists are copied shallowly once accessed, and the messages are copied
+    shallowly with their mutable attributes copied on access. So modifying
+    the copy never affects the given object, while the unaccessed parts
+    aren't copied at all."""
+    cls = obj.__class__
+    if cls in (dict, _LazyDict):
+        return _LazyDict(obj)
+    if cls in (list, _LazyList):
+        return _LazyList(obj)
+    if isinstance(obj, _IMMUTABLE_TYPES):
+        return obj
+    if isinstance(obj, Msg):
+        new_msg = copy.copy(obj)
+        for key, value in vars(new_msg).items():
+            if value.__class__ in (dict, list, _LazyDict, _LazyList):
+                setattr(new_msg, key, _copy_on_access(value))
+        return new_msg
+    # Keep the original behavior for other objects
+    return copy.deepcopy(obj)
+
+
+def _copy_item(value: Any) -> Any:
+    """Copy an item when its container is copied, where the raw
+    dictionaries and lists are left to be copied on access, and the copied
+    ones (which may be modified by the previous hooks) are copied again."""
+    if value.__class__ in (dict, list):
+        return value
+    return _copy_on_access(value)
+
+
+class _LazyDict(dict):
+    """The shallow copy of a dictionary, whose dictionary and list values
+    are copied once accessed."""
+
+    def __init__(self, data: dict) -> None:
+        """Copy the dictionary shallowly."""
+        super().__init__((k, _copy_item(v)) for k, v in dict.items(data))
+
+    def __iter__(self) -> Iterator:
+        """Iterate over the keys, which is overridden so that `dict(...)` and
+        `{**...}` get the values by `__getitem__` rather than reading the
+        uncopied values directly."""
+        return dict.__iter__(self)
+
+    def __getitem__(self, key: Any) -> Any:
+        """Get the value, copying it on the first access."""
+        value = dict.__getitem__(self, key)
+        if value.__class__ in (dict, list):
+            value = _copy_on_access(value)
+            dict.__setitem__(self, key, value)
+        return value
+
+    def get(self, key: Any, default: Any = None) -> Any:
+        """Get the value, copying it on the first access."""
+        return self[key] if key in self else default
+
+    def values(self) -> list:  # type: ignore[override]
+        """The copied values."""
+        return [self[_] for _ in self]
+
+    def items(self) -> list:  # type: ignore[override]
+        """The keys and the copied values."""
+        return [(_, self[_]) for _ in self]
+
+    def pop(self, key: Any, *args: Any) -> Any:
+        """Pop the copied value."""
+        if key in self:
+            value = self[key]
+            dict.pop(self, key)
+            return value
+        return dict.pop(self, key, *args)
+
+    def popitem(self) -> tuple:
+        """Pop the last item with the copied value."""
+        key = next(reversed(self))
+        return key, self.pop(key)
+
+    def setdefault(self, key: Any, default: Any = None) -> Any:
+        """Get the copied value, or set the default value."""
+        if key not in self:
+            dict.__setitem__(self, key, default)
+        return self[key]
+
+    def copy(self) -> dict:
+        """A shallow copy with the copied values."""
+        return dict(self.items())
+
+    def __or__(self, other: dict) -> dict:  # type: ignore[override]
+        """Merge the copied values with the other dictionary."""
+        return dict(self.items()) | other
+
+    def __ror__(self, other: dict) -> dict:  # type: ignore[override]
+        """Merge the other dictionary with the copied values."""
+        return other | dict(self.items())
+
+
+class _LazyList(list):
+    """The shallow copy of a list, whose dictionary and list items are
+    copied once accessed."""
+
+    def __init__(self, data: list) -> None:
+        """Copy the list shallowly."""
+        super().__init__(_copy_item(_) for _ in list.__iter__(data))
+
+    def _get(self, index: int) -> Any:
+        """Get the item, copying it on the first access."""
+        value = list.__getitem__(self, index)
+        if value.__class__ in (dict, list):
+            value = _copy_on_access(value)
+            list.__setitem__(self, index, value)
+        return value
+
+    def __getitem__(self, index: SupportsIndex | slice) -> Any:
+        """Get the copied item(s)."""
+        if isinstance(index, slice):
+            return [self._get(_) for _ in range(*index.indices(len(self)))]
+        return self._get(index)
+
+    def __iter__(self) -> Iterator:
+        """Iterate over the copied items."""
+        i = 0
+        while i < len(self):
+            yield self._get(i)
+            i += 1
+
+    def __reversed__(self) -> Iterator:
+        """Iterate over the copied items reversely."""
+        for i in range(len(self) - 1, -1, -1):
+            if i < len(self):
+                yield self._get(i)
+
+    def __add__(self, other: list) -> list:  # type: ignore[override]
+        """Concatenate the copied items with the other list."""
+        return list(self) + other
+
+    def __radd__(self, other: list) -> list:
+        """Concatenate the other list with the copied items."""
+        return other + list(self)
+
+    def __mul__(self, n: SupportsIndex) -> list:  # type: ignore[override]
+        """Repeat the copied items."""
+        return list(self) * n
+
+    __rmul__ = __mul__
+
+    def pop(self, index: SupportsIndex = -1) -> Any:
+        """Pop the copied item."""
+        value = self._get(index)
+        list.pop(self, index)
+        return value
+
+    def copy(self) -> list:
+        """A shallow copy with the copied items."""
+        return list(self)
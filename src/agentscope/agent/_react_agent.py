@@ -10,9 +10,14 @@ from pydantic import BaseModel, ValidationError
 
 from ._react_agent_base import ReActAgentBase
 from ..formatter import FormatterBase
-from ..memory import MemoryBase, LongTermMemoryBase, InMemoryMemory
+from ..memory import (
+    MemoryBase,
+    LongTermMemoryBase,
+    InMemoryMemory,
+    WriteBehindRecorder,
+)
 from ..message import Msg, ToolUseBlock, ToolResultBlock, TextBlock
-from ..model import ChatModelBase
+from ..model import ChatModelBase, ChatResponse
 from ..tool import Toolkit, ToolResponse
 from ..tracing import trace_reply
 
@@ -51,6 +56,30 @@ def finish_function_pre_print_hook(
     return None
 
 
+def _merge_chunk(msg: Msg, chunk: ChatResponse) -> None:
+    """Merge the streaming chunk into the message in place, where the text
+    deltas are appended to the existing blocks, rather than joining all the
+    pieces and rebuilding the blocks for each chunk."""
+    if not chunk.is_delta:
+        msg.content = list(chunk.content)
+        return
+
+    for index, block in zip(chunk.indices, chunk.content):
+        if index >= len(msg.content):
+            msg.content.append(dict(block))
+        elif block["type"] in ["text", "thinking"]:
+            field = block["type"]
+            existing = msg.content[index]
+            existing.update({k: v for k, v in block.items() if k != field})
+            # The text is popped so that CPython can append to the string in
+            # place, if it isn't referenced elsewhere
+            text = existing.pop(field, "")
+            text += block.get(field, "")
+            existing[field] = text
+        else:
+            msg.content[index] = dict(block)
+
+
 class ReActAgent(ReActAgentBase):
     """A ReAct agent implementation in AgentScope, which supports
 
@@ -90,7 +119,11 @@ class ReActAgent(ReActAgentBase):
             sys_prompt (`str`):
                 The system prompt of the agent.
             model (`ChatModelBase`):
-                The chat model used by the agent.
+                The chat model used by the agent. In streaming mode, the
+                delta responses (`stream_delta=True`) are merged into the
+                message in place, so that long generations cost linear
+                time, while each accumulated response carries the whole
+                content generated so far.
             formatter (`FormatterBase`):
                 The formatter used to format the messages into the required
                 format of the model API provider.
@@ -117,7 +150,9 @@ class ReActAgent(ReActAgentBase):
                 will be registered in the toolkit to allow the agent to
                 manage the long-term memory. If `static_control`, retrieving
                 and recording will happen in the beginning and end of
-                each reply respectively.
+                each reply respectively, where the recording runs in
+                background without delaying the reply, and can be waited by
+                `wait_pending_writes`.
             parallel_tool_calls (`bool`, defaults to `False`):
                 When LLM generates multiple tool calls, whether to execute
                 them in parallel.
@@ -153,6 +188,13 @@ class ReActAgent(ReActAgentBase):
         ]
         self._agent_control = long_term_memory and not self._static_control
 
+        # Record the replies into the long-term memory in background
+        self._long_term_memory_recorder = (
+            WriteBehindRecorder(long_term_memory)
+            if self._static_control
+            else None
+        )
+
         # If None, a default Toolkit will be created
         self.toolkit = toolkit or Toolkit()
         self.toolkit.register_tool_function(
@@ -219,8 +261,17 @@ class ReActAgent(ReActAgentBase):
 
         # Long-term memory retrieval
         if self._static_control:
-            # Retrieve information from the long-term memory if available
-            retrieved_info = await self.long_term_memory.retrieve(msg)
+            # Retrieve information from the long-term memory if available,
+            # while formatting the messages for the first reasoning step
+            retrieved_info, _ = await asyncio.gather(
+                self.long_term_memory.retrieve(msg),
+                self.formatter.warm_up(
+                    [
+                        Msg("system", self.sys_prompt, "system"),
+                        *await self.memory.get_memory(),
+                    ],
+                ),
+            )
             if retrieved_info:
                 await self.memory.add(
                     Msg(
@@ -273,7 +324,7 @@ class ReActAgent(ReActAgentBase):
 
         # Post-process the memory, long-term memory
         if self._static_control:
-            await self.long_term_memory.record(
+            await self._long_term_memory_recorder.submit(
                 [
                     *([*msg] if isinstance(msg, list) else [msg]),
                     *await self.memory.get_memory(),
@@ -284,6 +335,14 @@ class ReActAgent(ReActAgentBase):
         await self.memory.add(reply_msg)
         return reply_msg
 
+    async def wait_pending_writes(self) -> None:
+        """Wait for the replies to be recorded into the long-term memory in
+        `static_control` mode, and the pending writes of the nested state
+        modules."""
+        if self._long_term_memory_recorder is not None:
+            await self._long_term_memory_recorder.flush()
+        await super().wait_pending_writes()
+
     async def _reasoning(
         self,
     ) -> Msg:
@@ -307,7 +366,7 @@ class ReActAgent(ReActAgentBase):
             if self.model.stream:
                 msg = Msg(self.name, [], "assistant")
                 async for content_chunk in res:
-                    msg.content = content_chunk.content
+                    _merge_chunk(msg, content_chunk)
                     await self.print(msg, False)
                 await self.print(msg, True)
 
@@ -455,7 +514,7 @@ class ReActAgent(ReActAgentBase):
         res_msg = Msg(self.name, [], "assistant")
         if isinstance(res, AsyncGenerator):
             async for chunk in res:
-                res_msg.content = chunk.content
+                _merge_chunk(res_msg, chunk)
                 await self.print(res_msg, False)
             await self.print(res_msg, True)
 
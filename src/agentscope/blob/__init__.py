@@ -0,0 +1,23 @@
+# -*- coding: utf-8 -*-
+"""The blob store module in agentscope, which stores the media data of the
+messages by their content hashes."""
+
+from ._blob_store_base import BlobStoreBase
+from ._in_memory_blob_store import InMemoryBlobStore
+from ._local_blob_store import LocalBlobStore
+from ._media import (
+    get_blob_store,
+    set_blob_store,
+    offload_media,
+    resolve_media,
+)
+
+__all__ = [
+    "BlobStoreBase",
+    "InMemoryBlobStore",
+    "LocalBlobStore",
+    "get_blob_store",
+    "set_blob_store",
+    "offload_media",
+    "resolve_media",
+]
@@ -0,0 +1,64 @@
+# -*- coding: utf-8 -*-
+"""The blob store base class in agentscope."""
+import base64
+import hashlib
+from abc import abstractmethod
+
+from ..message import Base64Source, BlobSource
+
+
+class BlobStoreBase:
+    """The base class for blob stores, which store the binary data by their
+    SHA-256 hex digests, so that the identical data is stored only once."""
+
+    @abstractmethod
+    def put(self, data: bytes) -> str:
+        """Store the data and return its hash.
+
+        Args:
+            data (`bytes`):
+                The binary data.
+
+        Returns:
+            `str`:
+                The SHA-256 hex digest of the data.
+        """
+
+    @abstractmethod
+    def get(self, blob_hash: str) -> bytes:
+        """Get the data by its hash.
+
+        Args:
+            blob_hash (`str`):
+                The SHA-256 hex digest of the data.
+
+        Raises:
+            `KeyError`:
+                If the data isn't found in the store.
+        """
+
+    @abstractmethod
+    def __contains__(self, blob_hash: str) -> bool:
+        """If the data with the given hash is in the store."""
+
+    @staticmethod
+    def hash(data: bytes) -> str:
+        """The hash of the data used as its key."""
+        return hashlib.sha256(data).hexdigest()
+
+    def offload(self, source: Base64Source) -> BlobSource:
+        """Store the data of a base64 source, and return the blob source
+        referring to it."""
+        return BlobSource(
+            type="blob",
+            media_type=source["media_type"],
+            hash=self.put(base64.b64decode(source["data"])),
+        )
+
+    def load(self, source: BlobSource) -> Base64Source:
+        """Load the data of a blob source as a base64 source."""
+        return Base64Source(
+            type="base64",
+            media_type=source["media_type"],
+            data=base64.b64encode(self.get(source["hash"])).decode("ascii"),
+        )
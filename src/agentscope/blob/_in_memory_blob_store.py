@@ -0,0 +1,56 @@
+# -*- coding: utf-8 -*-
+"""The in-memory blob store in agentscope."""
+import threading
+from collections import OrderedDict
+
+from ._blob_store_base import BlobStoreBase
+
+
+class InMemoryBlobStore(BlobStoreBase):
+    """The blob store in memory, which evicts the least recently used data
+    once the total size exceeds the limit.
+
+    .. note:: The messages referring to the evicted data cannot be
+     formatted anymore, so the limit should be large enough for the working
+     set, or use `LocalBlobStore` instead.
+    """
+
+    def __init__(self, max_bytes: int | None = 256 * 1024 * 1024) -> None:
+        """Initialize the in-memory blob store.
+
+        Args:
+            max_bytes (`int | None`, defaults to 256 MB):
+                The maximum total size of the stored data in bytes. If
+                `None`, no data is evicted.
+        """
+        self.max_bytes = max_bytes
+        self.size = 0
+
+        self._blobs: OrderedDict[str, bytes] = OrderedDict()
+        self._lock = threading.Lock()
+
+    def put(self, data: bytes) -> str:
+        """Store the data and return its hash."""
+        blob_hash = self.hash(data)
+        with self._lock:
+            if blob_hash in self._blobs:
+                self._blobs.move_to_end(blob_hash)
+                return blob_hash
+
+            self._blobs[blob_hash] = bytes(data)
+            self.size += len(data)
+            while self.max_bytes is not None and self.size > self.max_bytes:
+                _, evicted = self._blobs.popitem(last=False)
+                self.size -= len(evicted)
+        return blob_hash
+
+    def get(self, blob_hash: str) -> bytes:
+        """Get the data by its hash."""
+        with self._lock:
+            data = self._blobs[blob_hash]
+            self._blobs.move_to_end(blob_hash)
+        return data
+
+    def __contains__(self, blob_hash: str) -> bool:
+        """If the data with the given hash is in the store."""
+        return blob_hash in self._blobs
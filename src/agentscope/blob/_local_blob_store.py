@@ -0,0 +1,67 @@
+# -*- coding: utf-8 -*-
+"""The local blob store in agentscope."""
+import os
+import re
+import tempfile
+
+from ._blob_store_base import BlobStoreBase
+
+_HASH_PATTERN = re.compile(r"[0-9a-f]{64}")
+
+
+class LocalBlobStore(BlobStoreBase):
+    """The blob store in a local directory, where each data is stored in a
+    file named by its hash, e.g. `save_dir/ab/abcdef...`. The directory can
+    be shared by multiple sessions and processes, so that the identical
+    media data are stored only once."""
+
+    def __init__(self, save_dir: str) -> None:
+        """Initialize the local blob store.
+
+        Args:
+            save_dir (`str`):
+                The directory to store the data.
+        """
+        self.save_dir = save_dir
+
+    def _get_path(self, blob_hash: str) -> str:
+        """The file path of the data with the given hash."""
+        if not _HASH_PATTERN.fullmatch(blob_hash):
+            raise KeyError(f"Invalid blob hash: {blob_hash}")
+        return os.path.join(self.save_dir, blob_hash[:2], blob_hash)
+
+    def put(self, data: bytes) -> str:
+        """Store the data and return its hash."""
+        blob_hash = self.hash(data)
+        path = self._get_path(blob_hash)
+        if os.path.exists(path):
+            return blob_hash
+
+        os.makedirs(os.path.dirname(path), exist_ok=True)
+        # Write a temp file and rename it, so that a partially written file
+        # is never visible to the readers
+        fd, temp_path = tempfile.mkstemp(dir=os.path.dirname(path))
+        try:
+            with os.fdopen(fd, "wb") as file:
+                file.write(data)
+            os.replace(temp_path, path)
+        except BaseException:
+            if os.path.exists(temp_path):
+                os.remove(temp_path)
+            raise
+        return blob_hash
+
+    def get(self, blob_hash: str) -> bytes:
+        """Get the data by its hash."""
+        try:
+            with open(self._get_path(blob_hash), "rb") as file:
+                return file.read()
+        except FileNotFoundError as e:
+            raise KeyError(f"Blob {blob_hash} not found.") from e
+
+    def __contains__(self, blob_hash: str) -> bool:
+        """If the data with the given hash is in the store."""
+        try:
+            return os.path.exists(self._get_path(blob_hash))
+        except KeyError:
+            return False
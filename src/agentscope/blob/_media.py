@@ -0,0 +1,122 @@
+# -*- coding: utf-8 -*-
+"""Offload the media data of the messages into the blob store, and resolve
+them back."""
+import copy
+from typing import Callable
+
+from ._blob_store_base import BlobStoreBase
+from ._in_memory_blob_store import InMemoryBlobStore
+from .. import _config
+from ..message import Msg
+
+
+def get_blob_store() -> BlobStoreBase:
+    """Get the default blob store, which resolves the blob sources when
+    formatting the messages. An `InMemoryBlobStore` is created if not set
+    by `set_blob_store`."""
+    if _config.blob_store is None:
+        _config.blob_store = InMemoryBlobStore()
+    return _config.blob_store
+
+
+def set_blob_store(store: BlobStoreBase) -> None:
+    """Set the default blob store, e.g. a `LocalBlobStore` shared by the
+    sessions.
+
+    Args:
+        store (`BlobStoreBase`):
+            The blob store.
+    """
+    _config.blob_store = store
+
+
+def _convert_sources(
+    blocks: list,
+    source_type: str,
+    convert: Callable[[dict], dict],
+) -> list | None:
+    """Convert the media sources of the given type in the blocks, including
+    the ones in the tool results, and return the new list of blocks, or
+    `None` if nothing is converted."""
+    converted = False
+    result = []
+    for block in blocks:
+        if isinstance(block, dict):
+            typ = block.get("type")
+            if typ in ("image", "audio", "video"):
+                source = block.get("source")
+                if (
+                    isinstance(source, dict)
+                    and source.get("type") == source_type
+                ):
+                    block = {**block, "source": convert(source)}
+                    converted = True
+
+            elif typ == "tool_result" and isinstance(
+                block.get("output"),
+                list,
+            ):
+                output = _convert_sources(
+                    block["output"],
+                    source_type,
+                    convert,
+                )
+                if output is not None:
+                    block = {**block, "output": output}
+                    converted = True
+
+        result.append(block)
+
+    return result if converted else None
+
+
+def offload_media(msg: Msg, store: BlobStoreBase | None = None) -> Msg:
+    """Move the base64 data of the media blocks in the message into the blob
+    store, and replace their sources with the blob sources in place, so that
+    the data isn't copied along with the message, e.g. in the memory, the
+    session and the hooks.
+
+    Args:
+        msg (`Msg`):
+            The message.
+        store (`BlobStoreBase | None`, defaults to `None`):
+            The blob store. If not given, the default blob store is used,
+            which should be able to resolve the data when formatting.
+
+    Returns:
+        `Msg`:
+            The given message.
+    """
+    if isinstance(msg.content, list):
+        store = store or get_blob_store()
+        content = _convert_sources(msg.content, "base64", store.offload)
+        if content is not None:
+            msg.content = content
+    return msg
+
+
+def resolve_media(msg: Msg, store: BlobStoreBase | None = None) -> Msg:
+    """Resolve the blob sources in the message into base64 sources.
+
+    Args:
+        msg (`Msg`):
+            The message.
+        store (`BlobStoreBase | None`, defaults to `None`):
+            The blob store. If not given, the default blob store is used.
+
+    Raises:
+        `KeyError`:
+            If the referred data isn't found in the blob store.
+
+    Returns:
+        `Msg`:
+            The given message if it has no blob sources, otherwise a shallow
+            copy of it with the resolved content.
+    """
+    if isinstance(msg.content, list):
+        store = store or get_blob_store()
+        content = _convert_sources(msg.content, "blob", store.load)
+        if content is not None:
+            msg = copy.copy(msg)
+            msg.content = content
+    return msg
@@ -0,0 +1,13 @@
+# -*- coding: utf-8 -*-
+"""The codec module in agentscope, which serializes the states and
+messages into bytes."""
+
+from ._codec_base import CodecBase
+from ._json_codec import JSONCodec
+from ._binary_codec import BinaryCodec
+
+__all__ = [
+    "CodecBase",
+    "JSONCodec",
+    "BinaryCodec",
+]
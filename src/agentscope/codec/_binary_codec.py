@@ -0,0 +1,427 @@
+# -*- coding: utf-8 -*-
+"""The binary codec in agentscope."""
+import base64
+import binascii
+import struct
+from typing import Any
+
+from ._codec_base import CodecBase
+from ..message import Msg
+
+_MAGIC = b"ASB\x01"
+"""The leading bytes of the encoded data, with the format version."""
+
+_SCHEMA = 0xC1
+"""The byte never used by MessagePack, which starts a schema record."""
+
+_MSG_FIELDS = ("id", "name", "role", "content", "metadata", "timestamp")
+"""The fields of the message dictionary, i.e. `Msg.to_dict()`."""
+
+# The schema ids
+_MSG_DICT = 0
+_MSG_OBJECT = 1
+_BASE64_SOURCE = 2
+_BIG_INT = 3
+
+_TYPED_SCHEMAS: dict[str, tuple[int, tuple[str, ...]]] = {
+    "text": (4, ("text",)),
+    "thinking": (5, ("thinking",)),
+    "tool_use": (6, ("id", "name", "input")),
+    "tool_result": (7, ("id", "name", "output")),
+    "image": (8, ("source",)),
+    "audio": (9, ("source",)),
+    "video": (10, ("source",)),
+    "url": (11, ("url",)),
+    "blob": (12, ("media_type", "hash")),
+}
+"""The schemas of the content blocks and the media sources, identified by
+their "type" field, which is omitted in the records."""
+
+_TYPED_FIELDS = {
+    schema_id: (type_, fields)
+    for type_, (schema_id, fields) in _TYPED_SCHEMAS.items()
+}
+
+_B = struct.Struct(">BB").pack
+_H = struct.Struct(">BH").pack
+_I = struct.Struct(">BI").pack
+_Q = struct.Struct(">BQ").pack
+_b = struct.Struct(">Bb").pack
+_h = struct.Struct(">Bh").pack
+_i = struct.Struct(">Bi").pack
+_q = struct.Struct(">Bq").pack
+_D = struct.Struct(">Bd").pack
+
+
+def _b64_to_bytes(data: str) -> bytes | None:
+    """Decode the base64 string, or return `None` if it isn't canonical and
+    cannot be restored exactly from the decoded bytes."""
+    if len(data) % 4:
+        return None
+    try:
+        raw = base64.b64decode(data, validate=True)
+    except (binascii.Error, ValueError):
+        return None
+    # The unused bits of the last group may be non-zero
+    tail = (len(data) // 4 - 1) * 3
+    if data and base64.b64encode(raw[tail:]) != data[-4:].encode("ascii"):
+        return None
+    return raw
+
+
+def _pack_header(
+    out: bytearray,
+    n: int,
+    fix: int,
+    n_fix: int,
+    op: int,
+) -> None:
+    """Pack the header of a string, an array or a map with `n` items, where
+    `op` is the opcode of the 8-bit (strings) or 16-bit length."""
+    if n < n_fix:
+        out.append(fix | n)
+    elif op == 0xD9 and n < 0x100:
+        out += _B(op, n)
+    else:
+        if op == 0xD9:
+            op += 1
+        if n < 0x10000:
+            out += _H(op, n)
+        else:
+            out += _I(op + 1, n)
+
+
+def _pack_str(out: bytearray, obj: str) -> None:
+    """Pack the string."""
+    data = obj.encode("utf-8", "surrogatepass")
+    _pack_header(out, len(data), 0xA0, 32, 0xD9)
+    out += data
+
+
+def _pack_int(out: bytearray, obj: int) -> None:
+    """Pack the integer in the fewest bytes."""
+    if -32 <= obj < 0x80:
+        out.append(obj & 0xFF)
+    elif obj >= 0:
+        if obj < 0x100:
+            out += _B(0xCC, obj)
+        elif obj < 0x10000:
+            out += _H(0xCD, obj)
+        elif obj < 0x100000000:
+            out += _I(0xCE, obj)
+        elif obj < 0x10000000000000000:
+            out += _Q(0xCF, obj)
+        else:
+            _pack_big_int(out, obj)
+    elif obj >= -0x80:
+        out += _b(0xD0, obj)
+    elif obj >= -0x8000:
+        out += _h(0xD1, obj)
+    elif obj >= -0x80000000:
+        out += _i(0xD2, obj)
+    elif obj >= -0x8000000000000000:
+        out += _q(0xD3, obj)
+    else:
+        _pack_big_int(out, obj)
+
+
+def _pack_big_int(out: bytearray, obj: int) -> None:
+    """Pack the integer beyond 64 bits as a string record, since Python
+    integers are unbounded as in JSON."""
+    out += _B(_SCHEMA, _BIG_INT)
+    _pack_str(out, str(obj))
+
+
+def _pack(
+    obj: Any,
+    out: bytearray,
+    blobs: dict[str, tuple[int, bytes]],
+) -> None:
+    """Pack the object into the buffer, collecting the decoded base64 data
+    into `blobs`, which maps the base64 strings to their indexes and the
+    decoded bytes."""
+    cls = obj.__class__
+    if cls is str:
+        data = obj.encode("utf-8", "surrogatepass")
+        if len(data) < 32:
+            out.append(0xA0 | len(data))
+        else:
+            _pack_header(out, len(data), 0xA0, 32, 0xD9)
+        out += data
+
+    elif cls is dict or isinstance(obj, dict):
+        if _pack_record(obj, out, blobs):
+            return
+        _pack_header(out, len(obj), 0x80, 16, 0xDE)
+        for key, value in obj.items():
+            _pack(key, out, blobs)
+            _pack(value, out, blobs)
+
+    elif cls is list or cls is tuple:
+        _pack_header(out, len(obj), 0x90, 16, 0xDC)
+        for item in obj:
+            _pack(item, out, blobs)
+
+    elif obj is None:
+        out.append(0xC0)
+
+    elif cls is bool:
+        out.append(0xC3 if obj else 0xC2)
+
+    elif cls is int:
+        _pack_int(out, obj)
+
+    elif cls is float:
+        out += _D(0xCB, obj)
+
+    elif isinstance(obj, Msg):
+        out += _B(_SCHEMA, _MSG_OBJECT)
+        for field in _MSG_FIELDS:
+            _pack(getattr(obj, field), out, blobs)
+        _pack(obj.invocation_id, out, blobs)
+
+    elif isinstance(obj, (bytes, bytearray, memoryview)):
+        n = len(obj)
+        if n < 0x100:
+            out += _B(0xC4, n)
+        elif n < 0x10000:
+            out += _H(0xC5, n)
+        else:
+            out += _I(0xC6, n)
+        out += obj
+
+    elif isinstance(obj, bool):
+        out.append(0xC3 if obj else 0xC2)
+
+    elif isinstance(obj, int):
+        _pack_int(out, int(obj))
+
+    elif isinstance(obj, float):
+        out += _D(0xCB, float(obj))
+
+    elif isinstance(obj, str):
+        _pack_str(out, str(obj))
+
+    elif isinstance(obj, (list, tuple)):
+        _pack(list(obj), out, blobs)
+
+    else:
+        raise TypeError(
+            f"Object of type {cls.__name__} is not serializable by the "
+            "binary codec.",
+        )
+
+
+def _pack_record(
+    obj: dict,
+    out: bytearray,
+    blobs: dict[str, tuple[int, bytes]],
+) -> bool:
+    """Pack the dictionary as a schema record without the keys if it
+    matches a schema, and return if packed."""
+    type_ = obj.get("type")
+    if type_.__class__ is str:
+        if type_ == "base64":
+            if len(obj) != 3 or obj.get("media_type").__class__ is not str:
+                return False
+            data = obj.get("data")
+            if data.__class__ is not str:
+                return False
+            blob = blobs.get(data)
+            if blob is None:
+                raw = _b64_to_bytes(data)
+                if raw is None:
+                    return False
+                blob = blobs[data] = (len(blobs), raw)
+            out += _B(_SCHEMA, _BASE64_SOURCE)
+            _pack_str(out, obj["media_type"])
+            _pack_int(out, blob[0])
+            return True
+
+        schema = _TYPED_SCHEMAS.get(type_)
+        if schema is None:
+            return False
+        schema_id, fields = schema
+        if len(obj) != len(fields) + 1 or any(_ not in obj for _ in fields):
+            return False
+
+    elif len(obj) == len(_MSG_FIELDS) and "role" in obj:
+        if any(_ not in obj for _ in _MSG_FIELDS):
+            return False
+        schema_id, fields = _MSG_DICT, _MSG_FIELDS
+
+    else:
+        return False
+
+    out += _B(_SCHEMA, schema_id)
+    for field in fields:
+        _pack(obj[field], out, blobs)
+    return True
+
+
+class _Unpacker:
+    """The unpacker of the encoded data."""
+
+    def __init__(self, data: bytes) -> None:
+        """Initialize the unpacker with the encoded data after the magic
+        bytes."""
+        self.data = data
+        self.pos = len(_MAGIC)
+        self.blobs: list[bytes] = []
+        self.blob_strs: dict[int, str] = {}
+
+    def _read(self, n: int) -> bytes:
+        """Read the next `n` bytes."""
+        pos = self.pos
+        self.pos = pos + n
+        if self.pos > len(self.data):
+            raise ValueError("Incomplete binary data.")
+        return self.data[pos : self.pos]
+
+    def _length(self, size: int) -> int:
+        """Read the length of `size` bytes."""
+        return int.from_bytes(self._read(size), "big")
+
+    def unpack(self) -> Any:
+        """Unpack the next object."""
+        # pylint: disable=too-many-return-statements, too-many-branches
+        data, pos = self.data, self.pos
+        code = data[pos]
+        pos = self.pos = pos + 1
+
+        if code < 0x80:
+            return code
+        if code >= 0xE0:
+            return code - 0x100
+        if 0xA0 <= code < 0xC0 or code == 0xD9:
+            # Inline the strings within 255 bytes, which are the most common
+            if code == 0xD9:
+                n = data[pos]
+                pos += 1
+            else:
+                n = code & 0x1F
+            end = self.pos = pos + n
+            if end > len(data):
+                raise ValueError("Incomplete binary data.")
+            return str(data[pos:end], "utf-8", "surrogatepass")
+        if code < 0x90:
+            return self._map(code & 0x0F)
+        if code < 0xA0:
+            return [self.unpack() for _ in range(code & 0x0F)]
+
+        if code == 0xC0:
+            return None
+        if code == 0xC2:
+            return False
+        if code == 0xC3:
+            return True
+        if code == _SCHEMA:
+            self.pos = pos + 1
+            return self._record(data[pos])
+        if 0xC4 <= code <= 0xC6:
+            return self._read(self._length(1 << (code - 0xC4)))
+        if code == 0xCB:
+            return struct.unpack(">d", self._read(8))[0]
+        if 0xCC <= code <= 0xCF:
+            return int.from_bytes(self._read(1 << (code - 0xCC)), "big")
+        if 0xD0 <= code <= 0xD3:
+            return int.from_bytes(
+                self._read(1 << (code - 0xD0)),
+                "big",
+                signed=True,
+            )
+        if code in (0xDA, 0xDB):
+            return self._str(self._length(1 << (code - 0xD9)))
+        if code in (0xDC, 0xDD):
+            n = self._length(2 if code == 0xDC else 4)
+            return [self.unpack() for _ in range(n)]
+        if code in (0xDE, 0xDF):
+            return self._map(self._length(2 if code == 0xDE else 4))
+
+        raise ValueError(f"Unsupported type code 0x{code:02x}.")
+
+    def _str(self, n: int) -> str:
+        """Unpack a string of `n` bytes."""
+        return str(self._read(n), "utf-8", "surrogatepass")
+
+    def _map(self, n: int) -> dict:
+        """Unpack a map with `n` items."""
+        result = {}
+        for _ in range(n):
+            key = self.unpack()
+            result[key] = self.unpack()
+        return result
+
+    def _record(self, schema_id: int) -> Any:
+        """Unpack a schema record."""
+        if schema_id == _MSG_DICT:
+            return {field: self.unpack() for field in _MSG_FIELDS}
+
+        if schema_id == _MSG_OBJECT:
+            msg = {field: self.unpack() for field in _MSG_FIELDS}
+            msg["invocation_id"] = self.unpack()
+            return Msg.from_dict(msg)
+
+        if schema_id == _BASE64_SOURCE:
+            media_type = self.unpack()
+            index = self.unpack()
+            data = self.blob_strs.get(index)
+            if data is None:
+                data = base64.b64encode(self.blobs[index]).decode("ascii")
+                self.blob_strs[index] = data
+            return {"type": "base64", "media_type": media_type, "data": data}
+
+        if schema_id == _BIG_INT:
+            return int(self.unpack())
+
+        if schema_id not in _TYPED_FIELDS:
+            raise ValueError(f"Unknown schema id {schema_id}.")
+        type_, fields = _TYPED_FIELDS[schema_id]
+        result = {"type": type_}
+        for field in fields:
+            result[field] = self.unpack()
+        return result
+
+
+class BinaryCodec(CodecBase):
+    """The binary codec, which encodes the data in a compact
+    MessagePack-style format.
+
+    The format follows MessagePack, except that the byte 0xC1 (never used by
+    MessagePack) starts a schema record. The messages and the content blocks
+    are encoded as schema records, which store the field values only
+    without repeating the keys. The base64 data of the media sources are
+    decoded and stored out of line as raw bytes after the magic bytes, so
+    that they take 25% less space and the same data is stored only once.
+    """
+
+    suffix: str = ".bin"
+
+    def encode(self, obj: Any) -> bytes:
+        """Encode the object into bytes."""
+        body = bytearray()
+        blobs: dict[str, tuple[int, bytes]] = {}
+        _pack(obj, body, blobs)
+
+        out = bytearray(_MAGIC)
+        _pack_header(out, len(blobs), 0x90, 16, 0xDC)
+        for _, raw in blobs.values():
+            _pack(raw, out, blobs)
+        out += body
+        return bytes(out)
+
+    def decode(self, data: bytes) -> Any:
+        """Decode the object from bytes."""
+        if not data.startswith(_MAGIC):
+            raise ValueError("The data isn't encoded by the binary codec.")
+
+        unpacker = _Unpacker(bytes(data))
+        try:
+            unpacker.blobs = unpacker.unpack()
+            obj = unpacker.unpack()
+        except (IndexError, KeyError, TypeError, UnicodeDecodeError) as e:
+            raise ValueError(f"Corrupted binary data: {e}") from e
+
+        if unpacker.pos != len(data):
+            raise ValueError("Corrupted binary data with trailing bytes.")
+        return obj
@@ -0,0 +1,64 @@
+# -*- coding: utf-8 -*-
+"""The codec base class in agentscope."""
+import struct
+from abc import abstractmethod
+from typing import Any, BinaryIO
+
+_LENGTH = struct.Struct(">I")
+
+
+class CodecBase:
+    """The base class for codecs, which serialize the JSON-compatible data,
+    e.g. the state dictionaries, into bytes and back.
+
+    Besides a single object, a codec also writes a sequence of objects into
+    a stream as frames, e.g. the entries of a log file. By default, each
+    frame is prefixed with its length in 4 bytes.
+    """
+
+    suffix: str
+    """The file suffix of the encoded data, e.g. ".json"."""
+
+    @abstractmethod
+    def encode(self, obj: Any) -> bytes:
+        """Encode the object into bytes."""
+
+    @abstractmethod
+    def decode(self, data: bytes) -> Any:
+        """Decode the object from the bytes.
+
+        Raises:
+            `ValueError`:
+                If the data is corrupted or incomplete.
+        """
+
+    def frame(self, data: bytes) -> bytes:
+        """Wrap the encoded data as a frame to be appended into a stream."""
+        return _LENGTH.pack(len(data)) + data
+
+    def read_frame(self, file: BinaryIO) -> bytes | None:
+        """Read the encoded data of the next frame from the stream.
+
+        Args:
+            file (`BinaryIO`):
+                The stream opened in binary mode.
+
+        Raises:
+            `ValueError`:
+                If the frame is incomplete, e.g. partially written due to a
+                crash.
+
+        Returns:
+            `bytes | None`:
+                The encoded data, or `None` at the end of the stream.
+        """
+        header = file.read(_LENGTH.size)
+        if not header:
+            return None
+        if len(header) < _LENGTH.size:
+            raise ValueError("Incomplete frame header.")
+        (length,) = _LENGTH.unpack(header)
+        data = file.read(length)
+        if len(data) < length:
+            raise ValueError("Incomplete frame data.")
+        return data
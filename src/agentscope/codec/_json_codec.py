@@ -0,0 +1,66 @@
+# -*- coding: utf-8 -*-
+"""The JSON codec in agentscope."""
+import json
+from typing import Any, BinaryIO
+
+from ._codec_base import CodecBase
+from ..message import Msg
+
+
+def _to_json(obj: Any) -> Any:
+    """Convert the messages into JSON data, which are not supported by the
+    json library natively."""
+    if isinstance(obj, Msg):
+        return obj.to_dict()
+    raise TypeError(
+        f"Object of type {type(obj).__name__} is not JSON serializable.",
+    )
+
+
+class JSONCodec(CodecBase):
+    """The JSON codec, which encodes the data into UTF-8 JSON text, and
+    writes each frame as a line. The `Msg` objects are encoded as their
+    dictionaries."""
+
+    suffix: str = ".json"
+
+    def __init__(self, indent: int | None = None) -> None:
+        """Initialize the JSON codec.
+
+        Args:
+            indent (`int | None`, defaults to `None`):
+                The indent of the JSON text. Note frames are always encoded
+                in one line.
+        """
+        self.indent = indent
+
+    def encode(self, obj: Any) -> bytes:
+        """Encode the object into JSON text."""
+        return json.dumps(
+            obj,
+            ensure_ascii=False,
+            indent=self.indent,
+            default=_to_json,
+        ).encode("utf-8")
+
+    def decode(self, data: bytes) -> Any:
+        """Decode the object from JSON text."""
+        return json.loads(data)
+
+    def frame(self, data: bytes) -> bytes:
+        """Write the encoded data as a line."""
+        if self.indent is not None:
+            data = json.dumps(
+                json.loads(data),
+                ensure_ascii=False,
+            ).encode("utf-8")
+        return data + b"\n"
+
+    def read_frame(self, file: BinaryIO) -> bytes | None:
+        """Read the next line from the stream."""
+        line = file.readline()
+        if not line:
+            return None
+        if not line.endswith(b"\n"):
+            raise ValueError("Incomplete line.")
+        return line
@@ -9,6 +9,8 @@ from ._evaluator_storage_base import EvaluatorStorageBase
 from .._solution import SolutionOutput
 from .._metric_base import MetricResult
 from ...agent import AgentBase
+from ...codec import CodecBase, JSONCodec
+from ...hooks import read_only_hook
 from ...message import Msg
 
 
@@ -26,6 +28,10 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
                 - solution.json
                 - evaluation/
                     - {metric_name}.json
+
+    The results are encoded in JSON by default, and the suffixes of the
+    files follow the given codec otherwise, e.g. "solution.bin" for
+    `BinaryCodec`.
     """
 
     SOLUTION_FILE_NAME = "solution.json"
@@ -34,9 +40,33 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
     EVALUATION_META_FILE = "evaluation_meta.json"
     AGENT_PRINTING_LOG = "logging.txt"
 
-    def __init__(self, save_dir: str) -> None:
-        """Initialize the file evaluator storage."""
+    def __init__(self, save_dir: str, codec: CodecBase | None = None) -> None:
+        """Initialize the file evaluator storage.
+
+        Args:
+            save_dir (`str`):
+                The directory to save the evaluation results.
+            codec (`CodecBase | None`, defaults to `None`):
+                The codec to encode the results. If not given, the results
+                are saved as indented JSON files.
+        """
         self.save_dir = save_dir
+        self.codec = codec or JSONCodec(indent=4)
+
+    def _file_name(self, name: str) -> str:
+        """Replace the suffix of the file name with the codec's."""
+        return os.path.splitext(name)[0] + self.codec.suffix
+
+    def _dump(self, obj: Any, path_file: str) -> None:
+        """Encode the object into the file."""
+        os.makedirs(os.path.dirname(path_file), exist_ok=True)
+        with open(path_file, "wb") as f:
+            f.write(self.codec.encode(obj))
+
+    def _load(self, path_file: str) -> Any:
+        """Decode the object from the file."""
+        with open(path_file, "rb") as f:
+            return self.codec.decode(f.read())
 
     def _get_save_path(self, task_id: str, repeat_id: str, *args: str) -> str:
         """Get the save path for a given task and repeat ID."""
@@ -63,11 +93,9 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         path_file = self._get_save_path(
             task_id,
             repeat_id,
-            self.SOLUTION_FILE_NAME,
+            self._file_name(self.SOLUTION_FILE_NAME),
         )
-        os.makedirs(os.path.dirname(path_file), exist_ok=True)
-        with open(path_file, "w", encoding="utf-8") as f:
-            json.dump(output, f, ensure_ascii=False, indent=4)
+        self._dump(output, path_file)
 
     def save_evaluation_result(
         self,
@@ -91,11 +119,9 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
             task_id,
             repeat_id,
             self.EVALUATION_DIR_NAME,
-            f"{evaluation.name}.json",
+            f"{evaluation.name}{self.codec.suffix}",
         )
-        os.makedirs(os.path.dirname(path_file), exist_ok=True)
-        with open(path_file, "w", encoding="utf-8") as f:
-            json.dump(evaluation, f, ensure_ascii=False, indent=4)
+        self._dump(evaluation, path_file)
 
     def get_evaluation_result(
         self,
@@ -122,13 +148,11 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
             task_id,
             repeat_id,
             self.EVALUATION_DIR_NAME,
-            f"{metric_name}.json",
+            f"{metric_name}{self.codec.suffix}",
         )
         if not os.path.exists(path_file):
             raise FileNotFoundError(path_file)
-        with open(path_file, "r", encoding="utf-8") as f:
-            evaluation = json.load(f)
-        return MetricResult(**evaluation)
+        return MetricResult(**self._load(path_file))
 
     def get_solution_result(
         self,
@@ -158,7 +182,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         path_file = self._get_save_path(
             task_id,
             repeat_id,
-            self.SOLUTION_FILE_NAME,
+            self._file_name(self.SOLUTION_FILE_NAME),
         )
         if not os.path.exists(path_file):
             raise FileNotFoundError(
@@ -167,8 +191,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
             )
 
         try:
-            with open(path_file, "r", encoding="utf-8") as f:
-                solution_data = json.load(f)
+            solution_data = self._load(path_file)
         except JSONDecodeError as e:
             raise JSONDecodeError(
                 f"Failed to load JSON from {path_file}: {e.msg}",
@@ -195,7 +218,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         path_file = self._get_save_path(
             task_id,
             repeat_id,
-            self.SOLUTION_FILE_NAME,
+            self._file_name(self.SOLUTION_FILE_NAME),
         )
 
         return os.path.exists(path_file) and os.path.getsize(path_file) > 0
@@ -226,7 +249,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
             task_id,
             repeat_id,
             self.EVALUATION_DIR_NAME,
-            f"{metric_name}.json",
+            f"{metric_name}{self.codec.suffix}",
         )
         return os.path.exists(path_file) and os.path.getsize(path_file) > 0
 
@@ -243,11 +266,9 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         """
         path_file = os.path.join(
             self.save_dir,
-            self.EVALUATION_RESULT_FILE,
+            self._file_name(self.EVALUATION_RESULT_FILE),
         )
-        os.makedirs(os.path.dirname(path_file), exist_ok=True)
-        with open(path_file, "w", encoding="utf-8") as f:
-            json.dump(aggregation_result, f, ensure_ascii=False, indent=4)
+        self._dump(aggregation_result, path_file)
 
     def aggregation_result_exists(
         self,
@@ -261,7 +282,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         """
         path_file = os.path.join(
             self.save_dir,
-            self.EVALUATION_RESULT_FILE,
+            self._file_name(self.EVALUATION_RESULT_FILE),
         )
         return os.path.exists(path_file) and os.path.getsize(path_file) > 0
 
@@ -274,11 +295,9 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
         """
         path_file = os.path.join(
             self.save_dir,
-            self.EVALUATION_META_FILE,
+            self._file_name(self.EVALUATION_META_FILE),
         )
-        os.makedirs(os.path.dirname(path_file), exist_ok=True)
-        with open(path_file, "w", encoding="utf-8") as f:
-            json.dump(meta_info, f, ensure_ascii=False, indent=4)
+        self._dump(meta_info, path_file)
 
     def get_agent_pre_print_hook(
         self,
@@ -302,6 +321,7 @@ class FileEvaluatorStorage(EvaluatorStorageBase):
                 printing Msg into the evaluation storage.
         """
 
+        @read_only_hook
         def pre_print_hook(_agent: AgentBase, kwargs: dict) -> None:
             """Hook function to save agent's printing."""
             msg: Msg | None = kwargs.get("msg", None)
@@ -56,63 +56,92 @@ class AnthropicChatFormatter(TruncatedFormatterBase):
 
         messages: list[dict] = []
         for index, msg in enumerate(msgs):
-            content_blocks = []
+            messages.extend(
+                await self._format_with_cache(
+                    self._format_message,
+                    msg,
+                    index == 0,
+                ),
+            )
 
-            for block in msg.get_content_blocks():
-                typ = block.get("type")
-                if typ in ["thinking", "text", "image"]:
-                    content_blocks.append({**block})
-
-                elif typ == "tool_use":
-                    content_blocks.append(
-                        {
-                            "id": block.get("id"),
-                            "type": "tool_use",
-                            "name": block.get("name"),
-                            "input": block.get("input", {}),
-                        },
-                    )
-
-                elif typ == "tool_result":
-                    output = block.get("output")
-                    if output is None:
-                        content_value = [{"type": "text", "text": None}]
-                    elif isinstance(output, list):
-                        content_value = output
-                    else:
-                        content_value = [{"type": "text", "text": str(output)}]
-                    messages.append(
-                        {
-                            "role": "user",
-                            "content": [
-                                {
-                                    "type": "tool_result",
-                                    "tool_use_id": block.get("id"),
-                                    "content": content_value,
-                                },
-                            ],
-                        },
-                    )
+        return messages
+
+    async def _format_message(
+        self,
+        msg: Msg,
+        is_first: bool = True,
+    ) -> list[dict[str, Any]]:
+        """Format a single message object into Anthropic API format,
+        which may produce multiple messages, e.g. the tool results.
+
+        Args:
+            msg (`Msg`):
+                The message object to format.
+            is_first (`bool`, defaults to `True`):
+                Whether the message is the first one of the input messages.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages as a list of dictionaries.
+        """
+        messages: list[dict] = []
+        content_blocks = []
+
+        for block in msg.get_content_blocks():
+            typ = block.get("type")
+            if typ in ["thinking", "text", "image"]:
+                content_blocks.append({**block})
+
+            elif typ == "tool_use":
+                content_blocks.append(
+                    {
+                        "id": block.get("id"),
+                        "type": "tool_use",
+                        "name": block.get("name"),
+                        "input": block.get("input", {}),
+                    },
+                )
+
+            elif typ == "tool_result":
+                output = block.get("output")
+                if output is None:
+                    content_value = [{"type": "text", "text": None}]
+                elif isinstance(output, list):
+                    content_value = output
                 else:
-                    logger.warning(
-                        "Unsupported block type %s in the message, skipped.",
-                        typ,
-                    )
-
-            # Claude only allow the first message to be system message
-            if msg.role == "system" and index != 0:
-                role = "user"
+                    content_value = [{"type": "text", "text": str(output)}]
+                messages.append(
+                    {
+                        "role": "user",
+                        "content": [
+                            {
+                                "type": "tool_result",
+                                "tool_use_id": block.get("id"),
+                                "content": content_value,
+                            },
+                        ],
+                    },
+                )
             else:
-                role = msg.role
+                logger.warning(
+                    "Unsupported block type %s in the message, skipped.",
+                    typ,
+                )
 
-            msg_anthropic = {
-                "role": role,
-                "content": content_blocks or None,
-            }
+        # Claude only allow the first message to be system message
+        if msg.role == "system" and not is_first:
+            role = "user"
+        else:
+            role = msg.role
+
+        msg_anthropic = {
+            "role": role,
+            "content": content_blocks or None,
+        }
 
-            # When both content and tool_calls are None, skipped
-            if msg_anthropic["content"] or msg_anthropic.get("tool_calls"):
-                messages.append(msg_anthropic)
+        # When both content and tool_calls are None, skipped
+        if msg_anthropic["content"] or msg_anthropic.get("tool_calls"):
+            messages.append(msg_anthropic)
 
         return messages
 
@@ -161,13 +190,21 @@ class AnthropicMultiAgentFormatter(TruncatedFormatterBase):
         super().__init__(token_counter=token_counter, max_tokens=max_tokens)
         self.conversation_history_prompt = conversation_history_prompt
 
+        # The formatter for the tool sequences, which is kept to reuse its
+        # formatting cache across calls
+        self._tool_sequence_formatter = AnthropicChatFormatter()
+
     async def _format_tool_sequence(
         self,
         msgs: list[Msg],
     ) -> list[dict[str, Any]]:
         """Given a sequence of tool call/result messages, format them into
         the required format for the Anthropic API."""
-        return await AnthropicChatFormatter().format(msgs)
+        # The nested formatter follows the cache size of this formatter
+        self._tool_sequence_formatter.format_cache_size = (
+            self.format_cache_size
+        )
+        return await self._tool_sequence_formatter.format(msgs)
 
     async def _format_agent_message(
         self,
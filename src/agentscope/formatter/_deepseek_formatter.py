@@ -48,59 +48,84 @@ class DeepSeekChatFormatter(TruncatedFormatterBase):
 
         messages: list[dict] = []
         for msg in msgs:
-            content_blocks: list = []
-            tool_calls = []
+            messages.extend(
+                await self._format_with_cache(
+                    self._format_message,
+                    msg,
+                ),
+            )
 
-            for block in msg.get_content_blocks():
-                typ = block.get("type")
-                if typ == "text":
-                    content_blocks.append({**block})
-
-                elif typ == "tool_use":
-                    tool_calls.append(
-                        {
-                            "id": block.get("id"),
-                            "type": "function",
-                            "function": {
-                                "name": block.get("name"),
-                                "arguments": json.dumps(
-                                    block.get("input", {}),
-                                    ensure_ascii=False,
-                                ),
-                            },
-                        },
-                    )
-
-                elif typ == "tool_result":
-                    messages.append(
-                        {
-                            "role": "tool",
-                            "tool_call_id": block.get("id"),
-                            "content": self.convert_tool_result_to_string(
-                                block.get("output"),  # type: ignore[arg-type]
-                            ),
+        return messages
+
+    async def _format_message(
+        self,
+        msg: Msg,
+    ) -> list[dict[str, Any]]:
+        """Format a single message object into DeepSeek API format,
+        which may produce multiple messages, e.g. the tool results.
+
+        Args:
+            msg (`Msg`):
+                The message object to format.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages as a list of dictionaries.
+        """
+        messages: list[dict] = []
+        content_blocks: list = []
+        tool_calls = []
+
+        for block in msg.get_content_blocks():
+            typ = block.get("type")
+            if typ == "text":
+                content_blocks.append({**block})
+
+            elif typ == "tool_use":
+                tool_calls.append(
+                    {
+                        "id": block.get("id"),
+                        "type": "function",
+                        "function": {
                             "name": block.get("name"),
+                            "arguments": json.dumps(
+                                block.get("input", {}),
+                                ensure_ascii=False,
+                            ),
                         },
-                    )
-
-                else:
-                    logger.warning(
-                        "Unsupported block type %s in the message, skipped.",
-                        typ,
-                    )
-            content_msg = "\n".join(
-                content.get("text", "") for content in content_blocks
-            )
-            msg_deepseek = {
-                "role": msg.role,
-                "content": content_msg or None,
-            }
+                    },
+                )
 
-            if tool_calls:
-                msg_deepseek["tool_calls"] = tool_calls
+            elif typ == "tool_result":
+                messages.append(
+                    {
+                        "role": "tool",
+                        "tool_call_id": block.get("id"),
+                        "content": self.convert_tool_result_to_string(
+                            block.get("output"),  # type: ignore[arg-type]
+                        ),
+                        "name": block.get("name"),
+                    },
+                )
 
-            if msg_deepseek["content"] or msg_deepseek.get("tool_calls"):
-                messages.append(msg_deepseek)
+            else:
+                logger.warning(
+                    "Unsupported block type %s in the message, skipped.",
+                    typ,
+                )
+        content_msg = "\n".join(
+            content.get("text", "") for content in content_blocks
+        )
+        msg_deepseek = {
+            "role": msg.role,
+            "content": content_msg or None,
+        }
+
+        if tool_calls:
+            msg_deepseek["tool_calls"] = tool_calls
+
+        if msg_deepseek["content"] or msg_deepseek.get("tool_calls"):
+            messages.append(msg_deepseek)
 
         return messages
 
@@ -155,6 +180,10 @@ class DeepSeekMultiAgentFormatter(TruncatedFormatterBase):
         super().__init__(token_counter=token_counter, max_tokens=max_tokens)
         self.conversation_history_prompt = conversation_history_prompt
 
+        # The formatter for the tool sequences, which is kept to reuse its
+        # formatting cache across calls
+        self._tool_sequence_formatter = DeepSeekChatFormatter()
+
     async def _format_tool_sequence(
         self,
         msgs: list[Msg],
@@ -170,7 +199,11 @@ class DeepSeekMultiAgentFormatter(TruncatedFormatterBase):
             `list[dict[str, Any]]`:
                 A list of dictionaries formatted for the DeepSeek API.
         """
-        return await DeepSeekChatFormatter().format(msgs)
+        # The nested formatter follows the cache size of this formatter
+        self._tool_sequence_formatter.format_cache_size = (
+            self.format_cache_size
+        )
+        return await self._tool_sequence_formatter.format(msgs)
 
     async def _format_agent_message(
         self,
@@ -5,6 +5,7 @@ from abc import abstractmethod
 from typing import Any, List
 
 from .._utils._common import _save_base64_data
+from ..blob import get_blob_store
 from ..message import Msg, AudioBlock, ImageBlock, TextBlock
 
 
@@ -16,6 +17,17 @@ class FormatterBase:
         """Format the Msg objects to a list of dictionaries that satisfy the
         API requirements."""
 
+    async def warm_up(self, msgs: list[Msg]) -> None:
+        """Format the messages in advance if the formatter caches the
+        formatted results, e.g. while waiting for other IO, so that the
+        following `format` call only formats the new messages. Nothing is
+        done by default.
+
+        Args:
+            msgs (`list[Msg]`):
+                The messages expected in the following `format` call.
+        """
+
     @staticmethod
     def assert_list_of_msgs(msgs: list[Msg]) -> None:
         """Assert that the input is a list of Msg objects.
@@ -70,6 +82,9 @@ class FormatterBase:
                     "is required."
                 )
                 source = block["source"]
+                if source["type"] == "blob":
+                    source = get_blob_store().load(source)
+
                 # Save the image locally and return the file path
                 if source["type"] == "url":
                     textual_output.append(
@@ -90,7 +105,7 @@ class FormatterBase:
                 else:
                     raise ValueError(
                         f"Invalid image source: {block['source']}, "
-                        "expected 'url' or 'base64'.",
+                        "expected 'url', 'base64' or 'blob'.",
                     )
 
             else:
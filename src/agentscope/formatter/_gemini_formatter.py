@@ -107,89 +107,114 @@ class GeminiChatFormatter(TruncatedFormatterBase):
         """Format message objects into Gemini API required format."""
         self.assert_list_of_msgs(msgs)
 
-        messages: list = []
+        messages: list[dict] = []
         for msg in msgs:
-            parts = []
+            messages.extend(
+                await self._format_with_cache(
+                    self._format_message,
+                    msg,
+                ),
+            )
 
-            for block in msg.get_content_blocks():
-                typ = block.get("type")
-                if typ == "text":
-                    parts.append(
-                        {
-                            "text": block.get("text"),
+        return messages
+
+    async def _format_message(
+        self,
+        msg: Msg,
+    ) -> list[dict[str, Any]]:
+        """Format a single message object into Gemini API format,
+        which may produce multiple messages, e.g. the tool results.
+
+        Args:
+            msg (`Msg`):
+                The message object to format.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages as a list of dictionaries.
+        """
+        messages: list[dict] = []
+        parts = []
+
+        for block in msg.get_content_blocks():
+            typ = block.get("type")
+            if typ == "text":
+                parts.append(
+                    {
+                        "text": block.get("text"),
+                    },
+                )
+
+            elif typ == "tool_use":
+                parts.append(
+                    {
+                        "function_call": {
+                            "id": block["id"],
+                            "name": block["name"],
+                            "args": block["input"],
                         },
-                    )
+                    },
+                )
+
+            elif typ == "tool_result":
+                text_output = self.convert_tool_result_to_string(
+                    block["output"],  # type: ignore[arg-type]
+                )
+                messages.append(
+                    {
+                        "role": "user",
+                        "parts": [
+                            {
+                                "function_response": {
+                                    "id": block["id"],
+                                    "name": block["name"],
+                                    "response": {
+                                        "output": text_output,
+                                    },
+                                },
+                            },
+                        ],
+                    },
+                )
+
+            elif typ in ["image", "audio", "video"]:
+                if block["source"]["type"] == "base64":
+                    media_type = block["source"]["media_type"]
+                    base64_data = block["source"]["data"]
 
-                elif typ == "tool_use":
                     parts.append(
                         {
-                            "function_call": {
-                                "id": block["id"],
-                                "name": block["name"],
-                                "args": block["input"],
+                            "inline_data": {
+                                "data": base64_data,
+                                "mime_type": media_type,
                             },
                         },
                     )
 
-                elif typ == "tool_result":
-                    text_output = self.convert_tool_result_to_string(
-                        block["output"],  # type: ignore[arg-type]
-                    )
-                    messages.append(
+                elif block["source"]["type"] == "url":
+                    parts.append(
                         {
-                            "role": "user",
-                            "parts": [
-                                {
-                                    "function_response": {
-                                        "id": block["id"],
-                                        "name": block["name"],
-                                        "response": {
-                                            "output": text_output,
-                                        },
-                                    },
-                                },
-                            ],
+                            "inline_data": _to_gemini_inline_data(
+                                block["source"]["url"],
+                            ),
                         },
                     )
 
-                elif typ in ["image", "audio", "video"]:
-                    if block["source"]["type"] == "base64":
-                        media_type = block["source"]["media_type"]
-                        base64_data = block["source"]["data"]
-
-                        parts.append(
-                            {
-                                "inline_data": {
-                                    "data": base64_data,
-                                    "mime_type": media_type,
-                                },
-                            },
-                        )
-
-                    elif block["source"]["type"] == "url":
-                        parts.append(
-                            {
-                                "inline_data": _to_gemini_inline_data(
-                                    block["source"]["url"],
-                                ),
-                            },
-                        )
-
-                else:
-                    logger.warning(
-                        "Unsupported block type: %s in the message, skipped. ",
-                        typ,
-                    )
+            else:
+                logger.warning(
+                    "Unsupported block type: %s in the message, skipped. ",
+                    typ,
+                )
 
-            role = "model" if msg.role == "assistant" else "user"
+        role = "model" if msg.role == "assistant" else "user"
 
-            if parts:
-                messages.append(
-                    {
-                        "role": role,
-                        "parts": parts,
-                    },
-                )
+        if parts:
+            messages.append(
+                {
+                    "role": role,
+                    "parts": parts,
+                },
+            )
 
         return messages
 
@@ -258,6 +283,10 @@ class GeminiMultiAgentFormatter(TruncatedFormatterBase):
         super().__init__(token_counter=token_counter, max_tokens=max_tokens)
         self.conversation_history_prompt = conversation_history_prompt
 
+        # The formatter for the tool sequences, which is kept to reuse its
+        # formatting cache across calls
+        self._tool_sequence_formatter = GeminiChatFormatter()
+
     async def _format_system_message(
         self,
         msg: Msg,
@@ -287,7 +316,11 @@ class GeminiMultiAgentFormatter(TruncatedFormatterBase):
             `list[dict[str, Any]]`:
                 A list of dictionaries formatted for the Gemini API.
         """
-        return await GeminiChatFormatter().format(msgs)
+        # The nested formatter follows the cache size of this formatter
+        self._tool_sequence_formatter.format_cache_size = (
+            self.format_cache_size
+        )
+        return await self._tool_sequence_formatter.format(msgs)
 
     async def _format_agent_message(
         self,
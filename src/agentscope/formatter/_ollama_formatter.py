@@ -73,71 +73,96 @@ class OllamaChatFormatter(TruncatedFormatterBase):
 
         messages: list[dict] = []
         for msg in msgs:
-            content_blocks: list = []
-            tool_calls = []
-            images = []
+            messages.extend(
+                await self._format_with_cache(
+                    self._format_message,
+                    msg,
+                ),
+            )
 
-            for block in msg.get_content_blocks():
-                typ = block.get("type")
-                if typ == "text":
-                    content_blocks.append({**block})
-
-                elif typ == "tool_use":
-                    tool_calls.append(
-                        {
-                            "id": block.get("id"),
-                            "type": "function",
-                            "function": {
-                                "name": block.get("name"),
-                                "arguments": block.get("input", {}),
-                            },
-                        },
-                    )
+        return messages
 
-                elif typ == "tool_result":
-                    messages.append(
-                        {
-                            "role": "tool",
-                            "tool_call_id": block.get("id"),
-                            "content": self.convert_tool_result_to_string(
-                                block.get("output"),  # type: ignore[arg-type]
-                            ),
+    async def _format_message(
+        self,
+        msg: Msg,
+    ) -> list[dict[str, Any]]:
+        """Format a single message object into Ollama API format,
+        which may produce multiple messages, e.g. the tool results.
+
+        Args:
+            msg (`Msg`):
+                The message object to format.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages as a list of dictionaries.
+        """
+        messages: list[dict] = []
+        content_blocks: list = []
+        tool_calls = []
+        images = []
+
+        for block in msg.get_content_blocks():
+            typ = block.get("type")
+            if typ == "text":
+                content_blocks.append({**block})
+
+            elif typ == "tool_use":
+                tool_calls.append(
+                    {
+                        "id": block.get("id"),
+                        "type": "function",
+                        "function": {
                             "name": block.get("name"),
+                            "arguments": block.get("input", {}),
                         },
-                    )
+                    },
+                )
 
-                elif typ == "image":
-                    source_type = block["source"]["type"]
-                    if source_type == "url":
-                        images.append(
-                            _convert_ollama_image_url_to_base64_data(
-                                block["source"]["url"],
-                            ),
-                        )
-                    elif source_type == "base64":
-                        images.append(block["source"]["data"])
+            elif typ == "tool_result":
+                messages.append(
+                    {
+                        "role": "tool",
+                        "tool_call_id": block.get("id"),
+                        "content": self.convert_tool_result_to_string(
+                            block.get("output"),  # type: ignore[arg-type]
+                        ),
+                        "name": block.get("name"),
+                    },
+                )
 
-                else:
-                    logger.warning(
-                        "Unsupported block type %s in the message, skipped.",
-                        typ,
+            elif typ == "image":
+                source_type = block["source"]["type"]
+                if source_type == "url":
+                    images.append(
+                        _convert_ollama_image_url_to_base64_data(
+                            block["source"]["url"],
+                        ),
                     )
-            content_msg = "\n".join(
-                content.get("text", "") for content in content_blocks
-            )
-            msg_ollama = {
-                "role": msg.role,
-                "content": content_msg or None,
-            }
+                elif source_type == "base64":
+                    images.append(block["source"]["data"])
+
+            else:
+                logger.warning(
+                    "Unsupported block type %s in the message, skipped.",
+                    typ,
+                )
+        content_msg = "\n".join(
+            content.get("text", "") for content in content_blocks
+        )
+        msg_ollama = {
+            "role": msg.role,
+            "content": content_msg or None,
+        }
 
-            if tool_calls:
-                msg_ollama["tool_calls"] = tool_calls
+        if tool_calls:
+            msg_ollama["tool_calls"] = tool_calls
 
-            if images:
-                msg_ollama["images"] = images
+        if images:
+            msg_ollama["images"] = images
 
-            if msg_ollama["content"] or msg_ollama.get("tool_calls"):
-                messages.append(msg_ollama)
+        if msg_ollama["content"] or msg_ollama.get("tool_calls"):
+            messages.append(msg_ollama)
 
         return messages
 
@@ -191,6 +216,10 @@ class OllamaMultiAgentFormatter(TruncatedFormatterBase):
         super().__init__(token_counter=token_counter, max_tokens=max_tokens)
         self.conversation_history_prompt = conversation_history_prompt
 
+        # The formatter for the tool sequences, which is kept to reuse its
+        # formatting cache across calls
+        self._tool_sequence_formatter = OllamaChatFormatter()
+
     async def _format_system_message(
         self,
         msg: Msg,
@@ -216,7 +245,11 @@ class OllamaMultiAgentFormatter(TruncatedFormatterBase):
             `list[dict[str, Any]]`:
                 A list of dictionaries formatted for the Ollama API.
         """
-        return await OllamaChatFormatter().format(msgs)
+        # The nested formatter follows the cache size of this formatter
+        self._tool_sequence_formatter.format_cache_size = (
+            self.format_cache_size
+        )
+        return await self._tool_sequence_formatter.format(msgs)
 
     async def _format_agent_message(
         self,
@@ -158,92 +158,117 @@ class OpenAIChatFormatter(TruncatedFormatterBase):
 
         messages: list[dict] = []
         for msg in msgs:
-            content_blocks = []
-            tool_calls = []
+            messages.extend(
+                await self._format_with_cache(
+                    self._format_message,
+                    msg,
+                ),
+            )
 
-            for block in msg.get_content_blocks():
-                typ = block.get("type")
-                if typ == "text":
-                    content_blocks.append({**block})
+        return messages
 
-                elif typ == "tool_use":
-                    tool_calls.append(
-                        {
-                            "id": block.get("id"),
-                            "type": "function",
-                            "function": {
-                                "name": block.get("name"),
-                                "arguments": json.dumps(
-                                    block.get("input", {}),
-                                    ensure_ascii=False,
-                                ),
-                            },
-                        },
-                    )
+    async def _format_message(
+        self,
+        msg: Msg,
+    ) -> list[dict[str, Any]]:
+        """Format a single message object into OpenAI API format,
+        which may produce multiple messages, e.g. the tool results.
 
-                elif typ == "tool_result":
-                    messages.append(
-                        {
-                            "role": "tool",
-                            "tool_call_id": block.get("id"),
-                            "content": self.convert_tool_result_to_string(
-                                block.get("output"),  # type: ignore[arg-type]
-                            ),
+        Args:
+            msg (`Msg`):
+                The message object to format.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages as a list of dictionaries.
+        """
+        messages: list[dict] = []
+        content_blocks = []
+        tool_calls = []
+
+        for block in msg.get_content_blocks():
+            typ = block.get("type")
+            if typ == "text":
+                content_blocks.append({**block})
+
+            elif typ == "tool_use":
+                tool_calls.append(
+                    {
+                        "id": block.get("id"),
+                        "type": "function",
+                        "function": {
                             "name": block.get("name"),
+                            "arguments": json.dumps(
+                                block.get("input", {}),
+                                ensure_ascii=False,
+                            ),
                         },
-                    )
+                    },
+                )
 
-                elif typ == "image":
-                    source_type = block["source"]["type"]
-                    if source_type == "url":
-                        url = _to_openai_image_url(block["source"]["url"])
+            elif typ == "tool_result":
+                messages.append(
+                    {
+                        "role": "tool",
+                        "tool_call_id": block.get("id"),
+                        "content": self.convert_tool_result_to_string(
+                            block.get("output"),  # type: ignore[arg-type]
+                        ),
+                        "name": block.get("name"),
+                    },
+                )
 
-                    elif source_type == "base64":
-                        data = block["source"]["data"]
-                        media_type = block["source"]["media_type"]
-                        url = f"data:{media_type};base64,{data}"
+            elif typ == "image":
+                source_type = block["source"]["type"]
+                if source_type == "url":
+                    url = _to_openai_image_url(block["source"]["url"])
 
-                    else:
-                        raise ValueError(
-                            f"Unsupported image source type: {source_type}",
-                        )
+                elif source_type == "base64":
+                    data = block["source"]["data"]
+                    media_type = block["source"]["media_type"]
+                    url = f"data:{media_type};base64,{data}"
 
-                    content_blocks.append(
-                        {
-                            "type": "image_url",
-                            "image_url": {
-                                "url": url,
-                            },
-                        },
+                else:
+                    raise ValueError(
+                        f"Unsupported image source type: {source_type}",
                     )
 
-                elif typ == "audio":
-                    input_audio = _to_openai_audio_data(block["source"])
-                    content_blocks.append(
-                        {
-                            "type": "input_audio",
-                            "input_audio": input_audio,
+                content_blocks.append(
+                    {
+                        "type": "image_url",
+                        "image_url": {
+                            "url": url,
                         },
-                    )
+                    },
+                )
 
-                else:
-                    logger.warning(
-                        "Unsupported block type %s in the message, skipped.",
-                        typ,
-                    )
+            elif typ == "audio":
+                input_audio = _to_openai_audio_data(block["source"])
+                content_blocks.append(
+                    {
+                        "type": "input_audio",
+                        "input_audio": input_audio,
+                    },
+                )
+
+            else:
+                logger.warning(
+                    "Unsupported block type %s in the message, skipped.",
+                    typ,
+                )
 
-            msg_openai = {
-                "role": msg.role,
-                "name": msg.name,
-                "content": content_blocks or None,
-            }
+        msg_openai = {
+            "role": msg.role,
+            "name": msg.name,
+            "content": content_blocks or None,
+        }
 
-            if tool_calls:
-                msg_openai["tool_calls"] = tool_calls
+        if tool_calls:
+            msg_openai["tool_calls"] = tool_calls
 
-            # When both content and tool_calls are None, skipped
-            if msg_openai["content"] or msg_openai.get("tool_calls"):
-                messages.append(msg_openai)
+        # When both content and tool_calls are None, skipped
+        if msg_openai["content"] or msg_openai.get("tool_calls"):
+            messages.append(msg_openai)
 
         return messages
 
@@ -293,13 +318,21 @@ class OpenAIMultiAgentFormatter(TruncatedFormatterBase):
         super().__init__(token_counter=token_counter, max_tokens=max_tokens)
         self.conversation_history_prompt = conversation_history_prompt
 
+        # The formatter for the tool sequences, which is kept to reuse its
+        # formatting cache across calls
+        self._tool_sequence_formatter = OpenAIChatFormatter()
+
     async def _format_tool_sequence(
         self,
         msgs: list[Msg],
     ) -> list[dict[str, Any]]:
         """Given a sequence of tool call/result messages, format them into
         the required format for the OpenAI API."""
-        return await OpenAIChatFormatter().format(msgs)
+        # The nested formatter follows the cache size of this formatter
+        self._tool_sequence_formatter.format_cache_size = (
+            self.format_cache_size
+        )
+        return await self._tool_sequence_formatter.format(msgs)
 
     async def _format_agent_message(
         self,
@@ -1,16 +1,21 @@
 # -*- coding: utf-8 -*-
 """The truncated formatter base class, which allows to truncate the input
 messages."""
+import json
 from abc import ABC
-from copy import deepcopy
+from collections import OrderedDict
 from typing import (
     Any,
     Tuple,
     Literal,
     AsyncGenerator,
+    Awaitable,
+    Callable,
 )
 
 from ._formatter_base import FormatterBase
+from .._utils._common import _get_content_fingerprint
+from ..blob import resolve_media
 from ..message import Msg
 from ..token import TokenCounterBase
 from ..tracing import trace_format
@@ -18,7 +23,23 @@ from ..tracing import trace_format
 
 class TruncatedFormatterBase(FormatterBase, ABC):
     """Base class for truncated formatters, which formats input messages into
-    required formats with tokens under a specified limit."""
+    required formats with tokens under a specified limit.
+
+    .. note:: The formatted results of the messages are cached by their
+     names, roles and contents, so that in a multi-step conversation only
+     the new or modified messages are formatted again. The local files referred
+     by the messages (e.g. images) are assumed unchanged, and the cached
+     results are shared between calls, so the formatted messages should be
+     treated as read-only.
+
+    .. note:: The blob sources in the messages are resolved from the default
+     blob store only when the messages are formatted, i.e. on cache misses,
+     and the cache keys only involve the hashes of the blobs.
+    """
+
+    format_cache_size: int = 1024
+    """The maximum number of cached formatting results, which is disabled if
+    set to 0"""
 
     def __init__(
         self,
@@ -44,6 +65,12 @@ class TruncatedFormatterBase(FormatterBase, ABC):
         ), "max_tokens must be greater than 0"
         self.max_tokens = max_tokens
 
+        # The formatted results, keyed by the format function, the extra
+        # arguments and the keys of the messages
+        self._format_cache: OrderedDict[tuple, list[dict[str, Any]]] = (
+            OrderedDict()
+        )
+
     @trace_format
     async def format(
         self,
@@ -66,21 +93,155 @@ class TruncatedFormatterBase(FormatterBase, ABC):
         # Check if the input messages are valid
         self.assert_list_of_msgs(msgs)
 
-        msgs = deepcopy(msgs)
+        # The input messages are not modified during formatting, so only the
+        # list is copied here rather than deep-copying all the messages
+        msgs = list(msgs)
+
+        formatted_msgs = await self._format(msgs)
+        n_tokens = await self._count(formatted_msgs)
+
+        if (
+            n_tokens is None
+            or self.max_tokens is None
+            or n_tokens <= self.max_tokens
+        ):
+            return formatted_msgs
+
+        if type(self)._truncate is not TruncatedFormatterBase._truncate:
+            # The customized truncation strategy is applied step by step
+            while n_tokens > self.max_tokens:
+                msgs = await self._truncate(msgs)
+                formatted_msgs = await self._format(msgs)
+                n_tokens = await self._count(formatted_msgs)
+            return formatted_msgs
+
+        return await self._format_with_truncation(msgs, n_tokens)
+
+    async def warm_up(self, msgs: list[Msg]) -> None:
+        """Format the messages into the cache in advance, without counting
+        and truncating, so that the following `format` call reuses the
+        results of the unchanged messages.
+
+        Args:
+            msgs (`list[Msg]`):
+                The messages expected in the following `format` call.
+        """
+        if self.format_cache_size > 0:
+            self.assert_list_of_msgs(msgs)
+            await self._format(list(msgs))
 
-        while True:
-            formatted_msgs = await self._format(msgs)
-            n_tokens = await self._count(formatted_msgs)
+    async def _format_with_truncation(
+        self,
+        msgs: list[Msg],
+        n_tokens: int,
+    ) -> list[dict[str, Any]]:
+        """Truncate the leading messages (except the system prompt) with the
+        fewest removed messages, so that the formatted messages fit the token
+        limit.
 
-            if (
-                n_tokens is None
-                or self.max_tokens is None
-                or n_tokens <= self.max_tokens
-            ):
-                return formatted_msgs
+        Different from applying `_truncate` repeatedly, which formats and
+        counts the messages once per removed message or tool sequence, the
+        cut point is first estimated from the message sizes, and then
+        located by an exponential and binary search over the valid cut
+        points. So only O(log n) format and count passes are needed, where
+        the formatting of the kept messages is served from the cache.
 
-            # truncate the input messages
-            msgs = await self._truncate(msgs)
+        .. note:: The tool call messages are always removed together with
+         their corresponding tool result messages.
+
+        Args:
+            msgs (`list[Msg]`):
+                The input messages, whose formatted result exceeds the token
+                limit.
+            n_tokens (`int`):
+                The number of tokens of the formatted input messages.
+
+        Raises:
+            `ValueError`:
+                If the system prompt message already exceeds the token limit,
+                or if there are tool calls without corresponding tool results.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages that fit the token limit.
+        """
+        start_index = 0
+        if len(msgs) > 0 and msgs[0].role == "system":
+            start_index = 1
+
+        cut_points, tool_call_ids = self._get_cut_points(msgs, start_index)
+
+        # The formatted results of the cut points that fit the limit
+        fitted: dict[int, list[dict[str, Any]]] = {}
+
+        async def _fits(k: int) -> bool:
+            """If the messages fit the limit after the k-th cut point."""
+            formatted = await self._format(
+                msgs[:start_index] + msgs[cut_points[k] :],
+            )
+            if await self._count(formatted) <= self.max_tokens:
+                fitted[k] = formatted
+                return True
+            return False
+
+        # Estimate the cut point by assuming the number of tokens is
+        # proportional to the serialized size of the messages
+        sizes = [
+            len(json.dumps(_.content, ensure_ascii=False, default=str))
+            for _ in msgs
+        ]
+        ratio = n_tokens / max(sum(sizes), 1)
+        guess, n_kept = len(cut_points) - 1, sum(sizes)
+        last_cut = start_index
+        for k, cut in enumerate(cut_points):
+            n_kept -= sum(sizes[last_cut:cut])
+            last_cut = cut
+            if n_kept * ratio <= self.max_tokens:
+                guess = k
+                break
+
+        # The largest index known to exceed and the smallest one known to
+        # fit, where -1 refers to no truncation
+        lo, hi = -1, len(cut_points)
+        if cut_points:
+            # Exponential search around the estimated cut point
+            step = 1
+            if await _fits(guess):
+                hi = guess
+                while hi - step > lo:
+                    if not await _fits(hi - step):
+                        lo = hi - step
+                        break
+                    hi, step = hi - step, step * 2
+            else:
+                lo = guess
+                while lo + step < hi:
+                    if await _fits(lo + step):
+                        hi = lo + step
+                        break
+                    lo, step = lo + step, step * 2
+
+            # Binary search within the bracket
+            while hi - lo > 1:
+                mid = (lo + hi) // 2
+                if await _fits(mid):
+                    hi = mid
+                else:
+                    lo = mid
+
+        if hi < len(cut_points):
+            return fitted[hi]
+
+        if len(tool_call_ids) > 0:
+            raise ValueError(
+                "The input messages contains tool call(s) that do not have "
+                f"the corresponding tool result(s): {tool_call_ids}. ",
+            )
+
+        raise ValueError(
+            f"The system prompt message already exceeds the token "
+            f"limit ({self.max_tokens} tokens).",
+        )
 
     async def _format(self, msgs: list[Msg]) -> list[dict[str, Any]]:
         """Format the input messages into the required format. This method
@@ -89,8 +250,11 @@ class TruncatedFormatterBase(FormatterBase, ABC):
         formatted_msgs = []
         start_index = 0
         if len(msgs) > 0 and msgs[0].role == "system":
-            formatted_msgs.append(
-                await self._format_system_message(msgs[0]),
+            formatted_msgs.extend(
+                await self._format_with_cache(
+                    self._format_system_messages,
+                    msgs[0],
+                ),
             )
             start_index = 1
 
@@ -98,12 +262,15 @@ class TruncatedFormatterBase(FormatterBase, ABC):
         async for typ, group in self._group_messages(msgs[start_index:]):
             match typ:
                 case "tool_sequence":
+                    # The blob sources are resolved by the nested formatter
+                    # on its cache misses
                     formatted_msgs.extend(
                         await self._format_tool_sequence(group),
                     )
                 case "agent_message":
                     formatted_msgs.extend(
-                        await self._format_agent_message(
+                        await self._format_with_cache(
+                            self._format_agent_message,
                             group,
                             is_first_agent_message,
                         ),
@@ -112,6 +279,79 @@ class TruncatedFormatterBase(FormatterBase, ABC):
 
         return formatted_msgs
 
+    async def _format_with_cache(
+        self,
+        format_func: Callable[..., Awaitable[list[dict[str, Any]]]],
+        msgs: Msg | list[Msg],
+        *args: Any,
+    ) -> list[dict[str, Any]]:
+        """Format the message(s) by calling `format_func(msgs, *args)`, or
+        reuse the cached result if the same message(s) have been formatted
+        with the same arguments before.
+
+        Args:
+            format_func (`Callable[..., Awaitable[list[dict[str, Any]]]]`):
+                The async function used to format the message(s).
+            msgs (`Msg | list[Msg]`):
+                The message or messages to be formatted.
+            *args (`Any`):
+                The extra hashable arguments passed to `format_func`.
+
+        Returns:
+            `list[dict[str, Any]]`:
+                The formatted messages.
+        """
+        if self.format_cache_size <= 0:
+            return await format_func(self._resolve_media(msgs), *args)
+
+        key = (
+            format_func.__name__,
+            args,
+            tuple(
+                self._get_msg_key(_)
+                for _ in (msgs if isinstance(msgs, list) else [msgs])
+            ),
+        )
+
+        formatted = self._format_cache.get(key)
+        if formatted is None:
+            formatted = await format_func(self._resolve_media(msgs), *args)
+            self._format_cache[key] = formatted
+            while len(self._format_cache) > self.format_cache_size:
+                self._format_cache.popitem(last=False)
+        else:
+            self._format_cache.move_to_end(key)
+
+        return list(formatted)
+
+    @staticmethod
+    def _resolve_media(msgs: Msg | list[Msg]) -> Msg | list[Msg]:
+        """Resolve the blob sources in the message(s) to be formatted."""
+        if isinstance(msgs, list):
+            return [resolve_media(_) for _ in msgs]
+        return resolve_media(msgs)
+
+    @staticmethod
+    def _get_msg_key(msg: Msg) -> tuple:
+        """Get the cache key of a message from its formatting-related fields,
+        so that the cached result is invalidated once the message is
+        modified.
+
+        .. note:: The message id is not involved, so that the messages
+         recreated with the same content, e.g. the system prompt message of
+         the ReAct agent in each step, hit the cache rather than filling it
+         up.
+        """
+        return msg.name, msg.role, _get_content_fingerprint(msg.content)
+
+    async def _format_system_messages(
+        self,
+        msg: Msg,
+    ) -> list[dict[str, Any]]:
+        """Format the system message into a list, so that its result can be
+        cached by `_format_with_cache`."""
+        return [await self._format_system_message(msg)]
+
     async def _format_system_message(
         self,
         msg: Msg,
@@ -132,7 +372,12 @@ class TruncatedFormatterBase(FormatterBase, ABC):
         msgs: list[Msg],
     ) -> list[dict[str, Any]]:
         """Given a sequence of tool call/result messages, format them into
-        the required format for the LLM API."""
+        the required format for the LLM API.
+
+        .. note:: The blob sources in the messages are not resolved yet,
+         so that the implementation can resolve them by `_resolve_media`
+         only on its cache misses, e.g. by delegating to a chat formatter.
+        """
         raise NotImplementedError(
             "_format_tool_sequence is not implemented",
         )
@@ -157,7 +402,9 @@ class TruncatedFormatterBase(FormatterBase, ABC):
 
         .. tip:: This function only provides a simple strategy, and developers
          can override this method to implement more sophisticated
-         truncation strategies.
+         truncation strategies. If not overridden, the same strategy is
+         applied by `_format_with_truncation` with a search over the cut
+         points, rather than calling this function repeatedly.
 
         .. note:: The tool call message should be truncated together with
          its corresponding tool result message to satisfy the LLM API
@@ -214,6 +461,41 @@ class TruncatedFormatterBase(FormatterBase, ABC):
 
         return msgs[:start_index]
 
+    @staticmethod
+    def _get_cut_points(
+        msgs: list[Msg],
+        start_index: int,
+    ) -> tuple[list[int], set[str]]:
+        """Get the indices where the input messages can be cut, i.e.
+        `msgs[start_index:index]` can be removed without separating the tool
+        calls from their corresponding tool results.
+
+        Args:
+            msgs (`list[Msg]`):
+                The input messages.
+            start_index (`int`):
+                The index of the first message that can be removed.
+
+        Returns:
+            `tuple[list[int], set[str]]`:
+                The cut points in ascending order, and the ids of the tool
+                calls after the last cut point that have no corresponding
+                tool results.
+        """
+        cut_points = []
+        tool_call_ids = set()
+        for i in range(start_index, len(msgs)):
+            for block in msgs[i].get_content_blocks("tool_use"):
+                tool_call_ids.add(block["id"])
+
+            for block in msgs[i].get_content_blocks("tool_result"):
+                tool_call_ids.discard(block["id"])
+
+            if len(tool_call_ids) == 0:
+                cut_points.append(i + 1)
+
+        return cut_points, tool_call_ids
+
     async def _count(self, msgs: list[dict[str, Any]]) -> int | None:
         """Count the number of tokens in the input messages. If token counter
         is not provided, `None` will be returned.
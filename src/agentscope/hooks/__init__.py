@@ -7,10 +7,12 @@ from ._studio_hooks import (
 )
 from .. import _config
 from ..agent import AgentBase
+from ..agent._hook_args import read_only_hook
 
 
 __all__ = [
     "as_studio_forward_message_pre_print_hook",
+    "read_only_hook",
 ]
 
 
@@ -21,9 +23,11 @@ def _equip_as_studio_hooks(
     AgentBase.register_class_hook(
         "pre_print",
         "as_studio_forward_message_pre_print_hook",
-        partial(
-            as_studio_forward_message_pre_print_hook,
-            studio_url=studio_url,
-            run_id=_config.run_id,
+        read_only_hook(
+            partial(
+                as_studio_forward_message_pre_print_hook,
+                studio_url=studio_url,
+                run_id=_config.run_id,
+            ),
         ),
     )
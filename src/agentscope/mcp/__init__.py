@@ -4,7 +4,8 @@ the MCP servers."""
 
 from ._client_base import MCPClientBase
 from ._mcp_function import MCPToolFunction
-from ._stateful_client_base import StatefulClientBase
+from ._session_pool import MCPSessionPool
+from ._stateful_client_base import StatefulClientBase, MCPCallMetrics
 from ._stdio_stateful_client import StdIOStatefulClient
 from ._http_stateless_client import HttpStatelessClient
 from ._http_stateful_client import HttpStatefulClient
@@ -12,8 +13,10 @@ from ._http_stateful_client import HttpStatefulClient
 
 __all__ = [
     "MCPToolFunction",
+    "MCPSessionPool",
     "MCPClientBase",
     "StatefulClientBase",
+    "MCPCallMetrics",
     "StdIOStatefulClient",
     "HttpStatelessClient",
     "HttpStatefulClient",
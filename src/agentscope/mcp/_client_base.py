@@ -1,7 +1,8 @@
 # -*- coding: utf-8 -*-
 """The base class for MCP clients in AgentScope."""
+import time
 from abc import abstractmethod
-from typing import Callable, List
+from typing import Any, Callable, List
 
 import mcp.types
 
@@ -12,6 +13,11 @@ from ..message import ImageBlock, Base64Source, AudioBlock, TextBlock
 class MCPClientBase:
     """Base class for MCP clients."""
 
+    tools_cache_ttl: float | None = 300
+    """The seconds to cache the tool list of the MCP server, which never
+    expires if `None`. The cache is also invalidated once the server
+    notifies that its tool list has changed."""
+
     def __init__(self, name: str) -> None:
         """Initialize the MCP client with a name.
 
@@ -22,6 +28,14 @@ class MCPClientBase:
         """
         self.name = name
 
+        self._tools_cache: List[mcp.types.Tool] | None = None
+        # The wall-clock time, so that the cache loaded from disk can expire
+        self._tools_cached_at = 0.0
+
+    @abstractmethod
+    async def list_tools(self) -> List[mcp.types.Tool]:
+        """List all tools available on the MCP server."""
+
     @abstractmethod
     async def get_callable_function(
         self,
@@ -30,6 +44,81 @@ class MCPClientBase:
     ) -> Callable:
         """Get a tool function by its name."""
 
+    def get_cached_tools(self) -> List[mcp.types.Tool] | None:
+        """Get the cached tool list, or `None` if not cached or expired."""
+        if self._tools_cache is None:
+            return None
+
+        if (
+            self.tools_cache_ttl is not None
+            and time.time() - self._tools_cached_at > self.tools_cache_ttl
+        ):
+            return None
+
+        return self._tools_cache
+
+    def cache_tools(
+        self,
+        tools: List[mcp.types.Tool],
+        cached_at: float | None = None,
+    ) -> None:
+        """Cache the tool list of the MCP server.
+
+        Args:
+            tools (`List[mcp.types.Tool]`):
+                The tool list.
+            cached_at (`float | None`, optional):
+                The timestamp when the tool list was fetched, defaults to
+                now.
+        """
+        self._tools_cache = list(tools)
+        self._tools_cached_at = time.time() if cached_at is None else cached_at
+
+    def invalidate_tools_cache(self) -> None:
+        """Invalidate the cached tool list, so that the next `list_tools`
+        call fetches it from the server."""
+        self._tools_cache = None
+
+    def dump_tools_cache(self) -> dict[str, Any] | None:
+        """Dump the cached tool list into a JSON-serializable dictionary,
+        which can be saved to disk and loaded by `load_tools_cache` for a
+        warm start. Returns `None` if no tool list is cached."""
+        if self._tools_cache is None:
+            return None
+        return {
+            "cached_at": self._tools_cached_at,
+            "tools": [
+                _.model_dump(mode="json", by_alias=True, exclude_none=True)
+                for _ in self._tools_cache
+            ],
+        }
+
+    def load_tools_cache(self, data: dict[str, Any]) -> None:
+        """Load the tool list dumped by `dump_tools_cache`, which still
+        expires by `tools_cache_ttl` from the original fetching time.
+
+        Args:
+            data (`dict[str, Any]`):
+                The dumped tool list.
+        """
+        self.cache_tools(
+            [mcp.types.Tool.model_validate(_) for _ in data["tools"]],
+            cached_at=data["cached_at"],
+        )
+
+    async def handle_server_message(self, message: Any) -> None:
+        """Handle the messages from the server, which invalidates the tool
+        list cache once notified that the tool list has changed."""
+        if isinstance(message, mcp.types.ServerNotification) and isinstance(
+            message.root,
+            mcp.types.ToolListChangedNotification,
+        ):
+            logger.info(
+                "The tool list of MCP server '%s' has changed.",
+                self.name,
+            )
+            self.invalidate_tools_cache()
+
     @staticmethod
     def _convert_mcp_content_to_as_blocks(
         mcp_content_blocks: list,
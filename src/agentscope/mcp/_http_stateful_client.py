@@ -1,5 +1,6 @@
 # -*- coding: utf-8 -*-
 """The MCP stateful HTTP client module in AgentScope."""
+from functools import partial
 from typing import Any, Literal
 
 from mcp.client.sse import sse_client
@@ -66,19 +67,14 @@ class HttpStatefulClient(StatefulClientBase):
         assert transport in ["streamable_http", "sse"]
         self.transport = transport
 
-        if self.transport == "streamable_http":
-            self.client = streamablehttp_client(
-                url=url,
-                headers=headers,
-                timeout=timeout,
-                sse_read_timeout=sse_read_timeout,
-                **client_kwargs,
-            )
-        else:
-            self.client = sse_client(
-                url=url,
-                headers=headers,
-                timeout=timeout,
-                sse_read_timeout=sse_read_timeout,
-                **client_kwargs,
-            )
+        self.client_gen = partial(
+            streamablehttp_client
+            if self.transport == "streamable_http"
+            else sse_client,
+            url=url,
+            headers=headers,
+            timeout=timeout,
+            sse_read_timeout=sse_read_timeout,
+            **client_kwargs,
+        )
+        self.client = self.client_gen()
@@ -10,6 +10,7 @@ from mcp.client.streamable_http import streamablehttp_client
 
 from . import MCPToolFunction
 from ._client_base import MCPClientBase
+from ._session_pool import MCPSessionPool
 from ..tool import ToolResponse
 
 
@@ -20,6 +21,12 @@ class HttpStatelessClient(MCPClientBase):
      session state across multiple tool calls. Each tool call will start a
      new session and close it after the call is done.
 
+    .. tip:: Set `pool_size` to reuse a bounded pool of initialized
+     sessions across the tool calls, which saves the round-trips of opening
+     the transport and initializing the session for each call. The calls
+     remain independent of each other, so it only suits the MCP servers
+     that don't keep states in the sessions. Call `close()` to close the
+     pooled sessions when done.
     """
 
     stateful: bool = False
@@ -35,6 +42,9 @@ class HttpStatelessClient(MCPClientBase):
         headers: dict[str, str] | None = None,
         timeout: float = 30,
         sse_read_timeout: float = 60 * 5,
+        pool_size: int = 0,
+        pool_idle_timeout: float = 300,
+        pool_health_check_interval: float = 30,
         **client_kwargs: Any,
     ) -> None:
         """Initialize the streamable HTTP MCP server.
@@ -56,6 +66,14 @@ class HttpStatelessClient(MCPClientBase):
             sse_read_timeout (`float`, optional):
                 The timeout for reading Server-Sent Events (SSE) in seconds.
                 Defaults to 300 (5 minutes).
+            pool_size (`int`, defaults to `0`):
+                The maximum number of pooled sessions. If 0, a new session
+                is started for each tool call without pooling.
+            pool_idle_timeout (`float`, defaults to `300`):
+                The seconds after which an idle pooled session is closed.
+            pool_health_check_interval (`float`, defaults to `30`):
+                The seconds after which an idle pooled session is pinged
+                before being reused.
             **client_kwargs (`Any`):
                 The additional keyword arguments to pass to the streamable
                 HTTP client.
@@ -74,7 +92,15 @@ class HttpStatelessClient(MCPClientBase):
             **client_kwargs,
         }
 
-        self._tools = None
+        self.session_pool = None
+        if pool_size > 0:
+            self.session_pool = MCPSessionPool(
+                self.get_client,
+                message_handler=self.handle_server_message,
+                max_size=pool_size,
+                idle_timeout=pool_idle_timeout,
+                health_check_interval=pool_health_check_interval,
+            )
 
     def get_client(self) -> _AsyncGeneratorContextManager[Any]:
         """The disposable MCP client object, which is a context manager."""
@@ -111,11 +137,8 @@ class HttpStatelessClient(MCPClientBase):
                 `mcp.types.CallToolResult` or `ToolResponse` when called.
         """
 
-        if self._tools is None:
-            await self.list_tools()
-
         target_tool = None
-        for tool in self._tools:
+        for tool in await self.list_tools():
             if tool.name == func_name:
                 target_tool = tool
                 break
@@ -125,6 +148,14 @@ class HttpStatelessClient(MCPClientBase):
                 f"Tool '{func_name}' not found in the MCP server ",
             )
 
+        if self.session_pool is not None:
+            return MCPToolFunction(
+                mcp_name=self.name,
+                tool=target_tool,
+                wrap_tool_result=wrap_tool_result,
+                call_func=self.session_pool.call_tool,
+            )
+
         return MCPToolFunction(
             mcp_name=self.name,
             tool=target_tool,
@@ -133,16 +164,32 @@ class HttpStatelessClient(MCPClientBase):
         )
 
     async def list_tools(self) -> List[mcp.types.Tool]:
-        """List all tools available on the MCP server.
+        """List all tools available on the MCP server, which is cached for
+        `tools_cache_ttl` seconds.
 
         Returns:
             `mcp.types.ListToolsResult`:
                 The result containing the list of tools.
         """
-        async with self.get_client() as cli:
-            read_stream, write_stream = cli[0], cli[1]
-            async with ClientSession(read_stream, write_stream) as session:
-                await session.initialize()
+        tools = self.get_cached_tools()
+        if tools is not None:
+            return tools
+
+        if self.session_pool is not None:
+            async with self.session_pool.session() as session:
                 res = await session.list_tools()
-                self._tools = res.tools
-                return res.tools
+
+        else:
+            async with self.get_client() as cli:
+                read_stream, write_stream = cli[0], cli[1]
+                async with ClientSession(read_stream, write_stream) as session:
+                    await session.initialize()
+                    res = await session.list_tools()
+
+        self.cache_tools(res.tools)
+        return res.tools
+
+    async def close(self) -> None:
+        """Close the pooled sessions if the session pool is enabled."""
+        if self.session_pool is not None:
+            await self.session_pool.close()
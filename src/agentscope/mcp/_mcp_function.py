@@ -1,7 +1,7 @@
 # -*- coding: utf-8 -*-
 """The MCP tool function class in AgentScope."""
 from contextlib import _AsyncGeneratorContextManager
-from typing import Any, Callable
+from typing import Any, Awaitable, Callable
 
 import mcp
 from mcp import ClientSession
@@ -31,26 +31,29 @@ class MCPToolFunction:
         client_gen: Callable[..., _AsyncGeneratorContextManager[Any]]
         | None = None,
         session: ClientSession | None = None,
+        call_func: Callable[..., Awaitable[mcp.types.CallToolResult]]
+        | None = None,
     ) -> None:
-        """Initialize the MCP function."""
+        """Initialize the MCP function. Exactly one of `client_gen`,
+        `session` and `call_func` should be provided, where `call_func`
+        calls the tool by its name and arguments, e.g. through a session
+        pool or a multiplexed stateful client."""
         self.mcp_name = mcp_name
         self.name = tool.name
         self.description = tool.description
         self.json_schema = _extract_json_schema_from_mcp_tool(tool)
         self.wrap_tool_result = wrap_tool_result
 
-        # Cannot be None at the same time
-        if (
-            client_gen is None
-            and session is None
-            or (client_gen is not None and session is not None)
-        ):
+        # Exactly one of them should be provided
+        if [client_gen, session, call_func].count(None) != 2:
             raise ValueError(
-                "Either client or session must be provided, but not both.",
+                "Exactly one of client, session and call function must be "
+                "provided.",
             )
 
         self.client_gen = client_gen
         self.session = session
+        self.call_func = call_func
 
     async def __call__(
         self,
@@ -68,6 +71,9 @@ class MCPToolFunction:
                         arguments=kwargs,
                     )
 
+        elif self.call_func:
+            res = await self.call_func(self.name, kwargs)
+
         else:
             res = await self.session.call_tool(
                 self.name,
@@ -0,0 +1,365 @@
+# -*- coding: utf-8 -*-
+"""The pool of initialized MCP client sessions in AgentScope."""
+import asyncio
+import time
+from collections import deque
+from contextlib import _AsyncGeneratorContextManager, asynccontextmanager
+from typing import Any, AsyncGenerator, Awaitable, Callable
+
+import mcp
+from mcp import ClientSession
+
+from .._logging import logger
+
+
+class _BackgroundSession:
+    """An initialized MCP client session owned by a background task, which
+    is shared by the session pool and the stateful clients.
+
+    The transport contexts of MCP (based on anyio) must be entered and
+    exited within the same task, so the session is opened and closed in its
+    own task, while the other tasks only send requests through it.
+    """
+
+    def __init__(
+        self,
+        client_gen: Callable[..., _AsyncGeneratorContextManager[Any]],
+        message_handler: Callable[[Any], Awaitable[None]] | None = None,
+    ) -> None:
+        """Initialize the background session.
+
+        Args:
+            client_gen (`Callable[..., _AsyncGeneratorContextManager[Any]]`):
+                The function that returns the transport context manager.
+            message_handler (`Callable[[Any], Awaitable[None]] | None`, \
+            optional):
+                The handler of the incoming messages from the server, e.g.
+                the notifications.
+        """
+        self.client_gen = client_gen
+        self.message_handler = message_handler
+        self.session: ClientSession | None = None
+        self.last_used = time.monotonic()
+        self.closed = False
+
+        self._ready: asyncio.Future | None = None
+        self._closing = asyncio.Event()
+        self._task: asyncio.Task | None = None
+
+    async def open(self) -> None:
+        """Open the transport and initialize the session."""
+        self._ready = asyncio.get_running_loop().create_future()
+        # Mark the exception as retrieved in case the caller is cancelled
+        self._ready.add_done_callback(lambda _: _.cancelled() or _.exception())
+        self._task = asyncio.create_task(self._run())
+        try:
+            await asyncio.shield(self._ready)
+        except BaseException:
+            await self.close()
+            raise
+
+    async def close(self) -> None:
+        """Close the session and its transport."""
+        self.closed = True
+        self._closing.set()
+        if self._task is not None:
+            if not self._ready.done():
+                # Still connecting or initializing
+                self._task.cancel()
+            try:
+                await self._task
+            except BaseException:  # pylint: disable=broad-except
+                pass
+
+    async def _run(self) -> None:
+        """Hold the transport and session contexts until closed."""
+        try:
+            async with self.client_gen() as cli:
+                read_stream, write_stream = cli[0], cli[1]
+                async with ClientSession(
+                    read_stream,
+                    write_stream,
+                    message_handler=self.message_handler,
+                ) as session:
+                    await session.initialize()
+                    self.session = session
+                    self._ready.set_result(None)
+                    await self._closing.wait()
+
+        except BaseException as e:
+            if not self._ready.done():
+                self._ready.set_exception(e)
+            elif not self._closing.is_set():
+                logger.warning("The MCP session is broken: %s", e)
+
+        finally:
+            self.closed = True
+            self.session = None
+
+
+class MCPSessionPool:
+    """A bounded pool of initialized MCP client sessions to one server, so
+    that the tool calls reuse the warm sessions instead of opening a new
+    transport and initializing a new session every time.
+
+    - The sessions are opened lazily, up to `max_size` ones.
+    - When all sessions are in use, the callers wait in a first-in
+      first-out queue, and the released session is handed over to the
+      longest waiting caller directly.
+    - The sessions idle for more than `idle_timeout` seconds are closed,
+      and the ones idle for more than `health_check_interval` seconds are
+      pinged before reuse.
+    - The session is discarded and replaced if a call through it fails or
+      is cancelled.
+
+    .. code-block:: python
+        :caption: Example usage
+
+        pool = MCPSessionPool(client_gen, max_size=4)
+        async with pool.session() as session:
+            res = await session.call_tool("tool_name", arguments={})
+
+        await pool.close()
+    """
+
+    def __init__(
+        self,
+        client_gen: Callable[..., _AsyncGeneratorContextManager[Any]],
+        message_handler: Callable[[Any], Awaitable[None]] | None = None,
+        max_size: int = 4,
+        idle_timeout: float = 300,
+        health_check_interval: float = 30,
+        health_check_timeout: float = 5,
+    ) -> None:
+        """Initialize the MCP session pool.
+
+        Args:
+            client_gen (`Callable[..., _AsyncGeneratorContextManager[Any]]`):
+                The function that returns the transport context manager,
+                e.g. `HttpStatelessClient.get_client`.
+            message_handler (`Callable[[Any], Awaitable[None]] | None`, \
+            optional):
+                The handler of the incoming messages from the server, e.g.
+                the notifications.
+            max_size (`int`, defaults to `4`):
+                The maximum number of sessions in the pool.
+            idle_timeout (`float`, defaults to `300`):
+                The seconds after which an idle session is closed.
+            health_check_interval (`float`, defaults to `30`):
+                The seconds after which an idle session is pinged before
+                being reused.
+            health_check_timeout (`float`, defaults to `5`):
+                The timeout in seconds of the ping.
+        """
+        if max_size < 1:
+            raise ValueError(
+                f"The max_size of the pool must be positive, got {max_size}.",
+            )
+
+        self.client_gen = client_gen
+        self.message_handler = message_handler
+        self.max_size = max_size
+        self.idle_timeout = idle_timeout
+        self.health_check_interval = health_check_interval
+        self.health_check_timeout = health_check_timeout
+
+        self._loop: asyncio.AbstractEventLoop | None = None
+        self._reset()
+
+    @property
+    def size(self) -> int:
+        """The number of the opened and opening sessions."""
+        return self._size
+
+    @property
+    def idle_size(self) -> int:
+        """The number of the idle sessions."""
+        return len(self._idle)
+
+    @asynccontextmanager
+    async def session(self) -> AsyncGenerator[ClientSession, None]:
+        """Check out an initialized session from the pool, and return it
+        to the pool once done."""
+        pooled = await self._acquire()
+        healthy = False
+        try:
+            yield pooled.session
+            healthy = True
+        finally:
+            self._release(pooled, healthy)
+
+    async def call_tool(
+        self,
+        name: str,
+        arguments: dict[str, Any] | None = None,
+    ) -> mcp.types.CallToolResult:
+        """Call a tool function through a pooled session.
+
+        Args:
+            name (`str`):
+                The name of the tool function.
+            arguments (`dict[str, Any] | None`, optional):
+                The arguments of the tool function.
+
+        Returns:
+            `mcp.types.CallToolResult`:
+                The raw result of the tool call.
+        """
+        async with self.session() as session:
+            return await session.call_tool(name, arguments=arguments)
+
+    async def close(self) -> None:
+        """Close the idle sessions, and the in-use ones once released. The
+        pool opens new sessions if used again."""
+        self._closed = True
+        idle, self._idle = list(self._idle), deque()
+        self._size -= len(idle)
+        await asyncio.gather(*[_.close() for _ in idle])
+        await asyncio.gather(*self._closing_tasks)
+
+    async def _acquire(self) -> _BackgroundSession:
+        """Get an idle session, open a new one, or wait for a released one
+        in order."""
+        loop = asyncio.get_running_loop()
+        if self._loop is not loop:
+            # The sessions are bound to the event loop that opens them
+            if self._loop is not None:
+                self._reset()
+            self._loop = loop
+
+        # The pool can be reused after closed
+        self._closed = False
+
+        self._evict_idle()
+
+        if self._waiters:
+            pooled = await self._wait()
+        elif self._idle:
+            pooled = self._idle.pop()
+        elif self._size < self.max_size:
+            self._size += 1
+            pooled = None
+        else:
+            pooled = await self._wait()
+
+        try:
+            if pooled is not None and not await self._check_health(pooled):
+                self._schedule_close(pooled)
+                pooled = None
+        except BaseException:
+            # E.g. cancelled during the health check, where the session and
+            # its slot would be leaked otherwise
+            self._release(pooled, False)
+            raise
+
+        if pooled is None:
+            # Open a new session in the acquired slot
+            pooled = _BackgroundSession(
+                self.client_gen,
+                self.message_handler,
+            )
+            try:
+                await pooled.open()
+            except BaseException:
+                self._free_slot()
+                raise
+
+        return pooled
+
+    async def _wait(self) -> _BackgroundSession | None:
+        """Wait in the queue for a released session, or `None` for a freed
+        slot."""
+        waiter = asyncio.get_running_loop().create_future()
+        self._waiters.append(waiter)
+        try:
+            return await waiter
+        except asyncio.CancelledError:
+            if waiter.done() and not waiter.cancelled():
+                # Pass the handed over session or slot to the next one
+                self._release(waiter.result(), True)
+            else:
+                self._waiters.remove(waiter)
+            raise
+
+    def _release(
+        self,
+        pooled: _BackgroundSession | None,
+        healthy: bool,
+    ) -> None:
+        """Return the session to the pool, or discard it if it's unhealthy.
+        `None` stands for the slot of a discarded session."""
+        if pooled is not None and (
+            not healthy or pooled.closed or self._closed
+        ):
+            self._schedule_close(pooled)
+            pooled = None
+
+        if pooled is None:
+            self._free_slot()
+            return
+
+        pooled.last_used = time.monotonic()
+        waiter = self._pop_waiter()
+        if waiter is not None:
+            waiter.set_result(pooled)
+        else:
+            self._idle.append(pooled)
+
+    def _free_slot(self) -> None:
+        """Hand over the slot to the next waiter, or release it."""
+        waiter = None if self._closed else self._pop_waiter()
+        if waiter is not None:
+            waiter.set_result(None)
+        else:
+            self._size -= 1
+
+    def _pop_waiter(self) -> asyncio.Future | None:
+        """Pop the longest waiting caller that is not cancelled."""
+        while self._waiters:
+            waiter = self._waiters.popleft()
+            if not waiter.done():
+                return waiter
+        return None
+
+    async def _check_health(self, pooled: _BackgroundSession) -> bool:
+        """Check if the session is alive, pinging it if idle for long."""
+        if pooled.closed:
+            return False
+
+        if time.monotonic() - pooled.last_used < self.health_check_interval:
+            return True
+
+        try:
+            await asyncio.wait_for(
+                pooled.session.send_ping(),
+                self.health_check_timeout,
+            )
+            return True
+        except Exception as e:
+            logger.warning("The health check of MCP session failed: %s", e)
+            return False
+
+    def _evict_idle(self) -> None:
+        """Close the sessions that are idle for longer than the timeout."""
+        now = time.monotonic()
+        # The least recently used sessions are at the left
+        while self._idle and (
+            self._idle[0].closed
+            or now - self._idle[0].last_used > self.idle_timeout
+        ):
+            self._schedule_close(self._idle.popleft())
+            self._size -= 1
+
+    def _schedule_close(self, pooled: _BackgroundSession) -> None:
+        """Close the session in background."""
+        task = asyncio.create_task(pooled.close())
+        self._closing_tasks.add(task)
+        task.add_done_callback(self._closing_tasks.discard)
+
+    def _reset(self) -> None:
+        """Reset the pool states."""
+        self._idle: deque[_BackgroundSession] = deque()
+        self._waiters: deque[asyncio.Future] = deque()
+        self._closing_tasks: set[asyncio.Task] = set()
+        self._size = 0
+        self._closed = False
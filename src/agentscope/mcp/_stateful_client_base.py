@@ -1,29 +1,219 @@
 # -*- coding: utf-8 -*-
 """The base MCP stateful client class in AgentScope, that provides basic
  functionality for stateful MCP clients."""
+import asyncio
+import time
 from abc import ABC
-from contextlib import AsyncExitStack
-from typing import List
+from contextlib import _AsyncGeneratorContextManager, nullcontext
+from dataclasses import dataclass
+from typing import Any, Awaitable, Callable, List
 
+import anyio
+import httpx
 import mcp
 from mcp import ClientSession
+from mcp.shared.exceptions import McpError
 
 from ._client_base import MCPClientBase
 from ._mcp_function import MCPToolFunction
+from ._session_pool import _BackgroundSession
 from .._logging import logger
 
 
+@dataclass
+class MCPCallMetrics:
+    """The metrics of the requests sent by a stateful MCP client."""
+
+    queued: int = 0
+    """The number of requests waiting for the in-flight limit"""
+
+    in_flight: int = 0
+    """The number of requests being executed"""
+
+    completed: int = 0
+    """The number of completed requests, including the failed ones"""
+
+    failed: int = 0
+    """The number of failed requests, including the timed out ones"""
+
+    timeouts: int = 0
+    """The number of timed out requests"""
+
+    reconnects: int = 0
+    """The number of reconnections after the transport died"""
+
+    total_queue_time: float = 0.0
+    """The total seconds the requests waited for the in-flight limit"""
+
+    total_latency: float = 0.0
+    """The total seconds of executing the completed requests"""
+
+    max_latency: float = 0.0
+    """The maximum seconds of executing a request"""
+
+    @property
+    def mean_queue_time(self) -> float:
+        """The mean seconds the requests waited for the in-flight limit."""
+        return self.total_queue_time / max(self.completed, 1)
+
+    @property
+    def mean_latency(self) -> float:
+        """The mean seconds of executing the requests."""
+        return self.total_latency / max(self.completed, 1)
+
+
+class _MCPConnection:
+    """A connection of the stateful client, which limits its in-flight
+    requests and reconnects once the transport dies."""
+
+    def __init__(
+        self,
+        client: "StatefulClientBase",
+        client_gen: Callable[..., _AsyncGeneratorContextManager[Any]],
+    ) -> None:
+        """Initialize the connection.
+
+        Args:
+            client (`StatefulClientBase`):
+                The client that owns this connection.
+            client_gen (`Callable[..., _AsyncGeneratorContextManager[Any]]`):
+                The function that returns the transport context manager.
+        """
+        self.client = client
+        self.client_gen = client_gen
+        # The number of the requests assigned to this connection
+        self.load = 0
+
+        self._session: _BackgroundSession | None = None
+        self._lock = asyncio.Lock()
+        self._semaphore = (
+            asyncio.Semaphore(client.max_concurrency)
+            if client.max_concurrency
+            else None
+        )
+        self._closing_tasks: set[asyncio.Task] = set()
+
+    @property
+    def session(self) -> ClientSession | None:
+        """The current session if it's alive."""
+        if self._session is None or self._session.closed:
+            return None
+        return self._session.session
+
+    def limit(self) -> asyncio.Semaphore | nullcontext:
+        """The context to limit the in-flight requests."""
+        return self._semaphore or nullcontext()
+
+    async def open(self) -> None:
+        """Open the transport and initialize the session."""
+        self._session = _BackgroundSession(
+            self.client_gen,
+            self.client.handle_server_message,
+        )
+        await self._session.open()
+
+    async def close(self) -> None:
+        """Close the session and its transport."""
+        if self._session is not None:
+            await self._session.close()
+            self._session = None
+        await asyncio.gather(*self._closing_tasks)
+
+    async def get_session(self) -> ClientSession:
+        """Get the alive session, reconnecting with exponential backoff if
+        the transport is dead."""
+        if self.session is not None:
+            return self.session
+
+        async with self._lock:
+            # Reconnected by another request
+            if self.session is not None:
+                return self.session
+
+            attempts = self.client.max_reconnect_attempts
+            if self.client.client_gen is None:
+                # The transport context manager cannot be entered again
+                attempts = 0
+
+            error: Exception | None = None
+            for attempt in range(attempts):
+                await asyncio.sleep(
+                    self.client.reconnect_backoff * 2**attempt,
+                )
+                try:
+                    await self.open()
+                    self.client.metrics.reconnects += 1
+                    logger.info(
+                        "MCP client '%s' reconnected.",
+                        self.client.name,
+                    )
+                    return self.session
+                except Exception as e:
+                    error = e
+                    logger.warning(
+                        "Failed to reconnect MCP client '%s' (%d/%d): %s",
+                        self.client.name,
+                        attempt + 1,
+                        attempts,
+                        e,
+                    )
+
+            raise RuntimeError(
+                f"The transport of MCP client '{self.client.name}' is "
+                f"closed, and failed to reconnect after {attempts} "
+                "attempts.",
+            ) from error
+
+    def mark_broken(self) -> None:
+        """Close the session after its transport failed, so that the next
+        request reconnects."""
+        if self._session is None:
+            return
+        task = asyncio.create_task(self._session.close())
+        self._closing_tasks.add(task)
+        task.add_done_callback(self._closing_tasks.discard)
+        self._session = None
+
+
 class StatefulClientBase(MCPClientBase, ABC):
     """The base class for stateful MCP clients in AgentScope, which maintains
     the session state across multiple tool calls.
 
     The developers should use `connect()` and `close()` methods to manage
     the client lifecycle.
+
+    The concurrent tool calls are multiplexed over the session, limited by
+    `max_concurrency` and `call_timeout`. If the transport dies, the client
+    reconnects with exponential backoff before the next request. With
+    `fleet_size` larger than 1, the client opens multiple connections (e.g.
+    multiple server subprocesses for the StdIO client) under the same name
+    and sends each request to the least loaded one, which only suits the
+    servers whose states don't need to be shared across the calls. The
+    queue depth and the latency are recorded in `metrics`.
     """
 
     is_connected: bool
     """If connected to the MCP server"""
 
+    max_concurrency: int | None = None
+    """The maximum number of in-flight requests per connection, and the
+    others wait in queue. Unlimited if `None`."""
+
+    call_timeout: float | None = None
+    """The timeout in seconds of each tool call. No timeout if `None`."""
+
+    max_reconnect_attempts: int = 3
+    """The maximum number of attempts to reconnect once the transport dies,
+    which disables the reconnection if set to 0."""
+
+    reconnect_backoff: float = 1.0
+    """The delay in seconds before the first reconnection attempt, which is
+    doubled after each failed attempt."""
+
+    fleet_size: int = 1
+    """The number of connections to the MCP server, across which the
+    requests are load-balanced."""
+
     def __init__(self, name: str) -> None:
         """Initialize the stateful MCP client.
 
@@ -36,12 +226,28 @@ class StatefulClientBase(MCPClientBase, ABC):
         super().__init__(name=name)
 
         self.client = None
-        self.stack = None
-        self.session = None
         self.is_connected = False
 
-        # Cache the tools to avoid fetching them multiple times
-        self._cached_tools = None
+        # The function to create a new transport context manager for each
+        # (re)connection. If not set, `self.client` is entered once, and
+        # neither the reconnection nor the fleet mode is supported.
+        self.client_gen: Callable[
+            ...,
+            _AsyncGeneratorContextManager[Any],
+        ] | None = None
+
+        self.metrics = MCPCallMetrics()
+        """The metrics of the requests sent by the client."""
+
+        self._connections: list[_MCPConnection] = []
+        self._next_index = 0
+
+    @property
+    def session(self) -> ClientSession | None:
+        """The session of the first connection, if connected."""
+        if not self._connections:
+            return None
+        return self._connections[0].session
 
     async def connect(self) -> None:
         """Connect to MCP server."""
@@ -51,22 +257,27 @@ class StatefulClientBase(MCPClientBase, ABC):
                 "before connecting again.",
             )
 
-        self.stack = AsyncExitStack()
+        if self.client_gen is not None:
+            self._connections = [
+                _MCPConnection(self, self.client_gen)
+                for _ in range(max(self.fleet_size, 1))
+            ]
+        else:
+            if self.fleet_size > 1:
+                raise ValueError(
+                    "The fleet mode requires the `client_gen` function.",
+                )
+            client = self.client
+            self._connections = [_MCPConnection(self, lambda: client)]
 
         try:
-            context = await self.stack.enter_async_context(
-                self.client,
-            )
-            read_stream, write_stream = context[0], context[1]
-            self.session = ClientSession(read_stream, write_stream)
-            await self.stack.enter_async_context(self.session)
-            await self.session.initialize()
+            await asyncio.gather(*[_.open() for _ in self._connections])
 
             self.is_connected = True
             logger.info("MCP client connected.")
         except Exception:
-            await self.stack.aclose()
-            self.stack = None
+            await asyncio.gather(*[_.close() for _ in self._connections])
+            self._connections = []
             raise
 
     async def close(self) -> None:
@@ -79,30 +290,54 @@ class StatefulClientBase(MCPClientBase, ABC):
             )
 
         try:
-            if self.stack:
-                await self.stack.aclose()
+            await asyncio.gather(*[_.close() for _ in self._connections])
 
             logger.info("MCP client closed.")
         finally:
-            self.stack = None
-            self.session = None
+            self._connections = []
             self.is_connected = False
 
     async def list_tools(self) -> List[mcp.types.Tool]:
-        """Get all available tools from the server.
+        """Get all available tools from the server, which is cached for
+        `tools_cache_ttl` seconds.
 
         Returns:
             `mcp.types.ListToolsResult`:
                 A list of available MCP tools.
         """
-        self._validate_connection()
+        tools = self.get_cached_tools()
+        if tools is not None:
+            return tools
 
-        res = await self.session.list_tools()
+        res = await self._request(lambda session: session.list_tools())
 
         # Cache the tools for later use
-        self._cached_tools = res.tools
+        self.cache_tools(res.tools)
         return res.tools
 
+    async def call_tool(
+        self,
+        name: str,
+        arguments: dict[str, Any] | None = None,
+    ) -> mcp.types.CallToolResult:
+        """Call a tool function on the MCP server, which is multiplexed with
+        the other concurrent calls.
+
+        Args:
+            name (`str`):
+                The name of the tool function.
+            arguments (`dict[str, Any] | None`, optional):
+                The arguments of the tool function.
+
+        Returns:
+            `mcp.types.CallToolResult`:
+                The raw result of the tool call.
+        """
+        return await self._request(
+            lambda session: session.call_tool(name, arguments=arguments),
+            timeout=self.call_timeout,
+        )
+
     async def get_callable_function(
         self,
         func_name: str,
@@ -130,11 +365,8 @@ class StatefulClientBase(MCPClientBase, ABC):
         """
         self._validate_connection()
 
-        if self._cached_tools is None:
-            await self.list_tools()
-
         target_tool = None
-        for tool in self._cached_tools:
+        for tool in await self.list_tools():
             if tool.name == func_name:
                 target_tool = tool
                 break
@@ -148,9 +380,76 @@ class StatefulClientBase(MCPClientBase, ABC):
             mcp_name=self.name,
             tool=target_tool,
             wrap_tool_result=wrap_tool_result,
-            session=self.session,
+            call_func=self.call_tool,
         )
 
+    async def _request(
+        self,
+        request_func: Callable[[ClientSession], Awaitable[Any]],
+        timeout: float | None = None,
+    ) -> Any:
+        """Send a request through the least loaded connection, within the
+        in-flight limit and the timeout, and record the metrics."""
+        self._validate_connection()
+
+        connection = self._pick_connection()
+        connection.load += 1
+        self.metrics.queued += 1
+        queued_at = time.monotonic()
+        waiting = True
+        try:
+            async with connection.limit():
+                started_at = time.monotonic()
+                waiting = False
+                self.metrics.queued -= 1
+                self.metrics.in_flight += 1
+                self.metrics.total_queue_time += started_at - queued_at
+                try:
+                    session = await connection.get_session()
+                    return await asyncio.wait_for(
+                        request_func(session),
+                        timeout,
+                    )
+
+                except asyncio.TimeoutError:
+                    self.metrics.timeouts += 1
+                    self.metrics.failed += 1
+                    raise TimeoutError(
+                        f"The request to MCP server '{self.name}' timed out "
+                        f"after {timeout} seconds.",
+                    ) from None
+
+                except Exception as e:
+                    self.metrics.failed += 1
+                    if _is_transport_error(e):
+                        connection.mark_broken()
+                    raise
+
+                finally:
+                    latency = time.monotonic() - started_at
+                    self.metrics.in_flight -= 1
+                    self.metrics.completed += 1
+                    self.metrics.total_latency += latency
+                    self.metrics.max_latency = max(
+                        self.metrics.max_latency,
+                        latency,
+                    )
+
+        finally:
+            if waiting:
+                # Cancelled while waiting in queue
+                self.metrics.queued -= 1
+            connection.load -= 1
+
+    def _pick_connection(self) -> _MCPConnection:
+        """Pick the least loaded connection, rotating among the ties."""
+        n = len(self._connections)
+        candidates = [
+            self._connections[(self._next_index + i) % n] for i in range(n)
+        ]
+        self._next_index = (self._next_index + 1) % n
+        return min(candidates, key=lambda _: _.load)
+
     def _validate_connection(self) -> None:
         """Validate the connection to the MCP server."""
         if not self.is_connected:
@@ -159,8 +458,33 @@ class StatefulClientBase(MCPClientBase, ABC):
                 "before using the client.",
             )
 
-        if not self.session:
+        if not self._connections:
             raise RuntimeError(
                 "The session is not initialized. Call connect() "
                 "before using the client.",
             )
+
+
+def _is_transport_error(error: BaseException) -> bool:
+    """If the error is caused by the dead transport rather than the server
+    response or the local code, e.g. invalid arguments."""
+    if isinstance(error, McpError):
+        # The JSON-RPC error code of the closed connection
+        return getattr(error.error, "code", None) == -32000
+
+    if isinstance(
+        error,
+        (
+            anyio.ClosedResourceError,
+            anyio.BrokenResourceError,
+            anyio.EndOfStream,
+            OSError,
+            httpx.TransportError,
+        ),
+    ):
+        return True
+
+    # The exception groups raised from the task groups of the transport
+    return any(
+        _is_transport_error(_) for _ in getattr(error, "exceptions", ())
+    )
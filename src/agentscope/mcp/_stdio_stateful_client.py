@@ -1,6 +1,7 @@
 # -*- coding: utf-8 -*-
 """The StdIO MCP server implementation in AgentScope, which provides
 function-level fine-grained control over the MCP servers using standard IO."""
+from functools import partial
 from typing import Literal
 
 from mcp import stdio_client, StdioServerParameters
@@ -20,6 +21,10 @@ class StdIOStatefulClient(StatefulClientBase):
      tool calls, until the client is closed by explicitly calling the
      `close()` method.
 
+    .. tip:: Set `fleet_size` to spawn multiple server subprocesses under
+     the same name, across which the tool calls are load-balanced. It only
+     suits the servers whose states don't need to be shared across calls.
+
     .. note:: When multiple StdIOStatefulClient instances are connected,
      they should be closed following the Last In First Out (LIFO) principle
      to avoid potential errors. Always close the most recently registered
@@ -41,6 +46,7 @@ class StdIOStatefulClient(StatefulClientBase):
             "ignore",
             "replace",
         ] = "strict",
+        fleet_size: int = 1,
     ) -> None:
         """Initialize the MCP server with std IO.
 
@@ -62,10 +68,15 @@ class StdIOStatefulClient(StatefulClientBase):
             encoding_error_handler (`Literal["strict", "ignore", "replace"]`, \
              defaults to "strict"):
                 The text encoding error handler.
+            fleet_size (`int`, defaults to `1`):
+                The number of server subprocesses to spawn, across which the
+                tool calls are load-balanced.
         """
         super().__init__(name=name)
 
-        self.client = stdio_client(
+        self.fleet_size = fleet_size
+        self.client_gen = partial(
+            stdio_client,
             StdioServerParameters(
                 command=command,
                 args=args or [],
@@ -75,3 +86,4 @@ class StdIOStatefulClient(StatefulClientBase):
                 encoding_error_handler=encoding_error_handler,
             ),
         )
+        self.client = self.client_gen()
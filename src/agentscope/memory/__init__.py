@@ -3,13 +3,24 @@
 
 from ._memory_base import MemoryBase
 from ._in_memory_memory import InMemoryMemory
+from ._indexed_memory import IndexedMemory
+from ._windowed_memory import WindowedMemory, TokenBudgetMemory
+from ._compacting_memory import CompactingMemory
 from ._long_term_memory_base import LongTermMemoryBase
 from ._mem0_long_term_memory import Mem0LongTermMemory
+from ._vector_long_term_memory import VectorLongTermMemory
+from ._write_behind_recorder import WriteBehindRecorder
 
 
 __all__ = [
     "MemoryBase",
     "InMemoryMemory",
+    "IndexedMemory",
+    "WindowedMemory",
+    "TokenBudgetMemory",
+    "CompactingMemory",
     "LongTermMemoryBase",
     "Mem0LongTermMemory",
+    "VectorLongTermMemory",
+    "WriteBehindRecorder",
 ]
@@ -0,0 +1,305 @@
+# -*- coding: utf-8 -*-
+"""The memory class that compacts the older messages into a summary by LLM
+in background."""
+import asyncio
+from typing import AsyncGenerator, Iterable, Union
+
+from ._in_memory_memory import InMemoryMemory
+from .._logging import logger
+from ..formatter import FormatterBase
+from ..message import Msg
+from ..model import (
+    ChatModelBase,
+    ChatResponse,
+    ChatResponseAccumulator,
+    ChatUsage,
+)
+from ..token import TokenCounterBase
+
+_DEFAULT_COMPACTION_PROMPT = (
+    "You are a helpful assistant that compresses the conversation history. "
+    "Summarize the conversation below, including the previous summary if "
+    "any, into a concise but complete summary. Keep the key facts, the "
+    "user's requirements, the decisions made, the results of the tool calls, "
+    "and the unfinished tasks, so that the conversation can be continued "
+    "based on the summary only."
+)
+
+
+class CompactingMemory(InMemoryMemory):
+    """The in-memory memory that compacts the older messages into a summary
+    message by LLM, once the messages exceed `max_tokens`.
+
+    The token counting and the compaction run in background tasks, so adding
+    messages and getting the memory never wait for the formatter, the token
+    counter or the LLM, and the agent keeps reasoning and acting with the
+    uncompacted messages meanwhile. Once the summary is
+    generated, the compacted messages are replaced by the summary in one
+    step, unless they have been deleted or changed meanwhile. The compacted
+    segment always ends at a point where all the tool calls have their tool
+    results, so the tool call pairs are never separated.
+
+    Example:
+        .. code-block:: python
+
+            agent = ReActAgent(
+                ...,
+                memory=CompactingMemory(
+                    model=model,
+                    formatter=formatter,
+                    token_counter=OpenAITokenCounter("gpt-4o"),
+                    max_tokens=32000,
+                ),
+            )
+    """
+
+    summary_name: str = "memory_summary"
+    """The name of the summary message, also used as the tag wrapping the
+    summary"""
+
+    def __init__(
+        self,
+        model: ChatModelBase,
+        formatter: FormatterBase,
+        token_counter: TokenCounterBase,
+        max_tokens: int,
+        keep_tokens: int | None = None,
+        compaction_prompt: str = _DEFAULT_COMPACTION_PROMPT,
+    ) -> None:
+        """Initialize the compacting memory.
+
+        Args:
+            model (`ChatModelBase`):
+                The chat model used to generate the summary.
+            formatter (`FormatterBase`):
+                The formatter of the model, also used to format each message
+                before counting its tokens.
+            token_counter (`TokenCounterBase`):
+                The token counter of the model.
+            max_tokens (`int`):
+                The number of tokens of the messages that triggers the
+                compaction.
+            keep_tokens (`int | None`, optional):
+                The maximum number of tokens of the latest messages that are
+                kept uncompacted, defaults to a quarter of `max_tokens`.
+            compaction_prompt (`str`, optional):
+                The system prompt to generate the summary.
+        """
+        super().__init__()
+
+        assert max_tokens > 0, "max_tokens must be greater than 0"
+        self.model = model
+        self.formatter = formatter
+        self.token_counter = token_counter
+        self.max_tokens = max_tokens
+        self.keep_tokens = (
+            max_tokens // 4 if keep_tokens is None else keep_tokens
+        )
+        self.compaction_prompt = compaction_prompt
+
+        self.usages: list[ChatUsage] = []
+        """The model usages of the compactions"""
+
+        self._token_counts: dict[str, int] = {}
+        self._counting_task: asyncio.Task | None = None
+        self._compaction_task: asyncio.Task | None = None
+
+    @property
+    def is_compacting(self) -> bool:
+        """If a compaction is running in background."""
+        return (
+            self._compaction_task is not None
+            and not self._compaction_task.done()
+        )
+
+    async def add(
+        self,
+        memories: Union[list[Msg], Msg, None],
+        allow_duplicates: bool = False,
+    ) -> None:
+        """Add message into the memory, and count the tokens of the new
+        messages in background, which starts a compaction if the messages
+        exceed `max_tokens`.
+
+        Args:
+            memories (`Union[list[Msg], Msg, None]`):
+                The message to add.
+            allow_duplicates (`bool`, defaults to `False`):
+                If allow adding duplicate messages (with the same id) into
+                the memory.
+        """
+        await super().add(memories, allow_duplicates)
+
+        # The running counting task also counts the messages added meanwhile
+        if self._counting_task is None or self._counting_task.done():
+            self._counting_task = asyncio.create_task(self._check_tokens())
+            self._counting_task.add_done_callback(self._on_compacted)
+
+    async def delete(self, index: Union[Iterable, int]) -> None:
+        """Delete the specified item by index(es).
+
+        Args:
+            index (`Union[Iterable, int]`):
+                The index to delete.
+        """
+        await super().delete(index)
+        self._prune_token_counts()
+
+    async def clear(self) -> None:
+        """Clear the memory content and cancel the running compaction."""
+        await self.cancel_compaction()
+        await super().clear()
+        self._token_counts.clear()
+
+    async def wait_compaction(self) -> None:
+        """Wait for the running token counting and compaction if any."""
+        # The error is logged by the done callback
+        if self._counting_task is not None:
+            await asyncio.wait([self._counting_task])
+        # Including the compaction started by the counting task
+        if self._compaction_task is not None:
+            await asyncio.wait([self._compaction_task])
+
+    async def cancel_compaction(self) -> None:
+        """Cancel the running token counting and compaction if any, and the
+        messages are kept uncompacted."""
+        tasks = [self._counting_task, self._compaction_task]
+        self._counting_task, self._compaction_task = None, None
+        tasks = [_ for _ in tasks if _ is not None and not _.done()]
+        for task in tasks:
+            task.cancel()
+        if tasks:
+            await asyncio.wait(tasks)
+
+    async def _check_tokens(self) -> None:
+        """Count the tokens of the new messages, and start a compaction in
+        background if the messages exceed `max_tokens`."""
+        while True:
+            counts = [self._token_counts.get(_.id) for _ in self.content]
+            if None not in counts:
+                break
+            await self._count_tokens()
+
+        if self.is_compacting:
+            return
+
+        if sum(counts) > self.max_tokens:
+            segment = self._get_segment(counts)
+            if segment:
+                self._compaction_task = asyncio.create_task(
+                    self._compact(segment),
+                )
+                self._compaction_task.add_done_callback(self._on_compacted)
+
+    async def _count_tokens(self) -> None:
+        """Count the tokens of the messages, where only the new messages are
+        formatted and counted."""
+        for msg in list(self.content):
+            if msg.id not in self._token_counts:
+                formatted = await self.formatter.format([msg])
+                self._token_counts[msg.id] = await self.token_counter.count(
+                    formatted,
+                )
+
+    def _prune_token_counts(self) -> None:
+        """Remove the token counts of the removed messages."""
+        ids = {_.id for _ in self.content}
+        self._token_counts = {
+            k: v for k, v in self._token_counts.items() if k in ids
+        }
+
+    def _get_segment(self, counts: list[int]) -> list[Msg]:
+        """Get the oldest messages to compact, which leave the latest
+        messages within `keep_tokens` uncompacted if possible, and never
+        separate the tool calls from their tool results."""
+        # The indices where all the tool calls before have their results
+        cut_points = []
+        tool_call_ids = set()
+        for i, msg in enumerate(self.content):
+            for block in msg.get_content_blocks("tool_use"):
+                tool_call_ids.add(block["id"])
+            for block in msg.get_content_blocks("tool_result"):
+                tool_call_ids.discard(block["id"])
+            if len(tool_call_ids) == 0 and i + 1 < len(self.content):
+                cut_points.append(i + 1)
+
+        if not cut_points:
+            return []
+
+        # The first cut point leaving the latest messages within
+        # `keep_tokens`, or the last one if the latest turn exceeds it alone
+        n_kept_tokens = sum(counts[cut_points[0] :])
+        index = cut_points[-1]
+        for cut_point, next_cut_point in zip(
+            cut_points,
+            cut_points[1:] + [len(self.content)],
+        ):
+            if n_kept_tokens <= self.keep_tokens:
+                index = cut_point
+                break
+            n_kept_tokens -= sum(counts[cut_point:next_cut_point])
+
+        segment = self.content[:index]
+        # Nothing new to compact besides the previous summary
+        if len(segment) == 1 and segment[0].name == self.summary_name:
+            return []
+        return segment
+
+    async def _compact(self, segment: list[Msg]) -> None:
+        """Summarize the segment by LLM and replace it with the summary."""
+        prompt = await self.formatter.format(
+            [
+                Msg("system", self.compaction_prompt, "system"),
+                *segment,
+                Msg(
+                    "user",
+                    "Now summarize the conversation above.",
+                    "user",
+                ),
+            ],
+        )
+        res = await self.model(prompt)
+
+        if isinstance(res, AsyncGenerator):
+            accumulator = ChatResponseAccumulator()
+            async for chunk in res:
+                accumulator.update(chunk)
+            res = accumulator.to_response()
+
+        assert isinstance(res, ChatResponse)
+        if res.usage is not None:
+            self.usages.append(res.usage)
+
+        summary = "\n".join(
+            block["text"] for block in res.content if block["type"] == "text"
+        )
+        summary_msg = Msg(
+            self.summary_name,
+            f"<{self.summary_name}>The content below is the summary of the "
+            f"previous conversation:\n{summary}</{self.summary_name}>",
+            "user",
+        )
+
+        # Replace the segment only if it's unchanged, where a new list is
+        # created so that the list returned by `get_memory` before is intact
+        n = len(segment)
+        if len(self.content) >= n and all(
+            a is b for a, b in zip(self.content, segment)
+        ):
+            self.content = [summary_msg, *self.content[n:]]
+            self._prune_token_counts()
+        else:
+            logger.warning(
+                "The compacted messages have been changed during the "
+                "compaction, and the summary is discarded.",
+            )
+
+    @staticmethod
+    def _on_compacted(task: asyncio.Task) -> None:
+        """Log the error of the token counting or the compaction if any,
+        which is retried when the next message is added."""
+        if not task.cancelled() and task.exception() is not None:
+            logger.warning(
+                "Failed to compact the memory: %s",
+                task.exception(),
+            )
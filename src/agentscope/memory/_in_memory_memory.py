@@ -64,11 +64,12 @@ class InMemoryMemory(MemoryBase):
         if isinstance(index, int):
             index = [index]
 
+        index = set(index)
         invalid_index = [_ for _ in index if 0 > _ or _ >= len(self.content)]
 
         if invalid_index:
             raise IndexError(
-                f"The index {invalid_index} does not exist.",
+                f"The index {sorted(invalid_index)} does not exist.",
             )
 
         self.content = [
@@ -109,7 +110,7 @@ class InMemoryMemory(MemoryBase):
                 )
 
         if not allow_duplicates:
-            existing_ids = [_.id for _ in self.content]
+            existing_ids = {_.id for _ in self.content}
             memories = [_ for _ in memories if _.id not in existing_ids]
         self.content.extend(memories)
 
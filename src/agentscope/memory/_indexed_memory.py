@@ -0,0 +1,266 @@
+# -*- coding: utf-8 -*-
+"""The in-memory memory class with indexes over the messages."""
+import bisect
+from typing import Iterable, Union
+
+from ._in_memory_memory import InMemoryMemory
+from ..message import Msg
+
+
+class IndexedMemory(InMemoryMemory):
+    """The in-memory memory class that indexes the messages by id, role and
+    name, so that duplicate messages are detected in constant time, and the
+    messages can be retrieved by ranges of index, id and timestamp.
+
+    The state dictionary is the same as `InMemoryMemory`, so the two classes
+    can load the states of each other. Note the messages should be added and
+    deleted by the methods rather than modifying the `content` attribute
+    directly, which would make the indexes stale.
+    """
+
+    def __init__(self) -> None:
+        """Initialize the indexed memory object."""
+        super().__init__()
+
+        self._id_to_index: dict[str, int] = {}
+        """The position of the first message with each id"""
+
+        self._role_index: dict[str, list[int]] = {}
+        """The ascending positions of the messages with each role"""
+
+        self._name_index: dict[str, list[int]] = {}
+        """The ascending positions of the messages with each name"""
+
+        self._timestamps: list[str] = []
+        """The timestamps of the messages in order"""
+
+        self._timestamps_sorted = True
+        """If the timestamps are in ascending order, so that the timestamp
+        ranges can be located by binary search"""
+
+    def _index(self, msg: Msg, position: int) -> None:
+        """Add the message at the given position into the indexes."""
+        self._id_to_index.setdefault(msg.id, position)
+        self._role_index.setdefault(msg.role, []).append(position)
+        self._name_index.setdefault(msg.name, []).append(position)
+        if self._timestamps and msg.timestamp < self._timestamps[-1]:
+            self._timestamps_sorted = False
+        self._timestamps.append(msg.timestamp)
+
+    def _rebuild_index(self) -> None:
+        """Rebuild the indexes from the content."""
+        self._id_to_index = {}
+        self._role_index = {}
+        self._name_index = {}
+        self._timestamps = []
+        self._timestamps_sorted = True
+        for position, msg in enumerate(self.content):
+            self._index(msg, position)
+
+    def load_state_dict(
+        self,
+        state_dict: dict,
+        strict: bool = True,
+    ) -> None:
+        """Load the memory from JSON data and rebuild the indexes.
+
+        Args:
+            state_dict (`dict`):
+                The state dictionary to load, which should have a "content"
+                field.
+            strict (`bool`, defaults to `True`):
+                If `True`, raises an error if any key in the module is not
+                found in the state_dict. If `False`, skips missing keys.
+        """
+        super().load_state_dict(state_dict, strict)
+        self._rebuild_index()
+
+    async def add(
+        self,
+        memories: Union[list[Msg], Msg, None],
+        allow_duplicates: bool = False,
+    ) -> None:
+        """Add message into the memory.
+
+        Args:
+            memories (`Union[list[Msg], Msg, None]`):
+                The message to add.
+            allow_duplicates (`bool`, defaults to `False`):
+                If allow adding duplicate messages (with the same id) into
+                the memory. If `False`, the duplicates within the given
+                messages are also skipped.
+        """
+        if memories is None:
+            return
+
+        if isinstance(memories, Msg):
+            memories = [memories]
+
+        if not isinstance(memories, list):
+            raise TypeError(
+                f"The memories should be a list of Msg or a single Msg, "
+                f"but got {type(memories)}.",
+            )
+
+        for msg in memories:
+            if not isinstance(msg, Msg):
+                raise TypeError(
+                    f"The memories should be a list of Msg or a single Msg, "
+                    f"but got {type(msg)}.",
+                )
+
+        for msg in memories:
+            if not allow_duplicates and msg.id in self._id_to_index:
+                continue
+            self._index(msg, len(self.content))
+            self.content.append(msg)
+
+    async def delete(self, index: Union[Iterable, int]) -> None:
+        """Delete the specified item by index(es) in one pass.
+
+        Args:
+            index (`Union[Iterable, int]`):
+                The index to delete.
+        """
+        await super().delete(index)
+        self._rebuild_index()
+
+    async def delete_by_id(self, msg_ids: Union[Iterable[str], str]) -> None:
+        """Delete the messages by id(s) in one pass, including the duplicate
+        messages with the same id.
+
+        Args:
+            msg_ids (`Union[Iterable[str], str]`):
+                The id(s) of the messages to delete.
+        """
+        if isinstance(msg_ids, str):
+            msg_ids = [msg_ids]
+
+        msg_ids = set(msg_ids)
+        missing_ids = msg_ids - self._id_to_index.keys()
+        if missing_ids:
+            raise ValueError(
+                f"The messages with id {sorted(missing_ids)} do not exist.",
+            )
+
+        self.content = [_ for _ in self.content if _.id not in msg_ids]
+        self._rebuild_index()
+
+    def _position_of(self, msg_id: str) -> int:
+        """Get the position of the message with the given id."""
+        if msg_id not in self._id_to_index:
+            raise ValueError(f"The message with id {msg_id} does not exist.")
+        return self._id_to_index[msg_id]
+
+    async def get_by_id(self, msg_id: str) -> Msg | None:
+        """Get the message by id.
+
+        Args:
+            msg_id (`str`):
+                The id of the message.
+
+        Returns:
+            `Msg | None`:
+                The message, or `None` if not found.
+        """
+        position = self._id_to_index.get(msg_id)
+        return None if position is None else self.content[position]
+
+    async def retrieve(  # type: ignore[override]
+        self,
+        start: int | None = None,
+        end: int | None = None,
+        start_id: str | None = None,
+        end_id: str | None = None,
+        role: str | None = None,
+        name: str | None = None,
+        since: str | None = None,
+        until: str | None = None,
+    ) -> list[Msg]:
+        """Retrieve the messages within the given ranges, which are combined
+        together.
+
+        Args:
+            start (`int | None`, optional):
+                The start index (inclusive) as in slicing, which can be
+                negative.
+            end (`int | None`, optional):
+                The end index (exclusive) as in slicing, which can be
+                negative.
+            start_id (`str | None`, optional):
+                The id of the first message (inclusive).
+            end_id (`str | None`, optional):
+                The id of the last message (inclusive).
+            role (`str | None`, optional):
+                The role of the messages.
+            name (`str | None`, optional):
+                The name of the messages.
+            since (`str | None`, optional):
+                The earliest timestamp (inclusive), in the same format as
+                `Msg.timestamp`, e.g. "2025-01-01 00:00:00.000". A prefix
+                such as "2025-01-01" also works.
+            until (`str | None`, optional):
+                The latest timestamp (inclusive). A prefix matches all the
+                timestamps starting with it.
+
+        Returns:
+            `list[Msg]`:
+                The messages in order.
+
+        Raises:
+            `ValueError`:
+                If the message with `start_id` or `end_id` does not exist.
+        """
+        lo, hi, _ = slice(start, end).indices(len(self.content))
+        if start_id is not None:
+            lo = max(lo, self._position_of(start_id))
+        if end_id is not None:
+            hi = min(hi, self._position_of(end_id) + 1)
+
+        # The timestamp strings are compared lexically, where the prefix
+        # upper bound is padded to include all the timestamps starting
+        # with it
+        until_bound = None if until is None else until + "\uffff"
+        check_timestamp = False
+        if since is not None or until is not None:
+            if self._timestamps_sorted:
+                if since is not None:
+                    lo = max(lo, bisect.bisect_left(self._timestamps, since))
+                if until_bound is not None:
+                    hi = min(
+                        hi,
+                        bisect.bisect_right(self._timestamps, until_bound),
+                    )
+            else:
+                check_timestamp = True
+
+        if lo >= hi:
+            return []
+
+        positions: Iterable[int] = range(lo, hi)
+        for index, key in [(self._role_index, role), (self._name_index, name)]:
+            if key is None:
+                continue
+            indexed = index.get(key, [])
+            first = bisect.bisect_left(indexed, lo)
+            indexed = indexed[first : bisect.bisect_left(indexed, hi, first)]
+            if isinstance(positions, range):
+                positions = indexed
+            else:
+                indexed_set = set(indexed)
+                positions = [_ for _ in positions if _ in indexed_set]
+
+        messages = [self.content[_] for _ in positions]
+        if check_timestamp:
+            messages = [
+                _
+                for _ in messages
+                if (since is None or _.timestamp >= since)
+                and (until_bound is None or _.timestamp <= until_bound)
+            ]
+        return messages
+
+    async def clear(self) -> None:
+        """Clear the memory content."""
+        await super().clear()
+        self._rebuild_index()
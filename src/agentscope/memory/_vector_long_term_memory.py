@@ -0,0 +1,361 @@
+# -*- coding: utf-8 -*-
+"""The long-term memory backed by a local vector store."""
+import asyncio
+from typing import Any
+
+import numpy as np
+import shortuuid
+
+from ._long_term_memory_base import LongTermMemoryBase
+from ._vector_store import _VectorStore
+from .._utils._common import _get_timestamp
+from ..embedding import EmbeddingModelBase
+from ..message import Msg, TextBlock
+from ..tool import ToolResponse
+
+
+class VectorLongTermMemory(LongTermMemoryBase):
+    """The long-term memory that embeds the records and retrieves them by
+    vector similarity locally, without the LLM extraction in
+    `Mem0LongTermMemory`.
+
+    The vectors are searched by a flat index, and an IVF index is built
+    once the records reach `ivf_threshold`. If `save_dir` is given, the
+    vectors are memory-mapped on disk and the records are appended to a log,
+    so the records persist across processes and are loaded incrementally.
+
+    Example:
+        .. code-block:: python
+
+            long_term_memory = VectorLongTermMemory(
+                embedding_model=DashScopeTextEmbedding(
+                    model_name="text-embedding-v2",
+                    api_key=os.environ["DASHSCOPE_API_KEY"],
+                ),
+                save_dir="./long_term_memory",
+                metadata={"user_id": "alice"},
+            )
+    """
+
+    def __init__(
+        self,
+        embedding_model: EmbeddingModelBase,
+        save_dir: str | None = None,
+        metadata: dict[str, Any] | None = None,
+        embedding_batch_size: int = 10,
+        ivf_threshold: int | None = 100_000,
+        n_probes: int = 8,
+    ) -> None:
+        """Initialize the vector long-term memory.
+
+        Args:
+            embedding_model (`EmbeddingModelBase`):
+                The embedding model to embed the records and the queries.
+            save_dir (`str | None`, optional):
+                The directory to store the vectors and the records. If not
+                given, the memory is kept in memory only.
+            metadata (`dict[str, Any] | None`, optional):
+                The default metadata attached to the recorded records, e.g.
+                `{"user_id": "alice"}`, which are also used as the filters
+                when retrieving, so that multiple users or agents can share
+                one store.
+            embedding_batch_size (`int`, defaults to `10`):
+                The maximum number of texts in one embedding request, where
+                the batches are requested concurrently.
+            ivf_threshold (`int | None`, defaults to `100_000`):
+                The number of records to build the IVF index, which only
+                scans the nearest clusters of vectors rather than all of
+                them. `None` means always scanning all the vectors.
+            n_probes (`int`, defaults to `8`):
+                The number of nearest clusters to scan in the IVF index.
+        """
+        super().__init__()
+
+        self.embedding_model = embedding_model
+        self.metadata = metadata or {}
+        self.embedding_batch_size = embedding_batch_size
+        self._store = _VectorStore(
+            save_dir=save_dir,
+            ivf_threshold=ivf_threshold,
+            n_probes=n_probes,
+        )
+        self._lock = asyncio.Lock()
+
+    @property
+    def size(self) -> int:
+        """The number of records in the memory."""
+        return self._store.size
+
+    async def _embed(self, texts: list[str]) -> np.ndarray:
+        """Embed the texts in concurrent batches."""
+        batches = [
+            texts[i : i + self.embedding_batch_size]
+            for i in range(0, len(texts), self.embedding_batch_size)
+        ]
+        responses = await asyncio.gather(
+            *[self.embedding_model(_) for _ in batches],
+        )
+        return np.asarray(
+            [embedding for _ in responses for embedding in _.embeddings],
+            dtype=np.float32,
+        )
+
+    async def add(
+        self,
+        contents: list[str],
+        metadata: dict[str, Any] | None = None,
+    ) -> list[str]:
+        """Embed and add the contents as records.
+
+        Args:
+            contents (`list[str]`):
+                The contents to add, where the empty ones are skipped.
+            metadata (`dict[str, Any] | None`, optional):
+                The metadata of the records, which are merged into the
+                default metadata. The values should be JSON serializable.
+
+        Returns:
+            `list[str]`:
+                The ids of the added records.
+        """
+        contents = [_ for _ in contents if _ and _.strip()]
+        if not contents:
+            return []
+
+        vectors = await self._embed(contents)
+        records = [
+            {
+                "id": shortuuid.uuid(),
+                "content": content,
+                "metadata": {**self.metadata, **(metadata or {})},
+                "timestamp": _get_timestamp(),
+            }
+            for content in contents
+        ]
+        async with self._lock:
+            await asyncio.to_thread(self._store.add, records, vectors)
+        return [_["id"] for _ in records]
+
+    async def delete(self, record_ids: list[str]) -> None:
+        """Delete the records by ids, where the missing ids are ignored.
+
+        Args:
+            record_ids (`list[str]`):
+                The ids of the records to delete.
+        """
+        async with self._lock:
+            await asyncio.to_thread(self._store.delete, record_ids)
+
+    async def search(
+        self,
+        queries: list[str],
+        limit: int = 5,
+        filters: dict[str, Any] | None = None,
+    ) -> list[list[dict]]:
+        """Search the most similar records of each query.
+
+        Args:
+            queries (`list[str]`):
+                The queries, which are embedded in batches.
+            limit (`int`, defaults to `5`):
+                The maximum number of records to return per query.
+            filters (`dict[str, Any] | None`, optional):
+                The metadata values that the records must match, where a
+                list value matches any of its items. Defaults to the default
+                metadata given in the constructor.
+
+        Returns:
+            `list[list[dict]]`:
+                The records of each query in descending order of similarity,
+                each of which has the "id", "content", "metadata",
+                "timestamp" and "score" fields.
+        """
+        if not queries or self.size == 0:
+            return [[] for _ in queries]
+
+        vectors = await self._embed(queries)
+        filters = self.metadata if filters is None else filters
+        async with self._lock:
+            results = await asyncio.to_thread(
+                lambda: [
+                    self._store.search(_, limit, filters) for _ in vectors
+                ],
+            )
+        return [
+            [{**record, "score": score} for record, score in _]
+            for _ in results
+        ]
+
+    async def record(
+        self,
+        msgs: list[Msg | None],
+        metadata: dict[str, Any] | None = None,
+        **kwargs: Any,
+    ) -> None:
+        """Record the text content of each message as a record, with the
+        name and role of the message in the metadata.
+
+        Args:
+            msgs (`list[Msg | None]`):
+                The messages to record.
+            metadata (`dict[str, Any] | None`, optional):
+                The additional metadata of the records.
+        """
+        if isinstance(msgs, Msg):
+            msgs = [msgs]
+
+        # Filter out None
+        msg_list = [_ for _ in msgs if _]
+        if not all(isinstance(_, Msg) for _ in msg_list):
+            raise TypeError(
+                "The input messages must be a list of Msg objects.",
+            )
+
+        # Group the messages by the metadata to add them in batches
+        groups: dict[tuple[str, str], list[str]] = {}
+        for msg in msg_list:
+            text = msg.get_text_content()
+            if text:
+                groups.setdefault((msg.name, msg.role), []).append(text)
+
+        await asyncio.gather(
+            *[
+                self.add(
+                    contents,
+                    {"name": name, "role": role, **(metadata or {})},
+                )
+                for (name, role), contents in groups.items()
+            ],
+        )
+
+    async def retrieve(
+        self,
+        msg: Msg | list[Msg] | None,
+        limit: int = 5,
+        filters: dict[str, Any] | None = None,
+        **kwargs: Any,
+    ) -> str:
+        """Retrieve the records similar to the text content of the given
+        message(s).
+
+        Args:
+            msg (`Msg | list[Msg] | None`):
+                The message(s) to search for in the memory.
+            limit (`int`, defaults to `5`):
+                The maximum number of records to retrieve per message.
+            filters (`dict[str, Any] | None`, optional):
+                The metadata values that the records must match, defaults to
+                the default metadata.
+
+        Returns:
+            `str`:
+                The retrieved records, one per line.
+        """
+        if msg is None:
+            return ""
+
+        if isinstance(msg, Msg):
+            msg = [msg]
+
+        if not isinstance(msg, list) or not all(
+            isinstance(_, Msg) for _ in msg
+        ):
+            raise TypeError(
+                "The input message must be a Msg or a list of Msg objects.",
+            )
+
+        queries = [_.get_text_content() for _ in msg]
+        results = await self.search(
+            [_ for _ in queries if _],
+            limit=limit,
+            filters=filters,
+        )
+        return "\n".join(self._dedup_contents(results))
+
+    @staticmethod
+    def _dedup_contents(results: list[list[dict]]) -> list[str]:
+        """Get the contents of the records without duplicates."""
+        contents: dict[str, None] = {}
+        for records in results:
+            for record in records:
+                contents[record["content"]] = None
+        return list(contents)
+
+    async def record_to_memory(
+        self,
+        thinking: str,
+        content: list[str],
+        **kwargs: Any,
+    ) -> ToolResponse:
+        """Use this function to record important information that you may
+        need later. The target content should be specific and concise, e.g.
+        who, when, where, do what, why, how, etc.
+
+        Args:
+            thinking (`str`):
+                Your thinking and reasoning about what to record.
+            content (`list[str]`):
+                The content to remember, which is a list of strings.
+        """
+        try:
+            record_ids = await self.add(content)
+            return ToolResponse(
+                content=[
+                    TextBlock(
+                        type="text",
+                        text=f"Successfully recorded {len(record_ids)} "
+                        "item(s) to memory.",
+                    ),
+                ],
+            )
+
+        except Exception as e:
+            return ToolResponse(
+                content=[
+                    TextBlock(
+                        type="text",
+                        text=f"Error recording memory: {str(e)}",
+                    ),
+                ],
+            )
+
+    async def retrieve_from_memory(
+        self,
+        keywords: list[str],
+        limit: int = 5,
+        **kwargs: Any,
+    ) -> ToolResponse:
+        """Retrieve the memory based on the given keywords.
+
+        Args:
+            keywords (`list[str]`):
+                The keywords to search for in the memory, which should be
+                specific and concise, e.g. the person's name, the date, the
+                location, etc.
+            limit (`int`, optional):
+                The maximum number of memories to retrieve per search.
+
+        Returns:
+            `ToolResponse`:
+                A ToolResponse containing the retrieved memories.
+        """
+        try:
+            results = await self.search(keywords, limit=limit)
+            return ToolResponse(
+                content=[
+                    TextBlock(
+                        type="text",
+                        text="\n".join(self._dedup_contents(results)),
+                    ),
+                ],
+            )
+
+        except Exception as e:
+            return ToolResponse(
+                content=[
+                    TextBlock(
+                        type="text",
+                        text=f"Error retrieving memory: {str(e)}",
+                    ),
+                ],
+            )
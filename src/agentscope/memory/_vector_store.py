@@ -0,0 +1,445 @@
+# -*- coding: utf-8 -*-
+"""The local vector store of the vector long-term memory, with a flat index
+and an optional IVF (inverted file) index, which can be memory-mapped on
+disk."""
+import json
+import os
+from typing import Any
+
+import numpy as np
+
+from .._logging import logger
+
+_VECTORS_FILE = "vectors.npy"
+_RECORDS_FILE = "records.jsonl"
+
+_MIN_CAPACITY = 1024
+
+
+def _normalize(vectors: np.ndarray) -> np.ndarray:
+    """Normalize the vectors to unit length, so that the cosine similarity
+    is computed by the inner product."""
+    norms = np.linalg.norm(vectors, axis=-1, keepdims=True)
+    norms[norms == 0] = 1
+    return vectors / norms
+
+
+def _get_filter_key(value: Any) -> str:
+    """Get the key of a metadata value in the metadata index."""
+    return json.dumps(value, sort_keys=True, ensure_ascii=False)
+
+
+class _VectorStore:
+    """The vectors and records of the vector long-term memory.
+
+    The normalized vectors are stored in rows of a matrix, which grows by
+    doubling its capacity, and is memory-mapped from `vectors.npy` if
+    `save_dir` is given. The records are appended to `records.jsonl`, where
+    an entry is appended only after its vector is written, so the log is the
+    source of truth when loading. The rows of the deleted records are reused
+    by the following insertions.
+
+    By default, the search scans all the vectors (the flat index), which is
+    exact. Once the number of records reaches `ivf_threshold`, the vectors
+    are clustered by k-means, and the search only scans the clusters nearest
+    to the query (the IVF index), which is approximate. The clusters are
+    retrained when the number of records doubles.
+    """
+
+    def __init__(
+        self,
+        save_dir: str | None = None,
+        ivf_threshold: int | None = 100_000,
+        n_probes: int = 8,
+    ) -> None:
+        """Initialize the vector store.
+
+        Args:
+            save_dir (`str | None`, optional):
+                The directory to store the vectors and records. If not
+                given, the store is kept in memory only.
+            ivf_threshold (`int | None`, defaults to `100_000`):
+                The number of records to build the IVF index, or `None` to
+                always use the flat index.
+            n_probes (`int`, defaults to `8`):
+                The number of nearest clusters to scan in the IVF index.
+        """
+        self.save_dir = save_dir
+        self.ivf_threshold = ivf_threshold
+        self.n_probes = n_probes
+
+        self.records: list[dict | None] = []
+        """The records by rows, which are `None` if deleted"""
+
+        self.id_to_row: dict[str, int] = {}
+
+        self._vectors: np.ndarray | None = None
+        self._valid = np.zeros(0, dtype=np.bool_)
+        self._free_rows: list[int] = []
+        self._metadata_index: dict[str, dict[str, set[int]]] = {}
+
+        self._centroids: np.ndarray | None = None
+        self._clusters: list[list[int]] = []
+        self._row_cluster = np.zeros(0, dtype=np.int64)
+        self._trained_size = 0
+
+        self._n_log_entries = 0
+
+        if save_dir is not None:
+            os.makedirs(save_dir, exist_ok=True)
+            self._load()
+
+    @property
+    def size(self) -> int:
+        """The number of records."""
+        return len(self.id_to_row)
+
+    @property
+    def dimensions(self) -> int | None:
+        """The dimensions of the vectors, which are `None` before the first
+        insertion."""
+        return None if self._vectors is None else self._vectors.shape[1]
+
+    def _path(self, filename: str) -> str:
+        """Get the path of the file in the save directory."""
+        return os.path.join(str(self.save_dir), filename)
+
+    def _load(self) -> None:
+        """Load the vectors and replay the records log."""
+        vectors_path = self._path(_VECTORS_FILE)
+        if not os.path.exists(vectors_path):
+            return
+
+        self._vectors = np.lib.format.open_memmap(vectors_path, mode="r+")
+        self._valid = np.zeros(self._vectors.shape[0], dtype=np.bool_)
+        self._row_cluster = np.full(self._vectors.shape[0], -1)
+
+        records_path = self._path(_RECORDS_FILE)
+        if os.path.exists(records_path):
+            with open(records_path, "r", encoding="utf-8") as file:
+                for line in file:
+                    try:
+                        entry = json.loads(line)
+                    except json.JSONDecodeError:
+                        # The partially written entry at the end
+                        break
+                    self._n_log_entries += 1
+                    if entry["op"] == "add":
+                        self._set_record(entry["row"], entry["record"])
+                    else:
+                        self._remove_record(entry["id"])
+
+        self._free_rows = [
+            row
+            for row in range(len(self.records) - 1, -1, -1)
+            if self.records[row] is None
+        ]
+
+        # Drop the deleted entries and the partially written entry
+        if self._n_log_entries > 2 * self.size + _MIN_CAPACITY or (
+            os.path.exists(records_path)
+            and self._n_log_entries != self._count_lines(records_path)
+        ):
+            self._rewrite_log()
+
+        self._maybe_train()
+
+    @staticmethod
+    def _count_lines(path: str) -> int:
+        """Count the lines of the file."""
+        with open(path, "rb") as file:
+            return sum(1 for _ in file)
+
+    def _rewrite_log(self) -> None:
+        """Rewrite the records log with the existing records only."""
+        records_path = self._path(_RECORDS_FILE)
+        with open(records_path + ".tmp", "w", encoding="utf-8") as file:
+            for row, record in enumerate(self.records):
+                if record is not None:
+                    file.write(self._dump_entry(row, record))
+            file.flush()
+            os.fsync(file.fileno())
+        os.replace(records_path + ".tmp", records_path)
+        self._n_log_entries = self.size
+
+    @staticmethod
+    def _dump_entry(row: int, record: dict) -> str:
+        """Dump the entry of adding the record into a line."""
+        return (
+            json.dumps(
+                {"op": "add", "row": row, "record": record},
+                ensure_ascii=False,
+            )
+            + "\n"
+        )
+
+    def _append_log(self, lines: list[str]) -> None:
+        """Append the entries to the records log."""
+        if self.save_dir is None or not lines:
+            return
+        with open(self._path(_RECORDS_FILE), "a", encoding="utf-8") as file:
+            file.writelines(lines)
+            file.flush()
+            os.fsync(file.fileno())
+        self._n_log_entries += len(lines)
+
+    def _set_record(self, row: int, record: dict) -> None:
+        """Set the record of the row, and update the indexes."""
+        if row >= len(self.records):
+            self.records.extend([None] * (row + 1 - len(self.records)))
+        self.records[row] = record
+        self.id_to_row[record["id"]] = row
+        self._valid[row] = True
+        for key, value in record["metadata"].items():
+            self._metadata_index.setdefault(key, {}).setdefault(
+                _get_filter_key(value),
+                set(),
+            ).add(row)
+
+    def _remove_record(self, record_id: str) -> int:
+        """Remove the record by id, and return its row."""
+        row = self.id_to_row.pop(record_id)
+        record = self.records[row]
+        self.records[row] = None
+        self._valid[row] = False
+        for key, value in record["metadata"].items():
+            rows = self._metadata_index[key][_get_filter_key(value)]
+            rows.discard(row)
+        return row
+
+    def _ensure_capacity(self, n_rows: int, dimensions: int) -> None:
+        """Grow the vectors matrix by doubling, so that it holds `n_rows`
+        rows."""
+        if self._vectors is not None and self._vectors.shape[1] != dimensions:
+            raise ValueError(
+                f"The dimensions of the vectors ({dimensions}) differ from "
+                f"the ones in the store ({self._vectors.shape[1]}).",
+            )
+
+        capacity = 0 if self._vectors is None else self._vectors.shape[0]
+        if n_rows <= capacity:
+            return
+
+        new_capacity = max(n_rows, 2 * capacity, _MIN_CAPACITY)
+        n_used = len(self.records)
+        shape = (new_capacity, dimensions)
+        if self.save_dir is None:
+            vectors = np.zeros(shape, dtype=np.float32)
+            if self._vectors is not None:
+                vectors[:n_used] = self._vectors[:n_used]
+        else:
+            # Write the grown matrix into a new file and replace the old one,
+            # so that the vectors file is never partially written
+            tmp_path = self._path(_VECTORS_FILE + ".tmp")
+            vectors = np.lib.format.open_memmap(
+                tmp_path,
+                mode="w+",
+                dtype=np.float32,
+                shape=shape,
+            )
+            if self._vectors is not None:
+                vectors[:n_used] = self._vectors[:n_used]
+            vectors.flush()
+            os.replace(tmp_path, self._path(_VECTORS_FILE))
+        self._vectors = vectors
+
+        valid = np.zeros(new_capacity, dtype=np.bool_)
+        valid[: len(self._valid)] = self._valid
+        self._valid = valid
+        row_cluster = np.full(new_capacity, -1)
+        row_cluster[: len(self._row_cluster)] = self._row_cluster
+        self._row_cluster = row_cluster
+
+    def add(self, records: list[dict], vectors: np.ndarray) -> None:
+        """Add the records with their vectors.
+
+        Args:
+            records (`list[dict]`):
+                The records with the "id", "content", "metadata" and
+                "timestamp" fields.
+            vectors (`np.ndarray`):
+                The vectors of the records, in shape (n, dimensions).
+        """
+        if len(records) == 0:
+            return
+
+        vectors = _normalize(np.asarray(vectors, dtype=np.float32))
+        n_new_rows = max(0, len(records) - len(self._free_rows))
+        self._ensure_capacity(len(self.records) + n_new_rows, vectors.shape[1])
+
+        rows = []
+        for _ in records:
+            if self._free_rows:
+                rows.append(self._free_rows.pop())
+            else:
+                rows.append(len(self.records))
+                self.records.append(None)
+
+        row_array = np.asarray(rows, dtype=np.int64)
+        self._vectors[row_array] = vectors
+        if self.save_dir is not None:
+            self._vectors.flush()
+
+        self._append_log(
+            [self._dump_entry(row, _) for row, _ in zip(rows, records)],
+        )
+        for row, record in zip(rows, records):
+            self._set_record(row, record)
+
+        if self._centroids is not None:
+            self._assign_clusters(row_array)
+        self._maybe_train()
+
+    def delete(self, record_ids: list[str]) -> None:
+        """Delete the records by ids, where the missing ids are ignored."""
+        lines = []
+        for record_id in record_ids:
+            if record_id in self.id_to_row:
+                self._free_rows.append(self._remove_record(record_id))
+                lines.append(
+                    json.dumps({"op": "delete", "id": record_id}) + "\n",
+                )
+        self._append_log(lines)
+
+    def _filter_rows(self, filters: dict[str, Any]) -> set[int]:
+        """Get the rows whose metadata match the filters, where a list value
+        matches any of its items."""
+        result = None
+        for key, value in filters.items():
+            values = value if isinstance(value, list) else [value]
+            index = self._metadata_index.get(key, {})
+            rows: set[int] = set()
+            for _ in values:
+                rows |= index.get(_get_filter_key(_), set())
+            result = rows if result is None else result & rows
+            if not result:
+                return set()
+        return result or set()
+
+    def search(
+        self,
+        query: np.ndarray,
+        limit: int,
+        filters: dict[str, Any] | None = None,
+    ) -> list[tuple[dict, float]]:
+        """Search the records with the most similar vectors.
+
+        Args:
+            query (`np.ndarray`):
+                The query vector.
+            limit (`int`):
+                The maximum number of records to return.
+            filters (`dict[str, Any] | None`, optional):
+                The metadata values that the records must match. The
+                filtered records are scanned exactly without the IVF index,
+                unless the filters match all the records.
+
+        Returns:
+            `list[tuple[dict, float]]`:
+                The records and their cosine similarities in descending
+                order.
+        """
+        if self._vectors is None or self.size == 0 or limit <= 0:
+            return []
+
+        query = _normalize(np.asarray(query, dtype=np.float32))
+        rows: np.ndarray | None = None
+        filtered_rows = None if not filters else self._filter_rows(filters)
+        if filtered_rows is not None and len(filtered_rows) < self.size:
+            rows = np.asarray(sorted(filtered_rows), np.int64)
+        elif self._centroids is not None:
+            rows = self._probe(query)
+
+        if rows is None:
+            # Scan the matrix in place rather than gathering the valid rows
+            n_rows = len(self.records)
+            scores = self._vectors[:n_rows] @ query
+            scores[~self._valid[:n_rows]] = -np.inf
+        elif len(rows) == 0:
+            return []
+        else:
+            scores = self._vectors[rows] @ query
+
+        limit = min(limit, len(scores))
+        top = np.argpartition(-scores, limit - 1)[:limit]
+        top = top[np.argsort(-scores[top])]
+
+        results = []
+        for index in top.tolist():
+            if scores[index] == -np.inf:
+                break
+            row = index if rows is None else int(rows[index])
+            results.append((self.records[row], float(scores[index])))
+        return results
+
+    def _probe(self, query: np.ndarray) -> np.ndarray:
+        """Get the rows in the clusters nearest to the query."""
+        assert self._centroids is not None
+        n_probes = min(self.n_probes, len(self._centroids))
+        cluster_scores = self._centroids @ query
+        nearest = np.argpartition(-cluster_scores, n_probes - 1)[:n_probes]
+
+        rows = []
+        for cluster in nearest:
+            members = np.asarray(self._clusters[int(cluster)], np.int64)
+            # Skip the deleted rows and the rows reused by other clusters
+            members = members[
+                self._valid[members] & (self._row_cluster[members] == cluster)
+            ]
+            rows.append(members)
+        return np.unique(np.concatenate(rows))
+
+    def _assign_clusters(self, rows: np.ndarray) -> None:
+        """Assign the rows to their nearest clusters."""
+        assert self._centroids is not None
+        for start in range(0, len(rows), 4096):
+            chunk = rows[start : start + 4096]
+            clusters = np.argmax(self._vectors[chunk] @ self._centroids.T, 1)
+            self._row_cluster[chunk] = clusters
+            for row, cluster in zip(chunk.tolist(), clusters.tolist()):
+                self._clusters[cluster].append(row)
+
+    def _maybe_train(self) -> None:
+        """Train the IVF index by k-means if the number of records reaches
+        the threshold, or doubles since the last training."""
+        if (
+            self.ivf_threshold is None
+            or self.size < self.ivf_threshold
+            or self.size < 2 * self._trained_size
+        ):
+            return
+
+        rows = np.flatnonzero(self._valid[: len(self.records)])
+        n_clusters = max(1, int(np.sqrt(len(rows))))
+        rng = np.random.default_rng(0)
+        samples = self._vectors[
+            np.sort(
+                rng.choice(
+                    rows,
+                    min(len(rows), 64 * n_clusters),
+                    replace=False,
+                ),
+            )
+        ]
+
+        centroids = samples[
+            rng.choice(len(samples), n_clusters, replace=False)
+        ].copy()
+        for _ in range(10):
+            assignment = np.argmax(samples @ centroids.T, axis=1)
+            sums = np.zeros_like(centroids)
+            np.add.at(sums, assignment, samples)
+            # Keep the centroids of the empty clusters unchanged
+            non_empty = np.linalg.norm(sums, axis=1) > 0
+            centroids[non_empty] = _normalize(sums[non_empty])
+
+        self._centroids = centroids
+        self._clusters = [[] for _ in range(n_clusters)]
+        self._row_cluster[:] = -1
+        self._assign_clusters(rows)
+        self._trained_size = len(rows)
+        logger.info(
+            "Trained the IVF index with %d clusters over %d records.",
+            n_clusters,
+            len(rows),
+        )
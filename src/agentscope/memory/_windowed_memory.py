@@ -0,0 +1,354 @@
+# -*- coding: utf-8 -*-
+"""The bounded memory classes that keep the recent messages within a window
+of a message count or a token budget."""
+from abc import abstractmethod
+from collections import deque
+from dataclasses import dataclass, field
+from typing import Any, Iterable, Union
+
+from ._memory_base import MemoryBase
+from ..formatter import FormatterBase
+from ..message import Msg
+from ..token import TokenCounterBase
+
+
+@dataclass
+class _Turn:
+    """The messages that must be kept or evicted together, i.e. the tool
+    calls and their corresponding tool results."""
+
+    msgs: list[Msg] = field(default_factory=list)
+    """The messages in order"""
+
+    costs: list[int | None] = field(default_factory=list)
+    """The costs of the messages, which are `None` if not counted yet"""
+
+    pending_ids: set[str] = field(default_factory=set)
+    """The ids of the tool calls without the corresponding tool results,
+    which keep the turn open for the following tool messages"""
+
+
+class _BoundedMemoryBase(MemoryBase):
+    """The base class of the memories that keep the most recent messages
+    within a budget, where each message has a cost against the budget.
+
+    The oldest messages are evicted when new messages arrive, and moved into
+    the `archive` memory if given. The tool calls and their corresponding
+    tool results are always evicted together, and the latest turn is kept
+    even if it exceeds the budget alone. Both adding and evicting messages
+    take amortized constant time, and `get_memory` returns the window in
+    O(window) time, no matter how many messages have been added.
+    """
+
+    def __init__(self, archive: MemoryBase | None = None) -> None:
+        """Initialize the bounded memory.
+
+        Args:
+            archive (`MemoryBase | None`, optional):
+                The memory receiving the evicted messages, e.g. an
+                `IndexedMemory`, whose state is saved together with this
+                memory. If not given, the evicted messages are dropped.
+        """
+        super().__init__()
+
+        self.archive = archive
+
+        self._turns: deque[_Turn] = deque()
+        self._size = 0
+        self._total_cost = 0
+        self._id_counts: dict[str, int] = {}
+        self._has_uncounted = False
+
+    @property
+    @abstractmethod
+    def _budget(self) -> int:
+        """The maximum total cost of the messages in the window."""
+
+    @abstractmethod
+    async def _get_cost(self, msg: Msg) -> int:
+        """Get the cost of the message against the budget."""
+
+    def _append(self, msg: Msg, cost: int | None) -> None:
+        """Append the message into the latest turn if it's still open, or
+        start a new turn. A message without tool calls or results closes the
+        open turn, so that a tool call never answered, e.g. interrupted,
+        doesn't merge the following turns into one."""
+        is_tool_msg = msg.has_content_blocks(
+            "tool_use",
+        ) or msg.has_content_blocks("tool_result")
+        if (
+            not self._turns
+            or not self._turns[-1].pending_ids
+            or not is_tool_msg
+        ):
+            if self._turns:
+                # Drop the stale tool calls
+                self._turns[-1].pending_ids.clear()
+            self._turns.append(_Turn())
+        turn = self._turns[-1]
+        turn.msgs.append(msg)
+        turn.costs.append(cost)
+
+        for block in msg.get_content_blocks("tool_use"):
+            turn.pending_ids.add(block["id"])
+        for block in msg.get_content_blocks("tool_result"):
+            turn.pending_ids.discard(block["id"])
+
+        self._size += 1
+        if cost is None:
+            self._has_uncounted = True
+        else:
+            self._total_cost += cost
+        self._id_counts[msg.id] = self._id_counts.get(msg.id, 0) + 1
+
+    def _reset(self, msgs: list[Msg], costs: list[int | None]) -> None:
+        """Rebuild the turns from the messages and their costs."""
+        self._turns.clear()
+        self._size = 0
+        self._total_cost = 0
+        self._id_counts.clear()
+        self._has_uncounted = False
+        for msg, cost in zip(msgs, costs):
+            self._append(msg, cost)
+
+    async def _evict(self) -> None:
+        """Count the uncounted messages, e.g. the loaded ones, and evict the
+        oldest turns until the window fits the budget."""
+        if self._has_uncounted:
+            for turn in self._turns:
+                for i, msg in enumerate(turn.msgs):
+                    if turn.costs[i] is None:
+                        turn.costs[i] = await self._get_cost(msg)
+                        self._total_cost += turn.costs[i]
+            self._has_uncounted = False
+
+        evicted = []
+        while self._total_cost > self._budget and len(self._turns) > 1:
+            turn = self._turns.popleft()
+            self._size -= len(turn.msgs)
+            self._total_cost -= sum(turn.costs)
+            for msg in turn.msgs:
+                self._id_counts[msg.id] -= 1
+                if self._id_counts[msg.id] == 0:
+                    del self._id_counts[msg.id]
+            evicted.extend(turn.msgs)
+
+        if evicted and self.archive is not None:
+            await self.archive.add(evicted)
+
+    def state_dict(self) -> dict:
+        """Convert the messages in the window and the archive into JSON
+        data format."""
+        state: dict[str, Any] = {
+            "content": [
+                msg.to_dict() for turn in self._turns for msg in turn.msgs
+            ],
+        }
+        if self.archive is not None:
+            state["archive"] = self.archive.state_dict()
+        return state
+
+    def load_state_dict(
+        self,
+        state_dict: dict,
+        strict: bool = True,
+    ) -> None:
+        """Load the memory from JSON data, where the messages are counted and
+        evicted lazily when the memory is accessed next time.
+
+        Args:
+            state_dict (`dict`):
+                The state dictionary to load, which should have a "content"
+                field, and an "archive" field if the archive is given.
+            strict (`bool`, defaults to `True`):
+                If `True`, raises an error if any key in the module is not
+                found in the state_dict. If `False`, skips missing keys.
+        """
+        msgs = []
+        for data in state_dict["content"]:
+            data.pop("type", None)
+            msgs.append(Msg.from_dict(data))
+        self._reset(msgs, [None] * len(msgs))
+
+        if self.archive is not None:
+            if "archive" in state_dict:
+                self.archive.load_state_dict(state_dict["archive"], strict)
+            elif strict:
+                raise KeyError(
+                    "The archive state is not found in the state dict.",
+                )
+
+    async def size(self) -> int:
+        """The number of messages in the window."""
+        return self._size
+
+    async def retrieve(self, *args: Any, **kwargs: Any) -> None:
+        """Retrieve items from the memory."""
+        raise NotImplementedError(
+            "The retrieve method is not implemented in "
+            f"{self.__class__.__name__} class.",
+        )
+
+    async def delete(self, index: Union[Iterable, int]) -> None:
+        """Delete the specified item by index(es) in the window.
+
+        Args:
+            index (`Union[Iterable, int]`):
+                The index to delete.
+        """
+        if isinstance(index, int):
+            index = [index]
+
+        index = set(index)
+        invalid_index = [_ for _ in index if 0 > _ or _ >= self._size]
+
+        if invalid_index:
+            raise IndexError(
+                f"The index {sorted(invalid_index)} does not exist.",
+            )
+
+        msgs, costs = [], []
+        for turn in self._turns:
+            msgs.extend(turn.msgs)
+            costs.extend(turn.costs)
+        kept = [i for i in range(len(msgs)) if i not in index]
+        self._reset([msgs[_] for _ in kept], [costs[_] for _ in kept])
+
+    async def add(
+        self,
+        memories: Union[list[Msg], Msg, None],
+        allow_duplicates: bool = False,
+    ) -> None:
+        """Add message into the memory, and evict the oldest messages if
+        the window exceeds the budget.
+
+        Args:
+            memories (`Union[list[Msg], Msg, None]`):
+                The message to add.
+            allow_duplicates (`bool`, defaults to `False`):
+                If allow adding duplicate messages (with the same id) into
+                the window. The evicted messages aren't checked.
+        """
+        if memories is None:
+            return
+
+        if isinstance(memories, Msg):
+            memories = [memories]
+
+        if not isinstance(memories, list):
+            raise TypeError(
+                f"The memories should be a list of Msg or a single Msg, "
+                f"but got {type(memories)}.",
+            )
+
+        for msg in memories:
+            if not isinstance(msg, Msg):
+                raise TypeError(
+                    f"The memories should be a list of Msg or a single Msg, "
+                    f"but got {type(msg)}.",
+                )
+
+        for msg in memories:
+            if not allow_duplicates and msg.id in self._id_counts:
+                continue
+            self._append(msg, await self._get_cost(msg))
+
+        await self._evict()
+
+    async def get_memory(self) -> list[Msg]:
+        """Get the messages in the window."""
+        await self._evict()
+        return [msg for turn in self._turns for msg in turn.msgs]
+
+    async def clear(self) -> None:
+        """Clear the messages in the window, while the archive is kept."""
+        self._reset([], [])
+
+
+class WindowedMemory(_BoundedMemoryBase):
+    """The memory that keeps the most recent messages within a window of
+    `max_messages`, which works as a ring buffer. Since the tool calls and
+    their corresponding tool results are evicted together, the window may
+    hold fewer messages than `max_messages`."""
+
+    def __init__(
+        self,
+        max_messages: int = 100,
+        archive: MemoryBase | None = None,
+    ) -> None:
+        """Initialize the windowed memory.
+
+        Args:
+            max_messages (`int`, defaults to `100`):
+                The maximum number of messages in the window.
+            archive (`MemoryBase | None`, optional):
+                The memory receiving the evicted messages, whose state is
+                saved together with this memory. If not given, the evicted
+                messages are dropped.
+        """
+        assert max_messages > 0, "max_messages must be greater than 0"
+        super().__init__(archive=archive)
+        self.max_messages = max_messages
+
+    @property
+    def _budget(self) -> int:
+        """The maximum number of messages in the window."""
+        return self.max_messages
+
+    async def _get_cost(self, msg: Msg) -> int:
+        """Each message costs one."""
+        return 1
+
+
+class TokenBudgetMemory(_BoundedMemoryBase):
+    """The memory that keeps the most recent messages within a budget of
+    `max_tokens`, where each message is formatted and counted once when
+    added, and the running total is updated on adding and evicting.
+
+    The count of each message is made separately, so the total is an
+    approximation of the formatted prompt, which doesn't include the system
+    prompt and the tools.
+    """
+
+    def __init__(
+        self,
+        max_tokens: int,
+        token_counter: TokenCounterBase,
+        formatter: FormatterBase,
+        archive: MemoryBase | None = None,
+    ) -> None:
+        """Initialize the token budget memory.
+
+        Args:
+            max_tokens (`int`):
+                The maximum number of tokens of the messages in the window.
+            token_counter (`TokenCounterBase`):
+                The token counter of the model.
+            formatter (`FormatterBase`):
+                The formatter of the model, which formats each message before
+                counting.
+            archive (`MemoryBase | None`, optional):
+                The memory receiving the evicted messages, whose state is
+                saved together with this memory. If not given, the evicted
+                messages are dropped.
+        """
+        assert max_tokens > 0, "max_tokens must be greater than 0"
+        super().__init__(archive=archive)
+        self.max_tokens = max_tokens
+        self.token_counter = token_counter
+        self.formatter = formatter
+
+    @property
+    def _budget(self) -> int:
+        """The maximum number of tokens in the window."""
+        return self.max_tokens
+
+    async def _get_cost(self, msg: Msg) -> int:
+        """Count the tokens of the formatted message."""
+        formatted = await self.formatter.format([msg])
+        return await self.token_counter.count(formatted)
+
+    async def get_token_count(self) -> int:
+        """Get the running total of tokens in the window."""
+        await self._evict()
+        return self._total_cost
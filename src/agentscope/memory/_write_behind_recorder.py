@@ -0,0 +1,190 @@
+# -*- coding: utf-8 -*-
+"""The recorder that records messages into the long-term memory in
+background."""
+import asyncio
+from collections import deque
+from typing import Any
+
+from ._long_term_memory_base import LongTermMemoryBase
+from .._logging import logger
+from ..message import Msg
+
+
+class WriteBehindRecorder:
+    """The recorder that records messages into the long-term memory by a
+    background worker, so that the caller doesn't wait for the slow recording,
+    e.g. the LLM extraction and the embeddings in `Mem0LongTermMemory`.
+
+    The submitted messages are queued and recorded in order. The worker takes
+    up to `max_batch` queued submissions at a time, and coalesces the
+    consecutive ones with the same keyword arguments into one `record` call,
+    where the duplicate messages (with the same id) are recorded only once.
+    Once `max_backlog` submissions are queued, `submit` waits until the
+    worker catches up.
+
+    The failed recordings are logged rather than raised. Call `flush` to wait
+    for the queued messages to be recorded. When the event loop shuts down,
+    e.g. at the end of `asyncio.run`, the worker records the remaining
+    messages before exiting.
+
+    Note the messages being recorded are not retrievable yet, so a retrieval
+    right after submitting may miss them.
+    """
+
+    def __init__(
+        self,
+        long_term_memory: LongTermMemoryBase,
+        max_backlog: int = 16,
+        max_batch: int = 8,
+    ) -> None:
+        """Initialize the write-behind recorder.
+
+        Args:
+            long_term_memory (`LongTermMemoryBase`):
+                The long-term memory to record the messages into.
+            max_backlog (`int`, defaults to `16`):
+                The maximum number of queued submissions, beyond which
+                `submit` waits for the worker.
+            max_batch (`int`, defaults to `8`):
+                The maximum number of submissions taken by the worker at a
+                time, which are coalesced into as few `record` calls as
+                possible.
+        """
+        assert max_backlog > 0, "max_backlog must be greater than 0"
+        assert max_batch > 0, "max_batch must be greater than 0"
+
+        self.long_term_memory = long_term_memory
+        self.max_backlog = max_backlog
+        self.max_batch = max_batch
+
+        self._pending: deque[tuple[list[Msg], dict[str, Any]]] = deque()
+        """The queued submissions of messages and keyword arguments"""
+
+        self._batch: list[tuple[list[Msg], dict[str, Any]]] = []
+        """The submissions being recorded by the worker"""
+
+        # The worker and the condition are bound to the running event loop,
+        # and created again if the loop changes
+        self._loop: asyncio.AbstractEventLoop | None = None
+        self._condition: asyncio.Condition | None = None
+        self._worker: asyncio.Task | None = None
+
+    @property
+    def backlog(self) -> int:
+        """The number of submissions not recorded yet."""
+        return len(self._pending) + len(self._batch)
+
+    async def submit(self, msgs: list[Msg | None], **kwargs: Any) -> None:
+        """Queue the messages to be recorded in background, which waits only
+        if the backlog is full.
+
+        Args:
+            msgs (`list[Msg | None]`):
+                The messages to record, where `None` is ignored.
+            **kwargs (`Any`):
+                The keyword arguments passed to the `record` method of the
+                long-term memory.
+        """
+        msgs = [_ for _ in msgs if _ is not None]
+        if not msgs:
+            return
+
+        condition = self._ensure_worker()
+        async with condition:
+            await condition.wait_for(
+                lambda: len(self._pending) < self.max_backlog,
+            )
+            self._pending.append((msgs, kwargs))
+            condition.notify_all()
+
+    async def flush(self) -> None:
+        """Wait for all the submitted messages to be recorded."""
+        if not self.backlog:
+            return
+
+        condition = self._ensure_worker()
+        async with condition:
+            await condition.wait_for(lambda: not self.backlog)
+
+    async def close(self) -> None:
+        """Record the submitted messages and stop the worker."""
+        await self.flush()
+
+        worker, self._worker = self._worker, None
+        if worker is not None and not worker.done():
+            worker.cancel()
+            await asyncio.wait([worker])
+
+    def _ensure_worker(self) -> asyncio.Condition:
+        """Start the worker in the running event loop if it's not running,
+        and return the condition notified on the queue changes."""
+        loop = asyncio.get_running_loop()
+        if self._loop is not loop:
+            # The submissions interrupted with the previous loop are
+            # recorded again in the new loop
+            self._pending.extendleft(reversed(self._batch))
+            self._batch = []
+            self._loop = loop
+            self._condition = asyncio.Condition()
+            self._worker = None
+
+        if self._worker is None or self._worker.done():
+            self._worker = loop.create_task(self._run())
+        return self._condition
+
+    async def _run(self) -> None:
+        """Take and record the queued submissions in batches, and record the
+        remaining ones when cancelled."""
+        condition = self._condition
+        try:
+            while True:
+                async with condition:
+                    await condition.wait_for(lambda: self._pending)
+                    n = min(self.max_batch, len(self._pending))
+                    self._batch = [self._pending.popleft() for _ in range(n)]
+                    # Wake up the submissions waiting for the backlog
+                    condition.notify_all()
+
+                await self._record(self._batch)
+
+                async with condition:
+                    self._batch = []
+                    condition.notify_all()
+
+        except asyncio.CancelledError:
+            # The interrupted batch is recorded again together with the
+            # queued ones, since it's unknown how much has been recorded
+            remaining = [*self._batch, *self._pending]
+            self._batch = []
+            self._pending.clear()
+            await self._record(remaining)
+            async with condition:
+                condition.notify_all()
+            raise
+
+    async def _record(
+        self,
+        submissions: list[tuple[list[Msg], dict[str, Any]]],
+    ) -> None:
+        """Coalesce the consecutive submissions with the same keyword
+        arguments, and record them into the long-term memory."""
+        groups: list[tuple[dict[str, Msg], dict[str, Any]]] = []
+        for msgs, kwargs in submissions:
+            if not groups or groups[-1][1] != kwargs:
+                groups.append(({}, kwargs))
+            for msg in msgs:
+                groups[-1][0].setdefault(msg.id, msg)
+
+        for msgs_by_id, kwargs in groups:
+            try:
+                await self.long_term_memory.record(
+                    list(msgs_by_id.values()),
+                    **kwargs,
+                )
+            except Exception as e:
+                logger.warning(
+                    "Failed to record %d message(s) into the long-term "
+                    "memory: %s",
+                    len(msgs_by_id),
+                    e,
+                )
@@ -12,6 +12,7 @@ from ._message_block import (
     VideoBlock,
     Base64Source,
     URLSource,
+    BlobSource,
 )
 from ._message_base import Msg
 
@@ -21,6 +22,7 @@ __all__ = [
     "ThinkingBlock",
     "Base64Source",
     "URLSource",
+    "BlobSource",
     "ImageBlock",
     "AudioBlock",
     "VideoBlock",
@@ -46,13 +46,27 @@ class URLSource(TypedDict, total=False):
     """The URL of the image or audio"""
 
 
+class BlobSource(TypedDict, total=False):
+    """The blob source, which refers to the data in a blob store by its
+    content hash, so that the data isn't copied along with the messages"""
+
+    type: Required[Literal["blob"]]
+    """The type of the src, must be `blob`"""
+
+    media_type: Required[str]
+    """The media type of the data, e.g. `image/jpeg` or `audio/mpeg`"""
+
+    hash: Required[str]
+    """The SHA-256 hex digest of the data in the blob store"""
+
+
 class ImageBlock(TypedDict, total=False):
     """The image block"""
 
     type: Required[Literal["image"]]
     """The type of the block"""
 
-    source: Required[Base64Source | URLSource]
+    source: Required[Base64Source | URLSource | BlobSource]
     """The src of the image"""
 
 
@@ -62,7 +76,7 @@ class AudioBlock(TypedDict, total=False):
     type: Required[Literal["audio"]]
     """The type of the block"""
 
-    source: Required[Base64Source | URLSource]
+    source: Required[Base64Source | URLSource | BlobSource]
     """The src of the audio"""
 
 
@@ -72,7 +86,7 @@ class VideoBlock(TypedDict, total=False):
     type: Required[Literal["video"]]
     """The type of the block"""
 
-    source: Required[Base64Source | URLSource]
+    source: Required[Base64Source | URLSource | BlobSource]
     """The src of the audio"""
 
 
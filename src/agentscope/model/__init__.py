@@ -3,6 +3,8 @@
 
 from ._model_base import ChatModelBase
 from ._model_response import ChatResponse
+from ._model_stream import ChatResponseAccumulator
+from ._model_usage import ChatUsage
 from ._dashscope_model import DashScopeChatModel
 from ._openai_model import OpenAIChatModel
 from ._anthropic_model import AnthropicChatModel
@@ -12,6 +14,8 @@ from ._gemini_model import GeminiChatModel
 __all__ = [
     "ChatModelBase",
     "ChatResponse",
+    "ChatResponseAccumulator",
+    "ChatUsage",
     "DashScopeChatModel",
     "OpenAIChatModel",
     "AnthropicChatModel",
@@ -16,13 +16,12 @@ from collections import OrderedDict
 from pydantic import BaseModel
 
 from ._model_base import ChatModelBase
+from ._model_stream import _ChatStreamBuilder
 from ._model_response import ChatResponse
 from ._model_usage import ChatUsage
 from .._logging import logger
-from .._utils._common import (
-    _json_loads_with_repair,
-    _create_tool_from_base_model,
-)
+from .._utils._common import _create_tool_from_base_model
+from .._utils._incremental_json import _IncrementalJSONParser
 from ..message import TextBlock, ToolUseBlock, ThinkingBlock
 from ..tracing import trace_llm
 from ..types._json import JSONSerializableObject
@@ -180,7 +179,7 @@ class AnthropicChatModel(ChatModelBase):
             kwargs["thinking"] = self.thinking
 
         if tools:
-            kwargs["tools"] = self._format_tools_json_schemas(tools)
+            kwargs["tools"] = self._format_tools_with_cache(tools)
 
         if tool_choice:
             self._validate_tool_choice(tool_choice, tools)
@@ -340,13 +339,10 @@ class AnthropicChatModel(ChatModelBase):
         """
 
         usage = None
-        text_buffer = ""
-        thinking_buffer = ""
         thinking_signature = ""
         tool_calls = OrderedDict()
-        tool_call_buffers = {}
-        res = None
         metadata = None
+        builder = _ChatStreamBuilder(self.stream_delta)
 
         async for event in response:
             content_changed = False
@@ -373,79 +369,74 @@ class AnthropicChatModel(ChatModelBase):
                         "type": "tool_use",
                         "id": tool_block.id,
                         "name": tool_block.name,
-                        "input": "",
+                        "parser": _IncrementalJSONParser(
+                            self.stream_tool_input,
+                        ),
                     }
-                    tool_call_buffers[block_index] = ""
                     content_changed = True
 
             elif event.type == "content_block_delta":
                 block_index = event.index
                 delta = event.delta
                 if delta.type == "text_delta":
-                    text_buffer += delta.text
+                    builder.add_text(delta.text)
                     content_changed = True
                 elif delta.type == "thinking_delta":
-                    thinking_buffer += delta.thinking
+                    builder.add_thinking(
+                        delta.thinking,
+                        signature=thinking_signature,
+                    )
                     thinking_changed = True
                 elif delta.type == "signature_delta":
                     thinking_signature = delta.signature
+                    builder.add_thinking(None, signature=thinking_signature)
                 elif (
                     delta.type == "input_json_delta"
                     and block_index in tool_calls
                 ):
-                    tool_call_buffers[block_index] += delta.partial_json or ""
-                    tool_calls[block_index]["input"] = tool_call_buffers[
-                        block_index
-                    ]
-                    content_changed = True
+                    content_changed = tool_calls[block_index][
+                        "parser"
+                    ].feed(delta.partial_json)
+
+            elif event.type == "content_block_stop":
+                if event.index in tool_calls:
+                    # Parse the complete tool call arguments once
+                    parser = tool_calls[event.index]["parser"]
+                    last_input = parser.value
+                    content_changed = parser.finish() != last_input
 
             elif event.type == "message_delta":
                 if event.usage and usage:
                     usage.output_tokens = event.usage.output_tokens
 
-            if (thinking_changed or content_changed) and usage:
-                contents: list = []
-                if thinking_buffer:
-                    thinking_block = ThinkingBlock(
-                        type="thinking",
-                        thinking=thinking_buffer,
-                    )
-                    thinking_block["signature"] = thinking_signature
-                    contents.append(thinking_block)
-                if text_buffer:
-                    contents.append(
-                        TextBlock(
-                            type="text",
-                            text=text_buffer,
-                        ),
-                    )
-                for block_index, tool_call in tool_calls.items():
-                    input_str = tool_call["input"]
-                    try:
-                        input_obj = _json_loads_with_repair(input_str or "{}")
-                        if not isinstance(input_obj, dict):
-                            input_obj = {}
-
-                    except Exception:
+            if content_changed and event.index in tool_calls:
+                tool_call = tool_calls[event.index]
+                try:
+                    input_obj = tool_call["parser"].value
+                    if not isinstance(input_obj, dict):
                         input_obj = {}
 
-                    contents.append(
-                        ToolUseBlock(
-                            type=tool_call["type"],
-                            id=tool_call["id"],
-                            name=tool_call["name"],
-                            input=input_obj,
-                        ),
-                    )
-                    if structured_model:
-                        metadata = input_obj
-                if contents:
-                    res = ChatResponse(
-                        content=contents,
-                        usage=usage,
-                        metadata=metadata,
-                    )
-                    yield res
+                except Exception:
+                    input_obj = {}
+
+                builder.set_tool_use(
+                    event.index,
+                    ToolUseBlock(
+                        type=tool_call["type"],
+                        id=tool_call["id"],
+                        name=tool_call["name"],
+                        input=input_obj,
+                    ),
+                )
+                if structured_model:
+                    metadata = input_obj
+
+            if (
+                (thinking_changed or content_changed)
+                and usage
+                and builder.has_content
+            ):
+                yield builder.build(usage, metadata)
 
     def _format_tools_json_schemas(
         self,
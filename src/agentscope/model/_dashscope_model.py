@@ -17,13 +17,15 @@ from pydantic import BaseModel
 from aioitertools import iter as giter
 
 from ._model_base import ChatModelBase
+from ._model_stream import _ChatStreamBuilder
 from ._model_response import ChatResponse
 from ._model_usage import ChatUsage
 from .._utils._common import (
     _json_loads_with_repair,
     _create_tool_from_base_model,
 )
-from ..message import TextBlock, ToolUseBlock, ThinkingBlock
+from .._utils._incremental_json import _IncrementalJSONParser
+from ..message import TextBlock, ToolUseBlock
 from ..tracing import trace_llm
 from ..types import JSONSerializableObject
 from .._logging import logger
@@ -170,7 +172,7 @@ class DashScopeChatModel(ChatModelBase):
         }
 
         if tools:
-            kwargs["tools"] = self._format_tools_json_schemas(tools)
+            kwargs["tools"] = self._format_tools_with_cache(tools)
 
         if tool_choice:
             self._validate_tool_choice(tool_choice, tools)
@@ -259,9 +261,10 @@ class DashScopeChatModel(ChatModelBase):
             If `structured_model` is not `None`, the expected structured output
             will be stored in the metadata of the `ChatResponse`.
         """
-        acc_content, acc_thinking_content = "", ""
         acc_tool_calls = collections.defaultdict(dict)
         metadata = None
+        usage = None
+        builder = _ChatStreamBuilder(self.stream_delta)
 
         async for chunk in giter(response):
             if chunk.status_code != HTTPStatus.OK:
@@ -273,15 +276,15 @@ class DashScopeChatModel(ChatModelBase):
 
             # Update reasoning content
             if isinstance(message.get("reasoning_content"), str):
-                acc_thinking_content += message["reasoning_content"]
+                builder.add_thinking(message["reasoning_content"])
 
             # Update text content
             if isinstance(message.content, str):
-                acc_content += message.content
+                builder.add_text(message.content)
             elif isinstance(message.content, list):
                 for item in message.content:
                     if isinstance(item, dict) and "text" in item:
-                        acc_content += item["text"]
+                        builder.add_text(item["text"])
 
             # Update tool calls
             for tool_call in message.get("tool_calls", []):
@@ -303,48 +306,21 @@ class DashScopeChatModel(ChatModelBase):
                         )
 
                     if "arguments" in func:
-                        acc_tool_calls[index]["arguments"] = (
-                            acc_tool_calls[index].get("arguments", "")
-                            + func["arguments"]
+                        if "parser" not in acc_tool_calls[index]:
+                            acc_tool_calls[index][
+                                "parser"
+                            ] = _IncrementalJSONParser(self.stream_tool_input)
+                        acc_tool_calls[index]["parser"].feed(
+                            func["arguments"],
                         )
 
-            # to content blocks
-            content_blocks: list[TextBlock | ToolUseBlock | ThinkingBlock] = []
-            if acc_thinking_content:
-                content_blocks.append(
-                    ThinkingBlock(
-                        type="thinking",
-                        thinking=acc_thinking_content,
-                    ),
-                )
-
-            if acc_content:
-                content_blocks.append(
-                    TextBlock(
-                        type="text",
-                        text=acc_content,
-                    ),
-                )
-
-            for tool_call in acc_tool_calls.values():
-                repaired_input = _json_loads_with_repair(
-                    tool_call.get("arguments", "{}") or "{}",
+                tool_use = self._set_stream_tool_use(
+                    builder,
+                    index,
+                    acc_tool_calls[index],
                 )
-
-                if not isinstance(repaired_input, dict):
-                    repaired_input = {}
-
-                content_blocks.append(
-                    ToolUseBlock(
-                        type="tool_use",
-                        id=tool_call.get("id", ""),
-                        name=tool_call.get("name", ""),
-                        input=repaired_input,
-                    ),
-                )
-
                 if structured_model:
-                    metadata = repaired_input
+                    metadata = tool_use["input"]
 
             usage = None
             if chunk.usage:
@@ -354,12 +330,47 @@ class DashScopeChatModel(ChatModelBase):
                     time=(datetime.now() - start_datetime).total_seconds(),
                 )
 
-            parsed_chunk = ChatResponse(
-                content=content_blocks,
-                usage=usage,
-                metadata=metadata,
-            )
-            yield parsed_chunk
+            yield builder.build(usage, metadata)
+
+        # Parse the complete tool call arguments once at the end
+        changed = False
+        for index, tool_call in acc_tool_calls.items():
+            parser = tool_call.get("parser")
+            if parser:
+                last_input = parser.value
+                if parser.finish() != last_input:
+                    tool_use = self._set_stream_tool_use(
+                        builder,
+                        index,
+                        tool_call,
+                    )
+                    if structured_model:
+                        metadata = tool_use["input"]
+                    changed = True
+
+        if changed:
+            yield builder.build(usage, metadata)
+
+    @staticmethod
+    def _set_stream_tool_use(
+        builder: _ChatStreamBuilder,
+        index: int,
+        tool_call: dict,
+    ) -> ToolUseBlock:
+        """Update the tool use block in the streaming response builder."""
+        parser = tool_call.get("parser")
+        tool_input = parser.value if parser else None
+        if not isinstance(tool_input, dict):
+            tool_input = {}
+
+        tool_use = ToolUseBlock(
+            type="tool_use",
+            id=tool_call.get("id", ""),
+            name=tool_call.get("name", ""),
+            input=tool_input,
+        )
+        builder.set_tool_use(index, tool_use)
+        return tool_use
 
     async def _parse_dashscope_generation_response(
         self,
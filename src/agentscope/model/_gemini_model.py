@@ -16,9 +16,11 @@ from pydantic import BaseModel
 
 from .._logging import logger
 from .._utils._common import _json_loads_with_repair
+from .._utils._incremental_json import _IncrementalJSONParser
 from ..message import ToolUseBlock, TextBlock, ThinkingBlock
 from ._model_usage import ChatUsage
 from ._model_base import ChatModelBase
+from ._model_stream import _ChatStreamBuilder
 from ._model_response import ChatResponse
 from ..tracing import trace_llm
 from ..types import JSONSerializableObject
@@ -135,7 +137,7 @@ class GeminiChatModel(ChatModelBase):
         }
 
         if tools:
-            config["tools"] = self._format_tools_json_schemas(tools)
+            config["tools"] = self._format_tools_with_cache(tools)
 
         if tool_choice:
             self._validate_tool_choice(tool_choice, tools)
@@ -215,12 +217,11 @@ class GeminiChatModel(ChatModelBase):
             will be stored in the metadata of the `ChatResponse`.
         """
 
-        text = ""
-        thinking = ""
         metadata = None
+        metadata_parser = _IncrementalJSONParser()
+        builder = _ChatStreamBuilder(self.stream_delta)
+        n_tool_calls = 0
         async for chunk in response:
-            content_block: list = []
-
             # Thinking parts
             if (
                 chunk.candidates
@@ -229,19 +230,19 @@ class GeminiChatModel(ChatModelBase):
             ):
                 for part in chunk.candidates[0].content.parts:
                     if part.thought and part.text:
-                        thinking += part.text
+                        builder.add_thinking(part.text)
 
             # Text parts
             if chunk.text:
-                text += chunk.text
-                if structured_model:
-                    metadata = _json_loads_with_repair(text)
+                builder.add_text(chunk.text)
+                if structured_model and metadata_parser.feed(chunk.text):
+                    metadata = metadata_parser.value
 
             # Function calls
-            tool_calls = []
             if chunk.function_calls:
                 for function_call in chunk.function_calls:
-                    tool_calls.append(
+                    builder.set_tool_use(
+                        n_tool_calls,
                         ToolUseBlock(
                             type="tool_use",
                             id=function_call.id,
@@ -249,6 +250,7 @@ class GeminiChatModel(ChatModelBase):
                             input=function_call.args or {},
                         ),
                     )
+                    n_tool_calls += 1
 
             usage = None
             if chunk.usage_metadata:
@@ -259,34 +261,7 @@ class GeminiChatModel(ChatModelBase):
                     time=(datetime.now() - start_datetime).total_seconds(),
                 )
 
-            if thinking:
-                content_block.append(
-                    ThinkingBlock(
-                        type="thinking",
-                        thinking=thinking,
-                    ),
-                )
-
-            if text:
-                content_block.append(
-                    TextBlock(
-                        type="text",
-                        text=text,
-                    ),
-                )
-
-            content_block.extend(
-                [
-                    *tool_calls,
-                ],
-            )
-
-            parsed_chunk = ChatResponse(
-                content=content_block,
-                usage=usage,
-                metadata=metadata,
-            )
-            yield parsed_chunk
+            yield builder.build(usage, metadata)
 
     def _parse_gemini_generation_response(
         self,
@@ -18,6 +18,18 @@ class ChatModelBase:
     stream: bool
     """Is the model output streaming or not"""
 
+    stream_tool_input: bool = True
+    """Whether to emit the partial tool call input in streaming mode. If
+    `False`, the tool use blocks carry an empty input until the tool call is
+    completed, and the arguments are parsed only once."""
+
+    stream_delta: bool = False
+    """Whether to yield the delta responses in streaming mode. If `True`,
+    each `ChatResponse` only carries the newly generated pieces together with
+    their block indices (`is_delta=True`), and `ChatResponseAccumulator` can
+    be used to materialize the full content. Otherwise, each chunk carries
+    the accumulated content so far."""
+
     def __init__(
         self,
         model_name: str,
@@ -42,6 +54,35 @@ class ChatModelBase:
     ) -> ChatResponse | AsyncGenerator[ChatResponse, None]:
         pass
 
+    def _format_tools_with_cache(self, tools: list[dict]) -> Any:
+        """Format the tools JSON schemas by `_format_tools_json_schemas`,
+        reusing the last result if the same cached schema list from
+        `Toolkit.get_json_schemas` is given again, e.g. in the reasoning
+        loop of the agent.
+
+        Args:
+            tools (`list[dict]`):
+                The tools JSON schemas.
+        """
+        # The cached schema lists are read-only and carry the toolkit
+        # version, so they can be identified by the object identity
+        version = getattr(tools, "version", None)
+        cached = self.__dict__.get("_formatted_tools")
+        if (
+            version is not None
+            and cached is not None
+            and cached[0] is tools
+            and cached[1] == version
+        ):
+            return cached[2]
+
+        formatted = self._format_tools_json_schemas(  # type: ignore
+            tools,
+        )
+        if version is not None:
+            self.__dict__["_formatted_tools"] = (tools, version, formatted)
+        return formatted
+
     def _validate_tool_choice(
         self,
         tool_choice: str,
@@ -37,3 +37,15 @@ class ChatResponse(DictMixin):
         default_factory=lambda: None,
     )
     """The metadata of the chat response"""
+
+    is_delta: bool = field(default_factory=lambda: False)
+    """If `True`, the `content` only carries the new pieces generated since
+    the previous chunk in streaming mode, rather than the accumulated
+    content. Use `ChatResponseAccumulator` to materialize the full
+    content."""
+
+    indices: list[int] | None = field(default_factory=lambda: None)
+    """The positions of the delta blocks in the accumulated content, only
+    available when `is_delta` is `True`. The text and thinking deltas are
+    appended to the block at the same position, while the other blocks
+    (e.g. tool use blocks with the partial input) replace it."""
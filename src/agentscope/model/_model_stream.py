@@ -0,0 +1,223 @@
+# -*- coding: utf-8 -*-
+"""The utilities to accumulate and build the streaming chat responses."""
+from typing import Any, Literal
+
+from ._model_response import ChatResponse
+from ._model_usage import ChatUsage
+from ..message import Msg, ToolUseBlock
+
+# The block types whose content is streamed as appended text deltas, mapped
+# to the field that holds the text
+_TEXT_FIELDS = {"text": "text", "thinking": "thinking"}
+
+
+class ChatResponseAccumulator:
+    """Accumulate the streaming chat responses into the full content.
+
+    Both the delta responses (`is_delta=True`) and the accumulated responses
+    are supported. For the delta responses, the text pieces are only joined
+    when the content is read, and only the blocks changed since the last read
+    are rebuilt, so the total cost stays linear in the output length.
+
+    .. code-block:: python
+        :caption: Example usage
+
+        accumulator = ChatResponseAccumulator()
+        async for chunk in await model(prompt):
+            accumulator.update(chunk)
+
+        msg = accumulator.to_msg("Friday")
+    """
+
+    def __init__(self) -> None:
+        """Initialize the accumulator."""
+        self._blocks: list[dict] = []
+        # The text pieces that are not joined into the blocks yet
+        self._pending: dict[int, list[str]] = {}
+        self._content: list[dict] | None = []
+
+        self.usage: ChatUsage | None = None
+        """The latest usage of the streaming response."""
+
+        self.metadata: Any = None
+        """The latest metadata of the streaming response."""
+
+    def update(self, response: ChatResponse) -> None:
+        """Merge a streaming chat response into the accumulated content.
+
+        Args:
+            response (`ChatResponse`):
+                The delta or accumulated chat response chunk.
+        """
+        if response.usage:
+            self.usage = response.usage
+        if response.metadata is not None:
+            self.metadata = response.metadata
+
+        if not response.is_delta:
+            self._blocks = list(response.content)
+            self._pending.clear()
+            self._content = None
+            return
+
+        for index, block in zip(response.indices, response.content):
+            if index >= len(self._blocks):
+                self._blocks.append(dict(block))
+
+            elif block["type"] in _TEXT_FIELDS:
+                field = _TEXT_FIELDS[block["type"]]
+                self._pending.setdefault(index, []).append(
+                    block.get(field, ""),
+                )
+                others = {k: v for k, v in block.items() if k != field}
+                if len(others) > 1:
+                    # Extra fields, e.g. the signature of thinking blocks
+                    self._blocks[index] = {**self._blocks[index], **others}
+
+            else:
+                self._blocks[index] = dict(block)
+
+        self._content = None
+
+    @property
+    def content(self) -> list[dict]:
+        """The accumulated content blocks."""
+        if self._content is None:
+            for index, pieces in self._pending.items():
+                block = self._blocks[index]
+                field = _TEXT_FIELDS[block["type"]]
+                # Create a new block rather than modifying the old one, which
+                # may be held by the consumers
+                self._blocks[index] = {
+                    **block,
+                    field: block.get(field, "") + "".join(pieces),
+                }
+            self._pending.clear()
+            self._content = list(self._blocks)
+        return self._content
+
+    def to_response(self) -> ChatResponse:
+        """Materialize the accumulated chat response."""
+        return ChatResponse(
+            content=self.content,
+            usage=self.usage,
+            metadata=self.metadata,
+        )
+
+    def to_msg(
+        self,
+        name: str,
+        role: Literal["user", "assistant", "system"] = "assistant",
+    ) -> Msg:
+        """Materialize the accumulated content into a message.
+
+        Args:
+            name (`str`):
+                The name of the message sender.
+            role (`Literal["user", "assistant", "system"]`, defaults to \
+            `"assistant"`):
+                The role of the message sender.
+        """
+        return Msg(
+            name,
+            list(self.content),
+            role,
+            metadata=self.metadata,
+        )
+
+
+class _ChatStreamBuilder:
+    """Build the streaming chat responses from the provider chunks, which is
+    shared by the chat model classes.
+
+    The provider parsers only push the new pieces into the builder. Then
+    the builder emits either the delta responses or, for backward
+    compatibility, the accumulated responses.
+    """
+
+    def __init__(self, delta: bool) -> None:
+        """Initialize the builder.
+
+        Args:
+            delta (`bool`):
+                Whether to build the delta responses.
+        """
+        self.delta = delta
+        self._accumulator = ChatResponseAccumulator()
+        # The block key, e.g. "text" or the tool call id, to its index
+        self._indices: dict[Any, int] = {}
+        # The changes since the last build
+        self._changes: dict[int, tuple[dict, list[str]]] = {}
+
+    @property
+    def has_content(self) -> bool:
+        """If any content block is generated."""
+        return len(self._indices) > 0
+
+    def add_text(self, text: str | None) -> None:
+        """Append a piece of text."""
+        if text:
+            self._append("text", text)
+
+    def add_thinking(
+        self,
+        thinking: str | None,
+        **extra: Any,
+    ) -> None:
+        """Append a piece of thinking, with extra fields (e.g. `signature`)
+        that replace the old ones."""
+        if thinking or (extra and "thinking" in self._indices):
+            self._append("thinking", thinking or "", **extra)
+
+    def set_tool_use(self, key: Any, block: ToolUseBlock) -> None:
+        """Set or replace the tool use block identified by `key`."""
+        index = self._get_index(("tool_use", key))
+        self._changes[index] = (block, [])
+
+    def build(
+        self,
+        usage: ChatUsage | None = None,
+        metadata: Any = None,
+    ) -> ChatResponse:
+        """Build a chat response from the changes since the last build."""
+        content, indices = [], []
+        for index, (block, pieces) in sorted(self._changes.items()):
+            if pieces:
+                field = _TEXT_FIELDS[block["type"]]
+                block = {**block, field: "".join(pieces)}
+            content.append(block)
+            indices.append(index)
+        self._changes = {}
+
+        delta = ChatResponse(
+            content=content,
+            usage=usage,
+            metadata=metadata,
+            is_delta=True,
+            indices=indices,
+        )
+        if self.delta:
+            return delta
+
+        self._accumulator.update(delta)
+        return ChatResponse(
+            content=self._accumulator.content,
+            usage=usage,
+            metadata=metadata,
+        )
+
+    def _append(self, block_type: str, piece: str, **extra: Any) -> None:
+        """Append a text piece to the text or thinking block."""
+        index = self._get_index(block_type)
+        if index not in self._changes:
+            self._changes[index] = ({"type": block_type}, [])
+        block, pieces = self._changes[index]
+        if extra:
+            block.update(extra)
+        pieces.append(piece)
+
+    def _get_index(self, key: Any) -> int:
+        """Get the index of the block identified by the given key."""
+        if key not in self._indices:
+            self._indices[key] = len(self._indices)
+        return self._indices[key]
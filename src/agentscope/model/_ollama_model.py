@@ -10,15 +10,16 @@ from typing import (
     Literal,
     Type,
 )
-from collections import OrderedDict
 
 from pydantic import BaseModel
 
 from . import ChatResponse
 from ._model_base import ChatModelBase
+from ._model_stream import _ChatStreamBuilder
 from ._model_usage import ChatUsage
 from .._logging import logger
 from .._utils._common import _json_loads_with_repair
+from .._utils._incremental_json import _IncrementalJSONParser
 from ..message import ToolUseBlock, TextBlock, ThinkingBlock
 from ..tracing import trace_llm
 
@@ -137,7 +138,7 @@ class OllamaChatModel(ChatModelBase):
             kwargs["think"] = self.think
 
         if tools:
-            kwargs["tools"] = self._format_tools_json_schemas(tools)
+            kwargs["tools"] = self._format_tools_with_cache(tools)
 
         if tool_choice:
             logger.warning("Ollama does not support tool_choice yet, ignored.")
@@ -192,61 +193,32 @@ class OllamaChatModel(ChatModelBase):
             will be stored in the metadata of the `ChatResponse`.
 
         """
-        accumulated_text = ""
-        acc_thinking_content = ""
-        tool_calls = OrderedDict()  # Store tool calls
         metadata = None
+        metadata_parser = _IncrementalJSONParser()
+        builder = _ChatStreamBuilder(self.stream_delta)
 
         async for chunk in response:
             # Handle text content
             msg = chunk.message
-            acc_thinking_content += msg.thinking or ""
-            accumulated_text += msg.content or ""
+            builder.add_thinking(msg.thinking)
+            builder.add_text(msg.content)
+            if structured_model and metadata_parser.feed(msg.content):
+                metadata = metadata_parser.value
 
             # Handle tool calls
             for idx, tool_call in enumerate(msg.tool_calls or []):
                 function = tool_call.function
                 tool_id = f"{idx}_{function.name}"
-                tool_calls[tool_id] = {
-                    "type": "tool_use",
-                    "id": tool_id,
-                    "name": function.name,
-                    "input": function.arguments,
-                }
-            # Calculate usage statistics
-            current_time = (datetime.now() - start_datetime).total_seconds()
-            usage = ChatUsage(
-                input_tokens=getattr(chunk, "prompt_eval_count", 0) or 0,
-                output_tokens=getattr(chunk, "eval_count", 0) or 0,
-                time=current_time,
-            )
-            # Create content blocks
-            contents: list = []
-
-            if acc_thinking_content:
-                contents.append(
-                    ThinkingBlock(
-                        type="thinking",
-                        thinking=acc_thinking_content,
-                    ),
-                )
-
-            if accumulated_text:
-                contents.append(TextBlock(type="text", text=accumulated_text))
-                if structured_model:
-                    metadata = _json_loads_with_repair(accumulated_text)
-
-            # Add tool call blocks
-            for tool_call in tool_calls.values():
                 try:
-                    input_data = tool_call["input"]
+                    input_data = function.arguments
                     if isinstance(input_data, str):
                         input_data = _json_loads_with_repair(input_data)
-                    contents.append(
+                    builder.set_tool_use(
+                        tool_id,
                         ToolUseBlock(
-                            type=tool_call["type"],
-                            id=tool_call["id"],
-                            name=tool_call["name"],
+                            type="tool_use",
+                            id=tool_id,
+                            name=function.name,
                             input=input_data,
                         ),
                     )
@@ -254,13 +226,17 @@ class OllamaChatModel(ChatModelBase):
                     print(f"Error parsing tool call input: {e}")
 
             # Generate response when there's new content or at final chunk
-            if chunk.done and contents:
-                res = ChatResponse(
-                    content=contents,
-                    usage=usage,
-                    metadata=metadata,
+            if chunk.done and builder.has_content:
+                # Calculate usage statistics
+                current_time = (
+                    datetime.now() - start_datetime
+                ).total_seconds()
+                usage = ChatUsage(
+                    input_tokens=getattr(chunk, "prompt_eval_count", 0) or 0,
+                    output_tokens=getattr(chunk, "eval_count", 0) or 0,
+                    time=current_time,
                 )
-                yield res
+                yield builder.build(usage, metadata)
 
     async def _parse_ollama_completion_response(
         self,
@@ -16,9 +16,11 @@ from pydantic import BaseModel
 
 from . import ChatResponse
 from ._model_base import ChatModelBase
+from ._model_stream import _ChatStreamBuilder
 from ._model_usage import ChatUsage
 from .._logging import logger
 from .._utils._common import _json_loads_with_repair
+from .._utils._incremental_json import _IncrementalJSONParser
 from ..message import ToolUseBlock, TextBlock, ThinkingBlock
 from ..tracing import trace_llm
 from ..types import JSONSerializableObject
@@ -159,7 +161,7 @@ class OpenAIChatModel(ChatModelBase):
             kwargs["reasoning_effort"] = self.reasoning_effort
 
         if tools:
-            kwargs["tools"] = self._format_tools_json_schemas(tools)
+            kwargs["tools"] = self._format_tools_with_cache(tools)
 
         if tool_choice:
             self._validate_tool_choice(tool_choice, tools)
@@ -238,11 +240,11 @@ class OpenAIChatModel(ChatModelBase):
             If `structured_model` is not `None`, the expected structured output
             will be stored in the metadata of the `ChatResponse`.
         """
-        usage, res = None, None
-        text = ""
-        thinking = ""
+        usage = None
         tool_calls = OrderedDict()
         metadata = None
+        metadata_parser = _IncrementalJSONParser()
+        builder = _ChatStreamBuilder(self.stream_delta)
 
         async with response as stream:
             async for item in stream:
@@ -263,68 +265,85 @@ class OpenAIChatModel(ChatModelBase):
                 if chunk.choices:
                     choice = chunk.choices[0]
 
-                    thinking += (
-                        getattr(choice.delta, "reasoning_content", None) or ""
+                    thinking_delta = getattr(
+                        choice.delta,
+                        "reasoning_content",
+                        None,
                     )
-                    text += choice.delta.content or ""
+                    text_delta = choice.delta.content
+                    builder.add_thinking(thinking_delta)
+                    builder.add_text(text_delta)
+                    changed = bool(thinking_delta or text_delta)
 
-                    for tool_call in choice.delta.tool_calls or []:
-                        if tool_call.index in tool_calls:
-                            if tool_call.function.arguments is not None:
-                                tool_calls[tool_call.index][
-                                    "input"
-                                ] += tool_call.function.arguments
+                    if structured_model and metadata_parser.feed(text_delta):
+                        metadata = metadata_parser.value
 
-                        else:
+                    for tool_call in choice.delta.tool_calls or []:
+                        if tool_call.index not in tool_calls:
                             tool_calls[tool_call.index] = {
                                 "type": "tool_use",
                                 "id": tool_call.id,
                                 "name": tool_call.function.name,
-                                "input": tool_call.function.arguments or "",
-                            }
-
-                    contents: List[
-                        TextBlock | ToolUseBlock | ThinkingBlock
-                    ] = []
-
-                    if thinking:
-                        contents.append(
-                            ThinkingBlock(
-                                type="thinking",
-                                thinking=thinking,
-                            ),
-                        )
-
-                    if text:
-                        contents.append(
-                            TextBlock(
-                                type="text",
-                                text=text,
-                            ),
-                        )
-
-                        if structured_model:
-                            metadata = _json_loads_with_repair(text)
-
-                    for tool_call in tool_calls.values():
-                        contents.append(
-                            ToolUseBlock(
-                                type=tool_call["type"],
-                                id=tool_call["id"],
-                                name=tool_call["name"],
-                                input=_json_loads_with_repair(
-                                    tool_call["input"] or "{}",
+                                "parser": _IncrementalJSONParser(
+                                    self.stream_tool_input,
                                 ),
-                            ),
-                        )
-
-                    if contents:
-                        res = ChatResponse(
-                            content=contents,
-                            usage=usage,
-                            metadata=metadata,
-                        )
-                        yield res
+                            }
+                            self._set_stream_tool_use(
+                                builder,
+                                tool_call.index,
+                                tool_calls[tool_call.index],
+                            )
+                            changed = True
+
+                        if tool_calls[tool_call.index]["parser"].feed(
+                            tool_call.function.arguments,
+                        ):
+                            self._set_stream_tool_use(
+                                builder,
+                                tool_call.index,
+                                tool_calls[tool_call.index],
+                            )
+                            changed = True
+
+                    # Skip the chunks that change nothing, e.g. the
+                    # whitespaces between the JSON tokens
+                    if changed:
+                        yield builder.build(usage, metadata)
+
+        # Parse the complete tool call arguments once at the end
+        changed = False
+        for index, tool_call in tool_calls.items():
+            parser = tool_call["parser"]
+            last_input = parser.value
+            if parser.finish() != last_input:
+                self._set_stream_tool_use(builder, index, tool_call)
+                changed = True
+
+        if structured_model and metadata_parser.text:
+            final_metadata = metadata_parser.finish()
+            if final_metadata != metadata:
+                metadata = final_metadata
+                changed = True
+
+        if changed:
+            yield builder.build(usage, metadata)
+
+    @staticmethod
+    def _set_stream_tool_use(
+        builder: _ChatStreamBuilder,
+        index: int,
+        tool_call: dict,
+    ) -> None:
+        """Update the tool use block in the streaming response builder."""
+        builder.set_tool_use(
+            index,
+            ToolUseBlock(
+                type=tool_call["type"],
+                id=tool_call["id"],
+                name=tool_call["name"],
+                input=tool_call["parser"].value or {},
+            ),
+        )
 
     def _parse_openai_completion_response(
         self,
@@ -6,6 +6,7 @@ from collections import OrderedDict
 from dataclasses import dataclass
 from typing import Callable, Any, Optional
 
+from .. import _config
 from ..types import JSONSerializableObject
 
 
@@ -71,6 +72,15 @@ class StateModule:
 
         return state
 
+    async def wait_pending_writes(self) -> None:
+        """Wait for the writes of the module and its nested state modules
+        that run in background, e.g. the long-term memory recording of
+        `ReActAgent`. It's called by the sessions before saving the states,
+        and should be called before exiting if the event loop keeps running.
+        """
+        for module in self._module_dict.values():
+            await module.wait_pending_writes()
+
     def load_state_dict(self, state_dict: dict, strict: bool = True) -> None:
         """Load the state dictionary into the module.
 
@@ -120,8 +130,10 @@ class StateModule:
             custom_to_json (`Callable[[Any], JSONSerializableObject] | None`, \
             optional):
                 A custom function to convert the attribute to a
-                JSON-serializable format. If not provided, `json.dumps` will
-                be used.
+                JSON-serializable format. If not provided, the attribute
+                should be JSON serializable natively, which is checked by
+                `json.dumps` unless disabled by `agentscope.init(
+                validate_state=False)`.
             custom_from_json (`Callable[[JSONSerializableObject], Any] | None`\
             , defaults to `None`):
                 A custom function to convert the JSON dictionary back to the
@@ -129,7 +141,7 @@ class StateModule:
         """
         attr = getattr(self, attr_name)
 
-        if custom_to_json is None:
+        if custom_to_json is None and _config.validate_state:
             # Make sure the attribute is JSON serializable natively
             try:
                 json.dumps(attr)
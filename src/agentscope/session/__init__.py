@@ -3,8 +3,10 @@
 
 from ._session_base import SessionBase
 from ._json_session import JSONSession
+from ._sqlite_session import SQLiteSession
 
 __all__ = [
     "SessionBase",
     "JSONSession",
+    "SQLiteSession",
 ]
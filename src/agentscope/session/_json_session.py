@@ -1,16 +1,124 @@
 # -*- coding: utf-8 -*-
 """The JSON session class."""
-import json
+import asyncio
+import copy
 import os
+import tempfile
+from typing import Any
 
 from ._session_base import SessionBase
+from .._logging import logger
+from ..codec import CodecBase, JSONCodec
 from ..module import StateModule
 
+_SEQ_KEY = "__log_seq__"
+"""The key in the snapshot recording the last log entry merged into it."""
+
+
+def _diff_state(
+    old: Any,
+    new: Any,
+    path: list[str | int],
+    ops: list[dict],
+) -> None:
+    """Collect the operations that turn the old JSON state into the new one.
+    The appended list items are recorded as an `extend` operation, so that
+    adding messages into a memory only records the new messages."""
+    if isinstance(old, dict) and isinstance(new, dict):
+        for key, value in new.items():
+            if key not in old:
+                ops.append({"op": "set", "path": path + [key], "value": value})
+            elif old[key] != value:
+                _diff_state(old[key], value, path + [key], ops)
+        for key in old:
+            if key not in new:
+                ops.append({"op": "del", "path": path + [key]})
+
+    elif isinstance(old, list) and isinstance(new, list):
+        n_old = len(old)
+        if len(new) == n_old:
+            for i, (old_item, new_item) in enumerate(zip(old, new)):
+                if old_item != new_item:
+                    _diff_state(old_item, new_item, path + [i], ops)
+        elif len(new) > n_old and new[:n_old] == old:
+            ops.append({"op": "extend", "path": path, "values": new[n_old:]})
+        else:
+            ops.append({"op": "set", "path": path, "value": new})
+
+    elif old != new:
+        ops.append({"op": "set", "path": path, "value": new})
+
+
+def _apply_ops(state: dict, ops: list[dict]) -> None:
+    """Apply the operations collected by `_diff_state` to the state."""
+    for op in ops:
+        *parent_path, key = op["path"]
+        target = state
+        for _ in parent_path:
+            target = target[_]
+
+        if op["op"] == "set":
+            target[key] = op["value"]
+        elif op["op"] == "del":
+            target.pop(key, None)
+        elif op["op"] == "extend":
+            target[key].extend(op["values"])
+        else:
+            raise ValueError(f"Unknown operation {op['op']} in session log.")
+
+
+def _write_atomic(path: str, data: bytes) -> int:
+    """Write the data into a temp file and rename it to the target path,
+    returning the number of written bytes."""
+    fd, temp_path = tempfile.mkstemp(
+        prefix=f".{os.path.basename(path)}.",
+        suffix=".tmp",
+        dir=os.path.dirname(path),
+    )
+    try:
+        with os.fdopen(fd, "wb") as file:
+            file.write(data)
+            file.flush()
+            os.fsync(file.fileno())
+        os.replace(temp_path, path)
+    except BaseException:
+        if os.path.exists(temp_path):
+            os.remove(temp_path)
+        raise
+    return len(data)
+
 
 class JSONSession(SessionBase):
-    """The JSON session class."""
+    """The JSON session class, which stores the session state in a JSON
+    snapshot file and an append-only log file.
+
+    The first save writes the whole state into the snapshot, and the
+    following saves only append the changes since the last save (e.g. the
+    new messages in the memory) to the log, so that the cost of saving
+    scales with the changes rather than the whole history. Once the log
+    grows large enough, it's merged into the snapshot in background. All
+    writes are flushed to the disk by fsync, and the snapshot is replaced
+    atomically.
 
-    def __init__(self, session_id: str, save_dir: str) -> None:
+    The snapshot and the log entries are encoded in JSON by default, and
+    can be encoded by other codecs, e.g. `BinaryCodec` for a compact
+    format with the media data stored as raw bytes.
+    """
+
+    compact_ratio: float = 1.0
+    """The log is merged into the snapshot once its size exceeds the size
+    of the snapshot multiplied by this ratio"""
+
+    compact_min_bytes: int = 1 << 20
+    """The minimum size in bytes of the log to be merged into the
+    snapshot"""
+
+    def __init__(
+        self,
+        session_id: str,
+        save_dir: str,
+        codec: CodecBase | None = None,
+    ) -> None:
         """Initialize the JSON session class.
 
         Args:
@@ -18,52 +126,279 @@ class JSONSession(SessionBase):
                 The session id.
             save_dir (`str`):
                 The directory to save the session state.
+            codec (`CodecBase | None`, defaults to `None`):
+                The codec to encode the snapshot and the log entries. If not
+                given, `JSONCodec` is used.
         """
         super().__init__(session_id=session_id)
         self.save_dir = save_dir
+        self.codec = codec or JSONCodec()
+
+        # The last saved or loaded state, and the sequence number of its
+        # last log entry
+        self._state: dict | None = None
+        self._seq = 0
+        self._snapshot_size = 0
+        self._log_size = 0
+
+        self._lock = asyncio.Lock()
+        self._compact_task: asyncio.Task | None = None
 
     @property
     def save_path(self) -> str:
         """The path to save the session state."""
         os.makedirs(self.save_dir, exist_ok=True)
-        return os.path.join(self.save_dir, f"{self.session_id}.json")
+        return os.path.join(
+            self.save_dir,
+            f"{self.session_id}{self.codec.suffix}",
+        )
+
+    @property
+    def log_path(self) -> str:
+        """The path of the log of the state changes since the snapshot,
+        which is named after the codec as the snapshot."""
+        os.makedirs(self.save_dir, exist_ok=True)
+        return os.path.join(
+            self.save_dir,
+            f"{self.session_id}{self.codec.suffix}.log",
+        )
+
+    @property
+    def _compacting_path(self) -> str:
+        """The path of the log being merged into the snapshot."""
+        return self.log_path + ".compacting"
 
     async def save_session_state(
         self,
         **state_modules_mapping: StateModule,
     ) -> None:
-        """Load the state dictionary from a JSON file.
+        """Save the state dictionaries of the given state modules, only
+        appending the changes since the last save to the log.
 
         Args:
             **state_modules_mapping (`dict[str, StateModule]`):
                 A dictionary mapping of state module names to their instances.
         """
+        for state_module in state_modules_mapping.values():
+            await state_module.wait_pending_writes()
+
         state_dicts = {
             name: state_module.state_dict()
             for name, state_module in state_modules_mapping.items()
         }
-        with open(self.save_path, "w", encoding="utf-8") as file:
-            json.dump(state_dicts, file, ensure_ascii=False)
+
+        async with self._lock:
+            if self._state is None:
+                await self._wait_compaction()
+                self._state, _ = await asyncio.to_thread(self._read_state)
+
+            if not os.path.exists(self.save_path):
+                # The running compaction creates the snapshot
+                await self._wait_compaction()
+
+            if not os.path.exists(self.save_path):
+                # Write the whole state as the initial snapshot
+                data = self.codec.encode({**state_dicts, _SEQ_KEY: self._seq})
+                self._snapshot_size = await asyncio.to_thread(
+                    _write_atomic,
+                    self.save_path,
+                    data,
+                )
+                self._state = self.codec.decode(data)
+                self._state.pop(_SEQ_KEY)
+                return
+
+            ops: list[dict] = []
+            _diff_state(self._state, state_dicts, [], ops)
+            if not ops:
+                return
+
+            self._seq += 1
+            data = self.codec.encode({"seq": self._seq, "ops": ops})
+            self._log_size += await asyncio.to_thread(
+                self._append_log,
+                self.codec.frame(data),
+            )
+
+            # Apply the decoded copy, which doesn't share objects with the
+            # state modules
+            _apply_ops(self._state, self.codec.decode(data)["ops"])
+
+            if self._log_size > max(
+                self.compact_min_bytes,
+                self._snapshot_size * self.compact_ratio,
+            ):
+                self._start_compaction()
 
     async def load_session_state(
         self,
         **state_modules_mapping: StateModule,
     ) -> None:
-        """Get the state dictionary to be saved to a JSON file.
+        """Load the state dictionaries from the snapshot and the log.
 
         Args:
             state_modules_mapping (`list[StateModule]`):
                 The list of state modules to be loaded.
         """
+        async with self._lock:
+            await self._wait_compaction()
+            states, found = await asyncio.to_thread(self._read_state)
+            if not found:
+                raise ValueError(
+                    f"Failed to load session state for file {self.save_path} "
+                    "does not exist.",
+                )
+            self._state = states
+
+        for name, state_module in state_modules_mapping.items():
+            if name in states:
+                # The state module may modify the given dictionary
+                state_module.load_state_dict(copy.deepcopy(states[name]))
+
+    async def compact(self) -> None:
+        """Merge the log into the snapshot, after which the snapshot file
+        contains the whole saved state."""
+        async with self._lock:
+            await self._wait_compaction()
+            # The rotated log left by a crash is merged first if any
+            while os.path.exists(self._compacting_path) or os.path.exists(
+                self.log_path,
+            ):
+                self._start_compaction()
+                task, self._compact_task = self._compact_task, None
+                await task
+
+    def _read_state(self) -> tuple[dict, bool]:
+        """Read the snapshot and replay the logs, returning the state and if
+        any session file exists."""
+        state: dict = {}
+        seq = 0
+        found = False
         if os.path.exists(self.save_path):
-            with open(self.save_path, "r", encoding="utf-8") as file:
-                states = json.load(file)
+            found = True
+            with open(self.save_path, "rb") as file:
+                state = self.codec.decode(file.read())
+            seq = state.pop(_SEQ_KEY, 0)
+            self._snapshot_size = os.path.getsize(self.save_path)
 
-            for name, state_module in state_modules_mapping.items():
-                if name in states:
-                    state_module.load_state_dict(states[name])
-        else:
-            raise ValueError(
-                f"Failed to load session state for file {self.save_path} "
-                "does not exist.",
+        self._log_size = 0
+        for path in [self._compacting_path, self.log_path]:
+            if not os.path.exists(path):
+                continue
+            found = True
+            seq, valid_size = self._replay_log(path, state, seq)
+            if valid_size == 0 and os.path.getsize(path) > 0:
+                self._move_aside(path)
+            elif path == self.log_path:
+                if valid_size < os.path.getsize(path):
+                    # Drop the incomplete entry so that the new entries are
+                    # appended after the complete ones
+                    os.truncate(path, valid_size)
+                self._log_size = valid_size
+
+        self._seq = seq
+        return state, found
+
+    def _replay_log(
+        self,
+        path: str,
+        state: dict,
+        seq: int,
+    ) -> tuple[int, int]:
+        """Apply the log entries after `seq` to the state, and return the
+        sequence number of the last entry and the size of the complete
+        entries."""
+        valid_size = 0
+        with open(path, "rb") as file:
+            while True:
+                try:
+                    data = self.codec.read_frame(file)
+                    if data is None:
+                        break
+                    entry = self.codec.decode(data)
+                except ValueError:
+                    # A partially written entry due to a crash
+                    logger.warning(
+                        "Skip the incomplete entry in the session log %s.",
+                        path,
+                    )
+                    break
+                if entry["seq"] > seq:
+                    _apply_ops(state, entry["ops"])
+                    seq = entry["seq"]
+                valid_size = file.tell()
+        return seq, valid_size
+
+    def _append_log(self, data: bytes) -> int:
+        """Append the frame to the log, and return the number of bytes."""
+        with open(self.log_path, "ab") as file:
+            file.write(data)
+            file.flush()
+            os.fsync(file.fileno())
+        return len(data)
+
+    def _start_compaction(self) -> None:
+        """Rotate the log and merge it into the snapshot in background."""
+        if self._compact_task is not None and not self._compact_task.done():
+            return
+
+        # Merge the rotated log left by a crash first if any
+        if not os.path.exists(self._compacting_path):
+            if not os.path.exists(self.log_path):
+                return
+            os.replace(self.log_path, self._compacting_path)
+            self._log_size = 0
+
+        self._compact_task = asyncio.create_task(
+            asyncio.to_thread(self._compact_files),
+        )
+        self._compact_task.add_done_callback(self._on_compacted)
+
+    @staticmethod
+    def _on_compacted(task: asyncio.Task) -> None:
+        """Log the error of the compaction if any, which is retried at the
+        next compaction."""
+        if not task.cancelled() and task.exception() is not None:
+            logger.warning(
+                "Failed to compact the session log: %s",
+                task.exception(),
             )
+
+    def _compact_files(self) -> None:
+        """Merge the rotated log into the snapshot."""
+        state: dict = {}
+        seq = 0
+        if os.path.exists(self.save_path):
+            with open(self.save_path, "rb") as file:
+                state = self.codec.decode(file.read())
+            seq = state.pop(_SEQ_KEY, 0)
+
+        seq, valid_size = self._replay_log(self._compacting_path, state, seq)
+        self._snapshot_size = _write_atomic(
+            self.save_path,
+            self.codec.encode({**state, _SEQ_KEY: seq}),
+        )
+        if valid_size == 0 and os.path.getsize(self._compacting_path) > 0:
+            self._move_aside(self._compacting_path)
+        else:
+            os.remove(self._compacting_path)
+
+    @staticmethod
+    def _move_aside(path: str) -> None:
+        """Move the log whose first entry cannot be decoded, e.g. written by
+        another codec, aside rather than dropping it, so that it can be
+        recovered manually."""
+        logger.warning(
+            "Failed to decode the first entry of the session log %s, which "
+            "is moved to %s.corrupt.",
+            path,
+            path,
+        )
+        os.replace(path, path + ".corrupt")
+
+    async def _wait_compaction(self) -> None:
+        """Wait for the running compaction if any."""
+        task, self._compact_task = self._compact_task, None
+        if task is not None:
+            # The error is logged by the done callback
+            await asyncio.wait([task])
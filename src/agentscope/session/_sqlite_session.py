@@ -0,0 +1,551 @@
+# -*- coding: utf-8 -*-
+"""The SQLite session class."""
+import asyncio
+import copy
+import json
+import os
+import queue
+import sqlite3
+import threading
+from concurrent.futures import Future, InvalidStateError, ThreadPoolExecutor
+from dataclasses import dataclass, field
+from typing import Any, Callable
+
+from ._session_base import SessionBase
+from .._logging import logger
+from ..module import StateModule
+
+_ROWS_MARKER = {"__rows__": True}
+"""The placeholder of the list stored as rows in the module state."""
+
+_SCHEMA = """
+CREATE TABLE IF NOT EXISTS as_session_module (
+    session_id TEXT NOT NULL,
+    module TEXT NOT NULL,
+    state TEXT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (session_id, module)
+) WITHOUT ROWID;
+CREATE TABLE IF NOT EXISTS as_session_item (
+    session_id TEXT NOT NULL,
+    module TEXT NOT NULL,
+    path TEXT NOT NULL,
+    idx INTEGER NOT NULL,
+    data TEXT NOT NULL,
+    PRIMARY KEY (session_id, module, path, idx)
+) WITHOUT ROWID;
+"""
+
+_Statement = tuple[str, Any, bool]
+"""The SQL, the parameters, and whether to execute it with many parameter
+sets."""
+
+
+def _split_state(
+    state: dict,
+    path: tuple[str, ...] = (),
+    items: dict[str, list] | None = None,
+) -> tuple[dict, dict[str, list]]:
+    """Split the lists of objects (e.g. the messages in memory) out of the
+    state, which are stored as rows.
+
+    Returns:
+        `tuple[dict, dict[str, list]]`:
+            The state with the lists replaced by placeholders, and the lists
+            keyed by their JSON-encoded paths.
+    """
+    items = {} if items is None else items
+    doc = {}
+    for key, value in state.items():
+        if isinstance(value, dict):
+            doc[key], _ = _split_state(value, path + (key,), items)
+        elif (
+            isinstance(value, list)
+            and value
+            and all(isinstance(_, dict) for _ in value)
+        ):
+            items[json.dumps(path + (key,))] = value
+            doc[key] = _ROWS_MARKER
+        else:
+            doc[key] = value
+    return doc, items
+
+
+def _merge_state(doc: dict, items: dict[str, list]) -> dict:
+    """Put the lists loaded from the rows back into the state."""
+    for path_str, values in items.items():
+        *parent_path, key = json.loads(path_str)
+        target = doc
+        for _ in parent_path:
+            target = target.setdefault(_, {})
+        target[key] = values
+    return doc
+
+
+@dataclass
+class _ModuleCache:
+    """The last saved or loaded state of a module, to save the changes
+    only."""
+
+    state: str
+    """The JSON-encoded state without the lists stored as rows"""
+
+    items: dict[str, tuple[int, list | None]] = field(default_factory=dict)
+    """The lists stored as rows keyed by their paths, with the index of the
+    first item, which isn't zero after a partial load. The list is `None` if
+    the rows are unknown, e.g. after a failed write."""
+
+
+def _set_future(future: Future, error: Exception | None = None) -> None:
+    """Set the result or the error of the future if it's not done."""
+    try:
+        if error is None:
+            future.set_result(None)
+        else:
+            future.set_exception(error)
+    except InvalidStateError:
+        logger.warning("The result of the SQLite write is discarded.")
+
+
+class _SQLiteStore:
+    """A SQLite database shared by the sessions in the process, with a
+    writer thread committing the writes of multiple sessions in one
+    transaction, and a pool of reader threads."""
+
+    _stores: dict[str, "_SQLiteStore"] = {}
+    _stores_lock = threading.Lock()
+
+    def __init__(self, db_path: str, max_readers: int) -> None:
+        """Initialize the store and create the tables."""
+        self.db_path = db_path
+        self._writes: queue.SimpleQueue = queue.SimpleQueue()
+        self._readers = ThreadPoolExecutor(
+            max_readers,
+            thread_name_prefix="as_sqlite_reader",
+        )
+        self._local = threading.local()
+
+        conn = self._connect()
+        # WAL mode allows the readers to run concurrently with the writer
+        conn.execute("PRAGMA journal_mode=WAL")
+        conn.executescript(_SCHEMA)
+        conn.close()
+
+        self._writer = threading.Thread(
+            target=self._write_loop,
+            name="as_sqlite_writer",
+            daemon=True,
+        )
+        self._writer.start()
+
+    @classmethod
+    def get(cls, db_path: str, max_readers: int = 4) -> "_SQLiteStore":
+        """Get the shared store of the database file."""
+        db_path = os.path.abspath(db_path)
+        with cls._stores_lock:
+            if db_path not in cls._stores:
+                cls._stores[db_path] = cls(db_path, max_readers)
+            return cls._stores[db_path]
+
+    def _connect(self) -> sqlite3.Connection:
+        """Create a connection in autocommit mode."""
+        conn = sqlite3.connect(
+            self.db_path,
+            timeout=30,
+            isolation_level=None,
+            check_same_thread=False,
+        )
+        conn.execute("PRAGMA synchronous=NORMAL")
+        return conn
+
+    async def write(self, statements: list[_Statement]) -> None:
+        """Execute the statements in a transaction, which may be committed
+        together with the writes of other sessions."""
+        future: Future = Future()
+        self._writes.put((statements, future))
+        await asyncio.wrap_future(future)
+
+    async def read(self, func: Callable[[sqlite3.Connection], Any]) -> Any:
+        """Run the read function in a reader thread with its connection."""
+        return await asyncio.wrap_future(
+            self._readers.submit(self._read, func),
+        )
+
+    def _read(self, func: Callable[[sqlite3.Connection], Any]) -> Any:
+        """Run the read function in a read transaction."""
+        conn = getattr(self._local, "conn", None)
+        if conn is None:
+            conn = self._local.conn = self._connect()
+        conn.execute("BEGIN")
+        try:
+            return func(conn)
+        finally:
+            conn.execute("COMMIT")
+
+    def _write_loop(self) -> None:
+        """Commit the queued writes in batches, which never exits so that
+        the writes of all the sessions keep going."""
+        conn = self._connect()
+        while True:
+            batch = [self._writes.get()]
+            while not self._writes.empty():
+                batch.append(self._writes.get_nowait())
+
+            try:
+                self._write_batch(conn, batch)
+            except Exception as e:
+                logger.error("Failed to write the SQLite database: %s", e)
+                for _, future in batch:
+                    if not future.done():
+                        _set_future(future, e)
+
+    def _write_batch(
+        self,
+        conn: sqlite3.Connection,
+        batch: list[tuple[list[_Statement], Future]],
+    ) -> None:
+        """Commit the writes in one transaction if possible, and set the
+        results of their futures."""
+        # Skip the writes cancelled before being committed, and the others
+        # can't be cancelled since then
+        batch = [_ for _ in batch if _[1].set_running_or_notify_cancel()]
+        if not batch:
+            return
+
+        try:
+            self._commit(conn, batch)
+        except Exception:
+            # Commit the writes separately so that a failed one doesn't
+            # fail the others
+            for write in batch:
+                try:
+                    self._commit(conn, [write])
+                    _set_future(write[1])
+                except Exception as e:
+                    _set_future(write[1], e)
+            return
+
+        for _, future in batch:
+            _set_future(future)
+
+    @staticmethod
+    def _commit(
+        conn: sqlite3.Connection,
+        batch: list[tuple[list[_Statement], Future]],
+    ) -> None:
+        """Execute the writes in one transaction."""
+        conn.execute("BEGIN IMMEDIATE")
+        try:
+            for statements, _ in batch:
+                for sql, params, many in statements:
+                    if many:
+                        conn.executemany(sql, params)
+                    else:
+                        conn.execute(sql, params)
+            conn.execute("COMMIT")
+        except BaseException:
+            conn.execute("ROLLBACK")
+            raise
+
+
+class SQLiteSession(SessionBase):
+    """The session class storing the state in an embedded SQLite database,
+    which is designed for hosting a large number of sessions in one process.
+
+    - The state modules are stored in normalized tables, where the lists of
+      objects in the state (e.g. the messages in memory) are stored as one
+      row per item, and the rest of the state as one row per module.
+    - Saving only writes the changes since the last save or load, e.g. the
+      new messages in memory.
+    - The database I/O runs off the event loop, and the writes of the
+      concurrent sessions are committed in batches by a single writer
+      thread, while the readers run concurrently in the WAL mode.
+    - The last N items of the lists (e.g. the last N messages in memory)
+      can be loaded alone.
+
+    .. note:: Different from `JSONSession`, the state modules that are not
+     given in a save are kept in the database.
+
+    .. code-block:: python
+        :caption: Example usage
+
+        session = SQLiteSession("user_alice", db_path="./sessions.db")
+        await session.save_session_state(friday=agent)
+
+        # Load the last 20 messages only
+        await session.load_session_state(last_n=20, friday=agent)
+    """
+
+    def __init__(
+        self,
+        session_id: str,
+        db_path: str,
+        max_readers: int = 4,
+    ) -> None:
+        """Initialize the SQLite session.
+
+        Args:
+            session_id (`str`):
+                The session id.
+            db_path (`str`):
+                The path of the SQLite database file, which is shared by
+                the sessions.
+            max_readers (`int`, defaults to `4`):
+                The number of the reader threads of the database, which is
+                only used by the first session of the database.
+        """
+        super().__init__(session_id=session_id)
+        self.db_path = db_path
+        self._store = _SQLiteStore.get(db_path, max_readers)
+        self._cache: dict[str, _ModuleCache] = {}
+        self._lock = asyncio.Lock()
+
+    async def save_session_state(
+        self,
+        **state_modules_mapping: StateModule,
+    ) -> None:
+        """Save the state of the given state modules, only writing the
+        changes since the last save or load.
+
+        Args:
+            **state_modules_mapping (`dict[str, StateModule]`):
+                A dictionary mapping of state module names to their instances.
+        """
+        for state_module in state_modules_mapping.values():
+            await state_module.wait_pending_writes()
+
+        async with self._lock:
+            statements: list[_Statement] = []
+            new_cache = {}
+            for name, state_module in state_modules_mapping.items():
+                new_cache[name] = self._diff_module(
+                    name,
+                    state_module.state_dict(),
+                    statements,
+                )
+
+            if statements:
+                try:
+                    await self._store.write(statements)
+                except BaseException:
+                    # The write may have been committed or not, e.g. when
+                    # the save is cancelled
+                    self._invalidate_cache(list(new_cache))
+                    raise
+            self._cache.update(new_cache)
+
+    def _invalidate_cache(self, names: list[str]) -> None:
+        """Mark the cached states of the modules as unknown, so that they
+        are saved in full next time, except the items before the partially
+        loaded ones."""
+        for name in names:
+            cached = self._cache.get(name)
+            if cached is not None:
+                self._cache[name] = _ModuleCache(
+                    "",
+                    {
+                        path: (start, None)
+                        for path, (start, _) in cached.items.items()
+                    },
+                )
+
+    async def load_session_state(
+        self,
+        last_n: int | None = None,
+        **state_modules_mapping: StateModule,
+    ) -> None:
+        """Load the state of the given state modules.
+
+        Args:
+            last_n (`int | None`, optional):
+                Only load the last n items of the lists stored as rows, e.g.
+                the last n messages in memory. The older items are kept in
+                the database when saving the partially loaded modules.
+            **state_modules_mapping (`dict[str, StateModule]`):
+                A dictionary mapping of state module names to their instances.
+        """
+        rows = await self._store.read(
+            lambda conn: self._read_modules(
+                conn,
+                list(state_modules_mapping),
+                last_n,
+            ),
+        )
+        if rows is None:
+            raise ValueError(
+                f"Failed to load session state for session_id "
+                f"{self.session_id} does not exist.",
+            )
+
+        for name, state_module in state_modules_mapping.items():
+            if name not in rows:
+                continue
+            state_text, items = rows[name]
+            self._cache[name] = _ModuleCache(state_text, items)
+
+            state = _merge_state(
+                json.loads(state_text),
+                {path: values for path, (_, values) in items.items()},
+            )
+            # The state module may modify the given dictionary
+            state_module.load_state_dict(copy.deepcopy(state))
+
+    def _diff_module(
+        self,
+        name: str,
+        state: dict,
+        statements: list[_Statement],
+    ) -> _ModuleCache:
+        """Collect the statements to save the changes of the module state,
+        and return the new cache of the module."""
+        doc, items = _split_state(state)
+        state_text = json.dumps(doc, ensure_ascii=False)
+        cached = self._cache.get(name)
+        new_cache = _ModuleCache(state_text)
+
+        if cached is None or cached.state != state_text:
+            statements.append(
+                (
+                    "INSERT INTO as_session_module (session_id, module, state)"
+                    " VALUES (?, ?, ?) ON CONFLICT(session_id, module) DO "
+                    "UPDATE SET state = excluded.state, "
+                    "updated_at = CURRENT_TIMESTAMP",
+                    (self.session_id, name, state_text),
+                    False,
+                ),
+            )
+
+        # Remove the rows of the lists that no longer exist
+        if cached is None:
+            statements.append(
+                (
+                    "DELETE FROM as_session_item WHERE session_id = ? AND "
+                    "module = ? AND path NOT IN (SELECT value FROM "
+                    "json_each(?))",
+                    (self.session_id, name, json.dumps(list(items))),
+                    False,
+                ),
+            )
+        else:
+            # Keep the items before the partially loaded ones
+            statements.extend(
+                (
+                    "DELETE FROM as_session_item WHERE session_id = ? AND "
+                    "module = ? AND path = ? AND idx >= ?",
+                    (self.session_id, name, path, start),
+                    False,
+                )
+                for path, (start, _) in cached.items.items()
+                if path not in items
+            )
+
+        for path, values in items.items():
+            start, old_values = (
+                cached.items.get(path, (0, None)) if cached else (0, None)
+            )
+            if old_values is not None and values[: len(old_values)] == (
+                old_values
+            ):
+                # Only insert the appended items
+                new_values = values[len(old_values) :]
+                first_idx = start + len(old_values)
+            else:
+                statements.append(
+                    (
+                        "DELETE FROM as_session_item WHERE session_id = ? AND"
+                        " module = ? AND path = ? AND idx >= ?",
+                        (self.session_id, name, path, start),
+                        False,
+                    ),
+                )
+                old_values, new_values, first_idx = [], values, start
+
+            texts = [json.dumps(_, ensure_ascii=False) for _ in new_values]
+            if texts:
+                statements.append(
+                    (
+                        "INSERT INTO as_session_item (session_id, module, "
+                        "path, idx, data) VALUES (?, ?, ?, ?, ?)",
+                        [
+                            (self.session_id, name, path, first_idx + i, text)
+                            for i, text in enumerate(texts)
+                        ],
+                        True,
+                    ),
+                )
+
+            # Cache the decoded copies, which don't share objects with the
+            # state module
+            new_cache.items[path] = (
+                start,
+                list(old_values) + [json.loads(_) for _ in texts],
+            )
+
+        return new_cache
+
+    def _read_modules(
+        self,
+        conn: sqlite3.Connection,
+        names: list[str],
+        last_n: int | None,
+    ) -> dict[str, tuple[str, dict[str, tuple[int, list]]]] | None:
+        """Read the states of the modules, or `None` if the session doesn't
+        exist."""
+        exists = conn.execute(
+            "SELECT 1 FROM as_session_module WHERE session_id = ? LIMIT 1",
+            (self.session_id,),
+        ).fetchone()
+        if exists is None:
+            return None
+
+        res = {}
+        for name in names:
+            row = conn.execute(
+                "SELECT state FROM as_session_module WHERE session_id = ? "
+                "AND module = ?",
+                (self.session_id, name),
+            ).fetchone()
+            if row is None:
+                continue
+
+            items: dict[str, tuple[int, list]] = {}
+            paths = conn.execute(
+                "SELECT DISTINCT path FROM as_session_item WHERE "
+                "session_id = ? AND module = ?",
+                (self.session_id, name),
+            ).fetchall()
+            for (path,) in paths:
+                item_rows = conn.execute(
+                    "SELECT idx, data FROM as_session_item WHERE "
+                    "session_id = ? AND module = ? AND path = ? "
+                    "ORDER BY idx DESC LIMIT ?",
+                    (
+                        self.session_id,
+                        name,
+                        path,
+                        -1 if last_n is None else last_n,
+                    ),
+                ).fetchall()
+                item_rows.reverse()
+                if item_rows:
+                    start = item_rows[0][0]
+                else:
+                    # None is loaded, so all the items are kept when saving
+                    (start,) = conn.execute(
+                        "SELECT MAX(idx) + 1 FROM as_session_item WHERE "
+                        "session_id = ? AND module = ? AND path = ?",
+                        (self.session_id, name, path),
+                    ).fetchone()
+                items[path] = (
+                    start,
+                    [json.loads(data) for _, data in item_rows],
+                )
+            res[name] = (row[0], items)
+
+        if not res and names:
+            logger.warning(
+                "None of the state modules %s is found in session %s.",
+                names,
+                self.session_id,
+            )
+        return res
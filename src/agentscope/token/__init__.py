@@ -1,7 +1,7 @@
 # -*- coding: utf-8 -*-
 """The token module in agentscope"""
 
-from ._token_base import TokenCounterBase
+from ._token_base import TokenCounterBase, TokenCacheInfo
 from ._gemini_token_counter import GeminiTokenCounter
 from ._openai_token_counter import OpenAITokenCounter
 from ._anthropic_token_counter import AnthropicTokenCounter
@@ -9,6 +9,7 @@ from ._huggingface_token_counter import HuggingFaceTokenCounter
 
 __all__ = [
     "TokenCounterBase",
+    "TokenCacheInfo",
     "GeminiTokenCounter",
     "OpenAITokenCounter",
     "AnthropicTokenCounter",
@@ -1,9 +1,12 @@
 # -*- coding: utf-8 -*-
 """The Anthropic token counter class."""
+from functools import partial
 from typing import Any
 
+from ._token_base import TokenCounterBase
 
-class AnthropicTokenCounter:
+
+class AnthropicTokenCounter(TokenCounterBase):
     """The Anthropic token counter class."""
 
     def __init__(self, model_name: str, api_key: str, **kwargs: Any) -> None:
@@ -40,9 +43,25 @@ class AnthropicTokenCounter:
             **kwargs (`Any`):
                 Additional keyword arguments for the token counting API.
         """
+        # The count of the whole request is cached, since the remote count
+        # is not the sum of the per-message counts
+        return await self._acount_with_cache(
+            [messages, tools, kwargs],
+            partial(self._count, messages, tools, **kwargs),
+        )
+
+    async def _count(
+        self,
+        messages: list[dict],
+        tools: list[dict] | None = None,
+        **kwargs: Any,
+    ) -> int:
+        """Count the number of tokens by the Anthropic token counting API."""
         system_message = None
-        if messages[0].get("role") == "system":
-            system_message = messages.pop(0)
+        if messages and messages[0].get("role") == "system":
+            # Not modify the input list, which may be held by the caller
+            system_message = messages[0]
+            messages = messages[1:]
 
         extra_kwargs: dict = {
             "model": self.model_name,
@@ -1,5 +1,7 @@
 # -*- coding: utf-8 -*-
 """The gemini token counter class in agentscope."""
+import asyncio
+from functools import partial
 from typing import Any
 
 from agentscope.token._token_base import TokenCounterBase
@@ -8,7 +10,13 @@ from agentscope.token._token_base import TokenCounterBase
 class GeminiTokenCounter(TokenCounterBase):
     """The Gemini token counter class."""
 
-    def __init__(self, model_name: str, api_key: str, **kwargs: Any) -> None:
+    def __init__(
+        self,
+        model_name: str,
+        api_key: str,
+        max_concurrency: int = 8,
+        **kwargs: Any,
+    ) -> None:
         """Initialize the Gemini token counter.
 
         Args:
@@ -16,6 +24,8 @@ class GeminiTokenCounter(TokenCounterBase):
                 The name of the Gemini model to use, e.g. "gemini-2.5-flash".
             api_key (`str`):
                 The API key for Google Gemini.
+            max_concurrency (`int`, defaults to `8`):
+                The maximum number of concurrent token counting requests.
             **kwargs:
                 Additional keyword arguments that will be passed to the
                 Gemini client.
@@ -27,6 +37,7 @@ class GeminiTokenCounter(TokenCounterBase):
             **kwargs,
         )
         self.model_name = model_name
+        self._semaphore = asyncio.Semaphore(max_concurrency)
 
     async def count(
         self,
@@ -35,7 +46,20 @@ class GeminiTokenCounter(TokenCounterBase):
         **config_kwargs: Any,
     ) -> int:
         """Count the number of tokens of gemini models."""
+        # The count of the whole request is cached, since the remote count
+        # is not the sum of the per-message counts
+        return await self._acount_with_cache(
+            [messages, tools, config_kwargs],
+            partial(self._count, messages, tools, **config_kwargs),
+        )
 
+    async def _count(
+        self,
+        messages: list[dict],
+        tools: list[dict] | None = None,
+        **config_kwargs: Any,
+    ) -> int:
+        """Count the number of tokens by the Gemini token counting API."""
         kwargs = {
             "model": self.model_name,
             "contents": messages,
@@ -45,6 +69,8 @@ class GeminiTokenCounter(TokenCounterBase):
             },
         }
 
-        res = self.client.models.count_tokens(**kwargs)
+        # Use the async client to avoid blocking the event loop
+        async with self._semaphore:
+            res = await self.client.aio.models.count_tokens(**kwargs)
 
         return res.total_tokens
@@ -1,9 +1,13 @@
 # -*- coding: utf-8 -*-
 """The huggingface token counter class."""
+import asyncio
 import os
-from typing import Any
+from concurrent.futures import ThreadPoolExecutor
+from functools import partial
+from typing import Any, Callable
 
 from agentscope.token._token_base import TokenCounterBase
+from .._utils._common import _get_content_hash
 
 
 class HuggingFaceTokenCounter(TokenCounterBase):
@@ -15,6 +19,7 @@ class HuggingFaceTokenCounter(TokenCounterBase):
         use_mirror: bool = False,
         use_fast: bool = False,
         trust_remote_code: bool = False,
+        max_concurrency: int = 1,
         **kwargs: Any,
     ) -> None:
         """Initialize the huggingface token counter.
@@ -30,6 +35,11 @@ class HuggingFaceTokenCounter(TokenCounterBase):
                 The argument that will be passed to the tokenizer.
             trust_remote_code (`bool`, defaults to `False`):
                 The argument that will be passed to the tokenizer.
+            max_concurrency (`int`, defaults to `1`):
+                The maximum number of tokenization jobs running concurrently
+                in the background threads, so that the event loop is not
+                blocked. Note the tokenizer may not be thread-safe, so be
+                careful when setting it larger than 1.
             **kwargs:
                 Additional keyword arguments that will be passed to the
                 tokenizer.
@@ -52,6 +62,11 @@ class HuggingFaceTokenCounter(TokenCounterBase):
                 f"transformers does not have chat template.",
             )
 
+        self._executor = ThreadPoolExecutor(
+            max_workers=max_concurrency,
+            thread_name_prefix="huggingface_token_counter",
+        )
+
     async def count(
         self,
         messages: list[dict],
@@ -69,15 +84,122 @@ class HuggingFaceTokenCounter(TokenCounterBase):
                 the token counting.
             **kwargs (`Any`):
                 The additional keyword arguments that will be passed to the
-                tokenizer, e.g. `chat_template`, `padding`, etc.
+                tokenizer, e.g. `chat_template`, `truncation`, etc. The
+                padding tokens are not counted.
         """
-        tokenized_msgs = self.tokenizer.apply_chat_template(
-            messages,
+        # The count of the whole request is cached, since the chat template
+        # may render the messages depending on their positions
+        return await self._acount_with_cache(
+            [messages, tools, kwargs],
+            partial(
+                self._run_in_executor,
+                self._count,
+                messages,
+                tools,
+                **kwargs,
+            ),
+        )
+
+    async def count_batch(
+        self,
+        messages_list: list[list[dict]],
+        tools: list[dict] | None = None,
+        **kwargs: Any,
+    ) -> list[int]:
+        """Count the number of tokens of multiple prompts, where the prompts
+        not cached are tokenized together in one background job.
+
+        Args:
+            messages_list (`list[list[dict]]`):
+                The list of prompts, each of which is a list of messages.
+            tools (`list[dict] | None`, defaults to `None`):
+                The JSON schema of the tools, which will also be involved in
+                the token counting.
+            **kwargs (`Any`):
+                The additional keyword arguments that will be passed to the
+                tokenizer.
+
+        Returns:
+            `list[int]`:
+                The number of tokens of each prompt, in the same order.
+        """
+        cache = self._get_count_cache()
+        keys = [_get_content_hash([_, tools, kwargs]) for _ in messages_list]
+
+        results: list[int | None] = [None] * len(messages_list)
+        if self.cache_size > 0:
+            results = [cache.get(key) for key in keys]
+
+        indices = [i for i, n_tokens in enumerate(results) if n_tokens is None]
+        if indices:
+            counts = await self._run_in_executor(
+                self._count_batch,
+                [messages_list[i] for i in indices],
+                tools,
+                **kwargs,
+            )
+            for i, n_tokens in zip(indices, counts):
+                results[i] = n_tokens
+                if self.cache_size > 0:
+                    cache.put(keys[i], n_tokens)
+
+        return results
+
+    async def _run_in_executor(
+        self,
+        func: Callable[..., Any],
+        *args: Any,
+        **kwargs: Any,
+    ) -> Any:
+        """Run the tokenization function in the background threads."""
+        loop = asyncio.get_running_loop()
+        return await loop.run_in_executor(
+            self._executor,
+            partial(func, *args, **kwargs),
+        )
+
+    async def close(self) -> None:
+        """Shut down the background threads after the running tokenization
+        jobs finish, after which the counter cannot count any more."""
+        await asyncio.to_thread(
+            self._executor.shutdown,
+            wait=True,
+            cancel_futures=True,
+        )
+
+    def _count(
+        self,
+        messages: list[dict],
+        tools: list[dict] | None = None,
+        **kwargs: Any,
+    ) -> int:
+        """Count the number of tokens by applying the chat template, in the
+        same way as `_count_batch` so that their cached counts agree."""
+        return self._count_batch([messages], tools, **kwargs)[0]
+
+    def _count_batch(
+        self,
+        messages_list: list[list[dict]],
+        tools: list[dict] | None = None,
+        **kwargs: Any,
+    ) -> list[int]:
+        """Count the number of tokens of multiple prompts by applying the
+        chat template in batch, where the padding tokens, e.g. added by the
+        `padding` argument, are excluded by the attention mask."""
+        # The prompts are returned as lists rather than tensors, since their
+        # lengths differ without padding
+        kwargs.pop("return_tensors", None)
+        kwargs.pop("return_dict", None)
+        encoded = self.tokenizer.apply_chat_template(
+            messages_list,
             add_generation_prompt=False,
             tokenize=True,
-            return_tensors="np",
+            return_dict=True,
             tools=tools,
             **kwargs,
-        )[0]
+        )
 
-        return len(tokenized_msgs)
+        masks = encoded.get("attention_mask")
+        if masks is None:
+            return [len(_) for _ in encoded["input_ids"]]
+        return [int(sum(_)) for _ in masks]
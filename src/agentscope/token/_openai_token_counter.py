@@ -3,10 +3,17 @@
 follows
 https://platform.openai.com/docs/guides/images-vision?api-mode=chat#calculating-costs
 """
+import asyncio
 import base64
+import binascii
+import hashlib
 import io
 import json
 import math
+import struct
+import threading
+from collections import OrderedDict
+from functools import partial
 from http import HTTPStatus
 from typing import Any
 
@@ -48,8 +55,110 @@ def _calculate_tokens_for_high_quality_image(
     return total_tokens
 
 
+# The number of the leading bytes used to parse the image size
+_IMAGE_HEADER_BYTES = 64 * 1024
+
+# The maximum number of cached image sizes
+_IMAGE_SIZE_CACHE_SIZE = 1024
+
+# The image sizes keyed by the web URL or the hash of the base64 data
+_image_size_cache: OrderedDict[str, tuple[int, int]] = OrderedDict()
+_image_size_cache_lock = threading.Lock()
+
+
+def _parse_image_size(data: bytes) -> tuple[int, int] | None:
+    """Parse the size of a PNG, GIF, WebP or JPEG image from its leading
+    bytes, without decoding the whole image.
+
+    Args:
+        data (`bytes`):
+            The leading bytes of the image.
+
+    Returns:
+        `tuple[int, int] | None`:
+            The width and height of the image, or `None` if the format is
+            not supported or the header is incomplete.
+    """
+    if data[:8] == b"\x89PNG\r\n\x1a\n" and len(data) >= 24:
+        # The IHDR chunk right after the signature
+        width, height = struct.unpack(">II", data[16:24])
+        return width, height
+
+    if data[:6] in (b"GIF87a", b"GIF89a") and len(data) >= 10:
+        width, height = struct.unpack("<HH", data[6:10])
+        return width, height
+
+    if data[:4] == b"RIFF" and data[8:12] == b"WEBP" and len(data) >= 30:
+        chunk = data[12:16]
+        if chunk == b"VP8X":
+            width = int.from_bytes(data[24:27], "little") + 1
+            height = int.from_bytes(data[27:30], "little") + 1
+            return width, height
+        if chunk == b"VP8 ":
+            width, height = struct.unpack("<HH", data[26:30])
+            return width & 0x3FFF, height & 0x3FFF
+        if chunk == b"VP8L":
+            bits = int.from_bytes(data[21:25], "little")
+            return (bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1
+        return None
+
+    if data[:2] == b"\xff\xd8":
+        # Walk through the JPEG segments until the start of frame
+        i = 2
+        while i + 9 <= len(data):
+            if data[i] != 0xFF:
+                return None
+            marker = data[i + 1]
+            if marker == 0xFF:
+                # Fill byte
+                i += 1
+                continue
+            if marker in (0x01, 0xD8) or 0xD0 <= marker <= 0xD7:
+                # Standalone markers without length
+                i += 2
+                continue
+            if 0xC0 <= marker <= 0xCF and marker not in (0xC4, 0xC8, 0xCC):
+                height, width = struct.unpack(">HH", data[i + 5 : i + 9])
+                return width, height
+            i += 2 + struct.unpack(">H", data[i + 2 : i + 4])[0]
+
+    return None
+
+
+def _get_image_size_by_pil(image_data: bytes) -> tuple[int, int]:
+    """Get the image size by PIL, which supports more image formats."""
+    from PIL import Image
+
+    image = Image.open(io.BytesIO(image_data))
+    width, height = image.size
+    return width, height
+
+
+def _get_web_image_bytes(url: str, n_bytes: int | None = None) -> bytes:
+    """Download the web image, or only its leading `n_bytes` bytes if the
+    server supports range requests.
+
+    Args:
+        url (`str`):
+            The web URL of the image.
+        n_bytes (`int | None`, optional):
+            The number of the leading bytes to download. If `None`, the
+            whole image is downloaded.
+    """
+    headers = {"Range": f"bytes=0-{n_bytes - 1}"} if n_bytes else None
+    response = None
+    for _ in range(3):
+        response = requests.get(url, headers=headers)
+        if response.status_code in (HTTPStatus.OK, HTTPStatus.PARTIAL_CONTENT):
+            break
+    response.raise_for_status()
+    return response.content
+
+
 def _get_size_of_image_url(url: str) -> tuple[int, int]:
-    """Get the size of an image from the given URL.
+    """Get the size of an image from the given URL. Only the header bytes
+    are parsed if possible, and the sizes are cached by the web URL or the
+    hash of the base64 data.
 
     Args:
         url (`str`):
@@ -61,22 +170,46 @@ def _get_size_of_image_url(url: str) -> tuple[int, int]:
     """
     if url.startswith("data:image/"):
         base64_data = url.split("base64,")[1]
-        image_data = base64.b64decode(base64_data)
+        key = hashlib.sha256(base64_data.encode("utf-8")).hexdigest()
+    else:
+        base64_data = None
+        key = url
+
+    with _image_size_cache_lock:
+        size = _image_size_cache.get(key)
+        if size is not None:
+            _image_size_cache.move_to_end(key)
+            return size
+
+    if base64_data is not None:
+        try:
+            # Only decode the leading characters, whose length is a multiple
+            # of 4
+            size = _parse_image_size(
+                base64.b64decode(base64_data[: _IMAGE_HEADER_BYTES // 3 * 4]),
+            )
+        except binascii.Error:
+            size = None
+
+        if size is None:
+            size = _get_image_size_by_pil(base64.b64decode(base64_data))
 
     else:
-        response = None
-        for _ in range(3):
-            response = requests.get(url)
-            if response.status_code == HTTPStatus.OK:
-                break
-        response.raise_for_status()
-        image_data = response.content
+        header = _get_web_image_bytes(url, _IMAGE_HEADER_BYTES)
+        size = _parse_image_size(header)
 
-    from PIL import Image
+        if size is None:
+            if len(header) >= _IMAGE_HEADER_BYTES:
+                # The header is truncated by the range request
+                header = _get_web_image_bytes(url)
+            size = _get_image_size_by_pil(header)
 
-    image = Image.open(io.BytesIO(image_data))
-    width, height = image.size
-    return width, height
+    with _image_size_cache_lock:
+        _image_size_cache[key] = size
+        while len(_image_size_cache) > _IMAGE_SIZE_CACHE_SIZE:
+            _image_size_cache.popitem(last=False)
+
+    return size
 
 
 def _get_base_and_tile_tokens(model_name: str) -> tuple[int, int]:
@@ -178,6 +311,7 @@ def _count_content_tokens_for_openai_vision_model(
     model_name: str,
     content: list[dict],
     encoding: Any,
+    image_sizes: dict[str, tuple[int, int]] | None = None,
 ) -> int:
     """Yield the number of tokens for the content of an OpenAI vision model.
     Implemented according to https://platform.openai.com/docs/guides/vision.
@@ -189,6 +323,8 @@ def _count_content_tokens_for_openai_vision_model(
             A list of dictionaries.
         encoding (`Any`):
             The encoding object.
+        image_sizes (`dict[str, tuple[int, int]] | None`, optional):
+            The pre-computed sizes of the images, keyed by the image URLs.
 
     Example:
         .. code-block:: python
@@ -229,7 +365,11 @@ def _count_content_tokens_for_openai_vision_model(
             )
 
         elif typ == "image_url":
-            width, height = _get_size_of_image_url(item["image_url"]["url"])
+            url = item["image_url"]["url"]
+            if image_sizes and url in image_sizes:
+                width, height = image_sizes[url]
+            else:
+                width, height = _get_size_of_image_url(url)
 
             # Different counting logic for different models
             if any(
@@ -331,48 +471,13 @@ class OpenAITokenCounter(TokenCounterBase):
         except KeyError:
             encoding = tiktoken.get_encoding("o200k_base")
 
-        tokens_per_message = 3
-        tokens_per_name = 1
-
         # every reply is primed with <|start|>assistant<|message|>
         num_tokens = 3
         for message in messages:
-            num_tokens += tokens_per_message
-            for key, value in message.items():
-                # Considering vision models
-                if key == "content" and isinstance(value, list):
-                    num_tokens += (
-                        _count_content_tokens_for_openai_vision_model(
-                            self.model_name,
-                            value,
-                            encoding,
-                        )
-                    )
-
-                elif isinstance(value, str):
-                    num_tokens += len(encoding.encode(value))
-
-                elif value is None:
-                    continue
-
-                elif key == "tool_calls":
-                    # TODO: This is only a temporary solution, since OpenAI
-                    # hasn't provided an official guide for counting tokens
-                    # with tool results.
-                    num_tokens += len(
-                        encoding.encode(
-                            json.dumps(value, ensure_ascii=False),
-                        ),
-                    )
-
-                else:
-                    raise TypeError(
-                        f"Invalid type {type(value)} in the {key} field: "
-                        f"{value}",
-                    )
-
-                if key == "name":
-                    num_tokens += tokens_per_name
+            num_tokens += await self._acount_with_cache(
+                message,
+                partial(self._count_message, message, encoding),
+            )
 
         if tools:
             num_tokens += _calculate_tokens_for_tools(
@@ -382,3 +487,74 @@ class OpenAITokenCounter(TokenCounterBase):
             )
 
         return num_tokens
+
+    async def _count_message(
+        self,
+        message: dict[str, Any],
+        encoding: Any,
+    ) -> int:
+        """Count the tokens of a single message, including the per-message
+        overhead.
+
+        Args:
+            message (`dict[str, Any]`):
+                The message dictionary.
+            encoding (`Any`):
+                The tiktoken encoding of the model.
+        """
+        tokens_per_message = 3
+        tokens_per_name = 1
+
+        # Get the image sizes in a background thread, so that downloading
+        # and decoding the images don't block the event loop
+        image_sizes = None
+        if isinstance(message.get("content"), list):
+            urls = [
+                _["image_url"]["url"]
+                for _ in message["content"]
+                if isinstance(_, dict) and _.get("type") == "image_url"
+            ]
+            if urls:
+                image_sizes = await asyncio.to_thread(
+                    lambda: {url: _get_size_of_image_url(url) for url in urls},
+                )
+
+        num_tokens = tokens_per_message
+        for key, value in message.items():
+            # Considering vision models
+            if key == "content" and isinstance(value, list):
+                num_tokens += (
+                    _count_content_tokens_for_openai_vision_model(
+                        self.model_name,
+                        value,
+                        encoding,
+                        image_sizes,
+                    )
+                )
+
+            elif isinstance(value, str):
+                num_tokens += len(encoding.encode(value))
+
+            elif value is None:
+                continue
+
+            elif key == "tool_calls":
+                # TODO: This is only a temporary solution, since OpenAI
+                # hasn't provided an official guide for counting tokens
+                # with tool results.
+                num_tokens += len(
+                    encoding.encode(
+                        json.dumps(value, ensure_ascii=False),
+                    ),
+                )
+
+            else:
+                raise TypeError(
+                    f"Invalid type {type(value)} in the {key} field: "
+                    f"{value}",
+                )
+
+            if key == "name":
+                num_tokens += tokens_per_name
+
+        return num_tokens
@@ -1,11 +1,83 @@
 # -*- coding: utf-8 -*-
 """The token base class in agentscope."""
+import asyncio
 from abc import abstractmethod
-from typing import Any
+from collections import OrderedDict
+from typing import Any, Callable, NamedTuple
+
+from .._utils._common import _get_content_hash
+
+
+class TokenCacheInfo(NamedTuple):
+    """The statistics of the token count cache."""
+
+    hits: int
+    """The number of cache hits"""
+
+    misses: int
+    """The number of cache misses"""
+
+    maxsize: int
+    """The maximum number of cached token counts"""
+
+    currsize: int
+    """The current number of cached token counts"""
+
+
+class _TokenCountCache:
+    """A LRU cache of the token counts, keyed by the content hashes."""
+
+    def __init__(self, maxsize: int) -> None:
+        """Initialize the token count cache.
+
+        Args:
+            maxsize (`int`):
+                The maximum number of cached token counts.
+        """
+        self.maxsize = maxsize
+        self.hits = 0
+        self.misses = 0
+        self._cache: OrderedDict[str, int] = OrderedDict()
+
+    def get(self, key: str) -> int | None:
+        """Get the cached token count, or `None` if missing."""
+        n_tokens = self._cache.get(key)
+        if n_tokens is None:
+            self.misses += 1
+        else:
+            self.hits += 1
+            self._cache.move_to_end(key)
+        return n_tokens
+
+    def put(self, key: str, n_tokens: int) -> None:
+        """Cache the token count, evicting the least recently used ones."""
+        if self.maxsize <= 0:
+            return
+        self._cache[key] = n_tokens
+        self._cache.move_to_end(key)
+        while len(self._cache) > self.maxsize:
+            self._cache.popitem(last=False)
+
+    def clear(self) -> None:
+        """Clear the cached token counts and the statistics."""
+        self._cache.clear()
+        self.hits = 0
+        self.misses = 0
 
 
 class TokenCounterBase:
-    """The base class for token counting."""
+    """The base class for token counting.
+
+    The token counts are cached by the content hashes with LRU eviction.
+    For the counters whose result is the sum of per-message counts and a
+    fixed overhead (e.g. `OpenAITokenCounter`), each message is cached
+    separately, so counting a growing conversation only counts the new
+    messages. For the others, the count of the whole request is cached.
+    """
+
+    cache_size: int = 4096
+    """The maximum number of cached token counts, which disables the cache
+    if set to 0"""
 
     @abstractmethod
     async def count(
@@ -14,3 +86,93 @@ class TokenCounterBase:
         **kwargs: Any,
     ) -> int:
         """Count the number of tokens by the given model and messages."""
+
+    async def count_batch(
+        self,
+        messages_list: list[list[dict]],
+        **kwargs: Any,
+    ) -> list[int]:
+        """Count the number of tokens of multiple prompts concurrently.
+
+        Args:
+            messages_list (`list[list[dict]]`):
+                The list of prompts, each of which is a list of messages.
+            **kwargs (`Any`):
+                The keyword arguments passed to `count`, e.g. `tools`.
+
+        Returns:
+            `list[int]`:
+                The number of tokens of each prompt, in the same order.
+        """
+        return list(
+            await asyncio.gather(
+                *[self.count(_, **kwargs) for _ in messages_list],
+            ),
+        )
+
+    def cache_info(self) -> TokenCacheInfo:
+        """Get the hit/miss statistics of the token count cache."""
+        cache = self._get_count_cache()
+        return TokenCacheInfo(
+            hits=cache.hits,
+            misses=cache.misses,
+            maxsize=cache.maxsize,
+            currsize=len(cache._cache),
+        )
+
+    def cache_clear(self) -> None:
+        """Clear the token count cache and its statistics."""
+        self._get_count_cache().clear()
+
+    def _get_count_cache(self) -> _TokenCountCache:
+        """Get the token count cache, which is created lazily so that the
+        subclasses don't need to call the base constructor."""
+        cache = self.__dict__.get("_count_cache")
+        if cache is None:
+            cache = _TokenCountCache(self.cache_size)
+            self.__dict__["_count_cache"] = cache
+        return cache
+
+    def _count_with_cache(
+        self,
+        obj: Any,
+        count_func: Callable[[], int],
+    ) -> int:
+        """Get the cached token count of the given object, or count it by
+        `count_func` and cache the result.
+
+        Args:
+            obj (`Any`):
+                The JSON-like object to be counted, e.g. a message or a whole
+                request, whose content hash is used as the cache key.
+            count_func (`Callable[[], int]`):
+                The function to count the tokens if not cached.
+        """
+        if self.cache_size <= 0:
+            return count_func()
+
+        cache = self._get_count_cache()
+        key = _get_content_hash(obj)
+        n_tokens = cache.get(key)
+        if n_tokens is None:
+            n_tokens = count_func()
+            cache.put(key, n_tokens)
+        return n_tokens
+
+    async def _acount_with_cache(
+        self,
+        obj: Any,
+        count_func: Callable[[], Any],
+    ) -> int:
+        """The async version of `_count_with_cache`, where `count_func`
+        returns an awaitable, e.g. a token counting API call."""
+        if self.cache_size <= 0:
+            return await count_func()
+
+        cache = self._get_count_cache()
+        key = _get_content_hash(obj)
+        n_tokens = cache.get(key)
+        if n_tokens is None:
+            n_tokens = await count_func()
+            cache.put(key, n_tokens)
+        return n_tokens
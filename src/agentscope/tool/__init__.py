@@ -5,6 +5,7 @@ from ._response import ToolResponse
 from ._coding import (
     execute_python_code,
     execute_shell_command,
+    PythonWorkerPool,
 )
 from ._text_file import (
     view_text_file,
@@ -29,6 +30,7 @@ __all__ = [
     "ToolResponse",
     "execute_python_code",
     "execute_shell_command",
+    "PythonWorkerPool",
     "view_text_file",
     "write_text_file",
     "insert_text_file",
@@ -6,6 +6,8 @@ TODO: handle the exception raised when yielding from async generator
  into a normal ToolResponse instance.
 """
 import asyncio
+import contextvars
+from concurrent.futures import Executor
 from typing import AsyncGenerator, Generator, Callable
 
 from ._response import ToolResponse
@@ -41,6 +43,73 @@ async def _sync_generator_wrapper(
         yield await _postprocess_tool_response(chunk, postprocess_func)
 
 
+async def _executor_generator(
+    sync_generator: Generator[ToolResponse, None, None],
+    executor: Executor,
+    timeout: float | None,
+) -> AsyncGenerator[ToolResponse, None]:
+    """Iterate a sync generator in the executor, so that each chunk is
+    generated off the event loop and yielded once it's ready.
+
+    If a chunk isn't generated within `timeout` seconds, a timeout message is
+    appended to the last chunk. If cancelled, the `CancelledError` is raised
+    to the caller, and the generator is closed once the running step
+    finishes, since a thread cannot be interrupted.
+    """
+    loop = asyncio.get_running_loop()
+    context = contextvars.copy_context()
+    sentinel = object()
+
+    last_chunk = None
+    while True:
+        future = executor.submit(context.run, next, sync_generator, sentinel)
+        try:
+            chunk = await asyncio.wait_for(
+                asyncio.wrap_future(future, loop=loop),
+                timeout,
+            )
+
+        except (asyncio.CancelledError, asyncio.TimeoutError) as e:
+            future.add_done_callback(
+                lambda _: _close_generator(sync_generator, executor, context),
+            )
+            if isinstance(e, asyncio.CancelledError):
+                raise
+
+            timeout_info = TextBlock(
+                type="text",
+                text=f"TimeoutError: No response from the tool function "
+                f"within {timeout} seconds.",
+            )
+            if last_chunk:
+                last_chunk.content.append(timeout_info)
+                last_chunk.is_last = True
+                yield last_chunk
+            else:
+                yield ToolResponse(content=[timeout_info], is_last=True)
+            return
+
+        if chunk is sentinel:
+            return
+
+        yield chunk
+        last_chunk = chunk
+
+
+def _close_generator(
+    sync_generator: Generator,
+    executor: Executor,
+    context: contextvars.Context,
+) -> None:
+    """Close the sync generator in the executor, which is called once its
+    running step (if any) finishes."""
+    try:
+        executor.submit(context.run, sync_generator.close)
+    except RuntimeError:
+        # The executor is already shut down
+        pass
+
+
 async def _async_generator_wrapper(
     async_func: AsyncGenerator[ToolResponse, None],
     postprocess_func: Callable[[ToolResponse], ToolResponse | None] | None,
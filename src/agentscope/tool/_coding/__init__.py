@@ -2,9 +2,11 @@
 """The coding-related tools module in agentscope."""
 
 from ._python import execute_python_code
+from ._python_pool import PythonWorkerPool
 from ._shell import execute_shell_command
 
 __all__ = [
     "execute_python_code",
     "execute_shell_command",
+    "PythonWorkerPool",
 ]
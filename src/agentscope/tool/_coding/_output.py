@@ -0,0 +1,242 @@
+# -*- coding: utf-8 -*-
+"""The bounded output capturing of the coding tools in agentscope."""
+import asyncio
+import os
+import signal
+import sys
+from typing import AsyncGenerator
+
+from ...message import TextBlock
+from .._response import ToolResponse
+
+_READ_SIZE = 65536
+"""The maximum number of bytes read from a pipe at once."""
+
+_STREAM_INTERVAL = 0.2
+"""The minimum interval in seconds between two streamed chunks."""
+
+_EXIT_GRACE = 1.0
+"""The seconds to wait for the remaining output once the process exits,
+since its background child processes may still hold the pipes."""
+
+
+class _BoundedOutput:
+    """The output of a stream, which keeps at most `max_bytes` bytes: the
+    head and the tail halves, with the middle part truncated."""
+
+    def __init__(self, max_bytes: int) -> None:
+        """Initialize the bounded output.
+
+        Args:
+            max_bytes (`int`):
+                The maximum number of bytes to keep.
+        """
+        self.head_size = max_bytes // 2
+        self.tail_size = max_bytes - self.head_size
+        self.total = 0
+
+        self._head = bytearray()
+        self._tail = bytearray()
+
+    def write(self, data: bytes) -> None:
+        """Append the data, dropping the middle part beyond the limit."""
+        self.total += len(data)
+
+        head_room = self.head_size - len(self._head)
+        if head_room > 0:
+            self._head += data[:head_room]
+            data = data[head_room:]
+
+        if data:
+            # Drop the oldest bytes like a ring buffer
+            self._tail += data
+            if len(self._tail) > self.tail_size:
+                del self._tail[: len(self._tail) - self.tail_size]
+
+    @property
+    def truncated(self) -> int:
+        """The number of the truncated bytes."""
+        return self.total - len(self._head) - len(self._tail)
+
+    def text(self) -> str:
+        """Decode the kept output, with a marker of the truncated bytes."""
+        head = self._head.decode("utf-8", errors="replace")
+        tail = self._tail.decode("utf-8", errors="replace")
+        if self.truncated:
+            return (
+                f"{head}\n...[{self.truncated} bytes truncated]...\n{tail}"
+            )
+        return head + tail
+
+
+def _read_bounded_file(path: str, max_bytes: int) -> str:
+    """Read the head and the tail of a file within `max_bytes` bytes."""
+    output = _BoundedOutput(max_bytes)
+    with open(path, "rb") as file:
+        output.write(file.read(output.head_size))
+        file.seek(0, 2)
+        size = file.tell()
+        start = max(output.head_size, size - output.tail_size)
+        file.seek(start)
+        # Count the skipped middle part without reading it
+        output.total += start - output.head_size
+        output.write(file.read())
+    return output.text()
+
+
+def _format_output(
+    stdout: str,
+    stderr: str,
+    returncode: int | None = None,
+) -> str:
+    """Format the output within the tags, and the return code if exited."""
+    text = f"<stdout>{stdout}</stdout><stderr>{stderr}</stderr>"
+    if returncode is None:
+        return text
+    return f"<returncode>{returncode}</returncode>{text}"
+
+
+async def _stream_process_output(
+    proc: asyncio.subprocess.Process,
+    timeout: float,
+    max_output_bytes: int,
+    output_budget: int | None,
+    target: str,
+) -> AsyncGenerator[ToolResponse, None]:
+    """Stream the accumulated output of the process as it arrives, keeping
+    at most `max_output_bytes` bytes of each stream.
+
+    The process is killed together with its child processes if it runs
+    longer than `timeout` seconds, or its total output exceeds
+    `output_budget` bytes, or the generator is closed, e.g. when the tool
+    call is interrupted.
+
+    Args:
+        proc (`asyncio.subprocess.Process`):
+            The process with the piped stdout and stderr, which is started
+            in a new session on POSIX so that its process group can be
+            killed.
+        timeout (`float`):
+            The maximum time (in seconds) allowed for the process to run.
+        max_output_bytes (`int`):
+            The maximum number of bytes kept of each stream.
+        output_budget (`int | None`):
+            The maximum number of output bytes of both streams, beyond which
+            the process is killed.
+        target (`str`):
+            The executed target in the error messages, e.g. "code" or
+            "command".
+    """
+    stdout = _BoundedOutput(max_output_bytes)
+    stderr = _BoundedOutput(max_output_bytes)
+    over_budget = asyncio.Event()
+
+    async def _read(
+        stream: asyncio.StreamReader,
+        output: _BoundedOutput,
+    ) -> None:
+        while data := await stream.read(_READ_SIZE):
+            output.write(data)
+            if (
+                output_budget is not None
+                and stdout.total + stderr.total > output_budget
+                and not over_budget.is_set()
+            ):
+                # Kill the process right away rather than at the next tick
+                over_budget.set()
+                _kill(proc)
+
+    readers = [
+        asyncio.create_task(_read(proc.stdout, stdout)),
+        asyncio.create_task(_read(proc.stderr, stderr)),
+    ]
+    waiter = asyncio.create_task(proc.wait())
+
+    loop = asyncio.get_running_loop()
+    deadline = loop.time() + timeout
+    n_streamed = 0
+    error = ""
+    try:
+        while True:
+            # The waiter is done once the process exits and the pipes close
+            await asyncio.wait(
+                [waiter],
+                timeout=min(_STREAM_INTERVAL, max(deadline - loop.time(), 0)),
+            )
+            n_total = stdout.total + stderr.total
+
+            if over_budget.is_set():
+                error = (
+                    f"OutputLimitError: The {target} output exceeded the "
+                    f"budget of {output_budget} bytes, and the {target} "
+                    f"execution was stopped."
+                )
+                break
+
+            if proc.returncode is not None:
+                break
+
+            if loop.time() >= deadline:
+                error = (
+                    f"TimeoutError: The {target} execution exceeded "
+                    f"the timeout of {timeout} seconds."
+                )
+                break
+
+            if n_total > n_streamed:
+                n_streamed = n_total
+                yield ToolResponse(
+                    content=[
+                        TextBlock(
+                            type="text",
+                            text=_format_output(stdout.text(), stderr.text()),
+                        ),
+                    ],
+                    stream=True,
+                    is_last=False,
+                )
+
+        if error:
+            _kill(proc)
+
+        # Wait for the remaining output in the pipes
+        _, pending = await asyncio.wait(readers, timeout=_EXIT_GRACE)
+        for task in pending:
+            task.cancel()
+
+        stderr_text = stderr.text()
+        if error:
+            stderr_text = f"{stderr_text}\n{error}" if stderr_text else error
+
+        yield ToolResponse(
+            content=[
+                TextBlock(
+                    type="text",
+                    text=_format_output(
+                        stdout.text(),
+                        stderr_text,
+                        -1 if error else proc.returncode,
+                    ),
+                ),
+            ],
+            stream=True,
+            is_last=True,
+        )
+
+    finally:
+        if proc.returncode is None:
+            _kill(proc)
+        for task in [*readers, waiter]:
+            if not task.done():
+                task.cancel()
+
+
+def _kill(proc: asyncio.subprocess.Process) -> None:
+    """Kill the process and its process group if still running."""
+    try:
+        if sys.platform == "win32":
+            proc.kill()
+        else:
+            os.killpg(proc.pid, signal.SIGKILL)
+    except (ProcessLookupError, PermissionError):
+        pass
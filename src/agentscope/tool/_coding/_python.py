@@ -6,22 +6,26 @@ import asyncio
 import os
 import sys
 import tempfile
-from typing import Any
+from contextlib import aclosing
+from typing import Any, AsyncGenerator
 
 import shortuuid
 
-from ...message import TextBlock
+from ... import _config
 from .._response import ToolResponse
+from ._output import _stream_process_output
 
 
 async def execute_python_code(
     code: str,
     timeout: float = 300,
     **kwargs: Any,
-) -> ToolResponse:
+) -> AsyncGenerator[ToolResponse, None]:
     """Execute the given python code in a temp file and capture the return
     code, standard output and error. Note you must `print` the output to get
     the result, and the tmp file will be removed right after the execution.
+    The output is streamed as it arrives, and the middle part of a long
+    output is truncated.
 
     Args:
         code (`str`):
@@ -30,9 +34,9 @@ async def execute_python_code(
             The maximum time (in seconds) allowed for the code to run.
 
     Returns:
-        `ToolResponse`:
-            The response containing the return code, standard output, and
-            standard error of the executed code.
+        `AsyncGenerator[ToolResponse, None]`:
+            The response chunks containing the accumulated standard output
+            and error, where the last one contains the return code.
     """
 
     with tempfile.TemporaryDirectory() as temp_dir:
@@ -46,41 +50,17 @@ async def execute_python_code(
             temp_file,
             stdout=asyncio.subprocess.PIPE,
             stderr=asyncio.subprocess.PIPE,
+            start_new_session=True,
         )
 
-        try:
-            await asyncio.wait_for(proc.wait(), timeout=timeout)
-            stdout, stderr = await proc.communicate()
-            stdout_str = stdout.decode("utf-8")
-            stderr_str = stderr.decode("utf-8")
-            returncode = proc.returncode
-
-        except asyncio.TimeoutError:
-            stderr_suffix = (
-                f"TimeoutError: The code execution exceeded "
-                f"the timeout of {timeout} seconds."
-            )
-            returncode = -1
-            try:
-                proc.terminate()
-                stdout, stderr = await proc.communicate()
-                stdout_str = stdout.decode("utf-8")
-                stderr_str = stderr.decode("utf-8")
-                if stderr_str:
-                    stderr_str += f"\n{stderr_suffix}"
-                else:
-                    stderr_str = stderr_suffix
-            except ProcessLookupError:
-                stdout_str = ""
-                stderr_str = stderr_suffix
-
-        return ToolResponse(
-            content=[
-                TextBlock(
-                    type="text",
-                    text=f"<returncode>{returncode}</returncode>"
-                    f"<stdout>{stdout_str}</stdout>"
-                    f"<stderr>{stderr_str}</stderr>",
-                ),
-            ],
-        )
+        async with aclosing(
+            _stream_process_output(
+                proc,
+                timeout,
+                _config.max_tool_output_bytes,
+                _config.tool_output_budget,
+                "code",
+            ),
+        ) as chunks:
+            async for chunk in chunks:
+                yield chunk
@@ -0,0 +1,469 @@
+# -*- coding: utf-8 -*-
+"""The pool of warm Python worker processes to execute Python code."""
+import asyncio
+import json
+import os
+import sys
+import tempfile
+from typing import Any
+
+import shortuuid
+
+from ...message import TextBlock
+from .._response import ToolResponse
+from ._output import _read_bounded_file
+from ..._logging import logger
+
+_WORKER_PATH = os.path.join(os.path.dirname(__file__), "_python_worker.py")
+
+
+class _PythonWorker:
+    """A warm Python worker process."""
+
+    def __init__(self, config: dict[str, Any]) -> None:
+        """Initialize the worker.
+
+        Args:
+            config (`dict[str, Any]`):
+                The configuration passed to the worker process, including
+                the preloaded modules and the resource limits.
+        """
+        self.config = config
+        self.runs = 0
+        self.rss = 0
+        self.alive = False
+        self._proc: asyncio.subprocess.Process | None = None
+
+    async def start(self) -> None:
+        """Start the worker process and wait until it's ready."""
+        self._proc = await asyncio.create_subprocess_exec(
+            sys.executable,
+            "-u",
+            _WORKER_PATH,
+            json.dumps(self.config),
+            stdin=asyncio.subprocess.PIPE,
+            stdout=asyncio.subprocess.PIPE,
+            stderr=asyncio.subprocess.DEVNULL,
+        )
+        try:
+            line = await self._proc.stdout.readline()
+        except BaseException:
+            # E.g. cancelled by the timeout or closing the pool
+            await self.close()
+            raise
+        if not line:
+            await self._proc.wait()
+            raise RuntimeError(
+                "Failed to start the Python worker, which exited with code "
+                f"{self._proc.returncode}.",
+            )
+        self.alive = True
+
+    async def run(
+        self,
+        code: str,
+        timeout: float,
+        max_output_bytes: int,
+        session_id: str | None = None,
+        wait_timeout: float | None = None,
+    ) -> tuple[int, str, str]:
+        """Execute the code in the worker, and return the return code,
+        standard output and standard error, keeping at most
+        `max_output_bytes` bytes of each. The worker is killed if the
+        execution exceeds the timeout, or `wait_timeout` if given, which
+        is the time left of the timeout after waiting for the worker."""
+        with tempfile.TemporaryDirectory() as temp_dir:
+            stdout_path = os.path.join(temp_dir, "stdout")
+            stderr_path = os.path.join(temp_dir, "stderr")
+            for path in (stdout_path, stderr_path):
+                with open(path, "wb"):
+                    pass
+
+            request = {
+                "code": code,
+                "filename": os.path.join(
+                    temp_dir,
+                    f"tmp_{shortuuid.uuid()}.py",
+                ),
+                "stdout": stdout_path,
+                "stderr": stderr_path,
+                "session_id": session_id,
+            }
+            self._proc.stdin.write((json.dumps(request) + "\n").encode())
+
+            stderr_suffix = ""
+            try:
+                await self._proc.stdin.drain()
+                line = await asyncio.wait_for(
+                    self._proc.stdout.readline(),
+                    timeout=timeout if wait_timeout is None else wait_timeout,
+                )
+                if line:
+                    result = json.loads(line)
+                    returncode, self.rss = result["returncode"], result["rss"]
+                else:
+                    # Killed, e.g. by exceeding the memory or CPU limits
+                    returncode = await self._proc.wait()
+                    self.alive = False
+
+            except asyncio.TimeoutError:
+                stderr_suffix = (
+                    f"TimeoutError: The code execution exceeded "
+                    f"the timeout of {timeout} seconds."
+                )
+                returncode = -1
+                await self.close()
+
+            except (BrokenPipeError, ConnectionResetError):
+                returncode = await self._proc.wait()
+                self.alive = False
+
+            except BaseException:
+                # E.g. cancelled by an interruption. The worker is killed,
+                # since its result line of the running code would be read
+                # by the next call
+                await self.close()
+                raise
+
+            self.runs += 1
+
+            stdout_str = _read_bounded_file(stdout_path, max_output_bytes)
+            stderr_str = _read_bounded_file(stderr_path, max_output_bytes)
+
+        if stderr_suffix:
+            if stderr_str:
+                stderr_str += f"\n{stderr_suffix}"
+            else:
+                stderr_str = stderr_suffix
+
+        return returncode, stdout_str, stderr_str
+
+    async def close(self) -> None:
+        """Kill the worker process."""
+        self.alive = False
+        if self._proc is None or self._proc.returncode is not None:
+            return
+        try:
+            self._proc.kill()
+        except ProcessLookupError:
+            pass
+        await self._proc.wait()
+
+
+class PythonWorkerPool:
+    """A pool of warm Python worker processes, which executes the Python
+    code without paying the interpreter startup and the module importing
+    cost for each call.
+
+    - The workers are started on demand or in advance by `start()`, with
+      the given modules preloaded.
+    - Each execution runs in a fresh namespace by default. With a session
+      id, the code runs in a dedicated worker (like a kernel) whose
+      namespace persists across the calls of the same session.
+    - The worker is killed if the execution exceeds the timeout, and the
+      virtual memory and the CPU time of each execution can be limited
+      (POSIX only).
+    - The workers are recycled after `max_runs` executions, or once their
+      resident memory exceeds `max_rss`, e.g. due to leaks.
+
+    .. note:: Different from `execute_python_code`, the executions in the
+     same worker share the interpreter state, e.g. the imported modules
+     and the environment variables, so it's not suitable for isolating
+     untrusted code from each other.
+
+    .. code-block:: python
+        :caption: Example usage
+
+        pool = PythonWorkerPool(size=4, preload_modules=["numpy"])
+        await pool.start()
+
+        toolkit.register_tool_function(pool.execute_python_code)
+        # Or bind a persistent session for an agent
+        toolkit.register_tool_function(
+            partial(pool.execute_python_code, session_id="Friday"),
+        )
+    """
+
+    def __init__(
+        self,
+        size: int = 2,
+        preload_modules: list[str] | None = None,
+        max_runs: int = 100,
+        max_rss: int | None = None,
+        max_memory: int | None = None,
+        max_cpu_time: float | None = None,
+        max_output_bytes: int = 32768,
+    ) -> None:
+        """Initialize the Python worker pool.
+
+        Args:
+            size (`int`, defaults to `2`):
+                The number of the shared workers, which doesn't include the
+                dedicated workers of the sessions.
+            preload_modules (`list[str] | None`, optional):
+                The modules imported when the workers start, e.g.
+                `["numpy", "pandas"]`.
+            max_runs (`int`, defaults to `100`):
+                The number of executions after which a shared worker is
+                replaced by a new one.
+            max_rss (`int | None`, optional):
+                The resident memory in bytes beyond which the worker is
+                replaced after the execution.
+            max_memory (`int | None`, optional):
+                The virtual memory limit in bytes of each worker.
+            max_cpu_time (`float | None`, optional):
+                The CPU time limit in seconds of each execution, beyond
+                which the worker is killed.
+            max_output_bytes (`int`, defaults to `32768`):
+                The maximum number of bytes kept of the standard output and
+                error respectively, whose middle part is truncated.
+        """
+        if size < 1:
+            raise ValueError(f"The pool size must be positive, got {size}.")
+
+        self.size = size
+        self.max_runs = max_runs
+        self.max_rss = max_rss
+        self.max_output_bytes = max_output_bytes
+        self.config = {
+            "preload_modules": preload_modules or [],
+            "max_memory": max_memory,
+            "max_cpu_time": max_cpu_time,
+        }
+
+        self._workers: set[_PythonWorker] = set()
+        """The shared workers being started, idle or running"""
+
+        # The idle workers, where `None` is put when a worker is removed
+        # to wake up a waiting call to start a new one
+        self._idle: asyncio.Queue[_PythonWorker | None] = asyncio.Queue()
+        self._sessions: dict[str, tuple[_PythonWorker, asyncio.Lock]] = {}
+        self._tasks: set[asyncio.Task] = set()
+
+    async def start(self) -> None:
+        """Start the shared workers in advance."""
+        await asyncio.gather(
+            *[
+                self._add_worker(self._new_worker())
+                for _ in range(self.size - len(self._workers))
+            ],
+        )
+
+    async def execute_python_code(
+        self,
+        code: str,
+        timeout: float = 300,
+        session_id: str | None = None,
+    ) -> ToolResponse:
+        """Execute the given python code in a warm Python worker and capture
+        the return code, standard output and error. Note you must `print`
+        the output to get the result.
+
+        Args:
+            code (`str`):
+                The Python code to be executed.
+            timeout (`float`, defaults to `300`):
+                The maximum time (in seconds) allowed for the code to run.
+            session_id (`str | None`, optional):
+                The session to run the code in, whose variables are kept
+                across the calls with the same session id.
+
+        Returns:
+            `ToolResponse`:
+                The response containing the return code, standard output, and
+                standard error of the executed code.
+        """
+        if session_id is None:
+            returncode, stdout_str, stderr_str = await self._run_shared(
+                code,
+                timeout,
+            )
+        else:
+            returncode, stdout_str, stderr_str = await self._run_session(
+                code,
+                timeout,
+                session_id,
+            )
+
+        return ToolResponse(
+            content=[
+                TextBlock(
+                    type="text",
+                    text=f"<returncode>{returncode}</returncode>"
+                    f"<stdout>{stdout_str}</stdout>"
+                    f"<stderr>{stderr_str}</stderr>",
+                ),
+            ],
+        )
+
+    async def close_session(self, session_id: str) -> None:
+        """Close the session and its dedicated worker.
+
+        Args:
+            session_id (`str`):
+                The session id.
+        """
+        if session_id in self._sessions:
+            worker, _ = self._sessions.pop(session_id)
+            await worker.close()
+
+    async def close(self) -> None:
+        """Kill all the workers, including the ones being started and
+        running."""
+        workers = [*self._workers]
+        workers += [worker for worker, _ in self._sessions.values()]
+        self._workers.clear()
+        self._sessions.clear()
+        while not self._idle.empty():
+            self._idle.get_nowait()
+        for task in list(self._tasks):
+            task.cancel()
+        await asyncio.gather(*[_.close() for _ in workers])
+
+    async def _run_shared(
+        self,
+        code: str,
+        timeout: float,
+    ) -> tuple[int, str, str]:
+        """Execute the code in a shared worker, where the timeout includes
+        waiting for an available worker."""
+        loop = asyncio.get_running_loop()
+        deadline = loop.time() + timeout
+        try:
+            worker = await self._acquire(deadline)
+        except asyncio.TimeoutError:
+            return (
+                -1,
+                "",
+                "TimeoutError: No Python worker was available within the "
+                f"timeout of {timeout} seconds.",
+            )
+
+        try:
+            return await worker.run(
+                code,
+                timeout,
+                self.max_output_bytes,
+                wait_timeout=max(deadline - loop.time(), 0),
+            )
+        finally:
+            if worker not in self._workers:
+                # Killed by closing the pool
+                pass
+            elif (
+                worker.alive
+                and worker.runs < self.max_runs
+                and not self._exceeds_rss(worker)
+            ):
+                self._idle.put_nowait(worker)
+            else:
+                # Replace the worker in background
+                self._workers.discard(worker)
+                self._schedule(worker.close())
+                self._schedule(self._add_worker(self._new_worker()))
+
+    async def _acquire(self, deadline: float) -> _PythonWorker:
+        """Get an idle shared worker, or start one if the pool isn't full,
+        before the deadline.
+
+        Raises:
+            `asyncio.TimeoutError`:
+                If no worker is available before the deadline.
+        """
+        loop = asyncio.get_running_loop()
+        while True:
+            if self._idle.empty() and len(self._workers) < self.size:
+                # Start a worker for this call, so that a failed start
+                # raises here rather than leaving the call waiting
+                worker = self._new_worker()
+                try:
+                    await asyncio.wait_for(
+                        worker.start(),
+                        deadline - loop.time(),
+                    )
+                except BaseException:
+                    self._remove_worker(worker)
+                    raise
+                return worker
+
+            worker = await asyncio.wait_for(
+                self._idle.get(),
+                deadline - loop.time(),
+            )
+            if worker is not None:
+                return worker
+
+    async def _run_session(
+        self,
+        code: str,
+        timeout: float,
+        session_id: str,
+    ) -> tuple[int, str, str]:
+        """Execute the code in the dedicated worker of the session."""
+        if session_id not in self._sessions:
+            worker = _PythonWorker(self.config)
+            self._sessions[session_id] = (worker, asyncio.Lock())
+
+        worker, lock = self._sessions[session_id]
+        async with lock:
+            if not worker.alive:
+                await worker.start()
+
+            returncode, stdout_str, stderr_str = await worker.run(
+                code,
+                timeout,
+                self.max_output_bytes,
+                session_id=session_id,
+            )
+
+            if not worker.alive or self._exceeds_rss(worker):
+                await worker.close()
+                # The worker is restarted in the next call
+                worker.runs = 0
+                stderr_str += (
+                    "\nThe worker of the session is restarted, and the "
+                    "variables in the session are cleared."
+                )
+
+        return returncode, stdout_str, stderr_str
+
+    def _new_worker(self) -> _PythonWorker:
+        """Create a shared worker, which takes a place in the pool."""
+        worker = _PythonWorker(self.config)
+        self._workers.add(worker)
+        return worker
+
+    def _remove_worker(self, worker: _PythonWorker) -> None:
+        """Remove the shared worker from the pool, and wake up a waiting
+        call to start a new one."""
+        if worker in self._workers:
+            self._workers.discard(worker)
+            self._idle.put_nowait(None)
+
+    async def _add_worker(self, worker: _PythonWorker) -> None:
+        """Start the new shared worker and put it into the idle queue."""
+        try:
+            await worker.start()
+        except Exception as e:
+            self._remove_worker(worker)
+            logger.error("Failed to start the Python worker: %s", e)
+            raise
+        except BaseException:
+            self._remove_worker(worker)
+            raise
+
+        if worker in self._workers:
+            self._idle.put_nowait(worker)
+        else:
+            # The pool is closed meanwhile
+            await worker.close()
+
+    def _exceeds_rss(self, worker: _PythonWorker) -> bool:
+        """If the resident memory of the worker exceeds the limit."""
+        return self.max_rss is not None and worker.rss > self.max_rss
+
+    def _schedule(self, coro: Any) -> None:
+        """Run the coroutine in background, keeping a reference to it."""
+        task = asyncio.create_task(coro)
+        self._tasks.add(task)
+        task.add_done_callback(self._tasks.discard)
@@ -0,0 +1,160 @@
+# -*- coding: utf-8 -*-
+"""The worker process of `PythonWorkerPool`, which is executed as a
+standalone script so that starting it doesn't import agentscope.
+
+The worker reads the JSON requests line by line from the original standard
+input, and writes the JSON results to the original standard output. The
+standard output and error of the executed code are redirected to the files
+given in the request at the file descriptor level, so that the outputs of
+the C extensions and the child processes are captured as well.
+"""
+import builtins
+import importlib
+import json
+import linecache
+import os
+import sys
+import traceback
+
+
+def _set_memory_limit(max_memory: int | None) -> None:
+    """Limit the virtual memory of the worker process."""
+    if not max_memory:
+        return
+    try:
+        import resource
+    except ImportError:
+        return
+    resource.setrlimit(resource.RLIMIT_AS, (max_memory, max_memory))
+
+
+def _set_cpu_limit(max_cpu_time: float | None) -> None:
+    """Limit the CPU time of the next run, since the limit is counted from
+    the start of the process."""
+    if not max_cpu_time:
+        return
+    try:
+        import resource
+    except ImportError:
+        return
+    usage = resource.getrusage(resource.RUSAGE_SELF)
+    soft = int(usage.ru_utime + usage.ru_stime + max_cpu_time) + 1
+    _, hard = resource.getrlimit(resource.RLIMIT_CPU)
+    if hard != resource.RLIM_INFINITY:
+        soft = min(soft, hard)
+    resource.setrlimit(resource.RLIMIT_CPU, (soft, hard))
+
+
+def _get_rss() -> int:
+    """Get the resident set size of the worker process in bytes."""
+    try:
+        with open("/proc/self/statm", "r", encoding="utf-8") as file:
+            return int(file.read().split()[1]) * os.sysconf("SC_PAGE_SIZE")
+    except (OSError, ValueError, AttributeError):
+        pass
+    try:
+        import resource
+    except ImportError:
+        return 0
+    # The peak RSS, in kilobytes on Linux and bytes on macOS
+    max_rss = resource.getrusage(resource.RUSAGE_SELF).ru_maxrss
+    return max_rss if sys.platform == "darwin" else max_rss * 1024
+
+
+def _run(request: dict, namespaces: dict[str, dict]) -> int:
+    """Execute the code in the request and return the return code."""
+    code, filename = request["code"], request["filename"]
+    session_id = request.get("session_id")
+
+    # For the source lines in the traceback
+    linecache.cache[filename] = (
+        len(code),
+        None,
+        code.splitlines(True),
+        filename,
+    )
+
+    if session_id is None:
+        namespace = {"__name__": "__main__", "__builtins__": builtins}
+    else:
+        namespace = namespaces.setdefault(
+            session_id,
+            {"__name__": "__main__", "__builtins__": builtins},
+        )
+
+    cwd = os.getcwd()
+    stdout_fd = os.open(request["stdout"], os.O_WRONLY | os.O_CREAT)
+    stderr_fd = os.open(request["stderr"], os.O_WRONLY | os.O_CREAT)
+    os.dup2(stdout_fd, 1)
+    os.dup2(stderr_fd, 2)
+    os.close(stdout_fd)
+    os.close(stderr_fd)
+
+    returncode = 0
+    try:
+        exec(compile(code, filename, "exec"), namespace)
+
+    except SystemExit as e:
+        if e.code is None:
+            returncode = 0
+        elif isinstance(e.code, int):
+            returncode = e.code
+        else:
+            print(e.code, file=sys.stderr)
+            returncode = 1
+
+    except BaseException as e:  # pylint: disable=broad-except
+        # Skip the frame of this function
+        traceback.print_exception(type(e), e, e.__traceback__.tb_next)
+        returncode = 1
+
+    finally:
+        sys.stdout.flush()
+        sys.stderr.flush()
+        devnull = os.open(os.devnull, os.O_WRONLY)
+        os.dup2(devnull, 1)
+        os.dup2(devnull, 2)
+        os.close(devnull)
+        os.chdir(cwd)
+        if session_id is None:
+            linecache.cache.pop(filename, None)
+
+    return returncode
+
+
+def main() -> None:
+    """The main loop of the worker process."""
+    config = json.loads(sys.argv[1])
+    _set_memory_limit(config.get("max_memory"))
+
+    for module_name in config.get("preload_modules", []):
+        try:
+            importlib.import_module(module_name)
+        except Exception:  # pylint: disable=broad-except
+            pass
+
+    # Keep the original stdin and stdout for the requests and results, and
+    # leave the standard streams to the executed code
+    requests = os.fdopen(os.dup(0), "r", encoding="utf-8")
+    results = os.fdopen(os.dup(1), "w", encoding="utf-8")
+    devnull = os.open(os.devnull, os.O_RDWR)
+    for fd in (0, 1, 2):
+        os.dup2(devnull, fd)
+    os.close(devnull)
+
+    results.write(json.dumps({"ready": True}) + "\n")
+    results.flush()
+
+    namespaces: dict[str, dict] = {}
+    for line in requests:
+        request = json.loads(line)
+        _set_cpu_limit(config.get("max_cpu_time"))
+        returncode = _run(request, namespaces)
+        results.write(
+            json.dumps({"returncode": returncode, "rss": _get_rss()}) + "\n",
+        )
+        results.flush()
+
+
+if __name__ == "__main__":
+    main()
@@ -3,20 +3,23 @@
 """The shell command tool in agentscope."""
 
 import asyncio
-from typing import Any
+from contextlib import aclosing
+from typing import Any, AsyncGenerator
 
+from ... import _config
 from .._response import ToolResponse
-from ...message import TextBlock
+from ._output import _stream_process_output
 
 
 async def execute_shell_command(
     command: str,
     timeout: int = 300,
     **kwargs: Any,
-) -> ToolResponse:
+) -> AsyncGenerator[ToolResponse, None]:
     """Execute given command and return the return code, standard output and
     error within <returncode></returncode>, <stdout></stdout> and
-    <stderr></stderr> tags.
+    <stderr></stderr> tags. The output is streamed as it arrives, and the
+    middle part of a long output is truncated.
 
     Args:
         command (`str`):
@@ -25,53 +28,27 @@ async def execute_shell_command(
             The maximum time (in seconds) allowed for the command to run.
 
     Returns:
-        `ToolResponse`:
-            The tool response containing the return code, standard output, and
-            standard error of the executed command.
+        `AsyncGenerator[ToolResponse, None]`:
+            The tool response chunks containing the accumulated standard
+            output and error, where the last one contains the return code.
     """
 
     proc = await asyncio.create_subprocess_shell(
         command,
         stdout=asyncio.subprocess.PIPE,
         stderr=asyncio.subprocess.PIPE,
+        start_new_session=True,
         bufsize=0,
     )
 
-    try:
-        await asyncio.wait_for(proc.wait(), timeout=timeout)
-        stdout, stderr = await proc.communicate()
-        stdout_str = stdout.decode("utf-8")
-        stderr_str = stderr.decode("utf-8")
-        returncode = proc.returncode
-
-    except asyncio.TimeoutError:
-        stderr_suffix = (
-            f"TimeoutError: The command execution exceeded "
-            f"the timeout of {timeout} seconds."
-        )
-        returncode = -1
-        try:
-            proc.terminate()
-            stdout, stderr = await proc.communicate()
-            stdout_str = stdout.decode("utf-8")
-            stderr_str = stderr.decode("utf-8")
-            if stderr_str:
-                stderr_str += f"\n{stderr_suffix}"
-            else:
-                stderr_str = stderr_suffix
-        except ProcessLookupError:
-            stdout_str = ""
-            stderr_str = stderr_suffix
-
-    return ToolResponse(
-        content=[
-            TextBlock(
-                type="text",
-                text=(
-                    f"<returncode>{returncode}</returncode>"
-                    f"<stdout>{stdout_str}</stdout>"
-                    f"<stderr>{stderr_str}</stderr>"
-                ),
-            ),
-        ],
-    )
+    async with aclosing(
+        _stream_process_output(
+            proc,
+            timeout,
+            _config.max_tool_output_bytes,
+            _config.tool_output_budget,
+            "command",
+        ),
+    ) as chunks:
+        async for chunk in chunks:
+            yield chunk
@@ -45,6 +45,13 @@ class RegisteredToolFunction:
     response as arguments. If it returns `None`, the tool result will be
     returned as is. If it returns a `ToolResponse`, the returned block
     will be used as the final tool response."""
+    execution: Literal["inline", "thread", "process"] = "inline"
+    """How the sync tool function is executed, either directly on the event
+    loop (`inline`), in a thread pool (`thread`) or in a process pool
+    (`process`). The async tool functions are always awaited directly."""
+    timeout: float | None = None
+    """The timeout in seconds of the tool function executed in a pool, for
+    the generator functions it's applied to each chunk."""
 
     @property
     def extended_json_schema(self) -> dict:
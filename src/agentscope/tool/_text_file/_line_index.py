@@ -0,0 +1,203 @@
+# -*- coding: utf-8 -*-
+"""The line index of text files, so that the text file tools view and edit
+a range of lines without reading the whole file."""
+import mmap
+import os
+import shutil
+import tempfile
+from array import array
+from bisect import bisect_left
+from collections import OrderedDict
+from itertools import accumulate, islice, repeat
+from operator import add
+from typing import BinaryIO, Iterable
+
+_CHUNK_SIZE = 1 << 24
+"""The number of bytes scanned or copied at once."""
+
+_CACHE_SIZE = 32
+"""The maximum number of cached line indexes."""
+
+_cache: OrderedDict[str, "_LineIndex"] = OrderedDict()
+
+
+def _find_newlines(data: bytes, base: int) -> Iterable[int]:
+    """Find the offsets of the newlines in the data, which starts at the
+    offset `base` of the file."""
+    # Each part before the last one ends with a newline
+    lengths = map(add, map(len, data.split(b"\n")[:-1]), repeat(1))
+    return islice(accumulate(lengths, initial=base - 1), 1, None)
+
+
+def _new_array(size: int, offsets: Iterable[int] = ()) -> array:
+    """Create an array of offsets, whose item size depends on the file
+    size."""
+    return array("I" if size < 1 << 32 else "Q", offsets)
+
+
+class _LineIndex:
+    """The byte offsets of the newlines in a text file, validated by the
+    modification time and the size of the file."""
+
+    def __init__(
+        self,
+        path: str,
+        newlines: array,
+        size: int,
+        mtime_ns: int,
+    ) -> None:
+        """Initialize the line index.
+
+        Args:
+            path (`str`):
+                The file path.
+            newlines (`array`):
+                The ascending byte offsets of the newlines in the file.
+            size (`int`):
+                The size of the file in bytes.
+            mtime_ns (`int`):
+                The modification time of the file in nanoseconds.
+        """
+        self.path = path
+        self.newlines = newlines
+        self.size = size
+        self.mtime_ns = mtime_ns
+
+    @classmethod
+    def build(cls, path: str) -> "_LineIndex":
+        """Scan the memory-mapped file to build its line index."""
+        with open(path, "rb") as file:
+            stat = os.fstat(file.fileno())
+            newlines = _new_array(stat.st_size)
+            if stat.st_size > 0:
+                with mmap.mmap(
+                    file.fileno(),
+                    0,
+                    access=mmap.ACCESS_READ,
+                ) as mm:
+                    for base in range(0, stat.st_size, _CHUNK_SIZE):
+                        newlines.extend(
+                            _find_newlines(
+                                mm[base : base + _CHUNK_SIZE],
+                                base,
+                            ),
+                        )
+
+        return cls(path, newlines, stat.st_size, stat.st_mtime_ns)
+
+    @property
+    def n_lines(self) -> int:
+        """The number of lines, where the last line may not end with a
+        newline."""
+        last_start = self.newlines[-1] + 1 if self.newlines else 0
+        return len(self.newlines) + (self.size > last_start)
+
+    def is_valid(self) -> bool:
+        """If the file isn't modified since the index is built."""
+        try:
+            stat = os.stat(self.path)
+        except OSError:
+            return False
+        return stat.st_size == self.size and stat.st_mtime_ns == self.mtime_ns
+
+    def offset(self, n: int) -> int:
+        """The byte offset after the first `n` lines, where `n` is
+        normalized like a slice index, i.e. `lines[:n]`."""
+        n, _, _ = slice(n, None).indices(self.n_lines)
+        if n == 0:
+            return 0
+        if n - 1 < len(self.newlines):
+            return self.newlines[n - 1] + 1
+        return self.size
+
+    def read_lines(self, start: int, end: int) -> list[str]:
+        """Read the lines from `start` to `end` (1-based and inclusive) by
+        seeking to the range."""
+        begin, stop = self.offset(start - 1), self.offset(end)
+        if begin >= stop:
+            return []
+        with open(self.path, "rb") as file:
+            file.seek(begin)
+            data = file.read(stop - begin)
+        # Split by the newlines only, consistent with the index
+        parts = data.decode("utf-8").replace("\r\n", "\n").split("\n")
+        lines = [_ + "\n" for _ in parts[:-1]]
+        if parts[-1]:
+            lines.append(parts[-1])
+        return lines
+
+    def splice(self, begin: int, stop: int, data: bytes) -> "_LineIndex":
+        """Replace the bytes between `begin` and `stop` with the given data
+        through a temp file and an atomic rename, and return the updated
+        line index without scanning the file again."""
+        dir_name, base_name = os.path.split(os.path.abspath(self.path))
+        fd, temp_path = tempfile.mkstemp(
+            prefix=f".{base_name}.",
+            suffix=".tmp",
+            dir=dir_name,
+        )
+        try:
+            with open(self.path, "rb") as src, os.fdopen(fd, "wb") as dst:
+                _copy_range(src, dst, 0, begin)
+                dst.write(data)
+                src.seek(stop)
+                shutil.copyfileobj(src, dst, _CHUNK_SIZE)
+                dst.flush()
+                os.fsync(dst.fileno())
+            shutil.copymode(self.path, temp_path)
+            os.replace(temp_path, self.path)
+        except BaseException:
+            if os.path.exists(temp_path):
+                os.remove(temp_path)
+            raise
+
+        delta = len(data) - (stop - begin)
+        size = self.size + delta
+        i_begin = bisect_left(self.newlines, begin)
+        i_stop = bisect_left(self.newlines, stop)
+
+        newlines = _new_array(size, self.newlines[:i_begin])
+        newlines.extend(_find_newlines(data, begin))
+        newlines.extend(map(add, self.newlines[i_stop:], repeat(delta)))
+
+        index = _LineIndex(
+            self.path,
+            newlines,
+            size,
+            os.stat(self.path).st_mtime_ns,
+        )
+        _cache_line_index(index)
+        return index
+
+
+def _copy_range(src: BinaryIO, dst: BinaryIO, begin: int, stop: int) -> None:
+    """Copy the bytes between `begin` and `stop` in chunks."""
+    src.seek(begin)
+    remaining = stop - begin
+    while remaining > 0:
+        data = src.read(min(remaining, _CHUNK_SIZE))
+        if not data:
+            break
+        dst.write(data)
+        remaining -= len(data)
+
+
+def _cache_line_index(index: _LineIndex) -> None:
+    """Cache the line index, evicting the least recently used ones."""
+    _cache[index.path] = index
+    _cache.move_to_end(index.path)
+    while len(_cache) > _CACHE_SIZE:
+        _cache.popitem(last=False)
+
+
+def _get_line_index(file_path: str) -> _LineIndex:
+    """Get the cached line index of the file, or build it if the file is
+    not cached or modified since cached."""
+    path = os.path.realpath(file_path)
+    index = _cache.get(path)
+    if index is None or not index.is_valid():
+        index = _LineIndex.build(path)
+        _cache_line_index(index)
+    else:
+        _cache.move_to_end(path)
+    return index
@@ -1,5 +1,6 @@
 # -*- coding: utf-8 -*-
 """The utility functions for text file tools in agentscope."""
+from ._line_index import _get_line_index
 from ...exception import ToolInvalidArgumentsError
 
 
@@ -63,26 +64,31 @@ def _view_text_file(
     file_path: str,
     ranges: list[int] | None = None,
 ) -> str:
-    """Return the file content in the specified range with line numbers."""
-    with open(file_path, "r", encoding="utf-8") as file:
-        lines = file.readlines()
+    """Return the file content in the specified range with line numbers,
+    where the negative line numbers count from the end of the file."""
+    index = _get_line_index(file_path)
+    n_lines = index.n_lines
 
     if ranges:
         _assert_ranges(ranges)
-        start, end = ranges
+        start, end = (_ + n_lines + 1 if _ < 0 else _ for _ in ranges)
+        start = max(start, 1)
 
-        if start > len(lines):
+        if start > n_lines:
             raise ToolInvalidArgumentsError(
                 f"InvalidArgumentError: The range '{ranges}' is out of bounds "
-                f"for the file '{file_path}', which has only {len(lines)} "
+                f"for the file '{file_path}', which has only {n_lines} "
                 f"lines.",
             )
 
         view_content = [
-            f"{index + start}: {line}"
-            for index, line in enumerate(lines[start - 1 : end])
+            f"{i + start}: {line}"
+            for i, line in enumerate(index.read_lines(start, end))
         ]
 
         return "".join(view_content)
 
-    return "".join(f"{index + 1}: {line}" for index, line in enumerate(lines))
+    return "".join(
+        f"{i + 1}: {line}"
+        for i, line in enumerate(index.read_lines(1, n_lines))
+    )
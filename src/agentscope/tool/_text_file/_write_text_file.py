@@ -4,6 +4,7 @@
 """The text file tools in agentscope."""
 import os
 
+from ._line_index import _get_line_index
 from ._utils import _calculate_view_ranges, _view_text_file
 from .._response import ToolResponse
 from ...message import TextBlock
@@ -54,17 +55,15 @@ async def insert_text_file(
             ],
         )
 
-    with open(file_path, "r", encoding="utf-8") as file:
-        original_lines = file.readlines()
+    index = _get_line_index(file_path)
+    n_lines = index.n_lines
 
-    if line_number == len(original_lines) + 1:
-        new_lines = original_lines + ["\n" + content]
-    elif line_number < len(original_lines) + 1:
-        new_lines = (
-            original_lines[: line_number - 1]
-            + [content + "\n"]
-            + original_lines[line_number - 1 :]
-        )
+    if line_number == n_lines + 1:
+        offset = index.size
+        new_content = "\n" + content
+    elif line_number < n_lines + 1:
+        offset = index.offset(line_number - 1)
+        new_content = content + "\n"
     else:
         return ToolResponse(
             content=[
@@ -72,20 +71,18 @@ async def insert_text_file(
                     type="text",
                     text="InvalidArgumentsError: The given line_number "
                     f"({line_number}) is not in the valid range "
-                    f"[1, {len(original_lines) + 1}].",
+                    f"[1, {n_lines + 1}].",
                 ),
             ],
         )
 
-    with open(file_path, "w", encoding="utf-8") as file:
-        file.writelines(new_lines)
-
-    with open(file_path, "r", encoding="utf-8") as file:
-        new_lines = file.readlines()
+    # Only splice the inserted content into the file, and the line index is
+    # updated without reading the file again
+    new_index = index.splice(offset, offset, new_content.encode("utf-8"))
 
     start, end = _calculate_view_ranges(
-        len(original_lines),
-        len(new_lines),
+        n_lines,
+        new_index.n_lines,
         line_number,
         line_number,
         extra_view_n_lines=5,
@@ -152,9 +149,6 @@ async def write_text_file(
             ],
         )
 
-    with open(file_path, "r", encoding="utf-8") as file:
-        original_lines = file.readlines()
-
     if ranges is not None:
         if (
             isinstance(ranges, list)
@@ -163,46 +157,41 @@ async def write_text_file(
         ):
             # Replace content in the specified range
             start, end = ranges
-            if start > len(original_lines):
+            index = _get_line_index(file_path)
+            n_lines = index.n_lines
+            if start > n_lines:
                 return ToolResponse(
                     content=[
                         TextBlock(
                             type="text",
                             text=f"Error: The start line {start} is invalid. "
-                            f"The file only has {len(original_lines)} "
+                            f"The file only has {n_lines} "
                             f"lines.",
                         ),
                     ],
                 )
 
-            new_content = (
-                original_lines[: start - 1]
-                + [
-                    content,
-                ]
-                + original_lines[end:]
+            # Replace the bytes of the lines in the range only, and the
+            # written content may contain multiple "\n", which are counted
+            # in the updated line index
+            new_index = index.splice(
+                index.offset(start - 1),
+                index.offset(end),
+                content.encode("utf-8"),
             )
 
-            with open(file_path, "w", encoding="utf-8") as file:
-                file.write("".join(new_content))
-
-            # The written content may contain multiple "\n", to avoid mis
-            # counting the lines, we read the file again to get the new content
-            with open(file_path, "r", encoding="utf-8") as file:
-                new_lines = file.readlines()
-
             view_start, view_end = _calculate_view_ranges(
-                len(original_lines),
-                len(new_lines),
+                n_lines,
+                new_index.n_lines,
                 start,
                 end,
             )
 
             content = "".join(
                 [
-                    f"{index + view_start}: {line}"
-                    for index, line in enumerate(
-                        new_lines[view_start - 1 : view_end],
+                    f"{i + view_start}: {line}"
+                    for i, line in enumerate(
+                        new_index.read_lines(view_start, view_end),
                     )
                 ],
             )
@@ -2,7 +2,15 @@
 """The toolkit class for tool calls in agentscope."""
 
 import asyncio
+import contextvars
 import inspect
+import json
+import os
+from concurrent.futures import (
+    Executor,
+    ProcessPoolExecutor,
+    ThreadPoolExecutor,
+)
 from copy import deepcopy
 from dataclasses import dataclass
 from functools import partial
@@ -26,6 +34,7 @@ from docstring_parser import parse
 
 from ._async_wrapper import (
     _async_generator_wrapper,
+    _executor_generator,
     _object_wrapper,
     _sync_generator_wrapper,
 )
@@ -65,6 +74,79 @@ class ToolGroup:
     group is about."""
     notes: str | None = None
     """The using notes of the tool group, to remind the agent how to use"""
+    max_workers: int | None = None
+    """The maximum number of workers in the thread or process pool of the
+    group, which runs its sync tool functions that are not executed
+    inline."""
+
+
+def _read_tools_cache(path: str) -> dict:
+    """Read the cached tool lists of the MCP clients, or an empty dict if
+    the file doesn't exist."""
+    if not os.path.exists(path):
+        return {}
+    with open(path, "r", encoding="utf-8") as file:
+        return json.load(file)
+
+
+def _write_tools_cache(path: str, catalogue: dict) -> None:
+    """Write the cached tool lists of the MCP clients into a temporary file
+    first and rename it, to avoid a partial file."""
+    tmp_path = f"{path}.tmp"
+    with open(tmp_path, "w", encoding="utf-8") as file:
+        json.dump(catalogue, file, ensure_ascii=False)
+    os.replace(tmp_path, path)
+
+
+def _get_interrupted_response() -> ToolResponse:
+    """Get the tool response for the tool call interrupted by the user."""
+    return ToolResponse(
+        content=[
+            TextBlock(
+                type="text",
+                text="<system-info>"
+                "The tool call has been interrupted "
+                "by the user."
+                "</system-info>",
+            ),
+        ],
+        stream=True,
+        is_last=True,
+        is_interrupted=True,
+    )
+
+
+class _JSONSchemaList(list):
+    """The read-only list of the tool function JSON schemas, which is cached
+    and shared by the calls of `Toolkit.get_json_schemas` until the toolkit
+    changes. The copies (e.g. by `copy.deepcopy`) are plain lists."""
+
+    def __init__(self, schemas: list[dict], version: int) -> None:
+        """Initialize the JSON schema list.
+
+        Args:
+            schemas (`list[dict]`):
+                The tool function JSON schemas.
+            version (`int`):
+                The toolkit version that the schemas are generated from.
+        """
+        super().__init__(schemas)
+        self.version = version
+
+    def _read_only(self, *args: Any, **kwargs: Any) -> None:
+        """Raise an error for the modifications."""
+        raise TypeError(
+            "The JSON schemas returned by the toolkit are read-only, copy "
+            "them by `list(...)` before modifying.",
+        )
+
+    append = extend = insert = remove = pop = clear = _read_only
+    sort = reverse = __setitem__ = __delitem__ = __iadd__ = _read_only
+    __imul__ = _read_only
+
+    def __reduce_ex__(self, protocol: Any) -> tuple:
+        """Copy or pickle as a plain list."""
+        return list, (list(self),)
 
 
 class Toolkit(StateModule):
@@ -84,6 +166,7 @@ class Toolkit(StateModule):
     MCP related methods:
 
     - `register_mcp_server`
+    - `register_mcp_clients`
     - `remove_mcp_servers`
 
     To run the tool functions or get the data from the activated tools:
@@ -91,21 +174,58 @@ class Toolkit(StateModule):
     - `call_tool_function`
     - `get_json_schemas`
     - `get_tool_group_notes`
+
+    The sync tool functions can be executed in a thread or process pool by
+    the `execution` argument of `register_tool_function`, so that they won't
+    block the event loop. Each tool group has its own bounded pools.
+
+    The JSON schemas are cached and only regenerated when the toolkit
+    version changes, which is increased by the above methods. If the tool
+    functions or groups are modified directly (e.g. setting
+    `toolkit.groups[...].active`), call `mark_changed` afterward.
     """
 
-    def __init__(self) -> None:
-        """Initialize the toolkit."""
+    def __init__(self, max_workers: int | None = None) -> None:
+        """Initialize the toolkit.
+
+        Args:
+            max_workers (`int | None`, optional):
+                The maximum number of workers in the thread or process pool
+                of the "basic" group. Defaults to the default of the
+                `concurrent.futures` executors.
+        """
         super().__init__()
 
         self.tools: dict[str, RegisteredToolFunction] = {}
         self.groups: dict[str, ToolGroup] = {}
 
+        self.max_workers = max_workers
+        # The pools of the tool groups, keyed by the group name and the
+        # execution mode, which are created lazily
+        self._executors: dict[tuple[str, str], Executor] = {}
+
+        self._version = 0
+        self._json_schemas: _JSONSchemaList | None = None
+
+    @property
+    def version(self) -> int:
+        """The version of the toolkit, which is increased once the tool
+        functions, the tool groups or their activation status change."""
+        return self._version
+
+    def mark_changed(self) -> None:
+        """Increase the toolkit version, so that the cached JSON schemas are
+        regenerated in the next `get_json_schemas` call."""
+        self._version += 1
+        self._json_schemas = None
+
     def create_tool_group(
         self,
         group_name: str,
         description: str,
         active: bool = False,
         notes: str | None = None,
+        max_workers: int | None = None,
     ) -> None:
         """Create a tool group to organize tool functions
 
@@ -121,6 +241,10 @@ class Toolkit(StateModule):
                 The notes used to remind the agent how to use the tool
                 functions properly, which can be combined into the system
                 prompt.
+            max_workers (`int | None`, optional):
+                The maximum number of workers in the thread or process pool
+                of this group, which runs the sync tool functions that are
+                not executed inline.
         """
         if group_name in self.groups or group_name == "basic":
             raise ValueError(
@@ -133,7 +257,9 @@ class Toolkit(StateModule):
             description=description,
             notes=notes,
             active=active,
+            max_workers=max_workers,
         )
+        self.mark_changed()
 
     def update_tool_groups(self, group_names: list[str], active: bool) -> None:
         """Update the activation status of the given tool groups.
@@ -154,6 +280,8 @@ class Toolkit(StateModule):
             if group_name in self.groups:
                 self.groups[group_name].active = active
 
+        self.mark_changed()
+
     def remove_tool_groups(self, group_names: list[str]) -> None:
         """Remove tool functions from the toolkit by their group names.
 
@@ -180,12 +308,16 @@ class Toolkit(StateModule):
         for group_name in group_names:
             self.groups.pop(group_name, None)
 
+        self._shutdown_executors(group_names)
+
         # Remove the tool functions in the given groups
         tool_names = deepcopy(list(self.tools.keys()))
         for tool_name in tool_names:
             if self.tools[tool_name].group in group_names:
                 self.tools.pop(tool_name)
 
+        self.mark_changed()
+
     def register_tool_function(  # pylint: disable=too-many-branches
         self,
         tool_func: ToolFunction,
@@ -204,6 +336,8 @@ class Toolkit(StateModule):
             ToolResponse | None,
         ]
         | None = None,
+        execution: Literal["inline", "thread", "process"] = "inline",
+        timeout: float | None = None,
     ) -> None:
         """Register a tool function to the toolkit.
 
@@ -245,6 +379,21 @@ class Toolkit(StateModule):
                 result will be returned as is. If it returns a
                 `ToolResponse`, the returned block will be used as the
                 final tool result.
+            execution (`Literal["inline", "thread", "process"]`, defaults \
+            to `"inline"`):
+                How to execute the sync tool function. `"inline"` calls it
+                directly on the event loop, while `"thread"` and `"process"`
+                run it in the thread or process pool of its group, so that
+                it won't block the other coroutines. For the process pool,
+                the function, its arguments and result must be picklable,
+                and generator functions are not supported. It doesn't affect
+                the async tool functions.
+            timeout (`float | None`, optional):
+                The timeout in seconds for the tool function executed in a
+                pool, which is applied to each chunk for the generator
+                functions. Note the timed out or cancelled function still
+                runs to the end in its worker, since a thread cannot be
+                interrupted.
         """
         # Arguments checking
         if group_name not in self.groups and group_name != "basic":
@@ -252,6 +401,12 @@ class Toolkit(StateModule):
                 f"Tool group '{group_name}' not found.",
             )
 
+        if execution not in ["inline", "thread", "process"]:
+            raise ValueError(
+                "The execution must be one of 'inline', 'thread' and "
+                f"'process', but got '{execution}'.",
+            )
+
         # Check the manually provided JSON schema if provided
         if json_schema:
             assert (
@@ -310,6 +465,14 @@ class Toolkit(StateModule):
                 include_var_keyword=include_var_keyword,
             )
 
+        if execution == "process" and inspect.isgeneratorfunction(
+            original_func,
+        ):
+            raise ValueError(
+                f"The generator function '{func_name}' cannot be executed "
+                "in a process pool, use 'thread' instead.",
+            )
+
         # Override the description if provided
         if func_description:
             json_schema["function"]["description"] = func_description
@@ -345,9 +508,12 @@ class Toolkit(StateModule):
             extended_model=None,
             mcp_name=mcp_name,
             postprocess_func=postprocess_func,
+            execution=execution,
+            timeout=timeout,
         )
 
         self.tools[func_name] = func_obj
+        self.mark_changed()
 
     def remove_tool_function(self, tool_name: str) -> None:
         """Remove tool function from the toolkit by its name.
@@ -364,6 +530,7 @@ class Toolkit(StateModule):
             )
 
         self.tools.pop(tool_name, None)
+        self.mark_changed()
 
     def get_json_schemas(
         self,
@@ -374,6 +541,10 @@ class Toolkit(StateModule):
         .. note:: The preset keyword arguments is removed from the JSON
          schema, and the extended model is applied if it is set.
 
+        .. note:: The returned list is cached and shared until the toolkit
+         version changes, so it's read-only and the same object is returned
+         for the same version.
+
         Example:
             .. code-block:: JSON
                 :caption: Example of tool function JSON schemas
@@ -403,7 +574,12 @@ class Toolkit(StateModule):
             `list[dict]`:
                 A list of function JSON schemas.
         """
-        # If meta tool is set here, update its extended model here
+        if self._json_schemas is not None:
+            return self._json_schemas
+
+        # If meta tool is set here, update its extended model here. It's set
+        # directly to keep the version, since the model only depends on the
+        # groups, whose changes already increase the version.
         if "reset_equipped_tools" in self.tools:
             fields = {}
             for group_name, group in self.groups.items():
@@ -417,16 +593,17 @@ class Toolkit(StateModule):
                     ),
                 )
             extended_model = create_model("_DynamicModel", **fields)
-            self.set_extended_model(
-                "reset_equipped_tools",
-                extended_model,
-            )
+            self.tools["reset_equipped_tools"].extended_model = extended_model
 
-        return [
-            tool.extended_json_schema
-            for tool in self.tools.values()
-            if tool.group == "basic" or self.groups[tool.group].active
-        ]
+        self._json_schemas = _JSONSchemaList(
+            [
+                tool.extended_json_schema
+                for tool in self.tools.values()
+                if tool.group == "basic" or self.groups[tool.group].active
+            ],
+            self._version,
+        )
+        return self._json_schemas
 
     def set_extended_model(
         self,
@@ -450,6 +627,7 @@ class Toolkit(StateModule):
 
         if func_name in self.tools:
             self.tools[func_name].extended_model = model
+            self.mark_changed()
 
         else:
             raise ValueError(
@@ -485,6 +663,8 @@ class Toolkit(StateModule):
                 self.tools.pop(func_name)
                 to_removed.append(func_name)
 
+        self.mark_changed()
+
         logger.info(
             "Removed %d tool functions from %d MCP: %s",
             len(to_removed),
@@ -543,27 +723,39 @@ class Toolkit(StateModule):
         else:
             partial_postprocess_func = None
 
-        # Async function
+        # If the sync function is executed in a pool
+        offloaded = (
+            tool_func.execution != "inline"
+            and not inspect.iscoroutinefunction(tool_func.original_func)
+            and not inspect.isasyncgenfunction(tool_func.original_func)
+        )
+
         try:
-            if inspect.iscoroutinefunction(tool_func.original_func):
+            # Sync function executed in a pool
+            if offloaded:
                 try:
-                    res = await tool_func.original_func(**kwargs)
+                    res = await self._run_in_executor(tool_func, kwargs)
                 except asyncio.CancelledError:
+                    res = _get_interrupted_response()
+                except asyncio.TimeoutError:
                     res = ToolResponse(
                         content=[
                             TextBlock(
                                 type="text",
-                                text="<system-info>"
-                                "The tool call has been interrupted "
-                                "by the user."
-                                "</system-info>",
+                                text="TimeoutError: The tool function "
+                                f"'{tool_func.name}' didn't finish within "
+                                f"{tool_func.timeout} seconds.",
                             ),
                         ],
-                        stream=True,
-                        is_last=True,
-                        is_interrupted=True,
                     )
 
+            # Async function
+            elif inspect.iscoroutinefunction(tool_func.original_func):
+                try:
+                    res = await tool_func.original_func(**kwargs)
+                except asyncio.CancelledError:
+                    res = _get_interrupted_response()
+
             else:
                 # When `tool_func.original_func` is Async generator function or
                 # Sync function
@@ -587,6 +779,16 @@ class Toolkit(StateModule):
 
         # If return a sync generator
         if isinstance(res, Generator):
+            if offloaded:
+                # Stream the chunks across the thread boundary one by one
+                return _async_generator_wrapper(
+                    _executor_generator(
+                        res,
+                        self._get_executor(tool_func),
+                        tool_func.timeout,
+                    ),
+                    partial_postprocess_func,
+                )
             return _sync_generator_wrapper(res, partial_postprocess_func)
 
         if isinstance(res, ToolResponse):
@@ -681,8 +883,127 @@ class Toolkit(StateModule):
                 f"but got {type(preset_kwargs_mapping)}.",
             )
 
+        await self._register_mcp_tools(
+            mcp_client,
+            await mcp_client.list_tools(),
+            group_name=group_name,
+            enable_funcs=enable_funcs,
+            disable_funcs=disable_funcs,
+            preset_kwargs_mapping=preset_kwargs_mapping,
+            postprocess_func=postprocess_func,
+        )
+
+    async def register_mcp_clients(
+        self,
+        mcp_clients: list[MCPClientBase],
+        group_name: str = "basic",
+        preset_kwargs_mapping: dict[str, dict[str, Any]] | None = None,
+        postprocess_func: Callable[
+            [
+                ToolUseBlock,
+                ToolResponse,
+            ],
+            ToolResponse | None,
+        ]
+        | None = None,
+        tools_cache_path: str | None = None,
+    ) -> None:
+        """Register tool functions from multiple MCP clients, whose tool
+        lists are discovered concurrently.
+
+        Args:
+            mcp_clients (`list[MCPClientBase]`):
+                The MCP client instances to connect to the MCP servers.
+            group_name (`str`, defaults to `"basic"`):
+                The group name that the tool functions will be added to.
+            preset_kwargs_mapping: (`Optional[dict[str, dict[str, Any]]]`, \
+            defaults to `None`):
+                The preset keyword arguments mapping, whose keys are the tool
+                function names and values are the preset keyword arguments.
+            postprocess_func (`Callable[[ToolUseBlock, ToolResponse], \
+            ToolResponse | None] | None`, optional):
+                A post-processing function that will be called after the tool
+                function is executed, which is shared by all the tool
+                functions.
+            tools_cache_path (`str | None`, optional):
+                The JSON file of the cached tool lists, keyed by the MCP
+                client names. If given, the unexpired tool lists in the file
+                are loaded into the clients for a warm start without
+                requesting the servers, and the file is updated after the
+                discovery.
+        """
+        for mcp_client in mcp_clients:
+            if (
+                isinstance(mcp_client, StatefulClientBase)
+                and not mcp_client.is_connected
+            ):
+                raise RuntimeError(
+                    f"The MCP client '{mcp_client.name}' is not connected "
+                    "to the server. Use the `connect()` method first.",
+                )
+
+        catalogue = {}
+        if tools_cache_path:
+            # The file is read and written in a thread to avoid blocking the
+            # event loop
+            catalogue = await asyncio.to_thread(
+                _read_tools_cache,
+                tools_cache_path,
+            )
+            for mcp_client in mcp_clients:
+                if (
+                    mcp_client.name in catalogue
+                    and mcp_client.get_cached_tools() is None
+                ):
+                    mcp_client.load_tools_cache(catalogue[mcp_client.name])
+
+        # Discover the tools of all servers concurrently
+        tools_list = await asyncio.gather(
+            *[_.list_tools() for _ in mcp_clients],
+        )
+
+        for mcp_client, tools in zip(mcp_clients, tools_list):
+            await self._register_mcp_tools(
+                mcp_client,
+                tools,
+                group_name=group_name,
+                preset_kwargs_mapping=preset_kwargs_mapping,
+                postprocess_func=postprocess_func,
+            )
+
+        if tools_cache_path:
+            for mcp_client in mcp_clients:
+                dumped = mcp_client.dump_tools_cache()
+                if dumped is not None:
+                    catalogue[mcp_client.name] = dumped
+
+            await asyncio.to_thread(
+                _write_tools_cache,
+                tools_cache_path,
+                catalogue,
+            )
+
+    async def _register_mcp_tools(
+        self,
+        mcp_client: MCPClientBase,
+        mcp_tools: list,
+        group_name: str = "basic",
+        enable_funcs: list[str] | None = None,
+        disable_funcs: list[str] | None = None,
+        preset_kwargs_mapping: dict[str, dict[str, Any]] | None = None,
+        postprocess_func: Callable[
+            [
+                ToolUseBlock,
+                ToolResponse,
+            ],
+            ToolResponse | None,
+        ]
+        | None = None,
+    ) -> None:
+        """Register the discovered tools of the MCP client, see
+        `register_mcp_client` for the arguments."""
         tool_names = []
-        for mcp_tool in await mcp_client.list_tools():
+        for mcp_tool in mcp_tools:
             # Skip the functions that are not in the enable_funcs if
             # enable_funcs is not None
             if enable_funcs is not None and mcp_tool.name not in enable_funcs:
@@ -771,6 +1092,8 @@ class Toolkit(StateModule):
             else:
                 group.active = False
 
+        self.mark_changed()
+
     def get_activated_notes(self) -> str:
         """Get the notes from the active tool groups, which can be used to
         construct the system prompt for the agent.
@@ -837,6 +1160,61 @@ class Toolkit(StateModule):
         """Clear the toolkit, removing all tool functions and groups."""
         self.tools.clear()
         self.groups.clear()
+        self.mark_changed()
+        self._shutdown_executors()
+
+    def _get_executor(self, tool_func: RegisteredToolFunction) -> Executor:
+        """Get the thread or process pool of the tool function's group."""
+        key = (tool_func.group, tool_func.execution)
+        if key not in self._executors:
+            if tool_func.group == "basic":
+                max_workers = self.max_workers
+            else:
+                max_workers = self.groups[tool_func.group].max_workers
+
+            if tool_func.execution == "process":
+                self._executors[key] = ProcessPoolExecutor(
+                    max_workers=max_workers,
+                )
+            else:
+                self._executors[key] = ThreadPoolExecutor(
+                    max_workers=max_workers,
+                    thread_name_prefix=f"toolkit_{tool_func.group}",
+                )
+        return self._executors[key]
+
+    async def _run_in_executor(
+        self,
+        tool_func: RegisteredToolFunction,
+        kwargs: dict[str, Any],
+    ) -> Any:
+        """Run the sync tool function in the pool of its group, raising
+        `asyncio.TimeoutError` if it exceeds the timeout."""
+        func = partial(tool_func.original_func, **kwargs)
+        if tool_func.execution == "thread":
+            # Keep the context variables, e.g. for tracing
+            func = partial(contextvars.copy_context().run, func)
+
+        return await asyncio.wait_for(
+            asyncio.get_running_loop().run_in_executor(
+                self._get_executor(tool_func),
+                func,
+            ),
+            tool_func.timeout,
+        )
+
+    def _shutdown_executors(
+        self,
+        group_names: list[str] | None = None,
+    ) -> None:
+        """Shut down the pools of the given groups, or all the pools if
+        `group_names` is `None`, without waiting for the running tasks."""
+        for key in list(self._executors.keys()):
+            if group_names is None or key[0] in group_names:
+                self._executors.pop(key).shutdown(
+                    wait=False,
+                    cancel_futures=True,
+                )
 
     def _validate_tool_function(self, func_name: str) -> None:
         """Check if the tool function already registered in the toolkit. If
@@ -113,9 +113,19 @@ async def _trace_async_generator_wrapper(
 
     has_error = False
 
+    # The delta chat responses are accumulated, so that the full response
+    # rather than the last delta is recorded as the output
+    accumulator = None
+
     try:
         last_chunk = None
         async for chunk in aioitertools.iter(res):
+            if getattr(chunk, "is_delta", False):
+                if accumulator is None:
+                    from ..model import ChatResponseAccumulator
+
+                    accumulator = ChatResponseAccumulator()
+                accumulator.update(chunk)
             last_chunk = chunk
             yield chunk
 
@@ -127,6 +137,8 @@ async def _trace_async_generator_wrapper(
 
     finally:
         if not has_error:
+            if accumulator is not None:
+                last_chunk = accumulator.to_response()
             # Set the last chunk as output
             span.set_attributes(
                 {
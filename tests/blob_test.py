@@ -0,0 +1,190 @@
+# -*- coding: utf-8 -*-
+"""The blob store module tests."""
+import base64
+import os
+import shutil
+import tempfile
+from unittest import IsolatedAsyncioTestCase
+
+from agentscope.blob import (
+    InMemoryBlobStore,
+    LocalBlobStore,
+    offload_media,
+    resolve_media,
+    set_blob_store,
+)
+from agentscope.formatter import (
+    OpenAIChatFormatter,
+    OpenAIMultiAgentFormatter,
+)
+from agentscope.message import Msg
+
+
+class CountingBlobStore(InMemoryBlobStore):
+    """The in-memory blob store that counts the reads."""
+
+    def __init__(self) -> None:
+        """Initialize the counting blob store."""
+        super().__init__()
+        self.n_reads = 0
+
+    def get(self, blob_hash: str) -> bytes:
+        """Get the data and count the read."""
+        self.n_reads += 1
+        return super().get(blob_hash)
+
+
+class BlobStoreTest(IsolatedAsyncioTestCase):
+    """Test cases for the blob stores."""
+
+    async def asyncSetUp(self) -> None:
+        """Set up the test case."""
+        self.save_dir = tempfile.mkdtemp()
+        self.image = base64.b64encode(os.urandom(1000)).decode("ascii")
+
+    def _build_msg(self) -> Msg:
+        """Build a message with the same image in a block and a tool
+        result."""
+        source = {
+            "type": "base64",
+            "media_type": "image/png",
+            "data": self.image,
+        }
+        return Msg(
+            "user",
+            [
+                {"type": "text", "text": "What's in the image?"},
+                {"type": "image", "source": {**source}},
+                {
+                    "type": "tool_result",
+                    "id": "call_1",
+                    "name": "screenshot",
+                    "output": [{"type": "image", "source": {**source}}],
+                },
+            ],
+            "user",
+        )
+
+    async def test_in_memory_blob_store(self) -> None:
+        """Test the in-memory blob store evicting the least recently used
+        data."""
+        store = InMemoryBlobStore(max_bytes=10)
+        hash_a = store.put(b"aaaa")
+        hash_b = store.put(b"bbbb")
+        self.assertEqual(hash_a, store.put(b"aaaa"))
+        self.assertEqual(8, store.size)
+
+        store.put(b"cccc")
+        self.assertIn(hash_a, store)
+        self.assertNotIn(hash_b, store)
+        with self.assertRaises(KeyError):
+            store.get(hash_b)
+
+    async def test_offload_and_resolve(self) -> None:
+        """Test offloading the media data into a local blob store and
+        resolving it when formatting."""
+        store = LocalBlobStore(self.save_dir)
+        set_blob_store(store)
+
+        msg = self._build_msg()
+        expected = self._build_msg()
+        self.assertIs(msg, offload_media(msg))
+
+        # The identical data are stored only once
+        sources = [
+            msg.content[1]["source"],
+            msg.content[2]["output"][0]["source"],
+        ]
+        self.assertEqual(["blob", "blob"], [_["type"] for _ in sources])
+        self.assertEqual(sources[0]["hash"], sources[1]["hash"])
+        self.assertEqual(1, len(os.listdir(self.save_dir)))
+        self.assertEqual(
+            base64.b64decode(self.image),
+            store.get(sources[0]["hash"]),
+        )
+
+        # Resolving returns a copy without modifying the message
+        resolved = resolve_media(msg)
+        self.assertIsNot(msg, resolved)
+        self.assertListEqual(expected.content, resolved.content)
+        self.assertEqual("blob", msg.content[1]["source"]["type"])
+
+        formatter = OpenAIChatFormatter()
+        formatted = await formatter.format([msg])
+        self.assertDictEqual(
+            (await formatter.format([expected]))[1],
+            formatted[1],
+        )
+
+    async def test_resolve_on_cache_miss(self) -> None:
+        """Test the multi-agent formatter reading the blob store only on the
+        cache misses."""
+        store = CountingBlobStore()
+        set_blob_store(store)
+
+        image = {
+            "type": "image",
+            "source": {
+                "type": "base64",
+                "media_type": "image/png",
+                "data": self.image,
+            },
+        }
+        msgs = [
+            Msg(
+                "system",
+                [{"type": "text", "text": "You're a helpful assistant."}],
+                "system",
+            ),
+            Msg("user", [{"type": "text", "text": "Hi!"}, image], "user"),
+            Msg(
+                "assistant",
+                [
+                    {
+                        "type": "tool_use",
+                        "id": "call_1",
+                        "name": "screenshot",
+                        "input": {},
+                    },
+                ],
+                "assistant",
+            ),
+            Msg(
+                "system",
+                [
+                    {
+                        "type": "tool_result",
+                        "id": "call_1",
+                        "name": "screenshot",
+                        "output": [image],
+                    },
+                ],
+                "system",
+            ),
+        ]
+        msgs[0].content.append(image)
+        for msg in msgs:
+            offload_media(msg)
+
+        formatter = OpenAIMultiAgentFormatter()
+        formatted = await formatter.format(msgs)
+        self.assertGreater(store.n_reads, 0)
+
+        # The unchanged messages are served from the cache
+        store.n_reads = 0
+        self.assertListEqual(formatted, await formatter.format(msgs))
+        self.assertEqual(0, store.n_reads)
+
+        # Only the new message is resolved
+        msgs.append(
+            offload_media(
+                Msg("user", [{"type": "text", "text": "Why?"}, image], "user"),
+            ),
+        )
+        await formatter.format(msgs)
+        self.assertEqual(1, store.n_reads)
+
+    async def asyncTearDown(self) -> None:
+        """Clean up after the test."""
+        set_blob_store(InMemoryBlobStore())
+        shutil.rmtree(self.save_dir, ignore_errors=True)
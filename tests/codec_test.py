@@ -0,0 +1,88 @@
+# -*- coding: utf-8 -*-
+"""The codec module tests."""
+import base64
+import io
+import os
+from unittest import IsolatedAsyncioTestCase
+
+from agentscope.codec import BinaryCodec, JSONCodec
+from agentscope.message import Msg
+
+
+class CodecTest(IsolatedAsyncioTestCase):
+    """Test cases for the codecs."""
+
+    async def asyncSetUp(self) -> None:
+        """Set up the test case."""
+        self.image = base64.b64encode(os.urandom(1000)).decode("ascii")
+        self.msg = Msg(
+            "Friday",
+            [
+                {"type": "text", "text": "Hi!"},
+                {
+                    "type": "image",
+                    "source": {
+                        "type": "base64",
+                        "media_type": "image/png",
+                        "data": self.image,
+                    },
+                },
+                {
+                    "type": "tool_use",
+                    "name": "search",
+                    "id": "call_1",
+                    "input": {"query": "agentscope", "k": 5},
+                },
+            ],
+            "assistant",
+            metadata={"score": -1.5, "tags": [None, True]},
+        )
+
+    async def test_binary_codec(self) -> None:
+        """Test encoding and decoding by the binary codec."""
+        codec = BinaryCodec()
+
+        objects = [
+            None,
+            False,
+            [0, 127, 128, -32, -33, 65536, 2**64 - 1, 2**64, -(2**70)],
+            ["", "a" * 31, "a" * 32, "a" * 70000, "中文"],
+            {"a": {"b": [1.5, None]}, "type": "unknown"},
+            {"type": "base64", "media_type": "text/plain", "data": "QR=="},
+            b"bytes",
+            self.msg.to_dict(),
+        ]
+        for obj in objects:
+            self.assertEqual(obj, codec.decode(codec.encode(obj)))
+
+        # The message objects are restored
+        msg = codec.decode(codec.encode(self.msg))
+        self.assertIsInstance(msg, Msg)
+        self.assertDictEqual(self.msg.to_dict(), msg.to_dict())
+
+        # The same media data is stored only once as raw bytes
+        state = {"content": [self.msg.to_dict()] * 3}
+        data = codec.encode(state)
+        self.assertEqual(state, codec.decode(data))
+        self.assertLess(len(data), len(JSONCodec().encode(state)) // 2)
+        self.assertEqual(1, data.count(base64.b64decode(self.image)))
+
+        for i in range(len(data)):
+            with self.assertRaises(ValueError):
+                codec.decode(data[:i])
+
+    async def test_frames(self) -> None:
+        """Test writing and reading the frames."""
+        for codec in [JSONCodec(), JSONCodec(indent=4), BinaryCodec()]:
+            entries = [{"seq": 1}, {"seq": 2, "msg": self.msg.to_dict()}]
+            frames = [codec.frame(codec.encode(_)) for _ in entries]
+
+            file = io.BytesIO(b"".join(frames) + frames[0][:-1])
+            for entry in entries:
+                self.assertEqual(
+                    entry,
+                    codec.decode(codec.read_frame(file)),
+                )
+            with self.assertRaises(ValueError):
+                codec.read_frame(file)
+            self.assertIsNone(codec.read_frame(file))
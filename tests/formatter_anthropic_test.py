@@ -1,6 +1,7 @@
 # -*- coding: utf-8 -*-
 """The Anthropic formatter unittests."""
 from unittest.async_case import IsolatedAsyncioTestCase
+from unittest.mock import patch
 
 from agentscope.formatter import (
     AnthropicMultiAgentFormatter,
@@ -599,3 +600,47 @@ class TestAnthropicChatFormatterFormatter(IsolatedAsyncioTestCase):
             res,
             self.ground_truth_multiagent_without_first_conversation[1:],
         )
+
+    async def test_multiagent_formatter_cache(self) -> None:
+        """Test the multi-agent formatter caches the agent messages and the
+        tool sequences, and follows the cache size."""
+        formatter = AnthropicMultiAgentFormatter()
+        nested = formatter._tool_sequence_formatter
+        msgs = [
+            *self.msgs_system,
+            *self.msgs_conversation,
+            *self.msgs_tools,
+        ]
+
+        with patch.object(
+            formatter,
+            "_format_agent_message",
+            wraps=formatter._format_agent_message,
+        ) as mock_agent, patch.object(
+            nested,
+            "_format_message",
+            wraps=nested._format_message,
+        ) as mock_nested:
+            await formatter.format(msgs)
+            self.assertEqual(mock_agent.call_count, 2)
+            self.assertEqual(mock_nested.call_count, 2)
+
+            # The system message recreated with a new id hits the cache
+            msgs[0] = Msg("system", "You're a helpful assistant.", "system")
+            res = await formatter.format(msgs)
+            self.assertListEqual(res, self.ground_truth_multiagent)
+            self.assertEqual(mock_agent.call_count, 2)
+            self.assertEqual(mock_nested.call_count, 2)
+
+            # Only the modified tool result is formatted again
+            msgs[-2].content[0]["output"] = "Tokyo."
+            await formatter.format(msgs)
+            self.assertEqual(mock_agent.call_count, 2)
+            self.assertEqual(mock_nested.call_count, 3)
+
+            # The cache size is passed to the nested formatter
+            formatter.format_cache_size = 0
+            await formatter.format(msgs)
+            self.assertEqual(mock_agent.call_count, 4)
+            self.assertEqual(mock_nested.call_count, 5)
+            self.assertEqual(nested.format_cache_size, 0)
@@ -1,6 +1,7 @@
 # -*- coding: utf-8 -*-
 """The OpenAI formatter unittests."""
 import os
+from typing import Any
 from unittest.async_case import IsolatedAsyncioTestCase
 from unittest.mock import patch, MagicMock
 
@@ -16,6 +17,7 @@ from agentscope.message import (
     ToolUseBlock,
     Base64Source,
 )
+from agentscope.token import TokenCounterBase
 
 
 class TestOpenAIFormatter(IsolatedAsyncioTestCase):
@@ -478,6 +480,102 @@ class TestOpenAIFormatter(IsolatedAsyncioTestCase):
             self.ground_truth_multiagent_without_conversation[1:],
         )
 
+    async def test_formatter_cache(self) -> None:
+        """Test the formatted messages are cached and invalidated once the
+        message is modified."""
+        formatter = OpenAIChatFormatter()
+        msgs = [
+            Msg("system", "You're a helpful assistant.", "system"),
+            Msg("user", "What is the capital of France?", "user"),
+        ]
+
+        with patch.object(
+            formatter,
+            "_format_message",
+            wraps=formatter._format_message,
+        ) as mock_format_message:
+            await formatter.format(msgs)
+            self.assertEqual(mock_format_message.call_count, 2)
+
+            # Only the new message is formatted
+            msgs.append(Msg("assistant", "Paris.", "assistant"))
+            res = await formatter.format(msgs)
+            self.assertEqual(mock_format_message.call_count, 3)
+
+            # The modified message is formatted again
+            msgs[-1].content = "The capital of France is Paris."
+            res = await formatter.format(msgs)
+            self.assertEqual(mock_format_message.call_count, 4)
+
+            # The messages formatted in advance are reused
+            msgs.append(Msg("user", "Thanks.", "user"))
+            await formatter.warm_up(msgs)
+            self.assertEqual(mock_format_message.call_count, 5)
+            await formatter.format(msgs)
+            self.assertEqual(mock_format_message.call_count, 5)
+            msgs.pop()
+
+        self.assertListEqual(
+            res[-1]["content"],
+            [{"type": "text", "text": "The capital of France is Paris."}],
+        )
+
+    async def test_formatter_truncation(self) -> None:
+        """Test the truncation keeps the latest messages within the token
+        limit, and removes the tool calls with their tool results."""
+
+        class MsgCounter(TokenCounterBase):
+            """Count one token per formatted message."""
+
+            def __init__(self) -> None:
+                self.n_calls = 0
+
+            async def count(self, messages: list[dict], **kwargs: Any) -> int:
+                self.n_calls += 1
+                return len(messages)
+
+        msgs = [Msg("system", "x" * 10, "system")]
+        for i in range(50):
+            msgs.extend(
+                [
+                    Msg(
+                        "assistant",
+                        [
+                            ToolUseBlock(
+                                type="tool_use",
+                                id=f"call_{i}",
+                                name="f",
+                                input={},
+                            ),
+                        ],
+                        "assistant",
+                    ),
+                    Msg(
+                        "system",
+                        [
+                            ToolResultBlock(
+                                type="tool_result",
+                                id=f"call_{i}",
+                                name="f",
+                                output="y" * 10,
+                            ),
+                        ],
+                        "system",
+                    ),
+                ],
+            )
+
+        counter = MsgCounter()
+        formatter = OpenAIChatFormatter(token_counter=counter, max_tokens=10)
+        res = await formatter.format(msgs)
+
+        # The system prompt and the last 4 tool calls with their results
+        self.assertListEqual(
+            res,
+            await OpenAIChatFormatter().format(msgs[:1] + msgs[-8:]),
+        )
+        self.assertLess(counter.n_calls, 10)
+
     async def asyncTearDown(self) -> None:
         """Clean up the test environment."""
         if os.path.exists(self.image_path):
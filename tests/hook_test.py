@@ -4,6 +4,7 @@ from typing import Any
 from unittest.async_case import IsolatedAsyncioTestCase
 
 from agentscope.agent import AgentBase
+from agentscope.hooks import read_only_hook
 from agentscope.message import Msg, TextBlock
 
 
@@ -614,6 +615,64 @@ class HookTest(IsolatedAsyncioTestCase):
             ],
         )
 
+    async def test_hook_arguments_copy(self) -> None:
+        """Test the hook arguments are copied on access, and passed to the
+        read-only hooks without copying."""
+        msg = self.msg
+        received = []
+
+        @read_only_hook
+        def read_only_pre_func(
+            _self: MyAgent,
+            kwargs: dict[str, Any],
+        ) -> None:
+            """A read-only pre-hook function."""
+            received.append(kwargs["msg"])
+
+        self.agent.register_instance_hook(
+            "pre_observe",
+            "pre_1",
+            async_pre_func_w_modifying,
+        )
+        self.agent.register_instance_hook(
+            "pre_observe",
+            "pre_2",
+            async_pre_func_wo_modifying,
+        )
+        self.agent.register_instance_hook(
+            "pre_observe",
+            "pre_3",
+            read_only_pre_func,
+        )
+        await self.agent.observe(msg)
+
+        # The given message is never modified
+        self.assertListEqual(msg.content, [TextBlock(type="text", text="0")])
+        # The read-only hook receives the arguments from the previous hook
+        # directly
+        self.assertIs(received[0], self.agent.memory[0])
+        self.assertListEqual(
+            self.agent.memory[0].content,
+            [
+                TextBlock(type="text", text="0"),
+                TextBlock(type="text", text="pre_1"),
+            ],
+        )
+
+        # The nested values are isolated from the original ones
+        self.agent.memory[0].content[0]["text"] = "modified"
+        self.assertEqual(msg.content[0]["text"], "0")
+
+        # Read-only hooks receive the original arguments
+        self.agent.clear_instance_hooks()
+        self.agent.register_instance_hook(
+            "pre_observe",
+            "pre_3",
+            read_only_pre_func,
+        )
+        await self.agent.observe(msg)
+        self.assertIs(received[1], msg)
+
     # TODO: The studio requires the hook inherited from AgentBase, we will
     #  solving this problem later.
     # async def test_instance_and_class_hooks(self) -> None:
@@ -0,0 +1,124 @@
+# -*- coding: utf-8 -*-
+"""The incremental JSON parser tests."""
+import json
+from typing import Any
+from unittest import IsolatedAsyncioTestCase
+from unittest.mock import patch
+
+from agentscope._utils import _incremental_json
+from agentscope._utils._incremental_json import _IncrementalJSONParser
+
+
+class IncrementalJSONParserTest(IsolatedAsyncioTestCase):
+    """Test cases for the incremental JSON parser."""
+
+    @staticmethod
+    def _parse(deltas: list[str]) -> tuple[list[Any], Any]:
+        """Feed the deltas one by one, and return the partial values after
+        each delta together with the final value."""
+        parser = _IncrementalJSONParser()
+        values = []
+        for delta in deltas:
+            parser.feed(delta)
+            values.append(parser.value)
+        return values, parser.finish()
+
+    async def test_escapes_split_across_deltas(self) -> None:
+        """Test the escape sequences split across the deltas."""
+        text = json.dumps({"a": 'x\n"y"\\z é \U0001f600!'})
+        values, final = self._parse(list(text))
+
+        self.assertDictEqual(json.loads(text), final)
+        # The partial strings never contain a broken escape sequence or a
+        # lone surrogate
+        partial = [_["a"] for _ in values if isinstance(_, dict) and _]
+        for value in partial:
+            self.assertTrue(json.loads(text)["a"].startswith(value))
+        self.assertIn('x\n"y"\\z é ', partial)
+        self.assertNotIn('x\n"y"\\z é \ud83d', partial)
+        self.assertEqual(json.loads(text)["a"], values[-1]["a"])
+
+        # The surrogate pair split between the two unicode escapes
+        values, final = self._parse(['["\\ud83d', "\\", "ude00", '"]'])
+        self.assertListEqual(
+            [[""], [""], ["\U0001f600"], ["\U0001f600"]],
+            values,
+        )
+        self.assertListEqual(["\U0001f600"], final)
+
+    async def test_nested_containers(self) -> None:
+        """Test the nested objects and arrays."""
+        text = json.dumps(
+            {
+                "a": [1, {"b": [True, None, "c"]}, []],
+                "d": {"e": {}, "f": [[2.5, -3e2]]},
+            },
+        )
+        values, final = self._parse([text[i : i + 3] for i in range(0, 90, 3)])
+
+        self.assertDictEqual(json.loads(text), final)
+        self.assertDictEqual(json.loads(text), values[-1])
+        self.assertIn({"a": [1, {"b": [True]}]}, values)
+
+        # The emitted partial values are not modified by the later deltas
+        parser = _IncrementalJSONParser()
+        parser.feed('{"a": [1, ')
+        first = parser.value
+        parser.feed('2], "b": {"c": "d')
+        self.assertDictEqual({"a": [1]}, first)
+        self.assertDictEqual({"a": [1, 2], "b": {"c": "d"}}, parser.value)
+
+    async def test_scalars_cut_mid_token(self) -> None:
+        """Test the numbers and literals cut in the middle."""
+        values, final = self._parse(
+            ['{"a": -1', "2", ".", "5", "e", "1, ", '"b": tr', "ue}"],
+        )
+        # The number is missing while it ends with "." or "e"
+        self.assertListEqual(
+            [
+                {"a": -1},
+                {"a": -12},
+                {},
+                {"a": -12.5},
+                {},
+                {"a": -125.0},
+                {"a": -125.0},
+                {"a": -125.0, "b": True},
+            ],
+            values,
+        )
+        self.assertDictEqual({"a": -125.0, "b": True}, final)
+
+        values, final = self._parse(["[nu", "ll, fal", "se]"])
+        self.assertListEqual([[], [None], [None, False]], values)
+        self.assertListEqual([None, False], final)
+
+    async def test_invalid_json(self) -> None:
+        """Test falling back to repairing the accumulated string once the
+        input turns out to be invalid JSON."""
+        parser = _IncrementalJSONParser()
+        parser.feed('{"a": 1')
+        self.assertDictEqual({"a": 1}, parser.value)
+
+        with patch.object(
+            _incremental_json,
+            "_json_loads_with_repair",
+            return_value={"a": 1},
+        ) as mock_repair:
+            self.assertTrue(parser.feed("} extra"))
+            self.assertDictEqual({"a": 1}, parser.value)
+            mock_repair.assert_called_once_with('{"a": 1} extra')
+
+            self.assertTrue(parser.feed("!"))
+            self.assertDictEqual({"a": 1}, parser.finish())
+            mock_repair.assert_called_with('{"a": 1} extra!')
+
+        parser = _IncrementalJSONParser()
+        with patch.object(
+            _incremental_json,
+            "_json_loads_with_repair",
+            return_value={"a": "b"},
+        ) as mock_repair:
+            parser.feed("{'a': 'b")
+            self.assertDictEqual({"a": "b"}, parser.value)
+            mock_repair.assert_called_once_with("{'a': 'b")
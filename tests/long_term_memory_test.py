@@ -0,0 +1,243 @@
+# -*- coding: utf-8 -*-
+"""The long-term memory tests."""
+import asyncio
+import os
+import tempfile
+from typing import Any
+from unittest import IsolatedAsyncioTestCase
+
+from agentscope.embedding import EmbeddingModelBase, EmbeddingResponse
+from agentscope.memory import (
+    LongTermMemoryBase,
+    VectorLongTermMemory,
+    WriteBehindRecorder,
+)
+from agentscope.message import Msg
+
+
+class BagOfWordsEmbedding(EmbeddingModelBase):
+    """Embed the texts by counting the words in a fixed vocabulary."""
+
+    vocabulary = ["apple", "banana", "cherry", "dog", "cat", "bird"]
+
+    def __init__(self) -> None:
+        super().__init__("bag_of_words")
+        self.batch_sizes: list[int] = []
+
+    async def __call__(self, text: list[str], **kwargs: Any) -> Any:
+        self.batch_sizes.append(len(text))
+        return EmbeddingResponse(
+            embeddings=[
+                [_.lower().split().count(word) for word in self.vocabulary]
+                for _ in text
+            ],
+        )
+
+
+class SlowLongTermMemory(LongTermMemoryBase):
+    """Record the message contents after the gate is opened, which is also
+    used by the ReAct agent tests."""
+
+    def __init__(self) -> None:
+        super().__init__()
+        self.gate: asyncio.Event | None = None
+        self.fail = False
+        self.records: list[tuple[list[str], dict]] = []
+
+    async def record(self, msgs: list[Msg | None], **kwargs: Any) -> None:
+        if self.gate is not None:
+            await self.gate.wait()
+        if self.fail:
+            raise RuntimeError("Failed to record")
+        self.records.append(
+            ([_.get_text_content() for _ in msgs], kwargs),
+        )
+
+    async def retrieve(
+        self,
+        msg: Msg | list[Msg] | None,
+        **kwargs: Any,
+    ) -> str:
+        return f"{len(self.records)} record(s)"
+
+
+class VectorLongTermMemoryTest(IsolatedAsyncioTestCase):
+    """Test cases for the vector long-term memory."""
+
+    async def test_record_and_retrieve(self) -> None:
+        """Test recording and retrieving by similarity and metadata."""
+        embedding_model = BagOfWordsEmbedding()
+        memory = VectorLongTermMemory(
+            embedding_model,
+            embedding_batch_size=2,
+        )
+        await memory.record(
+            [
+                Msg("Alice", "apple banana", "user"),
+                Msg("Alice", "dog cat", "user"),
+                None,
+                Msg("Friday", "cherry apple", "assistant"),
+                Msg("Alice", "bird", "user"),
+            ],
+        )
+        self.assertEqual(4, memory.size)
+        self.assertListEqual([1, 1, 2], sorted(embedding_model.batch_sizes))
+
+        self.assertEqual(
+            "apple banana\ncherry apple",
+            await memory.retrieve(Msg("Bob", "banana apple", "user"), 2),
+        )
+        self.assertEqual(
+            "cherry apple",
+            await memory.retrieve(
+                Msg("Bob", "banana apple", "user"),
+                filters={"name": "Friday"},
+            ),
+        )
+        self.assertEqual(
+            "bird\ndog cat",
+            await memory.retrieve(
+                Msg("Bob", "cat bird", "user"),
+                limit=2,
+                filters={"name": ["Alice", "Bob"]},
+            ),
+        )
+
+        # The tool functions
+        res = await memory.record_to_memory("", ["cat cat", ""])
+        self.assertIn("1 item(s)", res.content[0]["text"])
+        res = await memory.retrieve_from_memory(["cat"], limit=1)
+        self.assertEqual("cat cat", res.content[0]["text"])
+
+        # Delete
+        results = await memory.search(["cat"], limit=5)
+        await memory.delete([_["id"] for _ in results[0]][:2])
+        self.assertEqual(3, memory.size)
+        self.assertNotIn(
+            "cat",
+            await memory.retrieve(Msg("Bob", "cat", "user")),
+        )
+
+    async def test_persistence_and_ivf(self) -> None:
+        """Test loading the memory from disk, and searching with the IVF
+        index."""
+        with tempfile.TemporaryDirectory() as save_dir:
+            memory = VectorLongTermMemory(
+                BagOfWordsEmbedding(),
+                save_dir=save_dir,
+                metadata={"user_id": "alice"},
+            )
+            ids = await memory.add(["apple", "dog", "cat"])
+            await memory.delete(ids[:1])
+            await memory.add(["banana"], metadata={"source": "note"})
+
+            # Append a partially written entry, which is skipped
+            with open(os.path.join(save_dir, "records.jsonl"), "a") as f:
+                f.write('{"op": "add", "row"')
+
+            memory = VectorLongTermMemory(
+                BagOfWordsEmbedding(),
+                save_dir=save_dir,
+                metadata={"user_id": "alice"},
+                ivf_threshold=2,
+                n_probes=1,
+            )
+            self.assertEqual(3, memory.size)
+            self.assertEqual(
+                "banana",
+                await memory.retrieve(
+                    Msg("Bob", "banana", "user"),
+                    limit=1,
+                    filters={"source": "note"},
+                ),
+            )
+            self.assertEqual(
+                "",
+                await memory.retrieve(
+                    Msg("Bob", "banana", "user"),
+                    filters={"user_id": "bob"},
+                ),
+            )
+
+            # The IVF index is used without filters, and the new records
+            # are assigned to the clusters
+            await memory.add(["bird", "dog dog"])
+            results = await memory.search(["dog"], limit=1, filters={})
+            self.assertEqual("dog", results[0][0]["content"])
+            self.assertAlmostEqual(1.0, results[0][0]["score"], places=5)
+
+            memory = VectorLongTermMemory(
+                BagOfWordsEmbedding(),
+                save_dir=save_dir,
+            )
+            self.assertEqual(5, memory.size)
+
+
+class WriteBehindRecorderTest(IsolatedAsyncioTestCase):
+    """Test cases for the write-behind recorder."""
+
+    async def test_batching_and_backpressure(self) -> None:
+        """Test coalescing the queued submissions and waiting for the full
+        backlog."""
+        memory = SlowLongTermMemory()
+        memory.gate = asyncio.Event()
+        recorder = WriteBehindRecorder(memory, max_backlog=2)
+        msgs = [Msg("user", str(i), "user") for i in range(4)]
+
+        await recorder.submit([msgs[0], None])
+        await asyncio.sleep(0)
+        await recorder.submit([msgs[0], msgs[1]])
+        await recorder.submit([msgs[1], msgs[2]])
+
+        # The backlog is full while the first submission is being recorded
+        blocked = asyncio.create_task(
+            recorder.submit([msgs[3]], metadata={"tag": "x"}),
+        )
+        for _ in range(5):
+            await asyncio.sleep(0)
+        self.assertFalse(blocked.done())
+        self.assertEqual(3, recorder.backlog)
+        self.assertListEqual([], memory.records)
+
+        memory.gate.set()
+        await blocked
+        await recorder.flush()
+        self.assertEqual(0, recorder.backlog)
+        self.assertListEqual(
+            [
+                (["0"], {}),
+                (["0", "1", "2"], {}),
+                (["3"], {"metadata": {"tag": "x"}}),
+            ],
+            memory.records,
+        )
+
+        # The failures are logged and the following submissions go on
+        memory.fail = True
+        await recorder.submit([msgs[0]])
+        await recorder.flush()
+        memory.fail = False
+        await recorder.submit([msgs[1]])
+        await recorder.close()
+        self.assertListEqual(["1"], memory.records[-1][0])
+        self.assertEqual(4, len(memory.records))
+
+    async def test_flush_on_shutdown(self) -> None:
+        """Test recording the queued messages when the event loop shuts
+        down."""
+        memory = SlowLongTermMemory()
+        recorder = WriteBehindRecorder(memory)
+
+        async def main() -> None:
+            memory.gate = asyncio.Event()
+            await recorder.submit([Msg("user", "0", "user")])
+            await asyncio.sleep(0)
+            await recorder.submit([Msg("user", "1", "user")])
+            asyncio.get_running_loop().call_later(0.05, memory.gate.set)
+
+        await asyncio.to_thread(asyncio.run, main())
+        self.assertListEqual(
+            [(["0", "1"], {})],
+            memory.records,
+        )
+        self.assertEqual(0, recorder.backlog)
@@ -1,6 +1,8 @@
 # -*- coding: utf-8 -*-
 """The MCP client test module in agentscope."""
 import asyncio
+import os
+import tempfile
 from multiprocessing import Process
 from unittest.async_case import IsolatedAsyncioTestCase
 
@@ -406,3 +408,65 @@ class SseMCPClientTest(IsolatedAsyncioTestCase):
 
         await stateful_client.close()
         self.assertFalse(stateful_client.is_connected)
+
+    async def test_pooled_stateless_client(self) -> None:
+        """Test the stateless client with pooled sessions."""
+        client = HttpStatelessClient(
+            name="test_pooled_stateless_client",
+            transport="sse",
+            url=f"http://127.0.0.1:{self.port}/sse",
+            pool_size=2,
+        )
+
+        func = await client.get_callable_function(
+            "tool_1",
+            wrap_tool_result=False,
+        )
+        results = await asyncio.gather(
+            *[func(arg1=str(i), arg2=[i]) for i in range(5)],
+        )
+        for i, res in enumerate(results):
+            self.assertEqual(
+                res.content[0].text,
+                f"arg1: {i}, arg2: [{i}]",
+            )
+
+        # The warm sessions are reused by the following calls
+        self.assertEqual(client.session_pool.size, 2)
+        self.assertEqual(client.session_pool.idle_size, 2)
+
+        res = await func(arg1="a", arg2=[1])
+        self.assertEqual(res.content[0].text, "arg1: a, arg2: [1]")
+        self.assertEqual(client.session_pool.size, 2)
+
+        await client.close()
+        self.assertEqual(client.session_pool.size, 0)
+
+    async def test_register_mcp_clients(self) -> None:
+        """Test registering multiple MCP clients with the tools cache."""
+        cache_path = os.path.join(tempfile.mkdtemp(), "mcp_tools.json")
+
+        client = HttpStatelessClient(
+            name="test_register_mcp_clients",
+            transport="sse",
+            url=f"http://127.0.0.1:{self.port}/sse",
+        )
+        await self.toolkit.register_mcp_clients(
+            [client],
+            tools_cache_path=cache_path,
+        )
+        self.assertListEqual(self.toolkit.get_json_schemas(), self.schemas)
+        self.assertTrue(os.path.exists(cache_path))
+
+        # Warm start from the cached tool list without the server
+        self.toolkit.clear()
+        client = HttpStatelessClient(
+            name="test_register_mcp_clients",
+            transport="sse",
+            url="http://127.0.0.1:1/sse",
+        )
+        await self.toolkit.register_mcp_clients(
+            [client],
+            tools_cache_path=cache_path,
+        )
+        self.assertListEqual(self.toolkit.get_json_schemas(), self.schemas)
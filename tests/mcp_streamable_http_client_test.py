@@ -2,12 +2,15 @@
 """The MCP client test module in agentscope."""
 import asyncio
 from multiprocessing import Process
+from typing import Any
 from unittest.async_case import IsolatedAsyncioTestCase
 
+import anyio
 import mcp.types
 from mcp.server import FastMCP
 
 from agentscope.mcp import HttpStatelessClient, HttpStatefulClient
+from agentscope.mcp._stateful_client_base import _is_transport_error
 from agentscope.message import TextBlock
 from agentscope.tool import ToolResponse
 
@@ -24,10 +27,22 @@ async def tool_1(arg1: str, arg2: list[int]) -> str:
     return f"arg1: {arg1}, arg2: {arg2}"
 
 
+async def slow_tool(seconds: float) -> str:
+    """A test tool function that takes a while.
+
+    Args:
+        seconds (`float`):
+            The seconds to sleep.
+    """
+    await asyncio.sleep(seconds)
+    return f"slept {seconds} seconds"
+
+
 def setup_server() -> None:
     """Set up the streamable HTTP MCP server."""
     sse_server = FastMCP("StreamableHTTP", port=8002)
     sse_server.tool(description="A test tool function.")(tool_1)
+    sse_server.tool(description="A slow test tool function.")(slow_tool)
     sse_server.run(transport="streamable-http")
 
 
@@ -132,3 +147,212 @@ class StreamableHttpMCPClientTest(IsolatedAsyncioTestCase):
 
         await client.close()
         self.assertFalse(client.is_connected)
+
+    async def test_pooled_stateless_client(self) -> None:
+        """Test the stateless client with pooled sessions."""
+        client = HttpStatelessClient(
+            name="test_pooled_stateless_client",
+            transport="streamable_http",
+            url=f"http://127.0.0.1:{self.port}/mcp",
+            pool_size=2,
+        )
+
+        func = await client.get_callable_function(
+            "tool_1",
+            wrap_tool_result=False,
+        )
+        results = await asyncio.gather(
+            *[func(arg1=str(i), arg2=[i]) for i in range(5)],
+        )
+        for i, res in enumerate(results):
+            self.assertEqual(
+                res.content[0].text,
+                f"arg1: {i}, arg2: [{i}]",
+            )
+
+        # The warm sessions are reused by the following calls
+        self.assertEqual(client.session_pool.size, 2)
+        self.assertEqual(client.session_pool.idle_size, 2)
+
+        res = await func(arg1="a", arg2=[1])
+        self.assertEqual(res.content[0].text, "arg1: a, arg2: [1]")
+        self.assertEqual(client.session_pool.size, 2)
+
+        await client.close()
+        self.assertEqual(client.session_pool.size, 0)
+
+    async def test_session_pool_cancellation(self) -> None:
+        """Test the session pool doesn't leak the slots when the callers are
+        cancelled."""
+        client = HttpStatelessClient(
+            name="test_session_pool_cancellation",
+            transport="streamable_http",
+            url=f"http://127.0.0.1:{self.port}/mcp",
+            pool_size=1,
+        )
+        pool = client.session_pool
+        func = await client.get_callable_function(
+            "tool_1",
+            wrap_tool_result=False,
+        )
+        await func(arg1="a", arg2=[1])
+        self.assertEqual(pool.size, 1)
+
+        # Cancelled during the health check of the handed over session
+        never = asyncio.Event()
+
+        async def check_health(_: Any) -> bool:
+            await never.wait()
+            return True
+
+        async with pool.session():
+            pool._check_health = check_health
+            waiting = asyncio.create_task(func(arg1="b", arg2=[2]))
+            await asyncio.sleep(0.1)
+        await asyncio.sleep(0.1)
+        waiting.cancel()
+        with self.assertRaises(asyncio.CancelledError):
+            await waiting
+        self.assertEqual(pool.size, 0)
+        del pool._check_health
+
+        # The freed slot serves the following calls
+        res = await asyncio.wait_for(func(arg1="c", arg2=[3]), timeout=30)
+        self.assertEqual(res.content[0].text, "arg1: c, arg2: [3]")
+        self.assertEqual(pool.size, 1)
+
+        await client.close()
+        self.assertEqual(pool.size, 0)
+
+    async def test_multiplexed_stateful_client(self) -> None:
+        """Test the concurrent calls on the stateful client."""
+        client = HttpStatefulClient(
+            name="test_multiplexed_stateful_client",
+            transport="streamable_http",
+            url=f"http://127.0.0.1:{self.port}/mcp",
+        )
+        client.max_concurrency = 2
+        client.fleet_size = 2
+        await client.connect()
+
+        func = await client.get_callable_function(
+            "tool_1",
+            wrap_tool_result=False,
+        )
+        results = await asyncio.gather(
+            *[func(arg1=str(i), arg2=[i]) for i in range(6)],
+        )
+        for i, res in enumerate(results):
+            self.assertEqual(
+                res.content[0].text,
+                f"arg1: {i}, arg2: [{i}]",
+            )
+
+        # The list_tools request and the tool calls
+        self.assertEqual(client.metrics.completed, 7)
+        self.assertEqual(client.metrics.failed, 0)
+        self.assertEqual(client.metrics.queued, 0)
+        self.assertEqual(client.metrics.in_flight, 0)
+
+        await client.close()
+        self.assertFalse(client.is_connected)
+
+    async def test_stateful_client_timeout_and_reconnect(self) -> None:
+        """Test the call timeout and the reconnection of the stateful
+        client."""
+        client = HttpStatefulClient(
+            name="test_stateful_client_timeout_and_reconnect",
+            transport="streamable_http",
+            url=f"http://127.0.0.1:{self.port}/mcp",
+        )
+        client.call_timeout = 0.5
+        client.reconnect_backoff = 0.1
+        await client.connect()
+
+        func = await client.get_callable_function(
+            "slow_tool",
+            wrap_tool_result=False,
+        )
+        with self.assertRaises(TimeoutError):
+            await func(seconds=2)
+        self.assertEqual(client.metrics.timeouts, 1)
+        self.assertEqual(client.metrics.failed, 1)
+
+        # The local errors don't close the session
+        session = client.session
+
+        async def raise_error(_: mcp.ClientSession) -> None:
+            raise ValueError("Invalid arguments")
+
+        with self.assertRaises(ValueError):
+            await client._request(raise_error)
+        self.assertIs(client.session, session)
+        self.assertEqual(client.metrics.reconnects, 0)
+
+        # Reconnect after the transport died
+        await client._connections[0]._session.close()
+        self.assertIsNone(client.session)
+        res = await func(seconds=0)
+        self.assertEqual(res.content[0].text, "slept 0 seconds")
+        self.assertIsNotNone(client.session)
+        self.assertIsNot(client.session, session)
+        self.assertEqual(client.metrics.reconnects, 1)
+
+        # The list_tools request, the timed out, failed and successful calls
+        self.assertEqual(client.metrics.completed, 4)
+        self.assertEqual(client.metrics.failed, 2)
+        self.assertEqual(client.metrics.in_flight, 0)
+
+        await client.close()
+
+    async def test_least_loaded_connection(self) -> None:
+        """Test sending the requests to the least loaded connection in the
+        fleet mode."""
+        client = HttpStatefulClient(
+            name="test_least_loaded_connection",
+            transport="streamable_http",
+            url=f"http://127.0.0.1:{self.port}/mcp",
+        )
+        client.max_concurrency = 1
+        client.fleet_size = 2
+        await client.connect()
+
+        func = await client.get_callable_function(
+            "slow_tool",
+            wrap_tool_result=False,
+        )
+        slow_call = asyncio.create_task(func(seconds=2))
+        await asyncio.sleep(0.2)
+        self.assertListEqual(
+            [1, 0],
+            sorted([_.load for _ in client._connections], reverse=True),
+        )
+
+        # The fast call isn't queued behind the slow one, since it's sent
+        # through the idle connection
+        res = await func(seconds=0)
+        self.assertEqual(res.content[0].text, "slept 0 seconds")
+        self.assertFalse(slow_call.done())
+        self.assertEqual(client.metrics.in_flight, 1)
+        self.assertEqual(client.metrics.queued, 0)
+
+        res = await slow_call
+        self.assertEqual(res.content[0].text, "slept 2 seconds")
+        self.assertListEqual([0, 0], [_.load for _ in client._connections])
+
+        # The list_tools request and the tool calls
+        self.assertEqual(client.metrics.completed, 3)
+        self.assertEqual(client.metrics.failed, 0)
+        self.assertGreaterEqual(client.metrics.max_latency, 2)
+        self.assertLess(client.metrics.mean_queue_time, 1)
+
+        await client.close()
+
+    def test_is_transport_error(self) -> None:
+        """Test telling the transport errors from the other errors."""
+        self.assertTrue(_is_transport_error(anyio.ClosedResourceError()))
+        self.assertTrue(_is_transport_error(anyio.BrokenResourceError()))
+        self.assertTrue(_is_transport_error(ConnectionResetError()))
+        self.assertTrue(_is_transport_error(anyio.EndOfStream()))
+        self.assertFalse(_is_transport_error(ValueError()))
+        self.assertFalse(_is_transport_error(KeyError("arg1")))
@@ -0,0 +1,415 @@
+# -*- coding: utf-8 -*-
+"""The memory module tests."""
+import asyncio
+from typing import Any
+from unittest import IsolatedAsyncioTestCase
+
+from agentscope.formatter import OpenAIChatFormatter
+from agentscope.memory import (
+    InMemoryMemory,
+    IndexedMemory,
+    WindowedMemory,
+    TokenBudgetMemory,
+    CompactingMemory,
+)
+from agentscope.message import Msg, TextBlock, ToolUseBlock, ToolResultBlock
+from agentscope.model import ChatModelBase, ChatResponse, ChatUsage
+from agentscope.token import TokenCounterBase
+
+
+class IndexedMemoryTest(IsolatedAsyncioTestCase):
+    """Test cases for the indexed memory."""
+
+    async def asyncSetUp(self) -> None:
+        """Set up the test case."""
+        self.msgs = [
+            Msg(
+                "Alice" if i % 2 == 0 else "Friday",
+                str(i),
+                "user" if i % 2 == 0 else "assistant",
+                timestamp=f"2025-01-0{i + 1} 00:00:00.000",
+            )
+            for i in range(6)
+        ]
+        self.memory = IndexedMemory()
+        await self.memory.add(self.msgs)
+
+    async def test_add_and_delete(self) -> None:
+        """Test adding duplicate messages and deleting messages."""
+        await self.memory.add([self.msgs[0], self.msgs[0]])
+        self.assertEqual(6, await self.memory.size())
+        await self.memory.add(self.msgs[0], allow_duplicates=True)
+        self.assertEqual(7, await self.memory.size())
+
+        await self.memory.delete(_ for _ in [1, 2, 6])
+        self.assertListEqual(
+            ["0", "3", "4", "5"],
+            [_.content for _ in await self.memory.get_memory()],
+        )
+        with self.assertRaises(IndexError):
+            await self.memory.delete(4)
+
+        await self.memory.delete_by_id([self.msgs[0].id, self.msgs[4].id])
+        self.assertListEqual(
+            ["3", "5"],
+            [_.content for _ in await self.memory.get_memory()],
+        )
+        self.assertIsNone(await self.memory.get_by_id(self.msgs[0].id))
+        self.assertIs(
+            self.msgs[5],
+            await self.memory.get_by_id(self.msgs[5].id),
+        )
+        with self.assertRaises(ValueError):
+            await self.memory.delete_by_id(self.msgs[0].id)
+
+        # The indexes are rebuilt after deleting
+        await self.memory.add(self.msgs[0])
+        self.assertListEqual(
+            ["5", "0"],
+            [_.content for _ in await self.memory.retrieve(start=-2)],
+        )
+
+    async def test_retrieve(self) -> None:
+        """Test retrieving the messages by ranges."""
+
+        async def retrieve(**kwargs: str | int) -> list[str]:
+            return [_.content for _ in await self.memory.retrieve(**kwargs)]
+
+        self.assertListEqual(["1", "2"], await retrieve(start=1, end=3))
+        self.assertListEqual(["4", "5"], await retrieve(start=-2))
+        self.assertListEqual(
+            ["2", "3", "4"],
+            await retrieve(start_id=self.msgs[2].id, end_id=self.msgs[4].id),
+        )
+        self.assertListEqual(["1", "3", "5"], await retrieve(role="assistant"))
+        self.assertListEqual(["2", "4"], await retrieve(name="Alice", start=1))
+        self.assertListEqual([], await retrieve(name="Bob"))
+        self.assertListEqual(
+            ["2", "3"],
+            await retrieve(since="2025-01-03", until="2025-01-04"),
+        )
+        self.assertListEqual(
+            ["3"],
+            await retrieve(since="2025-01-03", role="assistant", end=4),
+        )
+        with self.assertRaises(ValueError):
+            await retrieve(start_id="unknown")
+
+        # The timestamps out of order
+        await self.memory.add(
+            Msg("Alice", "6", "user", timestamp="2025-01-02 12:00:00.000"),
+        )
+        self.assertListEqual(
+            ["1", "6"],
+            await retrieve(since="2025-01-02", until="2025-01-02"),
+        )
+
+    async def test_state_dict(self) -> None:
+        """Test loading the state of the in-memory memory."""
+        memory = InMemoryMemory()
+        await memory.add(self.msgs)
+        self.assertDictEqual(memory.state_dict(), self.memory.state_dict())
+
+        new_memory = IndexedMemory()
+        new_memory.load_state_dict(memory.state_dict())
+        self.assertDictEqual(memory.state_dict(), new_memory.state_dict())
+        self.assertListEqual(
+            ["1", "3", "5"],
+            [_.content for _ in await new_memory.retrieve(name="Friday")],
+        )
+        await new_memory.add(self.msgs[0])
+        self.assertEqual(6, await new_memory.size())
+
+        await new_memory.clear()
+        self.assertListEqual([], await new_memory.retrieve(name="Friday"))
+
+
+class CharCounter(TokenCounterBase):
+    """Count one token per character of the text content."""
+
+    def __init__(self) -> None:
+        self.n_calls = 0
+
+    async def count(self, messages: list[dict], **kwargs: Any) -> int:
+        self.n_calls += 1
+        n_tokens = 0
+        for msg in messages:
+            content = msg.get("content") or []
+            if isinstance(content, str):
+                n_tokens += len(content)
+            else:
+                n_tokens += sum(len(_.get("text", "")) for _ in content)
+        return n_tokens
+
+
+def _tool_turn(i: int) -> list[Msg]:
+    """A tool call and its tool result."""
+    return [
+        Msg(
+            "Friday",
+            [
+                ToolUseBlock(
+                    type="tool_use",
+                    id=f"call_{i}",
+                    name="f",
+                    input={},
+                ),
+            ],
+            "assistant",
+        ),
+        Msg(
+            "system",
+            [
+                ToolResultBlock(
+                    type="tool_result",
+                    id=f"call_{i}",
+                    name="f",
+                    output="ok",
+                ),
+            ],
+            "system",
+        ),
+    ]
+
+
+class WindowedMemoryTest(IsolatedAsyncioTestCase):
+    """Test cases for the windowed and token budget memories."""
+
+    async def test_windowed_memory(self) -> None:
+        """Test the windowed memory evicts the tool calls with their
+        results into the archive."""
+        archive = IndexedMemory()
+        memory = WindowedMemory(max_messages=4, archive=archive)
+
+        msgs = [Msg("Alice", "0", "user"), *_tool_turn(1)]
+        msgs += [Msg("Alice", "3", "user"), *_tool_turn(4)]
+        for msg in msgs:
+            await memory.add(msg)
+            await memory.add(msg)
+
+        # The tool call in msgs[1] is evicted with its result in msgs[2]
+        self.assertListEqual(msgs[3:], await memory.get_memory())
+        self.assertListEqual(msgs[:3], await archive.get_memory())
+        self.assertEqual(3, await memory.size())
+
+        # The evicted messages can be added again
+        await memory.add(msgs[0])
+        self.assertListEqual(
+            [*msgs[3:], msgs[0]],
+            await memory.get_memory(),
+        )
+
+        # The latest turn is kept even if it exceeds the window
+        memory = WindowedMemory(max_messages=1)
+        await memory.add(_tool_turn(0))
+        self.assertEqual(2, await memory.size())
+
+        # Delete and clear
+        await memory.delete(0)
+        self.assertEqual(1, await memory.size())
+        with self.assertRaises(IndexError):
+            await memory.delete(1)
+        await memory.clear()
+        self.assertListEqual([], await memory.get_memory())
+
+    async def test_unanswered_tool_call(self) -> None:
+        """Test closing the turn of a tool call without its result at the
+        next non-tool message."""
+        memory = WindowedMemory(max_messages=2)
+        tool_call = _tool_turn(0)[0]
+        msgs = [Msg("Alice", f"{i}", "user") for i in range(3)]
+        await memory.add([tool_call, *msgs])
+
+        # The unanswered tool call is evicted alone
+        self.assertListEqual(msgs[1:], await memory.get_memory())
+        self.assertEqual(2, await memory.size())
+
+        # The turns are rebuilt in the same way after loading
+        new_memory = WindowedMemory(max_messages=2)
+        new_memory.load_state_dict(
+            {"content": [_.to_dict() for _ in [tool_call, *msgs]]},
+        )
+        self.assertListEqual(
+            [_.id for _ in msgs[1:]],
+            [_.id for _ in await new_memory.get_memory()],
+        )
+
+    async def test_token_budget_memory(self) -> None:
+        """Test the token budget memory counts each message once."""
+        counter = CharCounter()
+        memory = TokenBudgetMemory(
+            max_tokens=10,
+            token_counter=counter,
+            formatter=OpenAIChatFormatter(),
+            archive=IndexedMemory(),
+        )
+        msgs = [Msg("Alice", str(i) * 4, "user") for i in range(5)]
+        for msg in msgs:
+            await memory.add(msg)
+            await memory.get_memory()
+
+        self.assertListEqual(msgs[3:], await memory.get_memory())
+        self.assertEqual(8, await memory.get_token_count())
+        self.assertEqual(5, counter.n_calls)
+
+        # Reload the window and the archive, where the messages are counted
+        # lazily
+        state = memory.state_dict()
+        new_memory = TokenBudgetMemory(
+            max_tokens=4,
+            token_counter=counter,
+            formatter=OpenAIChatFormatter(),
+            archive=IndexedMemory(),
+        )
+        new_memory.load_state_dict(state)
+        self.assertDictEqual(
+            state["archive"],
+            new_memory.archive.state_dict(),
+        )
+        self.assertEqual(
+            [_.content for _ in msgs[4:]],
+            [_.content for _ in await new_memory.get_memory()],
+        )
+        self.assertEqual(4, await new_memory.get_token_count())
+        self.assertEqual(4, await new_memory.archive.size())
+
+
+class SummaryModel(ChatModelBase):
+    """The model generating the summary once released."""
+
+    def __init__(self) -> None:
+        super().__init__("summary_model", stream=False)
+        self.released = asyncio.Event()
+        self.prompts: list[list[dict]] = []
+
+    async def __call__(
+        self,
+        messages: list[dict],
+        **kwargs: Any,
+    ) -> ChatResponse:
+        self.prompts.append(messages)
+        await self.released.wait()
+        return ChatResponse(
+            content=[TextBlock(type="text", text="summary")],
+            usage=ChatUsage(input_tokens=10, output_tokens=1, time=0.1),
+        )
+
+
+class BlockingCounter(CharCounter):
+    """The character counter counting once released."""
+
+    def __init__(self) -> None:
+        super().__init__()
+        self.released = asyncio.Event()
+
+    async def count(self, messages: list[dict], **kwargs: Any) -> int:
+        await self.released.wait()
+        return await super().count(messages, **kwargs)
+
+
+async def _wait_counting(memory: CompactingMemory) -> None:
+    """Wait for the token counting of the compacting memory in background."""
+    await asyncio.wait([memory._counting_task])
+
+
+class CompactingMemoryTest(IsolatedAsyncioTestCase):
+    """Test cases for the compacting memory."""
+
+    async def test_compaction(self) -> None:
+        """Test the compaction runs in background and keeps the tool call
+        pairs."""
+        model = SummaryModel()
+        memory = CompactingMemory(
+            model=model,
+            formatter=OpenAIChatFormatter(),
+            token_counter=CharCounter(),
+            max_tokens=20,
+            keep_tokens=5,
+        )
+        msgs = [Msg("Alice", str(i) * 4, "user") for i in range(4)]
+        msgs += _tool_turn(4)
+        msgs += [Msg("Friday", "6" * 4, "assistant")]
+        await memory.add(msgs[:5])
+        await _wait_counting(memory)
+        self.assertFalse(memory.is_compacting)
+
+        # Adding messages doesn't wait for the compaction
+        await memory.add(msgs[5:])
+        await _wait_counting(memory)
+        self.assertTrue(memory.is_compacting)
+        await memory.add(Msg("Alice", "7" * 4, "user"))
+        self.assertEqual(8, await memory.size())
+
+        model.released.set()
+        await memory.wait_compaction()
+
+        # The tool call is compacted together with its result, and the
+        # messages added during the compaction are kept
+        content = await memory.get_memory()
+        self.assertEqual("memory_summary", content[0].name)
+        self.assertIn("summary", content[0].content)
+        self.assertListEqual(
+            ["6666", "7777"],
+            [_.get_text_content() for _ in content[1:]],
+        )
+        self.assertEqual(8, len(model.prompts[0]))
+        self.assertEqual(1, len(model.prompts))
+        self.assertEqual(10, memory.usages[0].input_tokens)
+
+    async def test_cancel_compaction(self) -> None:
+        """Test canceling the compaction and discarding the outdated
+        summary."""
+        model = SummaryModel()
+        memory = CompactingMemory(
+            model=model,
+            formatter=OpenAIChatFormatter(),
+            token_counter=CharCounter(),
+            max_tokens=10,
+            keep_tokens=4,
+        )
+        msgs = [Msg("Alice", str(i) * 4, "user") for i in range(3)]
+        await memory.add(msgs)
+        await _wait_counting(memory)
+        self.assertTrue(memory.is_compacting)
+        await memory.cancel_compaction()
+        self.assertFalse(memory.is_compacting)
+        self.assertListEqual(msgs, await memory.get_memory())
+
+        # The summary is discarded if the messages are changed meanwhile
+        await memory.add(Msg("Alice", "3" * 4, "user"))
+        await _wait_counting(memory)
+        self.assertTrue(memory.is_compacting)
+        await memory.delete(0)
+        model.released.set()
+        await memory.wait_compaction()
+        self.assertEqual(3, await memory.size())
+        self.assertEqual([], memory.usages[1:])
+
+    async def test_background_counting(self) -> None:
+        """Test adding messages doesn't wait for the token counting."""
+        model = SummaryModel()
+        model.released.set()
+        counter = BlockingCounter()
+        memory = CompactingMemory(
+            model=model,
+            formatter=OpenAIChatFormatter(),
+            token_counter=counter,
+            max_tokens=10,
+            keep_tokens=4,
+        )
+        msgs = [Msg("Alice", str(i) * 4, "user") for i in range(4)]
+        await memory.add(msgs[:3])
+        counting_task = memory._counting_task
+
+        # The messages added meanwhile are counted by the running task
+        await memory.add(msgs[3])
+        self.assertIs(counting_task, memory._counting_task)
+        self.assertEqual(0, counter.n_calls)
+        self.assertFalse(memory.is_compacting)
+
+        counter.released.set()
+        await memory.wait_compaction()
+        self.assertEqual(4, counter.n_calls)
+        content = await memory.get_memory()
+        self.assertEqual("memory_summary", content[0].name)
+        self.assertListEqual(["3333"], [_.content for _ in content[1:]])
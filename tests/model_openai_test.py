@@ -5,7 +5,11 @@ from unittest.async_case import IsolatedAsyncioTestCase
 from unittest.mock import Mock, patch, AsyncMock
 from pydantic import BaseModel
 
-from agentscope.model import OpenAIChatModel, ChatResponse
+from agentscope.model import (
+    OpenAIChatModel,
+    ChatResponse,
+    ChatResponseAccumulator,
+)
 from agentscope.message import TextBlock, ToolUseBlock, ThinkingBlock
 
 
@@ -249,6 +253,123 @@ class TestOpenAIChatModel(IsolatedAsyncioTestCase):
             expected_content = [TextBlock(type="text", text="Hello there!")]
             self.assertEqual(final_response.content, expected_content)
 
+    async def test_streaming_tool_call_arguments(self) -> None:
+        """Test the incremental parsing of the streaming tool call
+        arguments."""
+        arguments = ['{"location": "Bei', 'jing", "days": [1, ', "2]}"]
+        for stream_tool_input in [True, False]:
+            with patch("openai.AsyncClient") as mock_client_class:
+                mock_client = AsyncMock()
+                mock_client_class.return_value = mock_client
+
+                model = OpenAIChatModel(
+                    model_name="gpt-4",
+                    api_key="test_key",
+                    stream=True,
+                )
+                model.client = mock_client
+                model.stream_tool_input = stream_tool_input
+
+                stream_mock = self._create_stream_mock(
+                    [
+                        {
+                            "tool_calls": [
+                                {
+                                    "id": "call_123",
+                                    "name": "get_weather",
+                                    "arguments": _,
+                                },
+                            ],
+                        }
+                        for _ in arguments
+                    ],
+                )
+                mock_client.chat.completions.create = AsyncMock(
+                    return_value=stream_mock,
+                )
+                result = await model(
+                    [{"role": "user", "content": "What's the weather?"}],
+                )
+                responses = [_ async for _ in result]
+
+                partial_inputs = [
+                    _.content[0]["input"] for _ in responses[:-1]
+                ]
+                if stream_tool_input:
+                    self.assertEqual(
+                        partial_inputs,
+                        [
+                            {"location": "Bei"},
+                            {"location": "Beijing", "days": [1]},
+                        ],
+                    )
+                else:
+                    self.assertEqual(partial_inputs, [{}])
+
+                self.assertEqual(
+                    responses[-1].content,
+                    [
+                        ToolUseBlock(
+                            type="tool_use",
+                            id="call_123",
+                            name="get_weather",
+                            input={"location": "Beijing", "days": [1, 2]},
+                        ),
+                    ],
+                )
+
+    async def test_streaming_delta_responses(self) -> None:
+        """Test the delta streaming responses and their accumulation."""
+        with patch("openai.AsyncClient") as mock_client_class:
+            mock_client = AsyncMock()
+            mock_client_class.return_value = mock_client
+
+            model = OpenAIChatModel(
+                model_name="gpt-4",
+                api_key="test_key",
+                stream=True,
+            )
+            model.client = mock_client
+            model.stream_delta = True
+
+            stream_mock = self._create_stream_mock(
+                [
+                    {"reasoning_content": "Let me"},
+                    {"reasoning_content": " think", "content": "Hello"},
+                    {"content": " there!"},
+                ],
+            )
+            mock_client.chat.completions.create = AsyncMock(
+                return_value=stream_mock,
+            )
+            result = await model([{"role": "user", "content": "Hello"}])
+
+            accumulator = ChatResponseAccumulator()
+            responses = []
+            async for response in result:
+                self.assertTrue(response.is_delta)
+                responses.append(response.content)
+                accumulator.update(response)
+
+            self.assertEqual(
+                responses,
+                [
+                    [ThinkingBlock(type="thinking", thinking="Let me")],
+                    [
+                        ThinkingBlock(type="thinking", thinking=" think"),
+                        TextBlock(type="text", text="Hello"),
+                    ],
+                    [TextBlock(type="text", text=" there!")],
+                ],
+            )
+            self.assertEqual(
+                accumulator.content,
+                [
+                    ThinkingBlock(type="thinking", thinking="Let me think"),
+                    TextBlock(type="text", text="Hello there!"),
+                ],
+            )
+
     # Auxiliary methods - ensure all Mock objects have complete attributes
     def _create_mock_response(
         self,
@@ -1,15 +1,22 @@
 # -*- coding: utf-8 -*-
 """The ReAct agent unittests."""
-from typing import Any
+import asyncio
+import os
+import tempfile
+from typing import Any, AsyncGenerator
 from unittest import IsolatedAsyncioTestCase
 
 from agentscope.agent import ReActAgent
+from agentscope.hooks import read_only_hook
 from agentscope.formatter import DashScopeChatFormatter
 from agentscope.memory import InMemoryMemory
 from agentscope.message import TextBlock, ToolUseBlock, Msg
 from agentscope.model import ChatModelBase, ChatResponse
+from agentscope.session import JSONSession
 from agentscope.tool import Toolkit
 
+from long_term_memory_test import SlowLongTermMemory
+
 
 class MyModel(ChatModelBase):
     """Test model class."""
@@ -70,6 +77,42 @@ async def post_acting_hook(
         self.cnt_post_acting = 1
 
 
+class DeltaStreamModel(ChatModelBase):
+    """Test model streaming the delta responses."""
+
+    stream_delta = True
+
+    def __init__(self, pieces: list[str]) -> None:
+        """Initialize the test model."""
+        super().__init__("test_model", stream=True)
+        self.pieces = pieces
+
+    async def __call__(
+        self,
+        _messages: list[dict],
+        **kwargs: Any,
+    ) -> AsyncGenerator[ChatResponse, None]:
+        """Mock streaming model call."""
+
+        async def generator() -> AsyncGenerator[ChatResponse, None]:
+            yield ChatResponse(
+                content=[{"type": "thinking", "thinking": "Hmm"}],
+                is_delta=True,
+                indices=[0],
+            )
+            for piece in self.pieces:
+                yield ChatResponse(
+                    content=[
+                        {"type": "thinking", "thinking": "."},
+                        TextBlock(type="text", text=piece),
+                    ],
+                    is_delta=True,
+                    indices=[0, 1],
+                )
+
+        return generator()
+
+
 class ReActAgentTest(IsolatedAsyncioTestCase):
     """Test class for ReActAgent."""
 
@@ -153,3 +196,69 @@ class ReActAgentTest(IsolatedAsyncioTestCase):
             getattr(agent, "cnt_post_acting"),
             2,
         )
+
+    async def test_static_control_long_term_memory(self) -> None:
+        """Test recording the long-term memory in background."""
+        long_term_memory = SlowLongTermMemory()
+        long_term_memory.gate = asyncio.Event()
+        agent = ReActAgent(
+            name="Friday",
+            sys_prompt="You are a helpful assistant named Friday.",
+            model=MyModel(),
+            formatter=DashScopeChatFormatter(),
+            long_term_memory=long_term_memory,
+            long_term_memory_mode="static_control",
+        )
+
+        # The reply doesn't wait for the recording
+        await agent(Msg("user", "hi", "user"))
+        self.assertListEqual([], long_term_memory.records)
+        memory = await agent.memory.get_memory()
+        self.assertEqual("long_term_memory", memory[1].name)
+        self.assertIn("0 record(s)", memory[1].get_text_content())
+
+        # The session waits for the recording before saving
+        long_term_memory.gate.set()
+        with tempfile.TemporaryDirectory() as save_dir:
+            session = JSONSession("test", save_dir=save_dir)
+            await session.save_session_state(agent=agent)
+            self.assertTrue(os.path.exists(session.save_path))
+        self.assertEqual(1, len(long_term_memory.records))
+        self.assertEqual("hi", long_term_memory.records[0][0][0])
+        self.assertEqual("123", long_term_memory.records[0][0][-1])
+
+    async def test_delta_streaming(self) -> None:
+        """Test merging the delta responses into the message in place."""
+        pieces = [f"{i} " for i in range(100)]
+        agent = ReActAgent(
+            name="Friday",
+            sys_prompt="You are a helpful assistant named Friday.",
+            model=DeltaStreamModel(pieces),
+            formatter=DashScopeChatFormatter(),
+        )
+        agent.disable_console_output()
+
+        printed = []
+
+        @read_only_hook
+        def record_hook(_self: ReActAgent, kwargs: dict) -> None:
+            """Record the printed messages."""
+            printed.append(
+                [dict(_) for _ in kwargs["msg"].get_content_blocks()],
+            )
+
+        agent.register_instance_hook("pre_print", "record", record_hook)
+
+        reply = await agent(Msg("user", "count", "user"))
+        self.assertEqual("".join(pieces), reply.get_text_content())
+
+        # The message is printed after each chunk with the merged content
+        self.assertEqual(102, len(printed))
+        self.assertListEqual(
+            [
+                {"type": "thinking", "thinking": "Hmm" + "." * 50},
+                {"type": "text", "text": "".join(pieces[:50])},
+            ],
+            printed[50],
+        )
+        self.assertEqual("Hmm" + "." * 100, printed[-1][0]["thinking"])
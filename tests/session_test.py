@@ -1,17 +1,30 @@
 # -*- coding: utf-8 -*-
 """Session module tests."""
+import asyncio
+import json
 import os
+import sqlite3
+import tempfile
 from typing import Union
 from unittest import IsolatedAsyncioTestCase
 
 from agentscope.agent import ReActAgent, AgentBase
+from agentscope.codec import BinaryCodec
 from agentscope.formatter import DashScopeChatFormatter
 from agentscope.memory import InMemoryMemory
 from agentscope.message import Msg
 from agentscope.model import DashScopeChatModel
-from agentscope.session import JSONSession
+from agentscope.session import JSONSession, SQLiteSession
 from agentscope.tool import Toolkit
 
+_SESSION_FILES = [
+    "./user_1.json",
+    "./user_1.bin",
+    "./user_1.json.log",
+    "./user_1.bin.log",
+    "./user_1.json.log.corrupt",
+]
+
 
 class MyAgent(AgentBase):
     """Test agent class."""
@@ -45,9 +58,9 @@ class SessionTest(IsolatedAsyncioTestCase):
 
     async def asyncSetUp(self) -> None:
         """Set up the test case."""
-        session_file = "./user_1.json"
-        if os.path.exists(session_file):
-            os.remove(session_file)
+        for session_file in _SESSION_FILES:
+            if os.path.exists(session_file):
+                os.remove(session_file)
 
     async def test_session_base(self) -> None:
         """Test the SessionBase class."""
@@ -76,9 +89,230 @@ class SessionTest(IsolatedAsyncioTestCase):
 
         await session.save_session_state(agent1=agent1, agent2=agent2)
 
+    async def test_incremental_json_session(self) -> None:
+        """Test appending the state changes to the session log."""
+        session = JSONSession("user_1", save_dir="./")
+        agent = MyAgent()
+
+        # The first save writes the snapshot
+        await agent.memory.add(Msg("Alice", "Hi!", "user"))
+        await session.save_session_state(agent=agent)
+        self.assertTrue(os.path.exists(session.save_path))
+        self.assertFalse(os.path.exists(session.log_path))
+
+        # The following saves only append the new messages
+        for i in range(3):
+            await agent.memory.add(Msg("Alice", f"Message {i}", "user"))
+            await session.save_session_state(agent=agent)
+        agent.name = "Jarvis"
+        await session.save_session_state(agent=agent)
+        await session.save_session_state(agent=agent)
+
+        with open(session.log_path, "r", encoding="utf-8") as f:
+            entries = [json.loads(_) for _ in f]
+        self.assertEqual(4, len(entries))
+        self.assertListEqual(
+            [
+                {
+                    "op": "extend",
+                    "path": ["agent", "memory", "content"],
+                    "values": [agent.memory.content[1].to_dict()],
+                },
+            ],
+            entries[0]["ops"],
+        )
+        self.assertListEqual(
+            [{"op": "set", "path": ["agent", "name"], "value": "Jarvis"}],
+            entries[3]["ops"],
+        )
+
+        # Load from the snapshot and the log
+        new_agent = MyAgent()
+        await JSONSession("user_1", save_dir="./").load_session_state(
+            agent=new_agent,
+        )
+        self.assertDictEqual(agent.state_dict(), new_agent.state_dict())
+
+        # Merge the log into the snapshot
+        await agent.memory.delete(0)
+        await session.save_session_state(agent=agent)
+        await session.compact()
+        self.assertFalse(os.path.exists(session.log_path))
+
+        new_agent = MyAgent()
+        await JSONSession("user_1", save_dir="./").load_session_state(
+            agent=new_agent,
+        )
+        self.assertDictEqual(agent.state_dict(), new_agent.state_dict())
+        self.assertEqual(3, len(new_agent.memory.content))
+
+    async def test_binary_json_session(self) -> None:
+        """Test the JSON session with the binary codec."""
+        session = JSONSession("user_1", save_dir="./", codec=BinaryCodec())
+        self.assertEqual("./user_1.bin", session.save_path)
+        self.assertEqual("./user_1.bin.log", session.log_path)
+
+        agent = MyAgent()
+        for i in range(3):
+            await agent.memory.add(Msg("Alice", f"Message {i}", "user"))
+            await session.save_session_state(agent=agent)
+        self.assertTrue(os.path.exists(session.log_path))
+
+        # Append a partially written entry, which is skipped when loading
+        with open(session.log_path, "ab") as f:
+            f.write(b"\x00\x00\x01")
+
+        new_agent = MyAgent()
+        new_session = JSONSession("user_1", save_dir="./", codec=BinaryCodec())
+        await new_session.load_session_state(agent=new_agent)
+        self.assertDictEqual(agent.state_dict(), new_agent.state_dict())
+
+        await new_agent.memory.add(Msg("Alice", "Message 3", "user"))
+        await new_session.save_session_state(agent=new_agent)
+        await new_session.compact()
+
+        agent = MyAgent()
+        await JSONSession(
+            "user_1",
+            save_dir="./",
+            codec=BinaryCodec(),
+        ).load_session_state(agent=agent)
+        self.assertDictEqual(agent.state_dict(), new_agent.state_dict())
+        self.assertEqual(4, len(agent.memory.content))
+
+    async def test_undecodable_session_log(self) -> None:
+        """Test keeping the log whose first entry cannot be decoded."""
+        session = JSONSession("user_1", save_dir="./")
+        self.assertEqual("./user_1.json.log", session.log_path)
+        agent = MyAgent()
+        await session.save_session_state(agent=agent)
+
+        garbage = b"\x00\x01 not a JSON entry\n"
+        with open(session.log_path, "wb") as f:
+            f.write(garbage)
+
+        # The log is moved aside rather than truncated
+        new_agent = MyAgent()
+        new_session = JSONSession("user_1", save_dir="./")
+        await new_session.load_session_state(agent=new_agent)
+        self.assertDictEqual(agent.state_dict(), new_agent.state_dict())
+        self.assertFalse(os.path.exists(session.log_path))
+        with open(session.log_path + ".corrupt", "rb") as f:
+            self.assertEqual(garbage, f.read())
+
+        # The new changes are saved after the snapshot as usual
+        await new_agent.memory.add(Msg("Alice", "Hi!", "user"))
+        await new_session.save_session_state(agent=new_agent)
+        agent = MyAgent()
+        await JSONSession("user_1", save_dir="./").load_session_state(
+            agent=agent,
+        )
+        self.assertDictEqual(new_agent.state_dict(), agent.state_dict())
+
+    async def test_sqlite_session(self) -> None:
+        """Test the SQLite session."""
+        with tempfile.TemporaryDirectory() as temp_dir:
+            db_path = os.path.join(temp_dir, "sessions.db")
+
+            # Save multiple sessions concurrently
+            agents = [MyAgent() for _ in range(3)]
+            sessions = [
+                SQLiteSession(f"user_{i}", db_path) for i in range(3)
+            ]
+            for i, agent in enumerate(agents):
+                agent.name = f"agent_{i}"
+                for j in range(5):
+                    await agent.memory.add(Msg("Alice", f"{i}-{j}", "user"))
+            await asyncio.gather(
+                *[
+                    session.save_session_state(agent=agent)
+                    for session, agent in zip(sessions, agents)
+                ],
+            )
+
+            # Only the new messages are inserted
+            await agents[0].memory.add(Msg("Alice", "0-5", "user"))
+            await sessions[0].save_session_state(agent=agents[0])
+
+            for i, agent in enumerate(agents):
+                new_agent = MyAgent()
+                await SQLiteSession(f"user_{i}", db_path).load_session_state(
+                    agent=new_agent,
+                )
+                self.assertDictEqual(
+                    agent.state_dict(),
+                    new_agent.state_dict(),
+                )
+
+            # Load the last messages only, and the older ones are kept after
+            # saving
+            new_agent = MyAgent()
+            session = SQLiteSession("user_0", db_path)
+            await session.load_session_state(last_n=2, agent=new_agent)
+            self.assertListEqual(
+                ["0-4", "0-5"],
+                [_.content for _ in new_agent.memory.content],
+            )
+            await new_agent.memory.add(Msg("Alice", "0-6", "user"))
+            await session.save_session_state(agent=new_agent)
+
+            new_agent = MyAgent()
+            await SQLiteSession("user_0", db_path).load_session_state(
+                agent=new_agent,
+            )
+            self.assertListEqual(
+                [f"0-{_}" for _ in range(7)],
+                [_.content for _ in new_agent.memory.content],
+            )
+
+            with self.assertRaises(ValueError):
+                await SQLiteSession("user_3", db_path).load_session_state(
+                    agent=MyAgent(),
+                )
+
+            # Cancel the saves being committed and waiting in the queue,
+            # while the database is locked by another connection
+            blocker = sqlite3.connect(db_path, isolation_level=None)
+            blocker.execute("BEGIN IMMEDIATE")
+            for i, agent in enumerate(agents):
+                await agent.memory.add(Msg("Alice", f"{i}-new", "user"))
+            running = asyncio.create_task(
+                sessions[0].save_session_state(agent=agents[0]),
+            )
+            await asyncio.sleep(0.2)
+            queued = asyncio.create_task(
+                sessions[1].save_session_state(agent=agents[1]),
+            )
+            await asyncio.sleep(0.05)
+            running.cancel()
+            queued.cancel()
+            await asyncio.wait([running, queued])
+            blocker.execute("ROLLBACK")
+            blocker.close()
+
+            # The writer keeps working and the sessions are saved in full
+            await asyncio.wait_for(
+                asyncio.gather(
+                    *[
+                        session.save_session_state(agent=agent)
+                        for session, agent in zip(sessions, agents)
+                    ],
+                ),
+                timeout=10,
+            )
+            for i, agent in enumerate(agents):
+                new_agent = MyAgent()
+                await SQLiteSession(f"user_{i}", db_path).load_session_state(
+                    agent=new_agent,
+                )
+                self.assertDictEqual(
+                    agent.state_dict(),
+                    new_agent.state_dict(),
+                )
+
     async def asyncTearDown(self) -> None:
         """Clean up after the test."""
-        # Remove the session file if it exists
-        session_file = "./user_1.json"
-        if os.path.exists(session_file):
-            os.remove(session_file)
+        # Remove the session files if exist
+        for session_file in _SESSION_FILES:
+            if os.path.exists(session_file):
+                os.remove(session_file)
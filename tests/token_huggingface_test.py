@@ -31,3 +31,33 @@ class TokenCounterTest(IsolatedAsyncioTestCase):
             self.common_messages,
         )
         self.assertEqual(res, 49)
+
+        res = await counter.count_batch(
+            [self.common_messages[:2], self.common_messages],
+        )
+        self.assertEqual(res[1], 49)
+        self.assertEqual(
+            res[0],
+            await counter.count(self.common_messages[:2]),
+        )
+
+        # The padding tokens are not counted
+        res = await counter.count_batch(
+            [self.common_messages[:2], self.common_messages],
+            padding="max_length",
+            max_length=128,
+        )
+        self.assertListEqual(
+            res,
+            [await counter.count(self.common_messages[:2]), 49],
+        )
+        self.assertEqual(
+            await counter.count(
+                self.common_messages,
+                padding="max_length",
+                max_length=128,
+            ),
+            49,
+        )
+
+        await counter.close()
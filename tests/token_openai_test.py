@@ -2,10 +2,45 @@
 # pylint: disable=line-too-long
 # flake8: noqa: E501
 """The unittests for OpenAI token counter."""
+import base64
 import os
+import struct
+from http import HTTPStatus
 from unittest.async_case import IsolatedAsyncioTestCase
+from unittest.mock import MagicMock, patch
 
 from agentscope.token import OpenAITokenCounter
+from agentscope.token._openai_token_counter import (
+    _IMAGE_HEADER_BYTES,
+    _get_size_of_image_url,
+    _image_size_cache,
+    _parse_image_size,
+)
+
+
+def _build_png(width: int, height: int) -> bytes:
+    """Build the leading bytes of a PNG image."""
+    return (
+        b"\x89PNG\r\n\x1a\n"
+        + struct.pack(">I", 13)
+        + b"IHDR"
+        + struct.pack(">II", width, height)
+        + b"\x08\x02\x00\x00\x00"
+    )
+
+
+def _build_jpeg(width: int, height: int) -> bytes:
+    """Build the leading bytes of a JPEG image, where the start of frame
+    follows an APP0 segment."""
+    return (
+        b"\xff\xd8"
+        + b"\xff\xe0"
+        + struct.pack(">H", 16)
+        + b"JFIF\x00".ljust(14, b"\x00")
+        + b"\xff\xc0"
+        + struct.pack(">HBHH", 17, 8, height, width)
+        + b"\x03" * 9
+    )
 
 
 class OpenAITokenCounterTest(IsolatedAsyncioTestCase):
@@ -158,3 +193,138 @@ class OpenAITokenCounterTest(IsolatedAsyncioTestCase):
 
         n_tokens = await counter.count(self.messages, self.tools)
         self.assertEqual(n_tokens, 1841)
+
+    async def test_openai_token_counter_cache(self) -> None:
+        """Test the per-message token count cache."""
+        counter = OpenAITokenCounter(
+            model_name="gpt-4o-mini",
+        )
+        n_tokens = await counter.count(self.messages[:-1])
+        info = counter.cache_info()
+        self.assertEqual(info.hits, 0)
+        self.assertEqual(info.misses, len(self.messages) - 1)
+
+        # Only the new message is counted
+        self.assertEqual(await counter.count(self.messages), 2016)
+        info = counter.cache_info()
+        self.assertEqual(info.hits, len(self.messages) - 1)
+        self.assertEqual(info.misses, len(self.messages))
+        self.assertGreater(2016, n_tokens)
+
+        counter.cache_clear()
+        self.assertEqual(counter.cache_info().currsize, 0)
+
+    def test_parse_image_size(self) -> None:
+        """Test parsing the image size from the header bytes."""
+        png = _build_png(640, 480)
+        self.assertEqual((640, 480), _parse_image_size(png + b"\x00" * 100))
+        self.assertIsNone(_parse_image_size(png[:20]))
+
+        gif = b"GIF89a" + struct.pack("<HH", 320, 200) + b"\x00" * 10
+        self.assertEqual((320, 200), _parse_image_size(gif))
+        self.assertEqual((320, 200), _parse_image_size(b"GIF87a" + gif[6:]))
+        self.assertIsNone(_parse_image_size(gif[:8]))
+
+        # The extended, lossy and lossless WebP images
+        riff = b"RIFF" + struct.pack("<I", 100) + b"WEBP"
+        webp_vp8x = (
+            riff
+            + b"VP8X"
+            + struct.pack("<I", 10)
+            + b"\x00" * 4
+            + (1023).to_bytes(3, "little")
+            + (767).to_bytes(3, "little")
+        )
+        self.assertEqual((1024, 768), _parse_image_size(webp_vp8x))
+        webp_vp8 = (
+            riff
+            + b"VP8 "
+            + struct.pack("<I", 10)
+            + b"\x00" * 3
+            + b"\x9d\x01\x2a"
+            + struct.pack("<HH", 800, 600)
+        )
+        self.assertEqual((800, 600), _parse_image_size(webp_vp8))
+        webp_vp8l = (
+            riff
+            + b"VP8L"
+            + struct.pack("<I", 10)
+            + b"\x2f"
+            + ((400 - 1) | (300 - 1) << 14).to_bytes(4, "little")
+            + b"\x00" * 5
+        )
+        self.assertEqual((400, 300), _parse_image_size(webp_vp8l))
+        self.assertIsNone(_parse_image_size(webp_vp8x[:25]))
+        self.assertIsNone(
+            _parse_image_size(riff + b"ABCD" + b"\x00" * 20),
+        )
+
+        jpeg = _build_jpeg(1920, 1080)
+        self.assertEqual((1920, 1080), _parse_image_size(jpeg))
+        self.assertEqual(
+            (1920, 1080),
+            _parse_image_size(jpeg[:2] + b"\xff" + jpeg[2:]),
+        )
+        # Truncated in the start of frame, and a corrupt segment marker
+        self.assertIsNone(_parse_image_size(jpeg[:24]))
+        self.assertIsNone(_parse_image_size(jpeg[:20] + b"\x00" * 20))
+
+        self.assertIsNone(_parse_image_size(b""))
+        self.assertIsNone(_parse_image_size(b"BM" + b"\x00" * 100))
+
+    def test_image_size_fallback_and_cache(self) -> None:
+        """Test falling back to PIL and caching the image sizes."""
+        _image_size_cache.clear()
+
+        # The base64 image unsupported by the header parser
+        bmp = base64.b64encode(b"BM" + b"\x00" * 100).decode("ascii")
+        with patch(
+            "agentscope.token._openai_token_counter._get_image_size_by_pil",
+            return_value=(10, 20),
+        ) as mock_pil:
+            for _ in range(2):
+                self.assertEqual(
+                    (10, 20),
+                    _get_size_of_image_url(f"data:image/bmp;base64,{bmp}"),
+                )
+            mock_pil.assert_called_once_with(base64.b64decode(bmp))
+
+        # Only the leading bytes of the web image are requested, once
+        png = _build_png(512, 256)
+        response = MagicMock(status_code=HTTPStatus.PARTIAL_CONTENT)
+        response.content = png
+        with patch("requests.get", return_value=response) as mock_get:
+            for _ in range(2):
+                self.assertEqual(
+                    (512, 256),
+                    _get_size_of_image_url("https://example.com/image.png"),
+                )
+            mock_get.assert_called_once_with(
+                "https://example.com/image.png",
+                headers={"Range": f"bytes=0-{_IMAGE_HEADER_BYTES - 1}"},
+            )
+
+        # The whole web image is downloaded for PIL if the header is
+        # truncated by the range request
+        header = b"BM" + b"\x00" * (_IMAGE_HEADER_BYTES - 2)
+        responses = [
+            MagicMock(status_code=HTTPStatus.PARTIAL_CONTENT, content=header),
+            MagicMock(status_code=HTTPStatus.OK, content=header + b"\x00"),
+        ]
+        with patch("requests.get", side_effect=responses) as mock_get, patch(
+            "agentscope.token._openai_token_counter._get_image_size_by_pil",
+            return_value=(30, 40),
+        ) as mock_pil:
+            self.assertEqual(
+                (30, 40),
+                _get_size_of_image_url("https://example.com/image.bmp"),
+            )
+            self.assertEqual(2, mock_get.call_count)
+            self.assertEqual(
+                {"headers": None},
+                mock_get.call_args.kwargs,
+            )
+            mock_pil.assert_called_once_with(header + b"\x00")
+
+        self.assertEqual(3, len(_image_size_cache))
+        _image_size_cache.clear()
@@ -1,23 +1,40 @@
 # -*- coding: utf-8 -*-
 """The tool module unit tests"""
 
+import asyncio
 import os
 import platform
 import sys
 import tempfile
+from typing import AsyncGenerator
 from unittest import IsolatedAsyncioTestCase
+from unittest.mock import patch
 
 import shortuuid
 
+from agentscope import _config
 from agentscope.tool import (
+    Toolkit,
     execute_python_code,
+    PythonWorkerPool,
     execute_shell_command,
     view_text_file,
     write_text_file,
     insert_text_file,
+    ToolResponse,
 )
 
 
+async def _get_last_response(
+    chunks: AsyncGenerator[ToolResponse, None],
+) -> ToolResponse:
+    """Consume the streamed tool responses and return the last one."""
+    res = None
+    async for res in chunks:
+        pass
+    return res
+
+
 class ToolTest(IsolatedAsyncioTestCase):
     """Test cases for the tool module."""
 
@@ -31,7 +48,7 @@ class ToolTest(IsolatedAsyncioTestCase):
         """Test executing Python code."""
 
         # empty output
-        res = await execute_python_code(code="a = 1 + 1")
+        res = await _get_last_response(execute_python_code(code="a = 1 + 1"))
         self.assertEqual(
             "<returncode>0</returncode>"
             "<stdout></stdout>"
@@ -40,7 +57,9 @@ class ToolTest(IsolatedAsyncioTestCase):
         )
 
         # with output
-        res = await execute_python_code(code="print('Hello, World!')")
+        res = await _get_last_response(
+            execute_python_code(code="print('Hello, World!')"),
+        )
 
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
@@ -51,7 +70,9 @@ class ToolTest(IsolatedAsyncioTestCase):
         )
 
         # with exception
-        res = await execute_python_code(code="raise Exception('Test error')")
+        res = await _get_last_response(
+            execute_python_code(code="raise Exception('Test error')"),
+        )
         actual = res.content[0]["text"].replace("\r\n", "\n")
 
         self.assertTrue(
@@ -76,7 +97,7 @@ import time
 time.sleep(5)
 print("456")"""
 
-        res = await execute_python_code(code)
+        res = await _get_last_response(execute_python_code(code))
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
             "<returncode>0</returncode>"
@@ -85,7 +106,7 @@ print("456")"""
             actual,
         )
 
-        res = await execute_python_code(code, timeout=2)
+        res = await _get_last_response(execute_python_code(code, timeout=2))
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
             "<returncode>-1</returncode>"
@@ -95,11 +116,154 @@ print("456")"""
             actual,
         )
 
+    async def test_python_worker_pool(self) -> None:
+        """Test executing Python code in the warm worker pool."""
+        pool = PythonWorkerPool(size=1, max_runs=3)
+        await pool.start()
+
+        # with output
+        res = await pool.execute_python_code(code="print('Hello, World!')")
+        self.assertEqual(
+            "<returncode>0</returncode>"
+            "<stdout>Hello, World!\n</stdout>"
+            "<stderr></stderr>",
+            res.content[0]["text"],
+        )
+
+        # with exception
+        res = await pool.execute_python_code(
+            code="raise Exception('Test error')",
+        )
+        actual = res.content[0]["text"]
+        self.assertTrue(
+            actual.startswith(
+                "<returncode>1</returncode>"
+                "<stdout></stdout>"
+                "<stderr>Traceback (most recent call last):\n  File ",
+            ),
+        )
+        self.assertTrue(
+            actual.endswith(
+                '.py", line 1, in <module>\n'
+                "    raise Exception('Test error')\n"
+                "Exception: Test error\n"
+                "</stderr>",
+            ),
+        )
+
+        # fresh namespace without session, and the worker is recycled
+        # after max_runs
+        await pool.execute_python_code(code="a = 1")
+        res = await pool.execute_python_code(code="print('a' in dir())")
+        self.assertIn("<stdout>False\n</stdout>", res.content[0]["text"])
+
+        # persistent namespace within the session
+        await pool.execute_python_code(code="a = 1", session_id="s1")
+        res = await pool.execute_python_code(
+            code="print(a + 1)",
+            session_id="s1",
+        )
+        self.assertIn("<stdout>2\n</stdout>", res.content[0]["text"])
+        res = await pool.execute_python_code(
+            code="print('a' in dir())",
+            session_id="s2",
+        )
+        self.assertIn("<stdout>False\n</stdout>", res.content[0]["text"])
+
+        # with timeout
+        res = await pool.execute_python_code(
+            code="print('123')\nimport time\ntime.sleep(5)",
+            timeout=2,
+        )
+        self.assertEqual(
+            "<returncode>-1</returncode>"
+            "<stdout>123\n</stdout>"
+            "<stderr>TimeoutError: The code execution exceeded the "
+            "timeout of 2 seconds.</stderr>",
+            res.content[0]["text"],
+        )
+
+        # the killed worker is replaced
+        res = await pool.execute_python_code(code="print(1)")
+        self.assertIn("<stdout>1\n</stdout>", res.content[0]["text"])
+
+        await pool.close()
+
+    async def test_python_worker_pool_failures(self) -> None:
+        """Test the worker pool when the workers are unavailable."""
+        pool = PythonWorkerPool(size=1)
+
+        # The failed start is raised rather than waiting forever
+        with patch(
+            "agentscope.tool._coding._python_pool._WORKER_PATH",
+            os.path.join(tempfile.gettempdir(), "missing_worker.py"),
+        ):
+            with self.assertRaises(RuntimeError):
+                await asyncio.wait_for(
+                    pool.execute_python_code(code="print(1)"),
+                    timeout=10,
+                )
+
+        # The timeout includes waiting for the busy worker
+        busy = asyncio.create_task(
+            pool.execute_python_code(code="import time\ntime.sleep(30)"),
+        )
+        await asyncio.sleep(1)
+        res = await pool.execute_python_code(code="print(1)", timeout=0.5)
+        self.assertEqual(
+            "<returncode>-1</returncode><stdout></stdout>"
+            "<stderr>TimeoutError: No Python worker was available within "
+            "the timeout of 0.5 seconds.</stderr>",
+            res.content[0]["text"],
+        )
+
+        # Closing the pool kills the running worker
+        await asyncio.wait_for(pool.close(), timeout=5)
+        res = await asyncio.wait_for(busy, timeout=5)
+        self.assertNotIn("<returncode>0</returncode>", res.content[0]["text"])
+
+        # The pool works again after closing
+        res = await pool.execute_python_code(code="print(1)")
+        self.assertIn("<stdout>1\n</stdout>", res.content[0]["text"])
+        await pool.close()
+
+    async def test_python_worker_pool_cancellation(self) -> None:
+        """Test the next call after cancelling a running call."""
+        pool = PythonWorkerPool(size=1)
+        await pool.start()
+
+        for session_id in [None, "Friday"]:
+            task = asyncio.create_task(
+                pool.execute_python_code(
+                    code="import time\ntime.sleep(1)",
+                    session_id=session_id,
+                ),
+            )
+            await asyncio.sleep(0.5)
+            task.cancel()
+            with self.assertRaises(asyncio.CancelledError):
+                await task
+
+            # The result of the cancelled call isn't taken by the next one
+            res = await pool.execute_python_code(
+                code="import time\ntime.sleep(1.5)\nprint(2)",
+                session_id=session_id,
+            )
+            self.assertEqual(
+                "<returncode>0</returncode><stdout>2\n</stdout>"
+                "<stderr></stderr>",
+                res.content[0]["text"],
+            )
+
+        await pool.close()
+
     async def test_execute_shell_command(self) -> None:
         """Test executing shell command."""
         # empty output
         python_echo_cmd = f"{sys.executable} -c \"print('Hello, World!')\""
-        res = await execute_shell_command(command=python_echo_cmd)
+        res = await _get_last_response(
+            execute_shell_command(command=python_echo_cmd),
+        )
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
             "<returncode>0</returncode>"
@@ -109,7 +273,9 @@ print("456")"""
         )
 
         # with exception
-        res = await execute_shell_command(command="non_existent_command")
+        res = await _get_last_response(
+            execute_shell_command(command="non_existent_command"),
+        )
         assert any(
             keyword in res.content[0]["text"].lower()
             for keyword in ["not found", "is not recognized"]
@@ -122,8 +288,10 @@ print("456")"""
             f"time.sleep(0.1); print('456')\""
         )
 
-        res = await execute_shell_command(
-            command=normal_cmd,
+        res = await _get_last_response(
+            execute_shell_command(
+                command=normal_cmd,
+            ),
         )
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
@@ -139,9 +307,11 @@ print("456")"""
         else:
             timeout_cmd = 'echo "123"; sleep 5; echo "456"'
 
-        res = await execute_shell_command(
-            command=timeout_cmd,
-            timeout=2,
+        res = await _get_last_response(
+            execute_shell_command(
+                command=timeout_cmd,
+                timeout=2,
+            ),
         )
         actual = res.content[0]["text"].replace("\r\n", "\n")
         self.assertEqual(
@@ -152,6 +322,78 @@ print("456")"""
             actual,
         )
 
+    async def test_streaming_output(self) -> None:
+        """Test streaming and bounding the output of the coding tools."""
+        # streamed chunks with accumulated output
+        code = (
+            "import time\n"
+            "print('123')\n"
+            "time.sleep(1)\n"
+            "print('456')"
+        )
+        chunks = [_ async for _ in execute_python_code(code)]
+        self.assertGreater(len(chunks), 1)
+        self.assertEqual(
+            "<stdout>123\n</stdout><stderr></stderr>",
+            chunks[0].content[0]["text"],
+        )
+        self.assertFalse(chunks[0].is_last)
+        self.assertTrue(chunks[-1].is_last)
+        self.assertEqual(
+            "<returncode>0</returncode>"
+            "<stdout>123\n456\n</stdout>"
+            "<stderr></stderr>",
+            chunks[-1].content[0]["text"],
+        )
+
+        # The output limits are not exposed to the LLM
+        toolkit = Toolkit()
+        toolkit.register_tool_function(execute_python_code)
+        toolkit.register_tool_function(execute_shell_command)
+        for schema in toolkit.get_json_schemas():
+            self.assertListEqual(
+                ["command", "timeout"]
+                if schema["function"]["name"] == "execute_shell_command"
+                else ["code", "timeout"],
+                list(schema["function"]["parameters"]["properties"]),
+            )
+
+        # truncated output keeping the head and the tail
+        with patch.object(_config, "max_tool_output_bytes", 100):
+            res = await _get_last_response(
+                execute_python_code("print('a' * 100000 + 'b' * 10)"),
+            )
+        self.assertEqual(
+            "<returncode>0</returncode>"
+            "<stdout>" + "a" * 50 + "\n...[99911 bytes truncated]...\n"
+            "" + "a" * 39 + "b" * 10 + "\n</stdout>"
+            "<stderr></stderr>",
+            res.content[0]["text"],
+        )
+
+        # killed once exceeding the output budget
+        if platform.system() == "Windows":
+            return
+
+        with patch.object(
+            _config,
+            "max_tool_output_bytes",
+            10,
+        ), patch.object(_config, "tool_output_budget", 100000):
+            res = await _get_last_response(execute_shell_command("yes"))
+        self.assertTrue(
+            res.content[0]["text"].startswith(
+                "<returncode>-1</returncode><stdout>y\ny\ny\n",
+            ),
+        )
+        self.assertTrue(
+            res.content[0]["text"].endswith(
+                "<stderr>OutputLimitError: The command output exceeded the "
+                "budget of 100000 bytes, and the command execution was "
+                "stopped.</stderr>",
+            ),
+        )
+
     async def test_view_text_file(self) -> None:
         """Test viewing text file."""
         with tempfile.TemporaryDirectory() as temp_dir:
@@ -183,6 +425,14 @@ print("456")"""
                 res.content[0]["text"],
             )
 
+            # View the last lines
+            res = await view_text_file(temp_file, ranges=[-3, -1])
+            self.assertEqual(
+                f"The content of {temp_file} in [-3, -1] lines:\n"
+                f"```\n8: 8\n9: 9\n10: 10\n```",
+                res.content[0]["text"],
+            )
+
             # View a range that is invalid
             res = await view_text_file(temp_file, ranges=[11, 13])
             self.assertEqual(
@@ -191,6 +441,16 @@ print("456")"""
                 res.content[0]["text"],
             )
 
+            # View the file modified since the last view
+            with open(temp_file, "a", encoding="utf-8") as f:
+                f.write("11\n")
+            res = await view_text_file(temp_file, ranges=[-2, -1])
+            self.assertEqual(
+                f"The content of {temp_file} in [-2, -1] lines:\n"
+                f"```\n10: 10\n11: 11\n```",
+                res.content[0]["text"],
+            )
+
             # View invalid file path
             res = await view_text_file(file_path="non_existent_file.txt")
             self.assertEqual(
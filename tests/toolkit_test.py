@@ -1,6 +1,7 @@
 # -*- coding: utf-8 -*-
 """Test toolkit module in agentscope."""
 import asyncio
+import threading
 import time
 from copy import deepcopy
 from functools import partial
@@ -846,6 +847,122 @@ class ToolkitTest(IsolatedAsyncioTestCase):
                 "</notes>",
             )
 
+    async def test_json_schemas_cache(self) -> None:
+        """Test the cached JSON schemas and the toolkit version."""
+        self.toolkit.register_tool_function(sync_func)
+        schemas = self.toolkit.get_json_schemas()
+        version = self.toolkit.version
+
+        # The same object is returned until the toolkit changes
+        self.assertIs(self.toolkit.get_json_schemas(), schemas)
+        self.assertEqual(schemas.version, version)
+
+        with self.assertRaises(TypeError):
+            schemas.append({})
+        copied = deepcopy(schemas)
+        copied.append({})
+        self.assertEqual(len(schemas), 1)
+
+        self.toolkit.create_tool_group("group", "The test group.")
+        self.toolkit.register_tool_function(async_func, group_name="group")
+        self.assertEqual(len(self.toolkit.get_json_schemas()), 1)
+
+        self.toolkit.update_tool_groups(["group"], active=True)
+        new_schemas = self.toolkit.get_json_schemas()
+        self.assertIsNot(new_schemas, schemas)
+        self.assertGreater(self.toolkit.version, version)
+        self.assertListEqual(
+            [_["function"]["name"] for _ in new_schemas],
+            ["sync_func", "async_func"],
+        )
+
+        # Direct modifications are picked up after marking the change
+        self.toolkit.groups["group"].active = False
+        self.toolkit.mark_changed()
+        self.assertEqual(len(self.toolkit.get_json_schemas()), 1)
+
+    async def test_execution_in_thread(self) -> None:
+        """Test executing the sync tool functions in the thread pool."""
+
+        def blocking_func(seconds: float) -> ToolResponse:
+            """A blocking function for testing.
+
+            Args:
+                seconds (`float`):
+                    The seconds to sleep.
+            """
+            time.sleep(seconds)
+            return ToolResponse(content=[TextBlock(type="text", text="done")])
+
+        barrier = threading.Barrier(2, timeout=5)
+
+        def rendezvous_func() -> ToolResponse:
+            """A blocking function that returns only after another call
+            reaches it."""
+            barrier.wait()
+            return ToolResponse(content=[TextBlock(type="text", text="done")])
+
+        def blocking_generator() -> Generator[ToolResponse, None, None]:
+            """A blocking generator for testing."""
+            for text in ["1", "12"]:
+                time.sleep(0.05)
+                yield ToolResponse(content=[TextBlock(type="text", text=text)])
+
+        self.toolkit.create_tool_group("blocking", "Blocking tools.")
+        self.toolkit.register_tool_function(
+            blocking_func,
+            group_name="blocking",
+            execution="thread",
+            timeout=0.5,
+        )
+        self.toolkit.register_tool_function(
+            rendezvous_func,
+            execution="thread",
+        )
+        self.toolkit.register_tool_function(
+            blocking_generator,
+            execution="thread",
+        )
+
+        async def call(name: str, **kwargs: Any) -> list[ToolResponse]:
+            res = await self.toolkit.call_tool_function(
+                ToolUseBlock(type="tool_use", id="0", name=name, input=kwargs),
+            )
+            return [_ async for _ in res]
+
+        # The blocking calls overlap without blocking the loop, otherwise
+        # the barrier times out
+        results = await asyncio.gather(
+            call("rendezvous_func"),
+            call("rendezvous_func"),
+        )
+        self.assertFalse(barrier.broken)
+        for chunks in results:
+            self.assertEqual(chunks[0].content[0]["text"], "done")
+
+        chunks = await call("blocking_generator")
+        self.assertListEqual(
+            [_.content[0]["text"] for _ in chunks],
+            ["1", "12"],
+        )
+
+        chunks = await call("blocking_func", seconds=1)
+        self.assertTrue(
+            chunks[0].content[0]["text"].startswith("TimeoutError"),
+        )
+
+        task = asyncio.create_task(call("blocking_func", seconds=0.3))
+        await asyncio.sleep(0.1)
+        task.cancel()
+        chunks = await task
+        self.assertTrue(chunks[0].is_interrupted)
+
+        with self.assertRaises(ValueError):
+            Toolkit().register_tool_function(
+                blocking_generator,
+                execution="process",
+            )
+
     async def asyncTearDown(self) -> None:
         """Clean up after each test."""
         self.toolkit = None